@@ -0,0 +1,126 @@
+package konopi.battleship.bench;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.function.IntSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * The Harness is a minimal microbenchmark runner. It warms every benchmark up, then measures the average time
+ * and the average amount of allocated bytes per operation (the JMH {@code gc.alloc.rate.norm}) on the calling
+ * thread. Results of the measured calls are consumed by a volatile sink, so the JIT can't discard them.
+ */
+public class Harness {
+    /**
+     * Result of a single benchmark.
+     * @param name Benchmark name.
+     * @param params Description of the benchmark parameters.
+     * @param nanosPerOp Average time of an operation.
+     * @param bytesPerOp Average heap allocation of an operation.
+     */
+    public record Result(String name, String params, double nanosPerOp, double bytesPerOp) {
+        @Override
+        public String toString() {
+            return String.format("%-24s %-36s %14.1f ns/op %14.1f B/op", name, params, nanosPerOp, bytesPerOp);
+        }
+    }
+
+    /**
+     * Calls between reading the clock are grown during the warmup until a chunk of calls takes this long.
+     */
+    private static final long CHUNK_NANOS = 1_000_000;
+
+    private static volatile Object sink;
+    private static volatile int intSink;
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final int warmupIterations;
+    private final int measurementIterations;
+    private final long iterationNanos;
+    /**
+     * Only benchmarks with a name matching the filter are run.
+     */
+    private final Pattern filter;
+    private final List<Result> results = new ArrayList<>();
+
+    /**
+     * Main constructor.
+     * @param warmupIterations Amount of iterations run before measuring.
+     * @param measurementIterations Amount of measured iterations.
+     * @param iterationNanos Duration of a single iteration.
+     * @param filter Regular expression the benchmark names are matched against.
+     */
+    public Harness(int warmupIterations, int measurementIterations, long iterationNanos, String filter) {
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        this.iterationNanos = iterationNanos;
+        this.filter = Pattern.compile(filter);
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    /**
+     * Measures the specified call and prints the result.
+     * @param name Benchmark name.
+     * @param params Description of the benchmark parameters.
+     * @param opsPerCall Amount of operations performed by a single call, the results are divided by it.
+     * @param call The measured code. The returned value is consumed by the sink.
+     */
+    public void measure(String name, String params, int opsPerCall, Callable<Object> call) {
+        if (!filter.matcher(name).find()) return;
+
+        try {
+            int chunk = 1;
+            for (int i = 0; i < warmupIterations; ++i) {
+                long start = System.nanoTime();
+                while (System.nanoTime() - start < iterationNanos) {
+                    long chunkStart = System.nanoTime();
+                    for (int c = 0; c < chunk; ++c) sink = call.call();
+                    if (System.nanoTime() - chunkStart < CHUNK_NANOS) chunk <<= 1;
+                }
+            }
+
+            long calls = 0;
+            long nanos = 0;
+            long bytes = 0;
+            long threadId = Thread.currentThread().getId();
+            for (int i = 0; i < measurementIterations; ++i) {
+                long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+                long start = System.nanoTime();
+                long elapsed;
+                do {
+                    for (int c = 0; c < chunk; ++c) sink = call.call();
+                    calls += chunk;
+                    elapsed = System.nanoTime() - start;
+                } while (elapsed < iterationNanos);
+                nanos += elapsed;
+                bytes += threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+            }
+
+            double ops = (double) calls * opsPerCall;
+            Result result = new Result(name, params, nanos / ops, bytes / ops);
+            results.add(result);
+            System.out.println(result);
+        } catch (Exception e) {
+            throw new IllegalStateException("Benchmark " + name + " [" + params + "] failed", e);
+        }
+    }
+
+    /**
+     * Measures the specified call returning a primitive, so the result isn't boxed.
+     * @see #measure(String, String, int, Callable)
+     */
+    public void measureInt(String name, String params, int opsPerCall, IntSupplier call) {
+        measure(name, params, opsPerCall, () -> {
+            intSink = call.getAsInt();
+            return null;
+        });
+    }
+
+    public List<Result> getResults() {
+        return results;
+    }
+}
@@ -0,0 +1,414 @@
+package konopi.battleship.bench;
+
+import konopi.battleship.ai.DensityShooter;
+import konopi.battleship.ai.Posterior;
+import konopi.battleship.ai.PosteriorShooter;
+import konopi.battleship.ai.PosteriorSolver;
+import konopi.battleship.ai.RandomShooter;
+import konopi.battleship.ai.Shooter;
+import konopi.battleship.ai.TranspositionTable;
+import konopi.battleship.journal.GameJournal;
+import konopi.battleship.logic.*;
+import konopi.battleship.metrics.Metrics;
+import konopi.battleship.replay.MoveReplayer;
+import konopi.battleship.spectator.SpectatorView;
+import konopi.battleship.ui.ConsoleUI;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.random.RandomGenerator;
+
+/**
+ * Benchmarks of the logic package hot paths. Run with an optional regular expression selecting the benchmarks,
+ * e.g. {@code java -cp out/production/battleship:out/bench konopi.battleship.bench.LogicBenchmarks grid}.
+ * <p>
+ * Options are read from the system properties {@code bench.warmup} and {@code bench.iterations}
+ * (amount of iterations) and {@code bench.millis} (iteration duration).
+ */
+public class LogicBenchmarks {
+    /**
+     * Grid backends under test.
+     */
+    private static final List<Map.Entry<String, Grid.Factory>> GRIDS = List.of(
+            Map.entry("OceanGrid", OceanGrid::new),
+            Map.entry("BitboardOceanGrid", BitboardOceanGrid::new),
+            Map.entry("OffHeapOceanGrid", OffHeapOceanGrid::new));
+    /**
+     * Grid sizes under test, the grids are square.
+     */
+    private static final int[] GRID_SIZES = {10, 26};
+    /**
+     * Fleet compositions under test, as ship sizes.
+     */
+    private static final List<Map.Entry<String, int[]>> FLEETS = List.of(
+            Map.entry("classic", new int[]{5, 4, 3, 3, 2}),
+            Map.entry("dense", new int[]{5, 5, 4, 4, 4, 3, 3, 3, 3, 2, 2, 2, 2, 2}));
+
+    /**
+     * Game rules under test.
+     */
+    private static final List<Map.Entry<String, GameRules>> RULES = List.of(
+            Map.entry("standard", GameRules.standard()),
+            Map.entry("dense", new GameRules(10, 10, List.of(
+                    new GameRules.ShipType("Carrier", 5, 2),
+                    new GameRules.ShipType("Battleship", 4, 3),
+                    new GameRules.ShipType("Cruiser", 3, 4),
+                    new GameRules.ShipType("Destroyer", 2, 5)), true)),
+            Map.entry("100x100", new GameRules(100, 100, List.of(
+                    new GameRules.ShipType("Carrier", 5, 10),
+                    new GameRules.ShipType("Battleship", 4, 20),
+                    new GameRules.ShipType("Cruiser", 3, 30)), false)));
+
+    /**
+     * Shooters playing the games under test.
+     */
+    private static final List<Map.Entry<String, Function<RandomGenerator, Shooter>>> SHOOTERS = List.of(
+            Map.entry("RandomShooter", RandomShooter::new),
+            Map.entry("DensityShooter", DensityShooter::new));
+
+    private static final String[] COORDINATES_TEXT = {"A5", "J10", "K47", "d-6", "z99", "C3"};
+
+    private final Harness harness;
+
+    public LogicBenchmarks(Harness harness) {
+        this.harness = harness;
+    }
+
+    public static void main(String[] args) {
+        Harness harness = new Harness(
+                Integer.getInteger("bench.warmup", 3),
+                Integer.getInteger("bench.iterations", 5),
+                Long.getLong("bench.millis", 500L) * 1_000_000,
+                args.length > 0 ? args[0] : "");
+        new LogicBenchmarks(harness).run();
+    }
+
+    public void run() {
+        coordinates();
+        ships();
+        grids();
+        games();
+        journal();
+        snapshots();
+        spectators();
+        metrics();
+        solver();
+        replay();
+    }
+
+    private void coordinates() {
+        int[] i = {0};
+        harness.measure("coordinates.parse", "new Coordinates(String)", 1, () ->
+                new Coordinates(COORDINATES_TEXT[i[0]++ % COORDINATES_TEXT.length]));
+        harness.measure("coordinates.parse", "Coordinates.valueOf", 1, () ->
+                Coordinates.valueOf(COORDINATES_TEXT[i[0]++ % COORDINATES_TEXT.length]));
+        harness.measureInt("coordinates.parse", "Coordinates.parsePacked", 1, () ->
+                Coordinates.parsePacked(COORDINATES_TEXT[i[0]++ % COORDINATES_TEXT.length]));
+
+        Coordinates origin = Coordinates.valueOf("B2");
+        harness.measure("coordinates.getOffset", "", 1, () -> origin.getOffset(i[0]++ & 7, 3));
+    }
+
+    private void ships() {
+        Coordinates stern = Coordinates.valueOf("B2");
+        for (int size : new int[]{2, 5}) {
+            for (Ship.Orientation orientation : Ship.Orientation.values()) {
+                harness.measure("ship.new", "size=" + size + " " + orientation, 1, () ->
+                        new Ship(stern, size, orientation, "Ship"));
+            }
+        }
+    }
+
+    private void grids() {
+        for (Map.Entry<String, Grid.Factory> grid : GRIDS) {
+            for (int gridSize : GRID_SIZES) {
+                for (Map.Entry<String, int[]> fleet : FLEETS) {
+                    String params = grid.getKey() + " " + gridSize + "x" + gridSize + " " + fleet.getKey();
+                    List<int[]> placements = placeFleet(gridSize, fleet.getValue());
+
+                    /* includes creating the grid and the ships, see the ship.new results */
+                    harness.measure("grid.addShip", params, placements.size(), () -> {
+                        Grid g = grid.getValue().create(gridSize, gridSize);
+                        for (int[] placement : placements) g.addShip(ship(placement));
+                        return g;
+                    });
+
+                    /* fires at every square of a grid set up as in grid.addShip */
+                    int squares = gridSize * gridSize;
+                    harness.measure("grid.shoot", params, squares, () -> {
+                        Grid g = grid.getValue().create(gridSize, gridSize);
+                        for (int[] placement : placements) g.addShip(ship(placement));
+                        Object last = null;
+                        for (int square = 0; square < squares; ++square) {
+                            last = g.shoot(Coordinates.of(square / gridSize, square % gridSize));
+                        }
+                        return last;
+                    });
+
+                    /* the same in salvos of 5 with the batch shoot */
+                    int[] targets = new int[squares];
+                    for (int square = 0; square < squares; ++square) {
+                        targets[square] = Coordinates.pack(square / gridSize, square % gridSize);
+                    }
+                    int[] results = new int[squares];
+                    harness.measure("grid.shootBatch", params, squares, () -> {
+                        Grid g = grid.getValue().create(gridSize, gridSize);
+                        for (int[] placement : placements) g.addShip(ship(placement));
+                        for (int offset = 0; offset < squares; ) {
+                            offset += g.shoot(targets, offset, Math.min(5, squares - offset), results);
+                        }
+                        return results;
+                    });
+                }
+            }
+        }
+    }
+
+    private void games() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (Map.Entry<String, Grid.Factory> grid : GRIDS) {
+            for (Map.Entry<String, GameRules> rules : RULES) {
+                String params = grid.getKey() + " " + rules.getKey();
+                harness.measure("game.initialise", params, 1, () ->
+                        new Game(rules.getValue(), grid.getValue(), random));
+
+                for (Map.Entry<String, Function<RandomGenerator, Shooter>> shooterFactory : SHOOTERS) {
+                    harness.measure("game.play", params + " " + shooterFactory.getKey(), 1, () -> {
+                        Game game = new Game(rules.getValue(), grid.getValue(), random);
+                        Shooter shooter = shooterFactory.getValue().apply(random);
+                        shooter.initialise(game);
+                        while (game.isRunning()) {
+                            Coordinates target = shooter.nextTarget();
+                            game.setTargetCoordinates(target);
+                            game.tick();
+                            shooter.registerResult(target, game.getShotResult());
+                        }
+                        return game;
+                    });
+                }
+            }
+        }
+    }
+
+    private void journal() {
+        try {
+            Path path = Files.createTempFile("battleship", ".journal");
+            try (GameJournal journal = new GameJournal(path, GameRules.standard())) {
+                SplittableRandom random = new SplittableRandom(42);
+                long[] gameId = {0};
+                Game shotGame = new Game(BitboardOceanGrid::new, random);
+                GameListener listener = journal.listener(0);
+                Coordinates target = Coordinates.valueOf("C3");
+                Grid.ShotResult shotResult = new Grid.ShotResult(null, Ship.HitDesignation.MISS);
+                harness.measure("journal.shot", "", 1, () -> {
+                    listener.shotFired(shotGame, target, shotResult);
+                    return listener;
+                });
+
+                /* compare with game.play BitboardOceanGrid standard RandomShooter */
+                harness.measure("game.play", "BitboardOceanGrid standard RandomShooter journal", 1, () -> {
+                    Game game = new Game(GameRules.standard(), BitboardOceanGrid::new, random);
+                    journal.attach(++gameId[0], game);
+                    RandomShooter shooter = new RandomShooter(random);
+                    shooter.initialise(game);
+                    while (game.isRunning()) {
+                        game.setTargetCoordinates(shooter.nextTarget());
+                        game.tick();
+                    }
+                    journal.close(gameId[0]);
+                    return game;
+                });
+            } finally {
+                Files.delete(path);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void snapshots() {
+        for (Map.Entry<String, Grid.Factory> grid : GRIDS) {
+            for (Map.Entry<String, GameRules> rules : RULES) {
+                String params = grid.getKey() + " " + rules.getKey();
+                /* a game about half way through */
+                Game game = new Game(rules.getValue(), grid.getValue(), new SplitMix64(42));
+                RandomShooter shooter = new RandomShooter(new SplittableRandom(42));
+                shooter.initialise(game);
+                for (int i = game.GRID_X * game.GRID_Y / 2; i > 0 && game.isRunning(); --i) {
+                    game.setTargetCoordinates(shooter.nextTarget());
+                    game.tick();
+                }
+
+                ByteBuffer buffer = ByteBuffer.allocate(GameSnapshot.maxSize(game));
+                harness.measure("snapshot.write", params, 1, () -> {
+                    buffer.clear();
+                    GameSnapshot.write(game, buffer);
+                    return buffer;
+                });
+                buffer.flip();
+                harness.measure("snapshot.read", params + " " + buffer.limit() + " B", 1, () ->
+                        GameSnapshot.read(buffer.rewind(), rules.getValue(), grid.getValue()));
+            }
+        }
+    }
+
+    private void spectators() {
+        GameRules rules = new GameRules(100, 100, GameRules.standard().fleet(), true);
+        Game game = new Game(rules, BitboardOceanGrid::new, new SplitMix64(42));
+        SpectatorView view = new SpectatorView(game);
+        Coordinates target = Coordinates.valueOf("C3");
+        Grid.ShotResult shotResult = new Grid.ShotResult(null, Ship.HitDesignation.MISS);
+        harness.measure("spectator.shot", "100x100", 1, () -> {
+            view.shotFired(game, target, shotResult);
+            return view;
+        });
+
+        /* a reader catching up with a single shot, and one copying the whole board */
+        SpectatorView.Board board = view.read(null);
+        harness.measure("spectator.read", "100x100 incremental", 1, () -> {
+            view.shotFired(game, target, shotResult);
+            return view.read(board);
+        });
+        harness.measure("spectator.read", "100x100 full", 1, () -> view.read(null));
+    }
+
+    private void metrics() {
+        Metrics metrics = new Metrics();
+        long[] value = {0};
+        harness.measure("metrics.tick", "3 phases", 1, () -> {
+            long nanos = ++value[0] & 0xFFFF;
+            metrics.tick(nanos, nanos, nanos);
+            return metrics;
+        });
+
+        GameRules rules = GameRules.standard();
+        Grid.Factory instrumented = metrics.instrument(BitboardOceanGrid::new);
+        harness.measure("game.play", "BitboardOceanGrid standard RandomShooter instrumented", 1, () -> {
+            Game game = new Game(rules, instrumented, new SplitMix64(value[0]++));
+            RandomShooter shooter = new RandomShooter(new SplitMix64(value[0]));
+            shooter.initialise(game);
+            while (game.isRunning()) {
+                game.setTargetCoordinates(shooter.nextTarget());
+                game.tick();
+            }
+            return game;
+        });
+    }
+
+    /**
+     * The posterior solver on a single worker and on all of them, a CPU-bound workload scaling with the cores.
+     */
+    private void solver() {
+        PosteriorSolver.Position opening = new PosteriorSolver.Position(10, 10, true, 5, 4, 4);
+        PosteriorSolver.Position classic = new PosteriorSolver.Position(10, 10, true, 5, 4, 3, 3, 2)
+                .mark(4, 4, Ship.HitDesignation.HIT);
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int parallelism : cores > 1 ? new int[]{1, cores} : new int[]{1}) {
+            try (PosteriorSolver solver = new PosteriorSolver(parallelism, 42)) {
+                harness.measure("solver.enumerate", "standard opening workers=" + parallelism, 1, () ->
+                        solver.enumerate(opening));
+                harness.measure("solver.sample", "classic 1 hit workers=" + parallelism, 10_000, () ->
+                        solver.sample(classic, 10_000));
+            }
+        }
+
+        /* whole games on 16 fleets, the cached shooters solve each position once and then look it up */
+        GameRules small = new GameRules(6, 6, List.of(new GameRules.ShipType("Destroyer", 3, 1),
+                new GameRules.ShipType("Patrol", 2, 1)), false, 1);
+        TranspositionTable<Posterior> table = new TranspositionTable<>(1 << 14);
+        long[] seed = {0};
+        try (PosteriorSolver solver = new PosteriorSolver(1, 42)) {
+            for (TranspositionTable<Posterior> cache : Arrays.asList(null, table)) {
+                harness.measure("solver.play", "6x6 " + (cache == null ? "uncached" : "cached"), 1, () -> {
+                    Game game = new Game(small, BitboardOceanGrid::new, seed[0]++ & 15);
+                    Shooter shooter = new PosteriorShooter(solver, PosteriorShooter.DEFAULT_BUDGET, cache);
+                    shooter.initialise(game);
+                    while (game.isRunning()) {
+                        game.setTargetCoordinates(shooter.nextTarget());
+                        game.tick();
+                    }
+                    return game;
+                });
+            }
+        }
+        TranspositionTable<Long> lookups = new TranspositionTable<>(1 << 10);
+        for (long key = 0; key < 512; ++key) lookups.put(key, key, 1);
+        harness.measure("table.get", "hit", 1, () -> lookups.get(seed[0]++ & 511));
+    }
+
+    /**
+     * A move file covering a 26x26 grid whose only ship is on the last square, replayed by the console
+     * and by the replayer.
+     */
+    private void replay() {
+        GameRules rules = new GameRules(26, 26, List.of(new GameRules.ShipType("Raft", 1, 1)), true, 1);
+        /* the ships are part of the game state, each game gets its own */
+        Supplier<List<Ship>> ships = () ->
+                List.of(new Ship(Coordinates.of(25, 25), 1, Ship.Orientation.HORIZONTAL, "Raft"));
+        StringBuilder text = new StringBuilder();
+        for (int y = 0; y < 26; ++y) {
+            for (int x = 0; x < 26; ++x) text.append(Coordinates.of(y, x)).append('\n');
+        }
+        byte[] moves = text.toString().getBytes();
+
+        harness.measure("replay.moves", "ConsoleUI 26x26", 26 * 26, () -> {
+            Game game = new Game(rules, BitboardOceanGrid::new, ships.get());
+            ConsoleUI ui = new ConsoleUI(new ByteArrayInputStream(moves), OutputStream.nullOutputStream(), false);
+            ui.initialise(game);
+            while (game.isRunning()) {
+                ui.handleInput();
+                game.tick();
+                ui.update();
+            }
+            return game;
+        });
+        harness.measure("replay.moves", "MoveReplayer 26x26", 26 * 26, () -> {
+            try {
+                return new MoveReplayer(new Game(rules, BitboardOceanGrid::new, ships.get()), null)
+                        .replay(new ByteArrayInputStream(moves));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Places the fleet on a square grid at fixed random positions.
+     * @return Placements as {letter index, number index, size, orientation ordinal}.
+     */
+    private static List<int[]> placeFleet(int gridSize, int[] shipSizes) {
+        SplittableRandom random = new SplittableRandom(gridSize);
+        Grid grid = new BitboardOceanGrid(gridSize, gridSize);
+        List<int[]> placements = new ArrayList<>();
+        for (int size : shipSizes) {
+            int[] placement;
+            do {
+                placement = new int[]{random.nextInt(gridSize), random.nextInt(gridSize), size, random.nextInt(2)};
+            } while (!fits(gridSize, placement) || !grid.addShip(ship(placement)));
+            placements.add(placement);
+        }
+        return placements;
+    }
+
+    private static boolean fits(int gridSize, int[] placement) {
+        int end = placement[3] == Ship.Orientation.HORIZONTAL.ordinal() ? placement[1] : placement[0];
+        return end + placement[2] <= gridSize;
+    }
+
+    private static Ship ship(int[] placement) {
+        return new Ship(Coordinates.of(placement[0], placement[1]), placement[2],
+                Ship.Orientation.values()[placement[3]], "Ship");
+    }
+}
@@ -0,0 +1,156 @@
+package konopi.battleship.bench;
+
+import konopi.battleship.logic.BitboardOceanGrid;
+import konopi.battleship.logic.Coordinates;
+import konopi.battleship.logic.GameRules;
+import konopi.battleship.logic.Seeds;
+import konopi.battleship.server.BinaryClient;
+import konopi.battleship.server.BinaryProtocol;
+import konopi.battleship.server.GameServer;
+import konopi.battleship.server.NioGameServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.random.RandomGenerator;
+
+/**
+ * Load tests of the game servers: every client thread keeps firing at random sessions and waits for each
+ * result, recording the latency. The {@link GameServer} is driven in-process, the {@link NioGameServer}
+ * over loopback TCP with {@code bench.frameShots} shots per frame.
+ * <p>
+ * Options are read from the system properties {@code bench.sessions}, {@code bench.clients},
+ * {@code bench.shots} (requests per client) and {@code bench.frameShots}.
+ */
+public class ServerBenchmarks {
+    /**
+     * Fires a single request at the session on behalf of a client.
+     */
+    @FunctionalInterface
+    private interface Request {
+        /**
+         * @return {@code false} if the game was over.
+         */
+        boolean fire(long session, RandomGenerator random) throws IOException;
+    }
+
+    /**
+     * Creates the request of a single client thread.
+     */
+    @FunctionalInterface
+    private interface ClientFactory {
+        Request create() throws IOException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int sessionAmount = Integer.getInteger("bench.sessions", 10_000);
+        int clients = Integer.getInteger("bench.clients", Runtime.getRuntime().availableProcessors());
+        int requestsPerClient = Integer.getInteger("bench.shots", 200_000);
+        int frameShots = Integer.getInteger("bench.frameShots", BinaryProtocol.MAX_SHOTS);
+
+        try (GameServer server = new GameServer(GameRules.standard(), BitboardOceanGrid::new,
+                Runtime.getRuntime().availableProcessors(), GameServer.DEFAULT_IDLE_TIMEOUT)) {
+            long start = System.nanoTime();
+            long[] sessions = new long[sessionAmount];
+            CompletableFuture<?>[] created = new CompletableFuture<?>[sessionAmount];
+            for (int i = 0; i < sessionAmount; ++i) {
+                int session = i;
+                created[i] = server.create(i).thenAccept(id -> sessions[session] = id);
+            }
+            CompletableFuture.allOf(created).join();
+            System.out.printf("GameServer: created %d sessions in %.1f ms%n",
+                    sessionAmount, (System.nanoTime() - start) / 1e6);
+
+            ClientFactory inProcess = () -> (session, random) -> {
+                try {
+                    server.shoot(session, Coordinates.of(random.nextInt(10), random.nextInt(10))).join();
+                    return true;
+                } catch (RuntimeException e) {
+                    return false;
+                }
+            };
+            /* warmup, then the measured run */
+            run("GameServer", inProcess, sessions, clients, requestsPerClient / 4, 1);
+            run("GameServer", inProcess, sessions, clients, requestsPerClient, 1);
+        }
+
+        try (NioGameServer server = new NioGameServer(0)) {
+            InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort());
+            long start = System.nanoTime();
+            long[] sessions = new long[sessionAmount];
+            try (BinaryClient client = new BinaryClient(address)) {
+                for (int i = 0; i < sessionAmount; ++i) {
+                    sessions[i] = client.create(i);
+                }
+            }
+            System.out.printf("NioGameServer: created %d sessions in %.1f ms%n",
+                    sessionAmount, (System.nanoTime() - start) / 1e6);
+
+            ClientFactory binary = () -> {
+                BinaryClient client = new BinaryClient(address);
+                int[] targets = new int[frameShots];
+                int[] results = new int[frameShots];
+                return (session, random) -> {
+                    for (int i = 0; i < frameShots; ++i) {
+                        targets[i] = Coordinates.pack(random.nextInt(10), random.nextInt(10));
+                    }
+                    return client.shoot(session, targets, frameShots, results) == BinaryProtocol.OK;
+                };
+            };
+            String name = "NioGameServer " + frameShots + " shots/frame, "
+                    + 2 * BinaryProtocol.FRAME_SIZE / frameShots + " B/shot";
+            run(name, binary, sessions, clients, requestsPerClient / 4, frameShots);
+            run(name, binary, sessions, clients, requestsPerClient, frameShots);
+        }
+    }
+
+    private static void run(String name, ClientFactory clientFactory, long[] sessions, int clients,
+                            int requestsPerClient, int shotsPerRequest) throws InterruptedException {
+        long[][] latencies = new long[clients][requestsPerClient];
+        AtomicLong failed = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(clients);
+
+        /* the same requests on every run */
+        List<RandomGenerator.SplittableGenerator> streams = Seeds.streams(42, clients);
+        long start = System.nanoTime();
+        for (int c = 0; c < clients; ++c) {
+            long[] clientLatencies = latencies[c];
+            RandomGenerator random = streams.get(c);
+            Thread client = new Thread(() -> {
+                try {
+                    Request request = clientFactory.create();
+                    for (int i = 0; i < requestsPerClient; ++i) {
+                        long session = sessions[random.nextInt(sessions.length)];
+                        long requestStart = System.nanoTime();
+                        if (!request.fire(session, random)) failed.incrementAndGet();
+                        clientLatencies[i] = System.nanoTime() - requestStart;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    done.countDown();
+                }
+            }, "client-" + c);
+            client.start();
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("%s, %d sessions, %d clients: %.0f shots/s, request latency p50 %.1f us, p99 %.1f us, "
+                        + "p99.9 %.1f us, max %.1f us, %d on finished games%n",
+                name, sessions.length, clients, (double) all.length * shotsPerRequest / (elapsed / 1e9),
+                percentile(all, 0.5), percentile(all, 0.99), percentile(all, 0.999),
+                all[all.length - 1] / 1e3, failed.get());
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))] / 1e3;
+    }
+}
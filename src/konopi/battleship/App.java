@@ -1,22 +1,72 @@
 package konopi.battleship;
 
+import konopi.battleship.jfr.GameEndEvent;
+import konopi.battleship.logic.Coordinates;
 import konopi.battleship.logic.Game;
+import konopi.battleship.metrics.Metrics;
+import konopi.battleship.pipeline.SpscRingBuffer;
+import konopi.battleship.ui.PipelinedUI;
+import konopi.battleship.ui.TurnResult;
 import konopi.battleship.ui.UI;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
 /**
  * The game application.
  */
 public class App implements Runnable {
+    /**
+     * Capacity of the queues between the threads of a {@link PipelinedUI}.
+     */
+    private static final int QUEUE_CAPACITY = 1024;
+    /**
+     * Targets fired by the game loop before it tells the input thread there is room in the queue.
+     */
+    private static final int INPUT_BATCH = 64;
+    /**
+     * Results drawn by the renderer at once, at most.
+     */
+    private static final int RENDER_BATCH = 256;
+
     private final UI ui;
     private final Game game;
+    /**
+     * Records the game and the durations of the phases of every tick, may be {@code null}.
+     */
+    private final Metrics metrics;
 
     /**
      * Main constructor. The game loop runs as a thread starting with the object construction.
      * @param ui Dependency injection of the user interface implementation.
      */
     public App(UI ui) {
+        this(ui, new Game());
+    }
+
+    /**
+     * Constructor playing the specified game, e.g. one created with custom {@link konopi.battleship.logic.GameRules}.
+     * The game loop runs as a thread starting with the object construction.
+     * @param ui Dependency injection of the user interface implementation.
+     * @param game The game to play.
+     */
+    public App(UI ui, Game game) {
+        this(ui, game, null);
+    }
+
+    /**
+     * Constructor recording the game in the metrics. The grid of the game should be created by a factory
+     * {@link Metrics#instrument(konopi.battleship.logic.Grid.Factory) instrumented} by the same metrics.
+     * The game loop runs as a thread starting with the object construction.
+     * @param ui Dependency injection of the user interface implementation.
+     * @param game The game to play.
+     * @param metrics {@link #metrics}.
+     */
+    public App(UI ui, Game game, Metrics metrics) {
         this.ui = ui;
-        this.game = new Game();
+        this.game = game;
+        this.metrics = metrics;
         start();
     }
 
@@ -25,15 +75,159 @@ public class App implements Runnable {
     }
 
     /**
-     * Initialises the user interface and runs the game loop.
+     * Initialises the user interface and runs the game loop, pipelined if the UI is a {@link PipelinedUI}.
      */
     @Override
     public void run() {
+        GameEndEvent event = new GameEndEvent();
+        event.begin();
+        long allocatedBytes = 0;
+        if (metrics != null) {
+            metrics.gameStarted();
+            allocatedBytes = Metrics.currentThreadAllocatedBytes();
+        }
+        try {
+            if (ui instanceof PipelinedUI pipelinedUI) {
+                runPipelined(pipelinedUI, event);
+            } else {
+                runSequential(event);
+            }
+        } finally {
+            if (metrics != null) {
+                metrics.gameFinished(allocatedBytes < 0 ? -1 : Metrics.currentThreadAllocatedBytes() - allocatedBytes);
+            }
+            if (event.shouldCommit()) {
+                event.shots = game.getOceanGrid().getShotAmount();
+                event.fleetSunk = !game.isRunning();
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Runs the input, the tick and the update one after another on this thread.
+     * @param event Counts the turns of the game.
+     */
+    private void runSequential(GameEndEvent event) {
         ui.initialise(game);
         while(game.isRunning()) {
+            long start = System.nanoTime();
             ui.handleInput();
+            long input = System.nanoTime();
             game.tick();
+            long tick = System.nanoTime();
             ui.update();
+            if (metrics != null) {
+                metrics.tick(input - start, tick - input, System.nanoTime() - tick);
+            }
+            ++event.turns;
+        }
+    }
+
+    /**
+     * Runs the input and the rendering on threads of their own, connected to this thread by bounded queues.
+     * This thread only fires the targets, it waits just while there are none or the renderer is a whole queue
+     * behind. The game ends early if the input ends.
+     * @param ui The user interface.
+     * @param event Counts the turns of the game.
+     */
+    private void runPipelined(PipelinedUI ui, GameEndEvent event) {
+        ui.initialise(game);
+        SpscRingBuffer<Coordinates> targets = new SpscRingBuffer<>(QUEUE_CAPACITY);
+        SpscRingBuffer<TurnResult> results = new SpscRingBuffer<>(QUEUE_CAPACITY);
+
+        Thread input = new Thread(() -> {
+            try {
+                Coordinates target;
+                while ((target = ui.readTarget()) != null && targets.put(target)) {
+                    /* reads ahead until the queue is full */
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                targets.close();
+            }
+        }, "battleship-input");
+        /* it may stay blocked reading the input after the game is over */
+        input.setDaemon(true);
+        Thread renderer = new Thread(() -> {
+            List<TurnResult> batch = new ArrayList<>();
+            try {
+                while (results.await()) {
+                    results.drain(batch::add, RENDER_BATCH);
+                    ui.render(batch);
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                /* lets the game loop go on if the renderer failed */
+                results.close();
+            }
+        }, "battleship-render");
+        input.start();
+        renderer.start();
+
+        Turns turns = new Turns(results, event);
+        try {
+            long waitStart = System.nanoTime();
+            while (game.isRunning() && !results.isClosed() && targets.await()) {
+                turns.inputWait = System.nanoTime() - waitStart;
+                targets.drain(turns, INPUT_BATCH);
+                waitStart = System.nanoTime();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            targets.close();
+            results.close();
+        }
+        try {
+            renderer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Fires the targets drained by the pipelined game loop and hands the results over to the renderer.
+     */
+    private final class Turns implements Consumer<Coordinates> {
+        private final SpscRingBuffer<TurnResult> results;
+        private final GameEndEvent event;
+        /**
+         * Time the game loop waited for the first target of the batch, recorded with its turn.
+         */
+        private long inputWait;
+
+        Turns(SpscRingBuffer<TurnResult> results, GameEndEvent event) {
+            this.results = results;
+            this.event = event;
+        }
+
+        /**
+         * Fires at the target, unless the game is over or the renderer is gone. The targets read ahead
+         * of the end of the game are dropped.
+         */
+        @Override
+        public void accept(Coordinates target) {
+            if (!game.isRunning() || results.isClosed()) return;
+
+            long start = System.nanoTime();
+            game.setTargetCoordinates(target);
+            game.tick();
+            long tick = System.nanoTime();
+            try {
+                results.put(new TurnResult(target, game.getShotResult(), game.isRunning()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                results.close();
+            }
+            if (metrics != null) {
+                metrics.tick(inputWait, tick - start, System.nanoTime() - tick);
+            }
+            inputWait = 0;
+            ++event.turns;
         }
     }
 }
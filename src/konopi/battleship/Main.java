@@ -1,10 +1,228 @@
 package konopi.battleship;
 
+import konopi.battleship.ai.DensityShooter;
+import konopi.battleship.ai.PlacementStrategy;
+import konopi.battleship.ai.Posterior;
+import konopi.battleship.ai.PosteriorShooter;
+import konopi.battleship.ai.PosteriorSolver;
+import konopi.battleship.ai.RandomShooter;
+import konopi.battleship.ai.Shooter;
+import konopi.battleship.ai.TranspositionTable;
+import konopi.battleship.logic.BitboardOceanGrid;
+import konopi.battleship.logic.Game;
+import konopi.battleship.logic.GameRules;
+import konopi.battleship.logic.OffHeapOceanGrid;
+import konopi.battleship.logic.Seeds;
+import konopi.battleship.match.Match;
+import konopi.battleship.match.MatchResult;
+import konopi.battleship.match.MatchScheduler;
+import konopi.battleship.match.ShooterPlayer;
+import konopi.battleship.match.UIPlayer;
+import konopi.battleship.metrics.Metrics;
+import konopi.battleship.metrics.MetricsServer;
+import konopi.battleship.replay.MoveReplayer;
+import konopi.battleship.replay.ReplayReport;
+import konopi.battleship.server.GameServer;
+import konopi.battleship.server.NioGameServer;
+import konopi.battleship.server.TextServer;
+import konopi.battleship.simulation.SimulationRunner;
+import konopi.battleship.tournament.Entrant;
+import konopi.battleship.tournament.Tournament;
 import konopi.battleship.ui.ConsoleUI;
 
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.random.RandomGenerator;
+
 public class Main {
 
-    public static void main(String[] args) {
-        App app = new App(new ConsoleUI());
+    /**
+     * Starts the console game. Options:
+     * <ul>
+     *     <li>{@code --rules <file>} plays by the rules from the properties file, see {@link GameRules}.</li>
+     *     <li>{@code --grid-file <file>} keeps the board of the console game or of {@code --replay} in the file,
+     *     see {@link OffHeapOceanGrid#map(Path, int, int) OffHeapOceanGrid}. A board left by an earlier run
+     *     is resumed, otherwise the fleet is placed by the seed. The console only renders boards up to
+     *     {@link ConsoleUI#MAX_GRID_LENGTH}, larger ones are played by {@code --replay}.</li>
+     *     <li>{@code --simulate [games]} plays the games headless instead and prints the statistics.</li>
+     *     <li>{@code --ansi} redraws only the changed squares, for terminals understanding ANSI escape sequences.</li>
+     *     <li>{@code --serve [port]} hosts games for clients on the loopback address instead,
+     *     see {@link TextServer} for the protocol.</li>
+     *     <li>{@code --journal <file>} with {@code --serve} records the games in the journal file and resumes
+     *     the ones left open by an earlier run, see {@link konopi.battleship.journal.GameJournal}. The games
+     *     of {@code --serve-binary} are not recorded, so it's rejected without {@code --serve}.</li>
+     *     <li>{@code --serve-binary [port]} does the same over the binary protocol, also along with
+     *     {@code --serve}, see {@link konopi.battleship.server.BinaryProtocol}.</li>
+     *     <li>{@code --seed <seed>} repeats the fleets and games of an earlier run, whose seed is printed
+     *     by the headless modes.</li>
+     *     <li>{@code --shooter <random|density|posterior>} picks the AI playing the simulated games, random
+     *     by default. The posterior one depends on the time its solver gets, so the seed doesn't repeat
+     *     its games. Its shooters share a {@link TranspositionTable} of the solved positions.</li>
+     *     <li>{@code --versus} plays against the AI chosen by {@code --shooter} instead, each side with its own
+     *     fleet.</li>
+     *     <li>{@code --metrics [port]} publishes the metrics of the console game over JMX and as text
+     *     at {@code http://localhost:<port>/metrics}, see {@link Metrics}.</li>
+     *     <li>{@code --tournament [games]} plays a round robin of the AIs and fleet placements instead,
+     *     up to the specified amount of games per matchup, and prints the standings.</li>
+     *     <li>{@code --replay <file>} plays the moves of the file, or of the standard input for {@code -},
+     *     without rendering them and prints the summary, see {@link MoveReplayer}. The fleet is placed
+     *     by the seed.</li>
+     *     <li>{@code --results} with {@code --replay} also prints the result of every move as a single character.</li>
+     * </ul>
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        GameRules rules = GameRules.standard();
+        int simulatedGames = 0;
+        int tournamentGames = 0;
+        boolean ansi = false;
+        boolean versus = false;
+        long seed = Seeds.random();
+        int metricsPort = -1;
+        int port = -1;
+        int binaryPort = -1;
+        String replayFile = null;
+        Path journalFile = null;
+        Path gridFile = null;
+        boolean replayResults = false;
+        Function<RandomGenerator, Shooter> shooterFactory = RandomShooter::new;
+        for (int i = 0; i < args.length; ++i) {
+            switch (args[i]) {
+                case "--rules" -> rules = GameRules.load(Path.of(args[++i]));
+                case "--simulate" -> simulatedGames = i + 1 < args.length && !args[i + 1].startsWith("--")
+                        ? Integer.parseInt(args[++i]) : 100_000;
+                case "--tournament" -> tournamentGames = i + 1 < args.length && !args[i + 1].startsWith("--")
+                        ? Integer.parseInt(args[++i]) : Tournament.DEFAULT_MAX_GAMES;
+                case "--ansi" -> ansi = true;
+                case "--versus" -> versus = true;
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                case "--metrics" -> metricsPort = i + 1 < args.length && !args[i + 1].startsWith("--")
+                        ? Integer.parseInt(args[++i]) : MetricsServer.DEFAULT_PORT;
+                case "--serve" -> port = i + 1 < args.length && !args[i + 1].startsWith("--")
+                        ? Integer.parseInt(args[++i]) : 7878;
+                case "--serve-binary" -> binaryPort = i + 1 < args.length && !args[i + 1].startsWith("--")
+                        ? Integer.parseInt(args[++i]) : 7879;
+                case "--replay" -> replayFile = args[++i];
+                case "--results" -> replayResults = true;
+                case "--journal" -> journalFile = Path.of(args[++i]);
+                case "--grid-file" -> gridFile = Path.of(args[++i]);
+                case "--shooter" -> shooterFactory = switch (args[++i]) {
+                    case "random" -> RandomShooter::new;
+                    case "density" -> DensityShooter::new;
+                    case "posterior" -> {
+                        PosteriorSolver solver = new PosteriorSolver();
+                        TranspositionTable<Posterior> table = new TranspositionTable<>(1 << 16);
+                        yield random -> new PosteriorShooter(solver, PosteriorShooter.DEFAULT_BUDGET, table);
+                    }
+                    default -> throw new IllegalArgumentException("Unknown shooter: " + args[i]);
+                };
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        if (gridFile != null && (simulatedGames > 0 || tournamentGames > 0 || versus || port >= 0 || binaryPort >= 0
+                || metricsPort >= 0)) {
+            throw new IllegalArgumentException("--grid-file only works with the console game or --replay");
+        }
+        if (journalFile != null && port < 0) {
+            throw new IllegalArgumentException("--journal only works with --serve");
+        }
+        if (gridFile != null && replayFile == null && !ConsoleUI.canRender(rules.sizeX(), rules.sizeY())) {
+            throw new IllegalArgumentException("Grid is too large for the console, play it with --replay: "
+                    + rules.sizeX() + "x" + rules.sizeY());
+        }
+
+        if (replayFile != null) {
+            Game game = gridFile == null ? new Game(rules, BitboardOceanGrid::new, seed)
+                    : mappedGame(rules, gridFile, seed);
+            MoveReplayer replayer = new MoveReplayer(game, replayResults ? System.out : null);
+            System.out.println("Seed: " + seed);
+            ReplayReport report = replayFile.equals("-") ? replayer.replay(System.in)
+                    : replayer.replay(Path.of(replayFile));
+            System.out.println(report);
+            return;
+        }
+        if (simulatedGames > 0) {
+            SimulationRunner runner = new SimulationRunner(rules, shooterFactory, BitboardOceanGrid::new,
+                    Runtime.getRuntime().availableProcessors());
+            System.out.println("Seed: " + seed);
+            System.out.println(runner.run(simulatedGames, seed));
+            return;
+        }
+        if (tournamentGames > 0) {
+            Tournament tournament = new Tournament(rules, BitboardOceanGrid::new, List.of(
+                    new Entrant("random", RandomShooter::new, PlacementStrategy.random()),
+                    new Entrant("random/edges", RandomShooter::new, PlacementStrategy.edges()),
+                    new Entrant("density", DensityShooter::new, PlacementStrategy.random()),
+                    new Entrant("density/edges", DensityShooter::new, PlacementStrategy.edges())),
+                    tournamentGames, Runtime.getRuntime().availableProcessors());
+            System.out.println("Seed: " + seed);
+            System.out.println(tournament.roundRobin(seed));
+            return;
+        }
+        if (versus) {
+            ExecutorService uiExecutor = Executors.newSingleThreadExecutor();
+            try (MatchScheduler scheduler = new MatchScheduler(rules, BitboardOceanGrid::new, 1, null)) {
+                Match match = scheduler.create(new UIPlayer(new ConsoleUI(ansi), uiExecutor),
+                        new ShooterPlayer(shooterFactory.apply(Seeds.splittable(Seeds.derive(seed, 1)))), seed);
+                MatchResult result = match.start().join();
+                System.out.println(result.winner() == 0 ? "You won in " + result.firstShots() + " shots!"
+                        : "The AI won in " + result.secondShots() + " shots.");
+            } finally {
+                uiExecutor.shutdown();
+            }
+            return;
+        }
+        if (port >= 0 || binaryPort >= 0) {
+            if (port >= 0) {
+                int workers = Runtime.getRuntime().availableProcessors();
+                GameServer server = journalFile == null
+                        ? new GameServer(rules, BitboardOceanGrid::new, workers, GameServer.DEFAULT_IDLE_TIMEOUT)
+                        : new GameServer(rules, BitboardOceanGrid::new, workers, GameServer.DEFAULT_IDLE_TIMEOUT,
+                        journalFile);
+                TextServer textServer = new TextServer(server, port);
+                System.out.println("Serving games on localhost:" + textServer.getPort());
+            }
+            if (binaryPort >= 0) {
+                NioGameServer server = new NioGameServer(rules, BitboardOceanGrid::new,
+                        GameServer.DEFAULT_IDLE_TIMEOUT,
+                        new InetSocketAddress(InetAddress.getLoopbackAddress(), binaryPort));
+                System.out.println("Serving binary games on localhost:" + server.getPort());
+            }
+            /* the server threads are daemons */
+            Thread.currentThread().join();
+        }
+        if (metricsPort >= 0) {
+            Metrics metrics = new Metrics();
+            metrics.register();
+            /* serves until the process exits */
+            new MetricsServer(metrics, metricsPort);
+            App app = new App(new ConsoleUI(ansi), new Game(rules, metrics.instrument(BitboardOceanGrid::new), seed),
+                    metrics);
+            return;
+        }
+        if (gridFile != null) {
+            App app = new App(new ConsoleUI(ansi), mappedGame(rules, gridFile, seed));
+            return;
+        }
+        App app = new App(new ConsoleUI(ansi), new Game(rules, BitboardOceanGrid::new, seed));
+    }
+
+    /**
+     * Creates a game on a board mapped to the file, resuming the board left by an earlier run. The board
+     * is forced to the disk when the process exits.
+     * @param seed Seed of the fleet placement if the file holds no board yet.
+     */
+    private static Game mappedGame(GameRules rules, Path gridFile, long seed) throws IOException {
+        OffHeapOceanGrid grid = OffHeapOceanGrid.map(gridFile, rules.sizeX(), rules.sizeY());
+        Runtime.getRuntime().addShutdownHook(new Thread(grid::force));
+        return grid.getShips().isEmpty()
+                ? new Game(rules, (sizeX, sizeY) -> grid, seed)
+                : new Game(rules, grid, grid.getShips());
     }
 }
@@ -0,0 +1,513 @@
+package konopi.battleship.ai;
+
+import konopi.battleship.logic.Coordinates;
+import konopi.battleship.logic.Game;
+import konopi.battleship.logic.GameRules;
+import konopi.battleship.logic.Grid;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * The DensityShooter fires at the square covered by the most placements of the remaining ships which are
+ * consistent with the shots so far. While there are hits not attributed to a sunk ship it only counts
+ * the placements going through those hits.
+ * <p>
+ * The density is kept up to date incrementally: a miss or a sunk ship only invalidates the placements
+ * covering the affected squares, which is {@code O(size^2)} for every ship size instead of a full
+ * recomputation over the grid. A sunk ship also lowers the weight of its size, which only changes the squares
+ * covered by the placements of that size still valid. The best square is looked up in a max tree over
+ * the densities, so a shot costs {@code O(log squares)} for every updated square. The tree is only built
+ * from scratch once per game.
+ */
+public class DensityShooter implements Shooter {
+    private static final byte UNKNOWN = 0;
+    /**
+     * Missed or known to be empty, no ship can be placed over it.
+     */
+    private static final byte EMPTY = 1;
+    /**
+     * Hit, but not yet attributed to a sunk ship.
+     */
+    private static final byte HIT = 2;
+    /**
+     * Part of a sunk ship, no other ship can be placed over it.
+     */
+    private static final byte SUNK = 3;
+
+    private final RandomGenerator random;
+
+    private GameRules rules;
+    private int sizeX;
+    private int sizeY;
+    private int squares;
+
+    /**
+     * State of every square, indexed by {@code y * sizeX + x}.
+     */
+    private byte[] states;
+    /**
+     * Distinct ship sizes of the fleet.
+     */
+    private int[] shipSizes;
+    /**
+     * Amount of ships afloat of each size in {@link #shipSizes}.
+     */
+    private int[] remaining;
+    /**
+     * Valid placements of each size in {@link #shipSizes}. Placement {@code p} below {@link #squares} is
+     * horizontal with the stern at square {@code p}, the others are vertical with the stern at {@code p - squares}.
+     */
+    private long[][] valid;
+    /**
+     * Amount of valid placements of each size in {@link #shipSizes} covering every square.
+     */
+    private int[][] cover;
+    /**
+     * Sum of {@link #cover} weighted by {@link #remaining} for every square.
+     */
+    private long[] density;
+    /**
+     * Leaf amount of {@link #maxTree}, the smallest power of two fitting all the squares.
+     */
+    private int leaves;
+    /**
+     * Binary max tree over the density of the unknown squares, the other squares count as {@code -1}.
+     * Node {@code n} has the children {@code 2n} and {@code 2n + 1}, square {@code s} is the leaf {@code leaves + s}.
+     * Empty until the initial density is computed.
+     */
+    private long[] maxTree;
+    /**
+     * Amount of squares sharing the maximum of each {@link #maxTree} node, used to break ties uniformly.
+     */
+    private int[] maxTies;
+    /**
+     * Hit squares not yet attributed to a sunk ship.
+     */
+    private final List<Integer> unresolvedHits = new ArrayList<>();
+
+    /**
+     * Target mode scores, only the squares listed in {@link #scored} are non-zero.
+     */
+    private long[] scores;
+    private int[] scored;
+
+    /**
+     * Squares whose density changed with the weight of a ship size, one bit per square.
+     */
+    private long[] reweighted;
+    /**
+     * Tree nodes to update after a change of the weight, see {@link #updateTree(int[], int)}.
+     */
+    private int[] changedNodes;
+
+    /**
+     * Main constructor.
+     * @param random Breaks ties between equally good squares.
+     */
+    public DensityShooter(RandomGenerator random) {
+        this.random = random;
+    }
+
+    @Override
+    public void initialise(Game game) {
+        rules = game.getRules();
+        sizeX = rules.sizeX();
+        sizeY = rules.sizeY();
+        squares = sizeX * sizeY;
+        states = new byte[squares];
+        density = new long[squares];
+        scores = new long[squares];
+        scored = new int[squares];
+        reweighted = new long[(squares + 63) >>> 6];
+        changedNodes = new int[squares];
+        unresolvedHits.clear();
+        leaves = Integer.highestOneBit(Math.max(1, squares - 1)) << 1;
+        maxTree = null;
+
+        shipSizes = rules.fleet().stream().mapToInt(GameRules.ShipType::size).distinct().sorted().toArray();
+        remaining = new int[shipSizes.length];
+        valid = new long[shipSizes.length][];
+        cover = new int[shipSizes.length][];
+        for (GameRules.ShipType shipType : rules.fleet()) {
+            remaining[slotOf(shipType.size())] += shipType.amount();
+        }
+
+        /* the only full computation, every placement inside the grid is valid at the start */
+        for (int slot = 0; slot < shipSizes.length; ++slot) {
+            int size = shipSizes[slot];
+            valid[slot] = new long[(2 * squares + 63) >>> 6];
+            cover[slot] = new int[squares];
+            for (int y = 0; y < sizeY; ++y) {
+                for (int x = 0; x < sizeX; ++x) {
+                    int stern = y * sizeX + x;
+                    if (x + size <= sizeX) addPlacement(slot, stern);
+                    if (y + size <= sizeY) addPlacement(slot, squares + stern);
+                }
+            }
+        }
+        maxTree = new long[2 * leaves];
+        maxTies = new int[2 * leaves];
+        buildTree();
+    }
+
+    private int slotOf(int size) {
+        for (int slot = 0; slot < shipSizes.length; ++slot) {
+            if (shipSizes[slot] == size) return slot;
+        }
+        return -1;
+    }
+
+    private void addPlacement(int slot, int placement) {
+        valid[slot][placement >>> 6] |= 1L << placement;
+        forEachSquare(slot, placement, 1);
+    }
+
+    /**
+     * Marks the placement invalid and removes it from the density, unless it is invalid already.
+     */
+    private void invalidate(int slot, int placement) {
+        long bit = 1L << placement;
+        if ((valid[slot][placement >>> 6] & bit) == 0) return;
+        valid[slot][placement >>> 6] &= ~bit;
+        forEachSquare(slot, placement, -1);
+    }
+
+    /**
+     * Adds the specified amount to the cover of every square of the placement.
+     */
+    private void forEachSquare(int slot, int placement, int amount) {
+        boolean vertical = placement >= squares;
+        int square = vertical ? placement - squares : placement;
+        int step = vertical ? sizeX : 1;
+        for (int i = 0; i < shipSizes[slot]; ++i, square += step) {
+            cover[slot][square] += amount;
+            density[square] += (long) amount * remaining[slot];
+            if (maxTree != null) updateTree(square);
+        }
+    }
+
+    private long treeValue(int square) {
+        return states[square] == UNKNOWN ? density[square] : -1;
+    }
+
+    /**
+     * Fills the {@link #maxTree} from scratch, used after changes to the density of every square.
+     */
+    private void buildTree() {
+        for (int leaf = 0; leaf < leaves; ++leaf) {
+            maxTree[leaves + leaf] = leaf < squares ? treeValue(leaf) : -1;
+            maxTies[leaves + leaf] = 1;
+        }
+        for (int node = leaves - 1; node > 0; --node) {
+            pullUp(node);
+        }
+    }
+
+    /**
+     * Updates the {@link #maxTree} after a change of the density or the state of the square.
+     */
+    private void updateTree(int square) {
+        int node = leaves + square;
+        maxTree[node] = treeValue(square);
+        for (node >>>= 1; node > 0; node >>>= 1) {
+            pullUp(node);
+        }
+    }
+
+    /**
+     * Updates the {@link #maxTree} after a change of the density of several squares, pulling every ancestor
+     * up only once.
+     * @param nodes Leaves of the changed squares in ascending order, overwritten with their ancestors.
+     * @param amount Amount of the leaves.
+     */
+    private void updateTree(int[] nodes, int amount) {
+        for (int i = 0; i < amount; ++i) {
+            maxTree[nodes[i]] = treeValue(nodes[i] - leaves);
+        }
+        /* the leaves are on the same level and sorted, so are the parents and the duplicates are adjacent */
+        while (amount > 0 && nodes[0] > 1) {
+            int parents = 0;
+            for (int i = 0; i < amount; ++i) {
+                int parent = nodes[i] >>> 1;
+                if (parents == 0 || nodes[parents - 1] != parent) nodes[parents++] = parent;
+            }
+            amount = parents;
+            for (int i = 0; i < amount; ++i) {
+                pullUp(nodes[i]);
+            }
+        }
+    }
+
+    private void pullUp(int node) {
+        long left = maxTree[2 * node];
+        long right = maxTree[2 * node + 1];
+        long max = Math.max(left, right);
+        maxTree[node] = max;
+        maxTies[node] = (left == max ? maxTies[2 * node] : 0) + (right == max ? maxTies[2 * node + 1] : 0);
+    }
+
+    /**
+     * Calls the consumer with every placement of the specified size going through the square.
+     */
+    private void forEachPlacementThrough(int slot, int square, PlacementConsumer consumer) {
+        int size = shipSizes[slot];
+        int x = square % sizeX;
+        int y = square / sizeX;
+        for (int k = 0; k < size; ++k) {
+            if (x - k >= 0 && x - k + size <= sizeX) consumer.accept(slot, square - k);
+            if (y - k >= 0 && y - k + size <= sizeY) consumer.accept(slot, squares + square - k * sizeX);
+        }
+    }
+
+    @FunctionalInterface
+    private interface PlacementConsumer {
+        void accept(int slot, int placement);
+    }
+
+    /**
+     * Marks the square as one no ship can be placed over.
+     */
+    private void block(int square, byte state) {
+        states[square] = state;
+        updateTree(square);
+        for (int slot = 0; slot < shipSizes.length; ++slot) {
+            forEachPlacementThrough(slot, square, this::invalidate);
+        }
+    }
+
+    @Override
+    public Coordinates nextTarget() {
+        int square = unresolvedHits.isEmpty() ? hunt() : target();
+        if (square < 0) {
+            throw new IllegalStateException("No squares left to fire at");
+        }
+        return Coordinates.of(square / sizeX, square % sizeX);
+    }
+
+    /**
+     * Picks the unknown square with the highest density, ties are broken at random.
+     * @return Square index, {@code -1} if there are no unknown squares.
+     */
+    private int hunt() {
+        if (maxTree[1] < 0) return -1;
+        int node = 1;
+        while (node < leaves) {
+            int left = 2 * node;
+            if (maxTree[left] != maxTree[node]) {
+                node = left + 1;
+            } else if (maxTree[left + 1] != maxTree[node]) {
+                node = left;
+            } else {
+                node = random.nextInt(maxTies[node]) < maxTies[left] ? left : left + 1;
+            }
+        }
+        return node - leaves;
+    }
+
+    /**
+     * Picks the unknown square covered by the most valid placements going through the unresolved hits.
+     * A placement through several hits is counted once for each of them.
+     * @return Square index, {@code -1} if there are no unknown squares.
+     */
+    private int target() {
+        int[] scoredAmount = {0};
+        for (int hit : unresolvedHits) {
+            for (int slot = 0; slot < shipSizes.length; ++slot) {
+                if (remaining[slot] == 0) continue;
+                forEachPlacementThrough(slot, hit, (s, placement) -> {
+                    if ((valid[s][placement >>> 6] & 1L << placement) == 0) return;
+                    boolean vertical = placement >= squares;
+                    int square = vertical ? placement - squares : placement;
+                    int step = vertical ? sizeX : 1;
+                    for (int i = 0; i < shipSizes[s]; ++i, square += step) {
+                        if (states[square] != UNKNOWN) continue;
+                        if (scores[square] == 0) scored[scoredAmount[0]++] = square;
+                        scores[square] += remaining[s];
+                    }
+                });
+            }
+        }
+
+        int best = -1;
+        long bestScore = 0;
+        int ties = 0;
+        for (int i = 0; i < scoredAmount[0]; ++i) {
+            int square = scored[i];
+            long score = scores[square];
+            scores[square] = 0;
+            if (score > bestScore) {
+                best = square;
+                bestScore = score;
+                ties = 1;
+            } else if (score == bestScore && random.nextInt(++ties) == 0) {
+                best = square;
+            }
+        }
+        /* the hits can't be explained by any placement, fall back to the density */
+        return best >= 0 ? best : hunt();
+    }
+
+    @Override
+    public void registerResult(Coordinates target, Grid.ShotResult shotResult) {
+        if (shotResult == null) return;
+        int square = target.getLetterIndex() * sizeX + target.getNumberIndex();
+        if (states[square] != UNKNOWN) return;
+
+        switch (shotResult.hitDesignation()) {
+            case MISS -> block(square, EMPTY);
+            case HIT -> {
+                states[square] = HIT;
+                updateTree(square);
+                unresolvedHits.add(square);
+            }
+            case SINK -> {
+                states[square] = HIT;
+                updateTree(square);
+                unresolvedHits.add(square);
+                GameRules.ShipType shipType = rules.shipType(shotResult.shipName());
+                sink(square, shipType == null ? 1 : shipType.size());
+            }
+        }
+    }
+
+    /**
+     * Attributes the hits in a line through the sinking shot to the sunk ship and takes it out of the fleet.
+     * @param square The square of the sinking shot.
+     * @param size Size of the sunk ship.
+     */
+    private void sink(int square, int size) {
+        int[] ship = findSunkShip(square, size);
+        for (int shipSquare : ship) {
+            unresolvedHits.remove(Integer.valueOf(shipSquare));
+            block(shipSquare, SUNK);
+        }
+        if (!rules.adjacentShips()) {
+            for (int shipSquare : ship) {
+                int x = shipSquare % sizeX;
+                int y = shipSquare / sizeX;
+                for (int ny = Math.max(0, y - 1); ny <= Math.min(sizeY - 1, y + 1); ++ny) {
+                    for (int nx = Math.max(0, x - 1); nx <= Math.min(sizeX - 1, x + 1); ++nx) {
+                        if (states[ny * sizeX + nx] == UNKNOWN) block(ny * sizeX + nx, EMPTY);
+                    }
+                }
+            }
+        }
+
+        int slot = slotOf(size);
+        if (slot < 0 || remaining[slot] == 0) return;
+        --remaining[slot];
+        reweight(slot);
+    }
+
+    /**
+     * Removes one ship of the size from the density of the squares covered by its valid placements.
+     * Few placements left are walked one by one, otherwise the cover of every square is checked.
+     */
+    private void reweight(int slot) {
+        long[] slotValid = valid[slot];
+        int[] slotCover = cover[slot];
+        long placements = 0;
+        for (long word : slotValid) {
+            placements += Long.bitCount(word);
+        }
+
+        if (placements * shipSizes[slot] >= squares) {
+            int changed = 0;
+            for (int square = 0; square < squares; ++square) {
+                if (slotCover[square] == 0) continue;
+                density[square] -= slotCover[square];
+                changedNodes[changed++] = leaves + square;
+            }
+            updateTree(changedNodes, changed);
+            return;
+        }
+
+        for (int word = 0; word < slotValid.length; ++word) {
+            for (long bits = slotValid[word]; bits != 0; bits &= bits - 1) {
+                int placement = word << 6 | Long.numberOfTrailingZeros(bits);
+                boolean vertical = placement >= squares;
+                int square = vertical ? placement - squares : placement;
+                int step = vertical ? sizeX : 1;
+                for (int i = 0; i < shipSizes[slot]; ++i, square += step) {
+                    long bit = 1L << square;
+                    if ((reweighted[square >>> 6] & bit) != 0) continue;
+                    reweighted[square >>> 6] |= bit;
+                    density[square] -= slotCover[square];
+                }
+            }
+        }
+
+        int changed = 0;
+        for (int word = 0; word < reweighted.length; ++word) {
+            for (long bits = reweighted[word]; bits != 0; bits &= bits - 1) {
+                changedNodes[changed++] = leaves + (word << 6 | Long.numberOfTrailingZeros(bits));
+            }
+            reweighted[word] = 0;
+        }
+        updateTree(changedNodes, changed);
+    }
+
+    /**
+     * Finds {@code size} unresolved hits in a row or a column including the specified square.
+     * @return Squares of the sunk ship, only the specified square if no such line exists.
+     */
+    private int[] findSunkShip(int square, int size) {
+        int x = square % sizeX;
+        int y = square / sizeX;
+
+        int left = x;
+        while (left > 0 && x - left + 1 < size && states[square - (x - left) - 1] == HIT) --left;
+        int right = x;
+        while (right < sizeX - 1 && right - left + 1 < size && states[square + (right - x) + 1] == HIT) ++right;
+        if (right - left + 1 == size) {
+            int[] ship = new int[size];
+            for (int i = 0; i < size; ++i) ship[i] = y * sizeX + left + i;
+            return ship;
+        }
+
+        int top = y;
+        while (top > 0 && y - top + 1 < size && states[square - (y - top + 1) * sizeX] == HIT) --top;
+        int bottom = y;
+        while (bottom < sizeY - 1 && bottom - top + 1 < size && states[square + (bottom - y + 1) * sizeX] == HIT) {
+            ++bottom;
+        }
+        if (bottom - top + 1 == size) {
+            int[] ship = new int[size];
+            for (int i = 0; i < size; ++i) ship[i] = (top + i) * sizeX + x;
+            return ship;
+        }
+        return new int[]{square};
+    }
+
+    /**
+     * Gets the current density of the square, used to verify the incremental updates.
+     */
+    long densityOf(int square) {
+        return density[square];
+    }
+
+    /**
+     * Gets the highest density of the squares not fired at, used to verify the incremental updates.
+     * @return The density, {@code -1} if there are no such squares.
+     */
+    long maxDensity() {
+        return maxTree[1];
+    }
+
+    /**
+     * Checks if a ship can still be placed over the square, used to verify the incremental updates.
+     */
+    boolean isBlocked(int square) {
+        return states[square] == EMPTY || states[square] == SUNK;
+    }
+
+    /**
+     * Gets the amount of ships afloat of the specified size, used to verify the incremental updates.
+     */
+    int remainingOfSize(int size) {
+        int slot = slotOf(size);
+        return slot < 0 ? 0 : remaining[slot];
+    }
+}
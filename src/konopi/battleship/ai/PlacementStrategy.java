@@ -0,0 +1,59 @@
+package konopi.battleship.ai;
+
+import konopi.battleship.logic.FleetPlacer;
+import konopi.battleship.logic.Game;
+import konopi.battleship.logic.GameRules;
+import konopi.battleship.logic.Ship;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * The PlacementStrategy is the counterpart of the {@link Shooter}: it decides where a player hides the fleet.
+ * The placed ships are passed to {@link Game#Game(GameRules, konopi.battleship.logic.Grid.Factory, List)}.
+ */
+@FunctionalInterface
+public interface PlacementStrategy {
+    /**
+     * Places the fleet given by the rules.
+     * @param rules Grid size, fleet and placement rules.
+     * @param random Source of randomness owned by the calling thread.
+     * @return New ships in the order of the fleet.
+     * @throws IllegalStateException The fleet doesn't fit on the grid.
+     */
+    List<Ship> place(GameRules rules, RandomGenerator random);
+
+    /**
+     * Gets the strategy placing every ship uniformly at random, as {@link Game} does.
+     * @return The strategy.
+     */
+    static PlacementStrategy random() {
+        return (rules, random) -> place(rules, random, null);
+    }
+
+    /**
+     * Gets the strategy placing the ships along the edges of the grid, which shooters favouring the centre
+     * find last. Ships which don't fit along the edges are placed at random.
+     * @return The strategy.
+     */
+    static PlacementStrategy edges() {
+        return (rules, random) -> place(rules, random, (sternLetterIndex, sternNumberIndex, size, orientation) ->
+                sternLetterIndex == 0 || sternNumberIndex == 0
+                        || (orientation == Ship.Orientation.HORIZONTAL
+                        ? sternLetterIndex == rules.sizeY() - 1 || sternNumberIndex + size == rules.sizeX()
+                        : sternNumberIndex == rules.sizeX() - 1 || sternLetterIndex + size == rules.sizeY()));
+    }
+
+    private static List<Ship> place(GameRules rules, RandomGenerator random, FleetPlacer.SlotFilter filter) {
+        FleetPlacer placer = new FleetPlacer(rules.sizeX(), rules.sizeY(), rules.adjacentShips(), random);
+        List<Ship> ships = new ArrayList<>(rules.shipAmount());
+        for (GameRules.ShipType shipType : rules.fleet()) {
+            for (int i = 0; i < shipType.amount(); ++i) {
+                ships.add(filter == null ? placer.place(shipType.name(), shipType.size())
+                        : placer.place(shipType.name(), shipType.size(), filter));
+            }
+        }
+        return ships;
+    }
+}
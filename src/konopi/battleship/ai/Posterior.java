@@ -0,0 +1,103 @@
+package konopi.battleship.ai;
+
+import konopi.battleship.logic.Coordinates;
+
+import java.util.Arrays;
+
+/**
+ * Result of the {@link PosteriorSolver}: the probability of every square of the grid being taken by a ship.
+ */
+public final class Posterior {
+    private final int sizeX;
+    private final int sizeY;
+    /**
+     * Probability of every square, indexed by {@code y * sizeX + x}.
+     */
+    private final double[] probabilities;
+    /**
+     * {@code true} for the squares not yet fired at, the only ones {@link #getBestTarget()} picks from.
+     */
+    private final boolean[] unknown;
+    /**
+     * {@code true} if every consistent layout was counted, {@code false} if the layouts were sampled.
+     */
+    private final boolean exact;
+    /**
+     * Amount of consistent layouts, estimated if the result isn't {@link #exact}.
+     */
+    private final double layouts;
+    /**
+     * Amount of layouts sampled, 0 for an exact result.
+     */
+    private final long samples;
+    private final long elapsedNanos;
+
+    Posterior(int sizeX, int sizeY, double[] probabilities, boolean[] unknown, boolean exact, double layouts,
+              long samples, long elapsedNanos) {
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.probabilities = probabilities;
+        this.unknown = unknown;
+        this.exact = exact;
+        this.layouts = layouts;
+        this.samples = samples;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Gets the probability of a ship taking the square.
+     * @param letterIndex Vertical index of the square.
+     * @param numberIndex Horizontal index of the square.
+     * @return Probability between 0 and 1, 0 if there is no consistent layout at all.
+     * @throws IndexOutOfBoundsException The square is not part of the grid.
+     */
+    public double getProbability(int letterIndex, int numberIndex) {
+        if (letterIndex >= sizeY || numberIndex >= sizeX) {
+            throw new IndexOutOfBoundsException("Square out of bounds: " + Coordinates.of(letterIndex, numberIndex));
+        }
+        return probabilities[letterIndex * sizeX + numberIndex];
+    }
+
+    public double getProbability(Coordinates coordinates) {
+        return getProbability(coordinates.getLetterIndex(), coordinates.getNumberIndex());
+    }
+
+    /**
+     * Gets the square not yet fired at which is the most likely to be taken by a ship, the first one in
+     * the reading order on a tie.
+     * @return Target square, {@code null} if every square was fired at.
+     */
+    public Coordinates getBestTarget() {
+        int best = -1;
+        for (int square = 0; square < probabilities.length; ++square) {
+            if (unknown[square] && (best < 0 || probabilities[square] > probabilities[best])) {
+                best = square;
+            }
+        }
+        return best < 0 ? null : Coordinates.of(best / sizeX, best % sizeX);
+    }
+
+    /**
+     * Gets the probabilities of all the squares.
+     * @return Copy of the probabilities indexed by {@code letterIndex * sizeX + numberIndex}.
+     */
+    public double[] getProbabilities() {
+        return Arrays.copyOf(probabilities, probabilities.length);
+    }
+
+    public boolean isExact() {
+        return exact;
+    }
+
+    public double getLayouts() {
+        return layouts;
+    }
+
+    public long getSamples() {
+        return samples;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+}
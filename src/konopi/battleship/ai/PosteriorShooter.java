@@ -0,0 +1,99 @@
+package konopi.battleship.ai;
+
+import konopi.battleship.logic.Coordinates;
+import konopi.battleship.logic.Game;
+import konopi.battleship.logic.Grid;
+
+import java.time.Duration;
+
+/**
+ * The PosteriorShooter fires at the square most likely to be taken by a ship according to the
+ * {@link PosteriorSolver}, given every shot so far. It's far slower than the {@link DensityShooter}, every shot
+ * takes a solver run of up to the time budget, but on the small grids its choices are exact.
+ * <p>
+ * Given a {@link TranspositionTable} the shooter looks the position up by the
+ * {@link konopi.battleship.logic.Grid#getStateHash() hash} of the grid before solving it, so the positions
+ * reached again, e.g. the opening of every game, are solved once for all the shooters sharing the table.
+ */
+public class PosteriorShooter implements Shooter {
+    public static final Duration DEFAULT_BUDGET = Duration.ofMillis(20);
+
+    private final PosteriorSolver solver;
+    /**
+     * Time the solver may spend on a shot.
+     */
+    private final Duration budget;
+    /**
+     * Cache of the solved positions, may be {@code null}.
+     */
+    private final TranspositionTable<Posterior> table;
+    private Game game;
+    /**
+     * Mixed into the keys of the {@link #table}, so games of different rules may share it.
+     */
+    private long rulesKey;
+
+    /**
+     * Main constructor.
+     * @param solver Solver, may be shared by any amount of shooters.
+     * @param budget {@link #budget}.
+     */
+    public PosteriorShooter(PosteriorSolver solver, Duration budget) {
+        this(solver, budget, null);
+    }
+
+    /**
+     * Constructor caching the solved positions.
+     * @param solver Solver, may be shared by any amount of shooters.
+     * @param budget {@link #budget}.
+     * @param table {@link #table}, may be shared by any amount of shooters, {@code null} to solve every position.
+     */
+    public PosteriorShooter(PosteriorSolver solver, Duration budget, TranspositionTable<Posterior> table) {
+        this.solver = solver;
+        this.budget = budget;
+        this.table = table;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The shooter reads the shots and the sunk ships from the game itself.
+     */
+    @Override
+    public void initialise(Game game) {
+        this.game = game;
+        rulesKey = game.getRules().hashCode() * 0x9E3779B97F4A7C15L;
+    }
+
+    /**
+     * @throws IllegalStateException Every square was already fired at.
+     */
+    @Override
+    public Coordinates nextTarget() {
+        Coordinates target = solve().getBestTarget();
+        if (target == null) {
+            throw new IllegalStateException("No squares left to fire at");
+        }
+        return target;
+    }
+
+    /**
+     * Gets the posterior of the position from the {@link #table} or the solver. An exact posterior
+     * is never replaced by a sampled one, more samples replace fewer.
+     */
+    private Posterior solve() {
+        if (table == null) return solver.solve(PosteriorSolver.Position.of(game), budget);
+
+        long key = game.getOceanGrid().getStateHash() ^ rulesKey;
+        Posterior posterior = table.get(key);
+        if (posterior == null) {
+            posterior = solver.solve(PosteriorSolver.Position.of(game), budget);
+            table.put(key, posterior, posterior.isExact() ? Long.MAX_VALUE : posterior.getSamples());
+        }
+        return posterior;
+    }
+
+    @Override
+    public void registerResult(Coordinates target, Grid.ShotResult shotResult) {
+        /* the game already holds the result */
+    }
+}
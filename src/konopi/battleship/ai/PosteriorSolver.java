@@ -0,0 +1,744 @@
+package konopi.battleship.ai;
+
+import konopi.battleship.logic.Coordinates;
+import konopi.battleship.logic.Game;
+import konopi.battleship.logic.GameRules;
+import konopi.battleship.logic.Seeds;
+import konopi.battleship.logic.Ship;
+import konopi.battleship.logic.SplitMix64;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.random.RandomGenerator;
+
+/**
+ * The PosteriorSolver computes the probability of every square being taken by a ship, given the shots fired
+ * so far and the ships afloat. It looks at the full layouts of the remaining fleet consistent with the shots:
+ * no ship over a miss or a sunk ship, every hit covered and no ships touching unless the rules allow it.
+ * Every consistent layout is taken as equally likely.
+ * <p>
+ * The layouts are enumerated exactly if their amount allows it. The placement tree is split into fork-join
+ * tasks near the root, as deep as it takes to give every worker plenty of subtrees, and the idle workers steal
+ * the subtrees of the busy ones. Otherwise the layouts are sampled: every sample places the ships one after
+ * another in a random free slot and is weighted by the product of the amounts of slots it chose from, the Knuth
+ * estimator of the tree size, so the estimate is unbiased however unevenly the tree branches. Either way two
+ * placements are checked for a conflict with a bitwise {@code and} of their masks.
+ * <p>
+ * Both are bounded by the time budget. An enumeration which doesn't finish in half of it is abandoned and
+ * the rest of the budget is spent sampling, so a result is always returned in time.
+ */
+public class PosteriorSolver implements AutoCloseable {
+    /**
+     * Upper bound of the layout amount, ignoring conflicts between the ships, above which the enumeration
+     * isn't even attempted.
+     */
+    static final double EXACT_LIMIT = 1e10;
+    /**
+     * Tasks the enumeration is split into per worker, at least.
+     */
+    private static final int TASKS_PER_WORKER = 16;
+    /**
+     * Samples drawn at once. A chunk is seeded by its number, so the same amount of samples gives the same result
+     * on any amount of workers.
+     */
+    private static final int CHUNK_SAMPLES = 1024;
+    /**
+     * The enumeration checks the clock once every this many placements tried, plus one.
+     */
+    private static final int CLOCK_CHECK_MASK = 0xFFF;
+
+    private final ForkJoinPool pool;
+    private final int parallelism;
+    private final long seed;
+
+    /**
+     * Main constructor. Uses all available processors and a random seed.
+     */
+    public PosteriorSolver() {
+        this(Runtime.getRuntime().availableProcessors(), Seeds.random());
+    }
+
+    /**
+     * @param parallelism Amount of worker threads.
+     * @param seed Seed of the sampling, see {@link Seeds}.
+     * @throws IllegalArgumentException The parallelism is less than 1.
+     */
+    public PosteriorSolver(int parallelism, long seed) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism should be >= 1: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        this.seed = seed;
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * What's known of the grid: the result of every square fired at and the sizes of the ships afloat.
+     */
+    public static class Position {
+        private final int sizeX;
+        private final int sizeY;
+        private final boolean adjacentShips;
+        /**
+         * Known state of every square, indexed by {@code y * sizeX + x}. {@code null} if unknown,
+         * {@link Ship.HitDesignation#SINK SINK} for every square of a sunk ship.
+         */
+        private final Ship.HitDesignation[] states;
+        private final int[] remainingShipSizes;
+
+        /**
+         * Main constructor, every square is unknown.
+         * @param sizeX Size of the grid on the number axis.
+         * @param sizeY Size of the grid on the letter axis.
+         * @param adjacentShips {@code true} if ships may touch each other.
+         * @param remainingShipSizes Sizes of the ships afloat.
+         * @throws IllegalArgumentException The grid is empty or a ship is smaller than 1.
+         */
+        public Position(int sizeX, int sizeY, boolean adjacentShips, int... remainingShipSizes) {
+            if (sizeX < 1 || sizeY < 1 || (long) sizeX * sizeY > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Unsupported grid size: " + sizeX + "x" + sizeY);
+            }
+            for (int size : remainingShipSizes) {
+                if (size < 1) {
+                    throw new IllegalArgumentException("Size should be >= 1: " + size);
+                }
+            }
+            this.sizeX = sizeX;
+            this.sizeY = sizeY;
+            this.adjacentShips = adjacentShips;
+            this.remainingShipSizes = remainingShipSizes.clone();
+            states = new Ship.HitDesignation[sizeX * sizeY];
+        }
+
+        /**
+         * Reads the position from a game: the shots from the hit history of its grid, the squares of the sunk
+         * ships and the sizes of the others from its ships.
+         * @param game The game.
+         * @return The position.
+         */
+        public static Position of(Game game) {
+            GameRules rules = game.getRules();
+            List<Ship> ships = game.getShips();
+            Position position = new Position(rules.sizeX(), rules.sizeY(), rules.adjacentShips(),
+                    ships.stream().filter(ship -> !ship.isSunk()).mapToInt(Ship::getSize).toArray());
+            game.getOceanGrid().forEachShot((letterIndex, numberIndex, hitDesignation) ->
+                    position.mark(letterIndex, numberIndex, hitDesignation == Ship.HitDesignation.MISS
+                            ? Ship.HitDesignation.MISS : Ship.HitDesignation.HIT));
+            for (Ship ship : ships) {
+                if (!ship.isSunk()) continue;
+                for (int square = 0; square < ship.getSize(); ++square) {
+                    position.mark(ship.getSquare(square), Ship.HitDesignation.SINK);
+                }
+            }
+            return position;
+        }
+
+        /**
+         * Sets the known state of the square.
+         * @param letterIndex Vertical index of the square.
+         * @param numberIndex Horizontal index of the square.
+         * @param state {@link Ship.HitDesignation#MISS MISS}, {@link Ship.HitDesignation#HIT HIT} of a ship
+         * afloat, {@link Ship.HitDesignation#SINK SINK} for a square of a sunk ship or {@code null} if unknown.
+         * @return This position.
+         * @throws IllegalArgumentException The square is not part of the grid.
+         */
+        public Position mark(int letterIndex, int numberIndex, Ship.HitDesignation state) {
+            if (letterIndex >= sizeY || numberIndex >= sizeX) {
+                throw new IllegalArgumentException("Coordinates out of bounds: "
+                        + Coordinates.of(letterIndex, numberIndex));
+            }
+            states[letterIndex * sizeX + numberIndex] = state;
+            return this;
+        }
+
+        public Position mark(Coordinates coordinates, Ship.HitDesignation state) {
+            return mark(coordinates.getLetterIndex(), coordinates.getNumberIndex(), state);
+        }
+    }
+
+    /**
+     * Computes the probabilities within the time budget. The result is exact if the layouts could be enumerated
+     * in half of it, otherwise sampled.
+     * @param position The position.
+     * @param budget Time to spend.
+     * @return The probabilities.
+     */
+    public Posterior solve(Position position, Duration budget) {
+        long start = System.nanoTime();
+        long deadline = start + budget.toNanos();
+        Problem problem = new Problem(position);
+
+        if (problem.layoutBound() <= EXACT_LIMIT) {
+            long[] counts = enumerate(problem, start + budget.toNanos() / 2);
+            if (counts != null) {
+                return problem.toPosterior(counts, System.nanoTime() - start);
+            }
+        }
+        Tally tally = sample(problem, Long.MAX_VALUE, deadline);
+        return problem.toPosterior(tally, System.nanoTime() - start);
+    }
+
+    /**
+     * Computes the exact probabilities, however long it takes.
+     * @param position The position.
+     * @return The probabilities.
+     */
+    public Posterior enumerate(Position position) {
+        long start = System.nanoTime();
+        Problem problem = new Problem(position);
+        return problem.toPosterior(enumerate(problem, Long.MAX_VALUE), System.nanoTime() - start);
+    }
+
+    /**
+     * Estimates the probabilities from the specified amount of samples. The same amount of samples gives the same
+     * result regardless of the parallelism.
+     * @param position The position.
+     * @param samples Amount of samples.
+     * @return The probabilities.
+     * @throws IllegalArgumentException The amount of samples is less than 1.
+     */
+    public Posterior sample(Position position, long samples) {
+        if (samples < 1) {
+            throw new IllegalArgumentException("Amount of samples should be >= 1: " + samples);
+        }
+        long start = System.nanoTime();
+        Problem problem = new Problem(position);
+        Tally tally = sample(problem, samples, Long.MAX_VALUE);
+        return problem.toPosterior(tally, System.nanoTime() - start);
+    }
+
+    /**
+     * Stops the workers.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    /**
+     * Counts the consistent layouts covering every square.
+     * @return The counts and the amount of layouts as the last element, {@code null} if the deadline passed first.
+     */
+    private long[] enumerate(Problem problem, long deadline) {
+        if (problem.shipAmount == 0) {
+            long[] counts = new long[problem.squares + 1];
+            counts[problem.squares] = problem.hitAmount == 0 ? 1 : 0;
+            return counts;
+        }
+        AtomicBoolean expired = new AtomicBoolean();
+        long[] counts = pool.invoke(new EnumerationTask(problem, deadline, expired, 0, 0, problem.hitAmount,
+                new long[problem.words], 1));
+        return expired.get() ? null : counts;
+    }
+
+    /**
+     * Draws the samples in chunks, every worker taking every {@link #parallelism}-th chunk.
+     * @param samples Amount of samples, {@code Long.MAX_VALUE} to sample until the deadline.
+     * @param deadline Time after which no chunk is started, a worker finishes one chunk at least.
+     */
+    private Tally sample(Problem problem, long samples, long deadline) {
+        long chunks = samples == Long.MAX_VALUE ? Long.MAX_VALUE : (samples + CHUNK_SAMPLES - 1) / CHUNK_SAMPLES;
+        List<ForkJoinTask<Tally>> workers = new ArrayList<>();
+        for (int worker = 0; worker < Math.min(parallelism, chunks); ++worker) {
+            int first = worker;
+            workers.add(pool.submit(() -> {
+                Sampler sampler = new Sampler(problem);
+                for (long chunk = first; chunk < chunks; chunk += parallelism) {
+                    if (chunk != first && System.nanoTime() - deadline > 0) break;
+                    long amount = Math.min(CHUNK_SAMPLES, samples - chunk * CHUNK_SAMPLES);
+                    sampler.sample(new SplitMix64(Seeds.derive(seed, chunk)), amount);
+                }
+                return sampler.tally;
+            }));
+        }
+
+        Tally tally = new Tally(problem.squares);
+        for (ForkJoinTask<Tally> worker : workers) {
+            tally.merge(worker.join());
+        }
+        return tally;
+    }
+
+    /**
+     * The position compiled into the placement masks of every remaining ship.
+     */
+    private static final class Problem {
+        private final int sizeX;
+        private final int sizeY;
+        private final int squares;
+        /**
+         * Length of a square bitset.
+         */
+        private final int words;
+        private final int shipAmount;
+        /**
+         * Squares fired at, the ones {@link Posterior#getBestTarget()} skips.
+         */
+        private final boolean[] unknown;
+        private final int hitAmount;
+        /**
+         * Sizes of the remaining ships, from the largest.
+         */
+        private final int[] shipSizes;
+        /**
+         * {@code true} if the ship has the size of the preceding one. The enumeration places such a ship only
+         * in slots after the one of the preceding ship, to count every layout once.
+         */
+        private final boolean[] sameAsPrevious;
+        /**
+         * Squares of the ships from the index on, the last element is 0. Layouts leaving more hits uncovered
+         * than there are squares left are pruned.
+         */
+        private final int[] suffixSquares;
+        /**
+         * Amount of valid placements of each ship. The ships of the same size share the placement arrays.
+         */
+        private final int[] placementAmounts;
+        /**
+         * Squares of every valid placement of each ship, {@link #words} per placement.
+         */
+        private final long[][] masks;
+        /**
+         * Squares no other ship may take once the placement is chosen: its squares and, if ships may not touch,
+         * the squares around them.
+         */
+        private final long[][] halos;
+        /**
+         * Amount of hits covered by every valid placement of each ship.
+         */
+        private final int[][] hitsCovered;
+        /**
+         * Orderings of the ships of the same size, a sample places them in any order.
+         */
+        private final double orderings;
+
+        Problem(Position position) {
+            sizeX = position.sizeX;
+            sizeY = position.sizeY;
+            squares = sizeX * sizeY;
+            words = (squares + 63) >>> 6;
+
+            long[] blocked = new long[words];
+            long[] hits = new long[words];
+            unknown = new boolean[squares];
+            int hitAmount = 0;
+            for (int square = 0; square < squares; ++square) {
+                Ship.HitDesignation state = position.states[square];
+                unknown[square] = state == null;
+                if (state == Ship.HitDesignation.HIT) {
+                    hits[square >>> 6] |= 1L << square;
+                    ++hitAmount;
+                } else if (state != null) {
+                    /* a sunk ship keeps the others off its surroundings as well */
+                    int margin = state == Ship.HitDesignation.SINK && !position.adjacentShips ? 1 : 0;
+                    setArea(blocked, square % sizeX, square / sizeX, square % sizeX, square / sizeX, margin);
+                }
+            }
+            this.hitAmount = hitAmount;
+
+            shipSizes = Arrays.stream(position.remainingShipSizes).boxed()
+                    .sorted((a, b) -> b - a).mapToInt(Integer::intValue).toArray();
+            shipAmount = shipSizes.length;
+            sameAsPrevious = new boolean[shipAmount];
+            suffixSquares = new int[shipAmount + 1];
+            placementAmounts = new int[shipAmount];
+            masks = new long[shipAmount][];
+            halos = new long[shipAmount][];
+            hitsCovered = new int[shipAmount][];
+            double orderings = 1;
+            int run = 1;
+            for (int ship = shipAmount - 1; ship >= 0; --ship) {
+                suffixSquares[ship] = suffixSquares[ship + 1] + shipSizes[ship];
+            }
+            for (int ship = 0; ship < shipAmount; ++ship) {
+                if (ship > 0 && shipSizes[ship] == shipSizes[ship - 1]) {
+                    sameAsPrevious[ship] = true;
+                    masks[ship] = masks[ship - 1];
+                    halos[ship] = halos[ship - 1];
+                    hitsCovered[ship] = hitsCovered[ship - 1];
+                    placementAmounts[ship] = placementAmounts[ship - 1];
+                    orderings *= ++run;
+                } else {
+                    run = 1;
+                    compilePlacements(ship, blocked, hits, position.adjacentShips);
+                }
+            }
+            this.orderings = orderings;
+        }
+
+        /**
+         * Sets the squares of the rectangle and of the specified margin around it.
+         */
+        private void setArea(long[] bits, int fromX, int fromY, int toX, int toY, int margin) {
+            for (int y = Math.max(0, fromY - margin); y <= Math.min(sizeY - 1, toY + margin); ++y) {
+                for (int x = Math.max(0, fromX - margin); x <= Math.min(sizeX - 1, toX + margin); ++x) {
+                    int square = y * sizeX + x;
+                    bits[square >>> 6] |= 1L << square;
+                }
+            }
+        }
+
+        /**
+         * Lists the placements of the ship clear of the blocked squares. If ships may not touch, the placements
+         * touching a hit they don't cover are left out as well, as the ship covering it would touch them.
+         */
+        private void compilePlacements(int ship, long[] blocked, long[] hits, boolean adjacentShips) {
+            int size = shipSizes[ship];
+            int margin = adjacentShips ? 0 : 1;
+            List<long[]> shipMasks = new ArrayList<>();
+            List<long[]> shipHalos = new ArrayList<>();
+            for (int y = 0; y < sizeY; ++y) {
+                for (int x = 0; x < sizeX; ++x) {
+                    for (Ship.Orientation orientation : Ship.Orientation.values()) {
+                        boolean horizontal = orientation == Ship.Orientation.HORIZONTAL;
+                        int endX = horizontal ? x + size - 1 : x;
+                        int endY = horizontal ? y : y + size - 1;
+                        /* a single square ship would be listed twice */
+                        if (endX >= sizeX || endY >= sizeY || size == 1 && !horizontal) continue;
+
+                        long[] mask = new long[words];
+                        setArea(mask, x, y, endX, endY, 0);
+                        long[] halo = new long[words];
+                        setArea(halo, x, y, endX, endY, margin);
+                        boolean valid = true;
+                        for (int word = 0; word < words && valid; ++word) {
+                            valid = (mask[word] & blocked[word]) == 0 && (halo[word] & ~mask[word] & hits[word]) == 0;
+                        }
+                        if (valid) {
+                            shipMasks.add(mask);
+                            shipHalos.add(halo);
+                        }
+                    }
+                }
+            }
+
+            int amount = shipMasks.size();
+            placementAmounts[ship] = amount;
+            masks[ship] = new long[amount * words];
+            halos[ship] = new long[amount * words];
+            hitsCovered[ship] = new int[amount];
+            for (int placement = 0; placement < amount; ++placement) {
+                System.arraycopy(shipMasks.get(placement), 0, masks[ship], placement * words, words);
+                System.arraycopy(shipHalos.get(placement), 0, halos[ship], placement * words, words);
+                for (int word = 0; word < words; ++word) {
+                    hitsCovered[ship][placement] += Long.bitCount(shipMasks.get(placement)[word] & hits[word]);
+                }
+            }
+        }
+
+        /**
+         * Gets the amount of layouts if the ships never got in each other's way.
+         */
+        double layoutBound() {
+            double bound = 1;
+            for (int ship = 0; ship < shipAmount; ++ship) {
+                bound *= placementAmounts[ship];
+            }
+            return bound / orderings;
+        }
+
+        /**
+         * Checks if the placement of the ship takes any of the occupied squares.
+         */
+        boolean conflicts(long[] occupied, int ship, int placement) {
+            long[] shipMasks = masks[ship];
+            int base = placement * words;
+            for (int word = 0; word < words; ++word) {
+                if ((occupied[word] & shipMasks[base + word]) != 0) return true;
+            }
+            return false;
+        }
+
+        /**
+         * Writes the squares taken by the placement of the ship, along with the ones already occupied.
+         */
+        void occupy(long[] occupied, int ship, int placement, long[] target) {
+            long[] shipHalos = halos[ship];
+            int base = placement * words;
+            for (int word = 0; word < words; ++word) {
+                target[word] = occupied[word] | shipHalos[base + word];
+            }
+        }
+
+        /**
+         * Adds the amount to the counts of the squares of the placement.
+         */
+        void count(long[] counts, int ship, int placement, long amount) {
+            long[] shipMasks = masks[ship];
+            int base = placement * words;
+            for (int word = 0; word < words; ++word) {
+                for (long bits = shipMasks[base + word]; bits != 0; bits &= bits - 1) {
+                    counts[(word << 6) + Long.numberOfTrailingZeros(bits)] += amount;
+                }
+            }
+        }
+
+        Posterior toPosterior(long[] counts, long elapsedNanos) {
+            long layouts = counts[squares];
+            double[] probabilities = new double[squares];
+            for (int square = 0; square < squares && layouts > 0; ++square) {
+                probabilities[square] = (double) counts[square] / layouts;
+            }
+            return new Posterior(sizeX, sizeY, probabilities, unknown, true, layouts, 0, elapsedNanos);
+        }
+
+        Posterior toPosterior(Tally tally, long elapsedNanos) {
+            double[] probabilities = new double[squares];
+            for (int square = 0; square < squares && tally.total > 0; ++square) {
+                probabilities[square] = tally.weights[square] / tally.total;
+            }
+            return new Posterior(sizeX, sizeY, probabilities, unknown, false,
+                    tally.total / tally.samples / orderings, tally.samples, elapsedNanos);
+        }
+    }
+
+    /**
+     * Enumerates the layouts below a node of the placement tree: the ships before {@link #ship} are placed,
+     * this one may take the slots from {@link #from} on. Splits into a task for every slot while there are less
+     * than {@link #TASKS_PER_WORKER} tasks per worker at this depth, then walks the subtree sequentially.
+     * Returns the counts of the squares followed by the amount of layouts.
+     */
+    private class EnumerationTask extends RecursiveTask<long[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final Problem problem;
+        private final long deadline;
+        /**
+         * Set once the deadline passed, every task stops as soon as it notices.
+         */
+        private final AtomicBoolean expired;
+        private final int ship;
+        private final int from;
+        /**
+         * Hits not covered by the ships placed so far.
+         */
+        private final int uncovered;
+        /**
+         * Squares the remaining ships may not take.
+         */
+        private final long[] occupied;
+        /**
+         * Estimated amount of tasks at this depth of the tree.
+         */
+        private final double width;
+
+        /**
+         * Placements tried by the sequential walk, the clock is checked every {@link #CLOCK_CHECK_MASK} + 1.
+         */
+        private long tried;
+        /**
+         * Local copy of {@link #expired}, checked after every placement without a volatile read.
+         */
+        private boolean stopped;
+        /**
+         * Squares occupied before placing each ship in the sequential walk.
+         */
+        private long[][] stack;
+        private long[] counts;
+
+        EnumerationTask(Problem problem, long deadline, AtomicBoolean expired, int ship, int from, int uncovered,
+                        long[] occupied, double width) {
+            this.problem = problem;
+            this.deadline = deadline;
+            this.expired = expired;
+            this.ship = ship;
+            this.from = from;
+            this.uncovered = uncovered;
+            this.occupied = occupied;
+            this.width = width;
+        }
+
+        @Override
+        protected long[] compute() {
+            counts = new long[problem.squares + 1];
+            if (expired.get()) return counts;
+
+            if (ship + 1 < problem.shipAmount && width < (double) parallelism * TASKS_PER_WORKER) {
+                split();
+            } else {
+                stack = new long[problem.shipAmount + 1][];
+                stack[ship] = occupied;
+                for (int next = ship + 1; next < problem.shipAmount; ++next) {
+                    stack[next] = new long[problem.words];
+                }
+                counts[problem.squares] = walk(ship, from, uncovered);
+            }
+            return counts;
+        }
+
+        /**
+         * Forks a task for every slot of the ship.
+         */
+        private void split() {
+            List<Integer> placements = new ArrayList<>();
+            for (int placement = start(ship, from); placement < problem.placementAmounts[ship]; ++placement) {
+                if (fits(occupied, ship, placement, uncovered)) placements.add(placement);
+            }
+
+            List<EnumerationTask> children = new ArrayList<>();
+            for (int placement : placements) {
+                long[] next = new long[problem.words];
+                problem.occupy(occupied, ship, placement, next);
+                children.add(new EnumerationTask(problem, deadline, expired, ship + 1, placement + 1,
+                        uncovered - problem.hitsCovered[ship][placement], next, width * placements.size()));
+            }
+            invokeAll(children);
+
+            for (int i = 0; i < children.size(); ++i) {
+                long[] childCounts = children.get(i).join();
+                long layouts = childCounts[problem.squares];
+                for (int square = 0; square <= problem.squares; ++square) {
+                    counts[square] += childCounts[square];
+                }
+                if (layouts != 0) problem.count(counts, ship, placements.get(i), layouts);
+            }
+        }
+
+        /**
+         * Counts the layouts placing the ship and the ones after it in the subtree, adding them to the counts.
+         * @return Amount of layouts, 0 once the deadline passed.
+         */
+        private long walk(int ship, int from, int uncovered) {
+            long layouts = 0;
+            long[] before = stack[ship];
+            boolean last = ship + 1 == problem.shipAmount;
+            for (int placement = start(ship, from); placement < problem.placementAmounts[ship]; ++placement) {
+                if ((++tried & CLOCK_CHECK_MASK) == 0 && (expired.get() || System.nanoTime() - deadline > 0)) {
+                    expired.set(true);
+                    stopped = true;
+                }
+                if (stopped) return 0;
+                if (!fits(before, ship, placement, uncovered)) continue;
+
+                int left = uncovered - problem.hitsCovered[ship][placement];
+                long below;
+                if (last) {
+                    below = 1;
+                } else {
+                    problem.occupy(before, ship, placement, stack[ship + 1]);
+                    below = walk(ship + 1, placement + 1, left);
+                }
+                if (below != 0) {
+                    layouts += below;
+                    problem.count(counts, ship, placement, below);
+                }
+            }
+            return layouts;
+        }
+
+        /**
+         * Gets the first slot the ship may take.
+         */
+        private int start(int ship, int from) {
+            return problem.sameAsPrevious[ship] ? from : 0;
+        }
+
+        /**
+         * Checks if the ship may take the slot: it's free and the ships left can still cover the remaining hits.
+         */
+        private boolean fits(long[] occupied, int ship, int placement, int uncovered) {
+            return !problem.conflicts(occupied, ship, placement)
+                    && uncovered - problem.hitsCovered[ship][placement] <= problem.suffixSquares[ship + 1];
+        }
+    }
+
+    /**
+     * Draws layouts of a single worker.
+     */
+    private static final class Sampler {
+        private final Problem problem;
+        private final Tally tally;
+        private final long[] occupied;
+        private final long[] next;
+        /**
+         * Slots the current ship may take.
+         */
+        private final int[] candidates;
+        /**
+         * Slots taken by the ships of the current sample.
+         */
+        private final int[] chosen;
+
+        Sampler(Problem problem) {
+            this.problem = problem;
+            tally = new Tally(problem.squares);
+            occupied = new long[problem.words];
+            next = new long[problem.words];
+            candidates = new int[Arrays.stream(problem.placementAmounts).max().orElse(0)];
+            chosen = new int[problem.shipAmount];
+        }
+
+        void sample(RandomGenerator random, long amount) {
+            for (long i = 0; i < amount; ++i) {
+                sample(random);
+            }
+            tally.samples += amount;
+        }
+
+        /**
+         * Places the ships one after another in a random slot each, weighting the layout by the product
+         * of the amounts of the slots to choose from.
+         */
+        private void sample(RandomGenerator random) {
+            Arrays.fill(occupied, 0);
+            double weight = 1;
+            int uncovered = problem.hitAmount;
+            for (int ship = 0; ship < problem.shipAmount; ++ship) {
+                int amount = 0;
+                for (int placement = 0; placement < problem.placementAmounts[ship]; ++placement) {
+                    if (!problem.conflicts(occupied, ship, placement)
+                            && uncovered - problem.hitsCovered[ship][placement] <= problem.suffixSquares[ship + 1]) {
+                        candidates[amount++] = placement;
+                    }
+                }
+                if (amount == 0) return;
+
+                int placement = candidates[random.nextInt(amount)];
+                weight *= amount;
+                uncovered -= problem.hitsCovered[ship][placement];
+                problem.occupy(occupied, ship, placement, next);
+                System.arraycopy(next, 0, occupied, 0, next.length);
+                chosen[ship] = placement;
+            }
+            if (uncovered != 0) return;
+
+            tally.total += weight;
+            for (int ship = 0; ship < problem.shipAmount; ++ship) {
+                long[] shipMasks = problem.masks[ship];
+                int base = chosen[ship] * problem.words;
+                for (int word = 0; word < problem.words; ++word) {
+                    for (long bits = shipMasks[base + word]; bits != 0; bits &= bits - 1) {
+                        tally.weights[(word << 6) + Long.numberOfTrailingZeros(bits)] += weight;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Weighted sample counts of the squares.
+     */
+    private static final class Tally {
+        private final double[] weights;
+        private double total;
+        private long samples;
+
+        Tally(int squares) {
+            weights = new double[squares];
+        }
+
+        void merge(Tally other) {
+            for (int square = 0; square < weights.length; ++square) {
+                weights[square] += other.weights[square];
+            }
+            total += other.total;
+            samples += other.samples;
+        }
+    }
+}
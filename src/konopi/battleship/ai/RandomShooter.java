@@ -0,0 +1,62 @@
+package konopi.battleship.ai;
+
+import konopi.battleship.logic.Coordinates;
+import konopi.battleship.logic.Game;
+import konopi.battleship.logic.Grid;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * The RandomShooter fires at uniformly random squares, never at the same square twice.
+ * It's the weakest reasonable strategy and serves as a baseline.
+ */
+public class RandomShooter implements Shooter {
+    private final RandomGenerator random;
+
+    /**
+     * Indices ({@code y * sizeX + x}) of the squares not fired at yet, kept in the first {@link #remaining} places.
+     */
+    private int[] squares;
+    private int remaining;
+    private int sizeX;
+
+    /**
+     * Main constructor.
+     * @param random Source of randomness, should not be shared between threads.
+     */
+    public RandomShooter(RandomGenerator random) {
+        this.random = random;
+    }
+
+    @Override
+    public void initialise(Game game) {
+        Grid grid = game.getOceanGrid();
+        sizeX = grid.getSizeX();
+        remaining = sizeX * grid.getSizeY();
+        squares = new int[remaining];
+        for (int i = 0; i < remaining; ++i) {
+            squares[i] = i;
+        }
+    }
+
+    /**
+     * Picks one of the remaining squares and swaps it out of the remaining range.
+     * @throws IllegalStateException Every square was already fired at.
+     */
+    @Override
+    public Coordinates nextTarget() {
+        if (remaining == 0) {
+            throw new IllegalStateException("No squares left to fire at");
+        }
+        int pick = random.nextInt(remaining);
+        int square = squares[pick];
+        squares[pick] = squares[--remaining];
+        squares[remaining] = square;
+        return Coordinates.of(square / sizeX, square % sizeX);
+    }
+
+    @Override
+    public void registerResult(Coordinates target, Grid.ShotResult shotResult) {
+        /* the outcome doesn't change anything for a random strategy */
+    }
+}
@@ -0,0 +1,31 @@
+package konopi.battleship.ai;
+
+import konopi.battleship.logic.Coordinates;
+import konopi.battleship.logic.Game;
+import konopi.battleship.logic.Grid;
+
+/**
+ * The Shooter is a strategy choosing the coordinates to fire at, used to play a {@link Game} without the UI.
+ * The caller passes every target to {@link Game#setTargetCoordinates(Coordinates)}, ticks the game
+ * and reports the result back.
+ */
+public interface Shooter {
+    /**
+     * This method is called before the first shot.
+     * @param game The game which will be played.
+     */
+    void initialise(Game game);
+
+    /**
+     * Chooses the coordinates for the next shot.
+     * @return Target square.
+     */
+    Coordinates nextTarget();
+
+    /**
+     * This method is called after every shot with its outcome.
+     * @param target Coordinates returned by the preceding {@link #nextTarget() nextTarget}.
+     * @param shotResult Result of the shot, {@code null} if the target was out of bounds.
+     */
+    void registerResult(Coordinates target, Grid.ShotResult shotResult);
+}
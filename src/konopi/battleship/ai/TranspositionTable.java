@@ -0,0 +1,170 @@
+package konopi.battleship.ai;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The TranspositionTable is a fixed-size cache of evaluated positions, e.g. the {@link Posterior} of the
+ * {@link PosteriorShooter}, keyed by the {@link konopi.battleship.logic.Grid#getStateHash() Zobrist hash}
+ * of the position. It's meant to be shared by all the threads of a search or a simulation.
+ * <p>
+ * The table is lock-free. Every slot holds a reference to an immutable entry, so a reader sees either
+ * the whole entry or none of it, and writers swap the entries with a compare-and-set. A writer losing
+ * the race drops its entry, as the table is only a cache.
+ * <p>
+ * The slots are paired into buckets of two. The first slot of a bucket keeps the most expensive entry
+ * stored there, the second one always takes the newest entry, so a position evaluated at great cost
+ * survives a stream of cheap ones while the recent positions still get cached.
+ * @param <V> Type of the values, they should be immutable.
+ */
+public final class TranspositionTable<V> {
+    /**
+     * An evaluated position.
+     * @param key Full hash of the position, the bucket is chosen by its low bits.
+     * @param value The evaluation.
+     * @param cost Cost of the evaluation, the higher the more worth keeping.
+     */
+    private record Entry<V>(long key, V value, long cost) {}
+
+    private final AtomicReferenceArray<Entry<V>> slots;
+    /**
+     * Mask of the bucket index, the buckets start at the even slots.
+     */
+    private final int bucketMask;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Main constructor.
+     * @param capacity Maximum amount of entries, rounded up to an even power of two.
+     * @throws IllegalArgumentException The capacity is less than 1 or over 2^30.
+     */
+    public TranspositionTable(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity should be between 1 and 2^30: " + capacity);
+        }
+        int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        slots = new AtomicReferenceArray<>(size);
+        bucketMask = (size >>> 1) - 1;
+    }
+
+    /**
+     * Gets the first slot of the bucket of the key. The low bits of a Zobrist hash are as random
+     * as the others.
+     */
+    private int bucketOf(long key) {
+        return ((int) key & bucketMask) << 1;
+    }
+
+    /**
+     * Gets the evaluation of the position.
+     * @param key Hash of the position.
+     * @return The value stored for the key, {@code null} if there is none.
+     */
+    public V get(long key) {
+        int bucket = bucketOf(key);
+        for (int slot = bucket; slot < bucket + 2; ++slot) {
+            Entry<V> entry = slots.get(slot);
+            if (entry != null && entry.key() == key) {
+                hits.increment();
+                return entry.value();
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Stores the evaluation of the position. An entry of the same key is replaced unless it cost more.
+     * @param key Hash of the position.
+     * @param value The evaluation.
+     * @param cost Cost of the evaluation, e.g. the time or the amount of samples it took.
+     */
+    public void put(long key, V value, long cost) {
+        Objects.requireNonNull(value);
+        Entry<V> entry = new Entry<>(key, value, cost);
+        int bucket = bucketOf(key);
+        Entry<V> first = slots.get(bucket);
+        Entry<V> second = slots.get(bucket + 1);
+
+        if (first != null && first.key() == key) {
+            if (first.cost() <= cost && slots.compareAndSet(bucket, first, entry)) stores.increment();
+            return;
+        }
+        if (second != null && second.key() == key && second.cost() > cost) return;
+
+        if (first == null || first.cost() <= cost) {
+            if (!slots.compareAndSet(bucket, first, entry)) return;
+            stores.increment();
+            if (first == null) return;
+            /* the displaced entry is the newest one of the others */
+            entry = first;
+        }
+        if (!slots.compareAndSet(bucket + 1, second, entry)) {
+            /* lost the race, the entry is dropped */
+            if (entry == first) evictions.increment();
+            return;
+        }
+        if (entry != first) stores.increment();
+        if (second != null && second.key() != key) evictions.increment();
+    }
+
+    /**
+     * Empties the table, the counters are kept.
+     */
+    public void clear() {
+        for (int slot = 0; slot < slots.length(); ++slot) {
+            slots.set(slot, null);
+        }
+    }
+
+    public int getCapacity() {
+        return slots.length();
+    }
+
+    /**
+     * Gets the amount of {@link #get(long) lookups} which found the key.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the amount of {@link #put(long, Object, long) stored} entries, the ones dropped as cheaper
+     * than the entry of the same key or lost in a race are not counted.
+     */
+    public long getStores() {
+        return stores.sum();
+    }
+
+    /**
+     * Gets the amount of entries of other positions pushed out of the table by the stored ones.
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Gets the share of the lookups which found the key.
+     * @return Hit rate between 0 and 1, 0 before the first lookup.
+     */
+    public double getHitRate() {
+        long hits = getHits();
+        long lookups = hits + getMisses();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TranspositionTable[capacity=%d, hit rate=%.4f, hits=%d, misses=%d, stores=%d, "
+                + "evictions=%d]", getCapacity(), getHitRate(), getHits(), getMisses(), getStores(), getEvictions());
+    }
+}
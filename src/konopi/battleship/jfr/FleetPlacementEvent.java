@@ -0,0 +1,28 @@
+package konopi.battleship.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Random placement of the whole fleet of a game by a {@link konopi.battleship.logic.FleetPlacer}.
+ */
+@Name("konopi.battleship.FleetPlacement")
+@Label("Fleet Placement")
+@Category({"Battleship", "Game"})
+@Description("Fleet placed at random on the grid")
+@StackTrace(false)
+public class FleetPlacementEvent extends jdk.jfr.Event {
+    @Label("Ships")
+    public int shipAmount;
+
+    @Label("Attempts")
+    @Description("Scans of the grid for free slots, one per ship unless a slot filter had to fall back to any slot")
+    public int attempts;
+
+    @Label("Adjacent Ships")
+    @Description("Ships may touch each other")
+    public boolean adjacentShips;
+}
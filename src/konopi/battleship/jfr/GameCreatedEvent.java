@@ -0,0 +1,35 @@
+package konopi.battleship.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Creation of a {@link konopi.battleship.logic.Game}, lasting from the start of its constructor to the end,
+ * including the {@link FleetPlacementEvent fleet placement}.
+ */
+@Name("konopi.battleship.GameCreated")
+@Label("Game Created")
+@Category({"Battleship", "Game"})
+@Description("Game set up with its grid and fleet")
+@StackTrace(false)
+public class GameCreatedEvent extends jdk.jfr.Event {
+    @Label("Grid")
+    @Description("Class of the grid backend")
+    public String grid;
+
+    @Label("Size X")
+    public int sizeX;
+
+    @Label("Size Y")
+    public int sizeY;
+
+    @Label("Ships")
+    public int shipAmount;
+
+    @Label("Restored")
+    @Description("The ships were given, e.g. by a replay, instead of placed at random")
+    public boolean restored;
+}
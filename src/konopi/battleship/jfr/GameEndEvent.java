@@ -0,0 +1,29 @@
+package konopi.battleship.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * End of a game played by the {@link konopi.battleship.App}, lasting the whole game loop.
+ */
+@Name("konopi.battleship.GameEnd")
+@Label("Game End")
+@Category({"Battleship", "Game"})
+@Description("Game loop finished")
+@StackTrace(false)
+public class GameEndEvent extends jdk.jfr.Event {
+    @Label("Turns")
+    @Description("Ticks of the game loop")
+    public int turns;
+
+    @Label("Shots")
+    @Description("Squares fired at, without the repeated shots")
+    public int shots;
+
+    @Label("Fleet Sunk")
+    @Description("The game was won, otherwise the loop was stopped by an error")
+    public boolean fleetSunk;
+}
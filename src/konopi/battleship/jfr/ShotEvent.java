@@ -0,0 +1,55 @@
+package konopi.battleship.jfr;
+
+import konopi.battleship.logic.Coordinates;
+import konopi.battleship.logic.Grid;
+import konopi.battleship.logic.Ship;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A single shot at a {@link konopi.battleship.logic.Grid}, also each shot of a batch.
+ */
+@Name("konopi.battleship.Shot")
+@Label("Shot")
+@Category({"Battleship", "Grid"})
+@Description("Shot fired at a square of the grid")
+@StackTrace(false)
+public class ShotEvent extends jdk.jfr.Event {
+    @Label("Coordinates")
+    public String coordinates;
+
+    @Label("Result")
+    @Description("MISS, HIT, SINK or OUT_OF_BOUNDS")
+    public String result;
+
+    @Label("Ship")
+    @Description("Name of the ship hit, if any")
+    public String ship;
+
+    /**
+     * Checks if the shots are recorded, so the grids can take the slower path firing one shot of a batch
+     * at a time only then. The event is not allocated once compiled, as it doesn't escape.
+     * @return {@code true} if the event is enabled in a running recording.
+     */
+    public static boolean isRecorded() {
+        return new ShotEvent().isEnabled();
+    }
+
+    /**
+     * Fills in the shot and commits the event, if it should be committed at all.
+     * @param target Square fired at.
+     * @param resultCode {@link Ship.HitDesignation} ordinal or {@link Grid#OUT_OF_BOUNDS}.
+     * @param shipName Name of the ship hit, {@code null} if none.
+     */
+    public void commitShot(Coordinates target, int resultCode, String shipName) {
+        if (!shouldCommit()) return;
+        coordinates = target.toString();
+        result = resultCode == Grid.OUT_OF_BOUNDS ? "OUT_OF_BOUNDS" : Ship.HitDesignation.values()[resultCode].name();
+        ship = shipName;
+        commit();
+    }
+}
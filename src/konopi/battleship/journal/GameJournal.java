@@ -0,0 +1,587 @@
+package konopi.battleship.journal;
+
+import konopi.battleship.logic.Coordinates;
+import konopi.battleship.logic.Game;
+import konopi.battleship.logic.GameListener;
+import konopi.battleship.logic.GameRules;
+import konopi.battleship.logic.Grid;
+import konopi.battleship.logic.Ship;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The GameJournal records the games played by the same {@link GameRules} to an append-only memory-mapped
+ * file, so the games in progress can be {@link #replay(Path, GameRules, Grid.Factory) replayed} after a crash.
+ * <p>
+ * The file starts with a header, followed by 16 byte records:
+ * <pre>
+ * 0 type   1 orientation or shot result, checksum   2 ship type index   3 checksum   4-11 game id
+ * 12-15 packed coordinates
+ * </pre>
+ * The orientation or the shot result takes the low 2 bits of the byte 1, the other 6 bits and the byte 3
+ * hold a 14 bit checksum, so a record of random bytes with a valid type passes once in 16384.
+ * A SHIP record stores the placement of a ship, a SHOT record the target of a shot and a CLOSE record ends
+ * a game. Writers reserve the record position with a single atomic add and write it straight to the mapped
+ * memory, so recording a shot takes no locks and no system calls. Once written, the records are published
+ * in the position order, so the published ones never have a gap of reserved records still being written.
+ * A background thread forces the published records to the disk in batches, covering the records of all
+ * games at once, and {@link #sync()} waits for the next batch.
+ * <p>
+ * Records of different games may be written in any order and a crash can leave records half written,
+ * or lose records while the later ones reach the disk. The checksum marks the complete ones. As the records
+ * are published and forced in the position order, the replay stops at the first invalid record and
+ * a reopened journal appends in its place, dropping the records after it.
+ */
+public class GameJournal implements AutoCloseable {
+    static final int MAGIC = 0x42534A31; // "BSJ1"
+    static final int VERSION = 2;
+    static final int RECORD_SIZE = 16;
+    /**
+     * The header takes the place of the first record.
+     */
+    static final int HEADER_SIZE = RECORD_SIZE;
+    /**
+     * The file is mapped and grows in regions of this size.
+     */
+    static final int DEFAULT_REGION_SIZE = 1 << 26;
+    static final long DEFAULT_COMMIT_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+
+    /* record types, 0 is an unwritten record */
+    static final byte SHIP = 1;
+    static final byte SHOT = 2;
+    static final byte CLOSE = 3;
+
+    /**
+     * Shot result of an out of bounds shot, the others are the {@link Ship.HitDesignation} ordinals.
+     */
+    static final int OUT_OF_BOUNDS = 3;
+    /**
+     * Bits of the byte 1 holding the orientation or the shot result, the others hold the checksum.
+     */
+    static final int VALUE_MASK = 0x03;
+
+    private final GameRules rules;
+    private final FileChannel channel;
+    private final int regionSize;
+    /**
+     * Mapped regions of the file, grown under the lock of the journal.
+     */
+    private volatile MappedByteBuffer[] regions = new MappedByteBuffer[0];
+    /**
+     * Position of the next record.
+     */
+    private final AtomicLong nextPosition;
+    /**
+     * Records before this position are written, it follows {@link #nextPosition} in the record order.
+     */
+    private final AtomicLong writtenPosition;
+
+    /* group commit state, guarded by the commitMonitor */
+    private final Object commitMonitor = new Object();
+    private final long commitIntervalNanos;
+    private long commitsStarted = 0;
+    private long commitsCompleted = 0;
+    private boolean commitRequested = false;
+    /**
+     * Records before this position were forced by the last commit.
+     */
+    private long committedPosition;
+    private IOException commitFailure;
+
+    private final Thread committer;
+    private volatile boolean closed = false;
+
+    /**
+     * Opens the journal with the default region size and commit interval. New records are appended after
+     * the existing valid ones, the records after the first invalid one are discarded.
+     * @param path Journal file, created if it doesn't exist.
+     * @param rules Rules of the recorded games.
+     * @throws IOException The file can't be opened or mapped.
+     * @throws IllegalArgumentException The file is not a journal of a game with the same grid size.
+     */
+    public GameJournal(Path path, GameRules rules) throws IOException {
+        this(path, rules, DEFAULT_REGION_SIZE, DEFAULT_COMMIT_INTERVAL_NANOS);
+    }
+
+    /**
+     * @param path Journal file, created if it doesn't exist.
+     * @param rules Rules of the recorded games.
+     * @param regionSize Size of the mapped regions, a multiple of the record size.
+     * @param commitIntervalNanos Maximum time between forcing the written records to the disk.
+     * @throws IOException The file can't be opened or mapped.
+     * @throws IllegalArgumentException The file is not a journal of a game with the same grid size.
+     */
+    GameJournal(Path path, GameRules rules, int regionSize, long commitIntervalNanos) throws IOException {
+        if (regionSize < RECORD_SIZE || regionSize % RECORD_SIZE != 0) {
+            throw new IllegalArgumentException("Region size should be a multiple of " + RECORD_SIZE + ": "
+                    + regionSize);
+        }
+        this.rules = rules;
+        this.regionSize = regionSize;
+        this.commitIntervalNanos = commitIntervalNanos;
+        channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long end;
+            if (channel.size() == 0) {
+                MappedByteBuffer header = region(0);
+                header.putInt(4, VERSION);
+                header.putInt(8, rules.sizeX());
+                header.putInt(12, rules.sizeY());
+                header.putInt(0, MAGIC);
+                header.force();
+                end = HEADER_SIZE;
+            } else {
+                checkHeader(channel, rules);
+                end = scan(channel, (position, record) -> {});
+                /* the records after the end are never replayed, so they must not follow the new ones */
+                channel.truncate(end);
+                channel.force(true);
+            }
+            nextPosition = new AtomicLong(end);
+            writtenPosition = new AtomicLong(end);
+            committedPosition = end;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+
+        committer = new Thread(this::commitLoop, "game-journal-committer");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /**
+     * Records the ships of a new game and every following shot.
+     * @param gameId Id of the game, not used by another game of the journal which was not closed.
+     * @param game The game, before any shot is fired. Its listener is replaced.
+     */
+    public void attach(long gameId, Game game) {
+        for (Ship ship : game.getShips()) {
+            int shipType = rules.shipTypeIndex(ship.getName());
+            if (shipType < 0 || shipType > 0xFF) {
+                throw new IllegalArgumentException("Ship is not part of the fleet: " + ship.getName());
+            }
+            append(SHIP, ship.getOrientation().ordinal(), shipType, gameId, ship.getSternSquare().toPacked());
+        }
+        game.setListener(listener(gameId));
+    }
+
+    /**
+     * Creates a listener recording the shots of a game. Shots out of bounds don't change the game,
+     * so their target is not recorded.
+     * @param gameId Id of the game.
+     * @return Listener appending a SHOT record for every shot.
+     */
+    public GameListener listener(long gameId) {
+        return (game, target, shotResult) -> {
+            if (shotResult == null) append(SHOT, OUT_OF_BOUNDS, 0, gameId, 0);
+            else append(SHOT, shotResult.hitDesignation().ordinal(), 0, gameId, target.toPacked());
+        };
+    }
+
+    /**
+     * Records the end of a game, it won't be replayed.
+     * @param gameId Id of the game.
+     */
+    public void close(long gameId) {
+        append(CLOSE, 0, 0, gameId, 0);
+    }
+
+    /**
+     * Appends a record.
+     */
+    private void append(byte type, int value, int shipType, long gameId, int packed) {
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        long position = nextPosition.getAndAdd(RECORD_SIZE);
+        try {
+            MappedByteBuffer region = region((int) (position / regionSize));
+            int offset = (int) (position % regionSize);
+            region.putLong(offset + 4, gameId);
+            region.putInt(offset + 12, packed);
+            int checksum = checksum(type, value, shipType, gameId, packed);
+            region.put(offset + 1, (byte) (value | checksum >>> 8 << 2));
+            region.put(offset + 2, (byte) shipType);
+            region.put(offset + 3, (byte) checksum);
+            /* the type marks the record as written */
+            region.put(offset, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            /* a failed record stays zeroed, which the replay skips, but must not hold up the later ones */
+            publish(position);
+        }
+    }
+
+    /**
+     * Moves the {@link #writtenPosition} past the record, once the records before it are published.
+     * The writers ahead are in the middle of a few puts, so the wait is short.
+     */
+    private void publish(long position) {
+        for (int spins = 0; writtenPosition.get() != position; ++spins) {
+            if (spins < 100) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+        writtenPosition.set(position + RECORD_SIZE);
+    }
+
+    /**
+     * Gets a mapped region, mapping the regions up to it if needed.
+     */
+    private MappedByteBuffer region(int index) throws IOException {
+        MappedByteBuffer[] mapped = regions;
+        if (index < mapped.length) return mapped[index];
+        synchronized (this) {
+            mapped = regions;
+            if (index >= mapped.length) {
+                MappedByteBuffer[] grown = Arrays.copyOf(mapped, index + 1);
+                for (int i = mapped.length; i <= index; ++i) {
+                    grown[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i * regionSize, regionSize);
+                }
+                regions = grown;
+                mapped = grown;
+            }
+            return mapped[index];
+        }
+    }
+
+    /**
+     * Computes the checksum of a record. A zeroed record is never valid anyway, as 0 is not a record type.
+     * @param value Orientation or shot result, see {@link #VALUE_MASK}.
+     * @param shipType Ship type index, 0-255.
+     * @return The 14 bit checksum.
+     */
+    static int checksum(byte type, int value, int shipType, long gameId, int packed) {
+        long mixed = (gameId ^ (long) packed << 32 ^ packed ^ (type << 16 | value << 8 | shipType))
+                * 0x9E3779B97F4A7C15L;
+        return (int) (mixed >>> 50);
+    }
+
+    /**
+     * Waits until every record appended before the call is forced to the disk. Concurrent calls are
+     * served by the same commit.
+     * @throws IOException The commit failed.
+     * @throws InterruptedException Interrupted while waiting.
+     */
+    public void sync() throws IOException, InterruptedException {
+        synchronized (commitMonitor) {
+            if (closed) {
+                throw new IllegalStateException("Journal is closed");
+            }
+            /* a commit started after the call, the last one starts after closing */
+            long target = commitsStarted + 1;
+            commitRequested = true;
+            commitMonitor.notifyAll();
+            while (commitsCompleted < target && commitFailure == null) {
+                commitMonitor.wait();
+            }
+            if (commitFailure != null) throw commitFailure;
+        }
+    }
+
+    private void commitLoop() {
+        while (true) {
+            long commit;
+            long from;
+            boolean last;
+            synchronized (commitMonitor) {
+                if (!commitRequested && !closed) {
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(commitMonitor, commitIntervalNanos);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                commitRequested = false;
+                last = closed;
+                commit = ++commitsStarted;
+                from = committedPosition;
+            }
+
+            /* only the published records, their regions are mapped before they are written */
+            long to = writtenPosition.get();
+            IOException failure = null;
+            try {
+                force(from, to);
+            } catch (IOException e) {
+                failure = e;
+            }
+
+            synchronized (commitMonitor) {
+                commitsCompleted = commit;
+                if (failure == null) {
+                    committedPosition = to;
+                } else {
+                    commitFailure = failure;
+                }
+                commitMonitor.notifyAll();
+            }
+            if (last) return;
+        }
+    }
+
+    /**
+     * Forces the regions holding the records between the positions. The records are published, so their
+     * regions are all mapped.
+     */
+    private void force(long from, long to) throws IOException {
+        if (to <= from) return;
+        MappedByteBuffer[] mapped = regions;
+        int first = (int) (from / regionSize);
+        int last = (int) ((to - 1) / regionSize);
+        try {
+            for (int i = first; i <= last; ++i) {
+                int start = i == first ? (int) (from % regionSize) : 0;
+                int end = i == last ? (int) ((to - 1) % regionSize) + 1 : regionSize;
+                force(mapped[i], start, end - start);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Forces a range of a mapped region to the disk.
+     */
+    void force(MappedByteBuffer region, int offset, int length) {
+        region.force(offset, length);
+    }
+
+    /**
+     * Commits the records written so far and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (commitMonitor) {
+            if (closed) return;
+            closed = true;
+            commitMonitor.notifyAll();
+        }
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        synchronized (commitMonitor) {
+            if (commitFailure != null) throw commitFailure;
+        }
+    }
+
+    /* replay */
+
+    @FunctionalInterface
+    private interface RecordConsumer {
+        void accept(long position, ByteBuffer record);
+    }
+
+    private static void checkHeader(FileChannel channel, GameRules rules) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        channel.read(header, 0);
+        if (header.position() < HEADER_SIZE || header.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a game journal");
+        }
+        if (header.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported journal version: " + header.getInt(4));
+        }
+        if (header.getInt(8) != rules.sizeX() || header.getInt(12) != rules.sizeY()) {
+            throw new IllegalArgumentException("Journal was written for a " + header.getInt(8) + "x"
+                    + header.getInt(12) + " grid");
+        }
+    }
+
+    /**
+     * Passes the valid records to the consumer in the file order, up to the first invalid one.
+     * @return Position of the first invalid record, the end of the journal.
+     */
+    private static long scan(FileChannel channel, RecordConsumer consumer) throws IOException {
+        long end = HEADER_SIZE;
+        ByteBuffer chunk = ByteBuffer.allocateDirect(RECORD_SIZE * 4096);
+        ByteBuffer record = chunk.duplicate();
+        long chunkPosition = HEADER_SIZE;
+        long size = channel.size();
+        while (chunkPosition < size) {
+            chunk.clear();
+            int read = channel.read(chunk, chunkPosition);
+            if (read <= 0) break;
+            for (int offset = 0; offset + RECORD_SIZE <= read; offset += RECORD_SIZE) {
+                if (!isValid(chunk, offset)) return end;
+                record.clear().position(offset).limit(offset + RECORD_SIZE);
+                consumer.accept(end, record.slice());
+                end += RECORD_SIZE;
+            }
+            chunkPosition += read - read % RECORD_SIZE;
+        }
+        return end;
+    }
+
+    private static boolean isValid(ByteBuffer buffer, int offset) {
+        byte type = buffer.get(offset);
+        if (type != SHIP && type != SHOT && type != CLOSE) return false;
+        int value = buffer.get(offset + 1) & 0xFF;
+        int checksum = checksum(type, value & VALUE_MASK, buffer.get(offset + 2) & 0xFF, buffer.getLong(offset + 4),
+                buffer.getInt(offset + 12));
+        return buffer.get(offset + 3) == (byte) checksum && value >>> 2 == checksum >>> 8;
+    }
+
+    /**
+     * A game rebuilt from the journal.
+     * @param game The game, its listener is not set.
+     * @param shots Amount of shots recorded for the game, including the ones out of bounds.
+     */
+    public record RecoveredGame(Game game, int shots) {}
+
+    /**
+     * Rebuilds the games recorded in the journal which were not closed.
+     * @param path Journal file.
+     * @param rules Rules the games were recorded with.
+     * @param gridFactory Grid backend of the rebuilt games.
+     * @return Games in progress by the game id, in the order of creation.
+     * @throws IOException The file can't be read.
+     * @throws IllegalArgumentException The file is not a journal of a game with the same grid size.
+     */
+    public static Map<Long, Game> replay(Path path, GameRules rules, Grid.Factory gridFactory) throws IOException {
+        LinkedHashMap<Long, Game> games = new LinkedHashMap<>();
+        recover(path, rules, gridFactory).forEach((gameId, recovered) -> games.put(gameId, recovered.game()));
+        return games;
+    }
+
+    /**
+     * Rebuilds the games recorded in the journal which were not closed, along with their amount of shots.
+     * The result of every recorded shot is checked against the result of the replayed one. A game whose
+     * ships don't fit the rules or whose replay diverges from the journal is dropped, so a journal of other
+     * rules or a corrupted one doesn't keep the other games from recovery.
+     * @param path Journal file.
+     * @param rules Rules the games were recorded with.
+     * @param gridFactory Grid backend of the rebuilt games.
+     * @return Games in progress by the game id, in the order of creation.
+     * @throws IOException The file can't be read.
+     * @throws IllegalArgumentException The file is not a journal of a game with the same grid size.
+     */
+    public static Map<Long, RecoveredGame> recover(Path path, GameRules rules, Grid.Factory gridFactory)
+            throws IOException {
+        /* games by the id, the ships are collected until the first shot */
+        LinkedHashMap<Long, List<Ship>> placements = new LinkedHashMap<>();
+        LinkedHashMap<Long, Game> games = new LinkedHashMap<>();
+        HashMap<Long, Integer> shots = new HashMap<>();
+        /* games whose records are ignored until they are closed */
+        HashSet<Long> dropped = new HashSet<>();
+        LinkedHashMap<Long, RecoveredGame> recovered = new LinkedHashMap<>();
+        if (!Files.exists(path)) return recovered;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            checkHeader(channel, rules);
+            scan(channel, (position, record) -> {
+                byte type = record.get(0);
+                long gameId = record.getLong(4);
+                Coordinates coordinates = Coordinates.ofPacked(record.getInt(12));
+                if (type == CLOSE) {
+                    placements.remove(gameId);
+                    games.remove(gameId);
+                    shots.remove(gameId);
+                    dropped.remove(gameId);
+                    return;
+                }
+                if (dropped.contains(gameId)) return;
+
+                switch (type) {
+                    case SHIP -> {
+                        int shipTypeIndex = record.get(2) & 0xFF;
+                        int orientation = record.get(1) & VALUE_MASK;
+                        if (shipTypeIndex >= rules.fleet().size()
+                                || orientation >= Ship.Orientation.values().length) {
+                            drop(gameId, placements, games, shots, dropped);
+                            return;
+                        }
+                        GameRules.ShipType shipType = rules.fleet().get(shipTypeIndex);
+                        placements.computeIfAbsent(gameId, id -> new ArrayList<>())
+                                .add(new Ship(coordinates, shipType.size(), Ship.Orientation.values()[orientation],
+                                        shipType.name()));
+                        games.putIfAbsent(gameId, null);
+                    }
+                    case SHOT -> {
+                        int result = record.get(1) & VALUE_MASK;
+                        Game game = games.get(gameId);
+                        if (game == null) {
+                            List<Ship> ships = placements.remove(gameId);
+                            /* the placement wasn't recorded */
+                            if (ships == null) return;
+                            game = newGame(rules, gridFactory, ships);
+                            if (game == null) {
+                                drop(gameId, placements, games, shots, dropped);
+                                return;
+                            }
+                            games.put(gameId, game);
+                        }
+                        shots.merge(gameId, 1, Integer::sum);
+                        /* shots out of bounds don't change the game and their target is not recorded */
+                        if (result == OUT_OF_BOUNDS) return;
+
+                        game.setTargetCoordinates(coordinates);
+                        game.tick();
+                        Grid.ShotResult shotResult = game.getShotResult();
+                        int replayed = shotResult == null ? OUT_OF_BOUNDS : shotResult.hitDesignation().ordinal();
+                        if (replayed != result) {
+                            drop(gameId, placements, games, shots, dropped);
+                        }
+                    }
+                }
+            });
+        }
+        games.forEach((gameId, game) -> {
+            if (game != null) {
+                recovered.put(gameId, new RecoveredGame(game, shots.get(gameId)));
+                return;
+            }
+            /* games without a shot yet */
+            Game placed = newGame(rules, gridFactory, placements.get(gameId));
+            if (placed != null) recovered.put(gameId, new RecoveredGame(placed, 0));
+        });
+        return recovered;
+    }
+
+    /**
+     * Creates a game with the recorded ships.
+     * @return The game, {@code null} if the ships don't fit on the grid.
+     */
+    private static Game newGame(GameRules rules, Grid.Factory gridFactory, List<Ship> ships) {
+        try {
+            return new Game(rules, gridFactory, ships);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Forgets a game which can't be replayed and ignores its later records until it's closed.
+     */
+    private static void drop(long gameId, Map<Long, List<Ship>> placements, Map<Long, Game> games,
+                             Map<Long, Integer> shots, Set<Long> dropped) {
+        placements.remove(gameId);
+        games.remove(gameId);
+        shots.remove(gameId);
+        dropped.add(gameId);
+    }
+}
@@ -0,0 +1,353 @@
+package konopi.battleship.logic;
+
+import konopi.battleship.jfr.ShotEvent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Objects;
+
+/**
+ * The BitboardOceanGrid is a {@link Grid} backend keeping the grid state in packed {@code long} bitsets.
+ * Every square is addressed by its index {@code y * sizeX + x}, so firing a shot is a couple of array reads
+ * instead of hashing {@link Coordinates} objects. The hit history is assembled from the bitsets on demand.
+ */
+public class BitboardOceanGrid implements Grid {
+    /**
+     * Ship ids are stored in a {@code short} per square, 0 being reserved for empty squares.
+     */
+    public static final int MAX_SHIPS = 0xFFFF;
+
+    /**
+     * Misses carry no ship name, so a single result object is shared by all of them.
+     */
+    private static final ShotResult MISS_RESULT = new ShotResult(null, Ship.HitDesignation.MISS);
+
+    /**
+     * Amount of active ships on the grid. Increases in {@link #addShip(Ship) addShip}.
+     * Decreases in {@link #shoot(Coordinates) shoot}.
+     */
+    private int activeShipAmount = 0;
+
+    /**
+     * Squares taken by a ship.
+     */
+    private final long[] occupied;
+    /**
+     * Squares which were fired at.
+     */
+    private final long[] shot;
+    /**
+     * Squares with a {@link Ship.HitDesignation#HIT HIT} or {@link Ship.HitDesignation#SINK SINK} result.
+     */
+    private final long[] hit;
+    /**
+     * Squares with a {@link Ship.HitDesignation#SINK SINK} result.
+     */
+    private final long[] sunk;
+
+    /**
+     * Id of the ship occupying each square. The id is the position in {@link #ships} increased by 1.
+     */
+    private final short[] shipIds;
+    /**
+     * Ships added to the grid in order of addition.
+     */
+    private final ArrayList<Ship> ships = new ArrayList<>();
+    /**
+     * Zobrist hash of the hit history and the squares of the sunk ships, see {@link #getStateHash()}.
+     */
+    private long shotHash = 0;
+    /**
+     * Sum of the Zobrist keys of the ships afloat.
+     */
+    private long fleetHash = 0;
+
+    /**
+     * Size of the grid on the number coordinates.
+     */
+    private final int sizeX;
+    /**
+     * Size of the grid on the letter coordinates.
+     */
+    private final int sizeY;
+
+    /**
+     * Main constructor.
+     * @param sizeX {@link #sizeX}.
+     * @param sizeY {@link #sizeY}.
+     * @throws IllegalArgumentException The grid has more squares than an {@code int} can index.
+     */
+    public BitboardOceanGrid(int sizeX, int sizeY) {
+        long squares = (long) sizeX * sizeY;
+        if (sizeX < 0 || sizeY < 0 || squares > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Unsupported grid size: " + sizeX + "x" + sizeY);
+        }
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+
+        int words = (int) ((squares + 63) >>> 6);
+        occupied = new long[words];
+        shot = new long[words];
+        hit = new long[words];
+        sunk = new long[words];
+        shipIds = new short[(int) squares];
+    }
+
+    /**
+     * Gets the square index of the specified coordinates.
+     * @param coordinates Target square.
+     * @return Index of the square, or {@code -1} if the square is not part of the grid.
+     */
+    private int indexOf(Coordinates coordinates) {
+        int x = coordinates.getNumberIndex();
+        int y = coordinates.getLetterIndex();
+        if (x >= sizeX || y >= sizeY) return -1;
+        return y * sizeX + x;
+    }
+
+    private static boolean isSet(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private static void set(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    private static void clear(long[] bits, int index) {
+        bits[index >>> 6] &= ~(1L << index);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @throws IllegalStateException The grid already holds {@link #MAX_SHIPS} ships.
+     */
+    @Override
+    public boolean addShip(Ship ship) {
+        /* Checks if the ship fits in the grid, the squares are a line of indices from the stern. */
+        int stern = indexOf(ship.getSternSquare());
+        int step = ship.getOrientation() == Ship.Orientation.HORIZONTAL ? 1 : sizeX;
+        if (stern < 0 || indexOf(ship.getSquare(ship.getSize() - 1)) < 0) return false;
+        for (int i = 0, index = stern; i < ship.getSize(); ++i, index += step) {
+            if (isSet(occupied, index)) return false;
+        }
+        if (ships.size() == MAX_SHIPS) {
+            throw new IllegalStateException("Grid cannot hold more than " + MAX_SHIPS + " ships");
+        }
+
+        ships.add(ship);
+        short id = (short) ships.size();
+        for (int i = 0, index = stern; i < ship.getSize(); ++i, index += step) {
+            set(occupied, index);
+            shipIds[index] = id;
+        }
+        ++activeShipAmount;
+        fleetHash += Zobrist.ship(ship.getSize());
+        return true;
+    }
+
+    @Override
+    public ShotResult shoot(Coordinates coordinates) {
+        if (ShotEvent.isRecorded()) return RecordedShots.shoot(coordinates, this::fire);
+        return fire(coordinates);
+    }
+
+    /**
+     * Fires the shot without recording it, see {@link #shoot(Coordinates) shoot}.
+     */
+    private ShotResult fire(Coordinates coordinates) {
+        int index = indexOf(coordinates);
+        if (index < 0) return null;
+
+        int before = codeOf(index);
+        set(shot, index);
+        if (!isSet(occupied, index)) {
+            /* It's a miss. */
+            hashShot(index, before, Ship.HitDesignation.MISS.ordinal());
+            return MISS_RESULT;
+        }
+
+        Ship targetShip = ships.get((shipIds[index] & 0xFFFF) - 1);
+        Ship.HitDesignation result = hit(targetShip, coordinates.getLetterIndex(), coordinates.getNumberIndex(), index);
+        hashShot(index, before, result.ordinal());
+        return new ShotResult(targetShip.getName(), result);
+    }
+
+    @Override
+    public int shoot(int[] packedTargets, int offset, int count, int[] results) {
+        Objects.checkFromIndexSize(offset, count, packedTargets.length);
+        Objects.checkFromIndexSize(offset, count, results.length);
+        if (ShotEvent.isRecorded()) {
+            return RecordedShots.shoot(this, ships, this::fire, packedTargets, offset, count, results);
+        }
+        return fire(packedTargets, offset, count, results);
+    }
+
+    /**
+     * Fires the batch without recording it, the bounds are checked by
+     * {@link #shoot(int[], int, int, int[]) shoot}.
+     */
+    private int fire(int[] packedTargets, int offset, int count, int[] results) {
+        for (int i = offset; i < offset + count; ++i) {
+            int packed = packedTargets[i];
+            int x = Coordinates.numberIndexOf(packed);
+            int y = Coordinates.letterIndexOf(packed);
+            if (x >= sizeX || y >= sizeY) {
+                results[i] = OUT_OF_BOUNDS;
+                continue;
+            }
+
+            int index = y * sizeX + x;
+            int before = codeOf(index);
+            set(shot, index);
+            if (!isSet(occupied, index)) {
+                hashShot(index, before, Ship.HitDesignation.MISS.ordinal());
+                results[i] = Ship.HitDesignation.MISS.ordinal();
+                continue;
+            }
+
+            int id = shipIds[index] & 0xFFFF;
+            Ship.HitDesignation result = hit(ships.get(id - 1), y, x, index);
+            hashShot(index, before, result.ordinal());
+            results[i] = id << 8 | result.ordinal();
+            if (result == Ship.HitDesignation.SINK && activeShipAmount == 0) return i - offset + 1;
+        }
+        return count;
+    }
+
+    /**
+     * Registers the hit on the ship occupying the square and updates the bitsets accordingly.
+     * @param targetShip Ship occupying the square.
+     * @param letterIndex Vertical index of the target square.
+     * @param numberIndex Horizontal index of the target square.
+     * @param index Index of the square.
+     * @return Result of the shot.
+     */
+    private Ship.HitDesignation hit(Ship targetShip, int letterIndex, int numberIndex, int index) {
+        Ship.HitDesignation result = targetShip.hit(letterIndex, numberIndex);
+        switch (result) {
+            /* A repeated shot at a hit square, it's recorded as a miss like in the OceanGrid. */
+            case MISS -> {
+                clear(hit, index);
+                clear(sunk, index);
+            }
+            case HIT -> set(hit, index);
+            case SINK -> {
+                set(hit, index);
+                set(sunk, index);
+                sink(targetShip);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the result of the square in the hit history.
+     * @return The {@link Ship.HitDesignation} ordinal, {@code -1} if the square wasn't fired at.
+     */
+    private int codeOf(int index) {
+        if (!isSet(shot, index)) return -1;
+        return isSet(sunk, index) ? Ship.HitDesignation.SINK.ordinal()
+                : isSet(hit, index) ? Ship.HitDesignation.HIT.ordinal()
+                : Ship.HitDesignation.MISS.ordinal();
+    }
+
+    /**
+     * Replaces the earlier result of the square with the new one in the hash.
+     */
+    private void hashShot(int index, int before, int after) {
+        if (before != after) {
+            shotHash ^= Zobrist.square(index, before) ^ Zobrist.square(index, after);
+        }
+    }
+
+    /**
+     * Moves the ship from the ships afloat to the sunk ones.
+     */
+    private void sink(Ship ship) {
+        --activeShipAmount;
+        fleetHash -= Zobrist.ship(ship.getSize());
+        int step = ship.getOrientation() == Ship.Orientation.HORIZONTAL ? 1 : sizeX;
+        for (int i = 0, index = indexOf(ship.getSternSquare()); i < ship.getSize(); ++i, index += step) {
+            shotHash ^= Zobrist.sunkSquare(index);
+        }
+    }
+
+    @Override
+    public void restoreShot(Coordinates coordinates, Ship.HitDesignation hitDesignation) {
+        int index = indexOf(coordinates);
+        if (index < 0) {
+            throw new IllegalArgumentException("Coordinates out of bounds: " + coordinates);
+        }
+
+        hashShot(index, codeOf(index), hitDesignation.ordinal());
+        set(shot, index);
+        clear(hit, index);
+        clear(sunk, index);
+        if (hitDesignation != Ship.HitDesignation.MISS) set(hit, index);
+        if (hitDesignation == Ship.HitDesignation.SINK) set(sunk, index);
+
+        if (isSet(occupied, index)) {
+            Ship ship = ships.get((shipIds[index] & 0xFFFF) - 1);
+            if (ship.hit(coordinates) == Ship.HitDesignation.SINK) {
+                sink(ship);
+            }
+        }
+    }
+
+    @Override
+    public int getActiveShipAmount() {
+        return activeShipAmount;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The map is assembled from the bitsets on every call, changes to it do not affect the grid.
+     */
+    @Override
+    public HashMap<Coordinates, Ship.HitDesignation> getHitMap() {
+        HashMap<Coordinates, Ship.HitDesignation> hitMap = new HashMap<>();
+        forEachShot((letterIndex, numberIndex, hitDesignation) ->
+                hitMap.put(Coordinates.of(letterIndex, numberIndex), hitDesignation));
+        return hitMap;
+    }
+
+    @Override
+    public void forEachShot(ShotVisitor visitor) {
+        for (int word = 0; word < shot.length; ++word) {
+            long bits = shot[word];
+            while (bits != 0) {
+                int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+
+                Ship.HitDesignation hitDesignation = isSet(sunk, index) ? Ship.HitDesignation.SINK
+                        : isSet(hit, index) ? Ship.HitDesignation.HIT
+                        : Ship.HitDesignation.MISS;
+                visitor.visit(index / sizeX, index % sizeX, hitDesignation);
+            }
+        }
+    }
+
+    @Override
+    public int getShotAmount() {
+        int amount = 0;
+        for (long bits : shot) {
+            amount += Long.bitCount(bits);
+        }
+        return amount;
+    }
+
+    @Override
+    public long getStateHash() {
+        return shotHash ^ fleetHash;
+    }
+
+    @Override
+    public int getSizeX() {
+        return sizeX;
+    }
+
+    @Override
+    public int getSizeY() {
+        return sizeY;
+    }
+}
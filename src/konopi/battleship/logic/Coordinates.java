@@ -1,14 +1,46 @@
 package konopi.battleship.logic;
 
-import java.util.Objects;
-
-import static java.lang.Math.abs;
-
 /**
  * The Coordinates class is used to reference game coordinates.
- * It accepts coordinates up to letter 'Z'. Rightward expansion is limited by integer size.
+ * Letters continue past 'Z' as in spreadsheet columns ('AA', 'AB', ...) up to {@link #MAX_LETTER_INDEX}.
+ * Rightward expansion is limited by integer size.
+ * <p>
+ * Canonical instances are obtained with {@link #of(int, int) of} and {@link #valueOf(CharSequence) valueOf},
+ * which serve coordinates from 'A1' to 'Z100' from a preallocated table, so comparing them is
+ * an identity check. Hot loops can skip the objects entirely and work on the packed {@code int} encoding,
+ * see {@link #pack(int, int) pack}.
  */
 public class Coordinates {
+    /**
+     * Amount of single letters, 'A' to 'Z'. Longer letter coordinates are not cached.
+     */
+    public static final int LETTERS = 26;
+    /**
+     * Amount of numbers on each letter served from the preallocated table.
+     */
+    public static final int CACHED_NUMBERS = 100;
+    /**
+     * Largest index on either axis which can be stored in the packed encoding.
+     */
+    public static final int MAX_PACKED_INDEX = 0xFFFF;
+    /**
+     * Largest vertical index, so the letters always fit the packed encoding. It's 'CRXP'.
+     */
+    public static final int MAX_LETTER_INDEX = MAX_PACKED_INDEX;
+
+    /**
+     * Canonical instances indexed by {@code y * CACHED_NUMBERS + x}.
+     */
+    private static final Coordinates[] CACHE = new Coordinates[LETTERS * CACHED_NUMBERS];
+
+    static {
+        for (int y = 0; y < LETTERS; ++y) {
+            for (int x = 0; x < CACHED_NUMBERS; ++x) {
+                CACHE[y * CACHED_NUMBERS + x] = new Coordinates(x, y);
+            }
+        }
+    }
+
     /**
      * Horizontal index for internal representation.
      */
@@ -19,16 +51,131 @@ public class Coordinates {
     private final int y;
 
     /**
-     * Main constructor.
+     * Main constructor. Creates a new instance every time, prefer {@link #valueOf(CharSequence) valueOf}.
      * @param letterNumber Game coordinates written as text, e.g. 'A5' or 'A-5'.
      */
     public Coordinates(String letterNumber) {
-        String numberStr = letterNumber.substring(1);
-        int number;
-        try {
-            number = abs(Integer.parseInt(numberStr));
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Coordinate number must be an integer: " + numberStr);
+        long indices = parse(letterNumber);
+        x = (int) indices;
+        y = (int) (indices >>> 32);
+    }
+
+    /**
+     * Package-private constructor setting the internal representation directly.
+     * Used to fill the {@link #CACHE} and for coordinates beyond it.
+     * @param x {@link #x}
+     * @param y {@link #y}
+     */
+    Coordinates(int x, int y) {
+        if (x < 0 || y < 0 || y > MAX_LETTER_INDEX) {
+            throw new IllegalArgumentException("Coordinates out of bounds");
+        }
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Gets the canonical coordinates for the specified indices.
+     * @param letterIndex Vertical index starting from 0 for 'A'.
+     * @param numberIndex Horizontal index starting from 0 for 1.
+     * @return Cached instance for single letters and numbers up to {@link #CACHED_NUMBERS},
+     * otherwise a new instance.
+     * @throws IllegalArgumentException The indices are negative or the letter is past {@link #MAX_LETTER_INDEX}.
+     */
+    public static Coordinates of(int letterIndex, int numberIndex) {
+        if (letterIndex >= 0 && letterIndex < LETTERS && numberIndex >= 0 && numberIndex < CACHED_NUMBERS) {
+            return CACHE[letterIndex * CACHED_NUMBERS + numberIndex];
+        }
+        return new Coordinates(numberIndex, letterIndex);
+    }
+
+    /**
+     * Gets the canonical coordinates for the specified text.
+     * @param letterNumber Game coordinates written as text, e.g. 'A5' or 'A-5'.
+     * @return Coordinates as in {@link #of(int, int) of}.
+     * @throws IllegalArgumentException The text is not valid game coordinates.
+     */
+    public static Coordinates valueOf(CharSequence letterNumber) {
+        long indices = parse(letterNumber);
+        return of((int) (indices >>> 32), (int) indices);
+    }
+
+    /**
+     * Gets the canonical coordinates for the packed encoding.
+     * @param packed Coordinates packed with {@link #pack(int, int) pack}.
+     * @return Coordinates as in {@link #of(int, int) of}.
+     */
+    public static Coordinates ofPacked(int packed) {
+        return of(letterIndexOf(packed), numberIndexOf(packed));
+    }
+
+    /**
+     * Packs the indices into a single {@code int}, the letter index in the upper and the number index
+     * in the lower 16 bits.
+     * @param letterIndex Vertical index starting from 0 for 'A'.
+     * @param numberIndex Horizontal index starting from 0 for 1.
+     * @return Packed coordinates.
+     * @throws IllegalArgumentException One of the indices is negative or larger than {@link #MAX_PACKED_INDEX}.
+     */
+    public static int pack(int letterIndex, int numberIndex) {
+        if ((letterIndex | numberIndex) < 0 || letterIndex > MAX_PACKED_INDEX || numberIndex > MAX_PACKED_INDEX) {
+            throw new IllegalArgumentException("Coordinates out of bounds");
+        }
+        return letterIndex << 16 | numberIndex;
+    }
+
+    public static int letterIndexOf(int packed) {
+        return packed >>> 16;
+    }
+
+    public static int numberIndexOf(int packed) {
+        return packed & MAX_PACKED_INDEX;
+    }
+
+    /**
+     * Parses game coordinates written as text in a single pass without creating intermediate strings.
+     * @param letterNumber Game coordinates written as text, e.g. 'A5' or 'A-5'.
+     * @return Packed coordinates, see {@link #pack(int, int) pack}.
+     * @throws IllegalArgumentException The text is not valid game coordinates.
+     */
+    public static int parsePacked(CharSequence letterNumber) {
+        long indices = parse(letterNumber);
+        return pack((int) (indices >>> 32), (int) indices);
+    }
+
+    /**
+     * Parses game coordinates written as text in a single pass.
+     * @param letterNumber Game coordinates written as text, e.g. 'A5' or 'A-5'.
+     * @return The letter index in the upper and the number index in the lower 32 bits.
+     * @throws IllegalArgumentException The text is not valid game coordinates.
+     */
+    private static long parse(CharSequence letterNumber) {
+        int length = letterNumber.length();
+        if (length == 0) {
+            throw new IllegalArgumentException("Coordinates must not be empty");
+        }
+
+        /* letters as a bijective base 26 number, 'A' is 1, 'Z' is 26, 'AA' is 27, saturated past the maximum */
+        int i = 0;
+        int letters = 0;
+        do {
+            letters = letters * LETTERS + Character.toUpperCase(letterNumber.charAt(i)) - 'A' + 1;
+            letters = Math.min(letters, MAX_LETTER_INDEX + 2);
+            ++i;
+        } while (i < length && isLatinLetter(letterNumber.charAt(i)));
+
+        /* the sign is ignored, same as taking the absolute value */
+        int numberStart = i;
+        if (i < length && (letterNumber.charAt(i) == '-' || letterNumber.charAt(i) == '+')) ++i;
+        if (i == length) throw notAnInteger(letterNumber, numberStart);
+
+        int number = 0;
+        for (; i < length; ++i) {
+            int digit = letterNumber.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || number > (Integer.MAX_VALUE - digit) / 10) {
+                throw notAnInteger(letterNumber, numberStart);
+            }
+            number = number * 10 + digit;
         }
 
         char letter = Character.toUpperCase(letterNumber.charAt(0));
@@ -36,16 +183,53 @@ public class Coordinates {
         if (number == 0) {
             throw new IllegalArgumentException("Coordinate number must be > 0: " + number);
         }
-        if (letter < 'A' || letter > 'Z') {
+        if (!isLatinLetter(letter)) {
             throw new IllegalArgumentException("Coordinate letter must be a latin character: " + letter);
         }
+        if (letters > MAX_LETTER_INDEX + 1) {
+            throw new IllegalArgumentException("Coordinate letters out of bounds: "
+                    + letterNumber.subSequence(0, numberStart));
+        }
+
+        return (long) (letters - 1) << 32 | (number - 1);
+    }
+
+    private static boolean isLatinLetter(char c) {
+        char upper = Character.toUpperCase(c);
+        return upper >= 'A' && upper <= 'Z';
+    }
+
+    /**
+     * Gets the letter label of the specified vertical index.
+     * @param letterIndex Vertical index starting from 0 for 'A'.
+     * @return e.g. "A" for 0, "Z" for 25 and "AA" for 26.
+     */
+    public static String letterLabel(int letterIndex) {
+        if (letterIndex < 0) {
+            throw new IllegalArgumentException("Coordinates out of bounds");
+        }
+        if (letterIndex < LETTERS) {
+            return String.valueOf((char) ('A' + letterIndex));
+        }
+        StringBuilder label = new StringBuilder(4);
+        for (int n = letterIndex + 1; n > 0; n = (n - 1) / LETTERS) {
+            label.append((char) ('A' + (n - 1) % LETTERS));
+        }
+        return label.reverse().toString();
+    }
 
-        x = number - 1;
-        y = letter - 'A';
+    /**
+     * @param numberStart Index of the first character after the letters. Without any, the number was taken
+     * for letters, so everything after the first letter is shown.
+     */
+    private static IllegalArgumentException notAnInteger(CharSequence letterNumber, int numberStart) {
+        int start = numberStart < letterNumber.length() ? numberStart : 1;
+        return new IllegalArgumentException("Coordinate number must be an integer: "
+                + letterNumber.subSequence(start, letterNumber.length()));
     }
 
     /**
-     * Gets the first (vertical) coordinate.
+     * Gets the first (vertical) coordinate. Only meaningful up to 'Z', see {@link #getLetterLabel()}.
      * @return e.g. 'A' for 'A1' coordinates.
      */
     public char getLetterCoordinate() {
@@ -61,17 +245,35 @@ public class Coordinates {
     }
 
     /**
-     * Private constructor setting the internal representation directly.
-     * Used in {@link #getOffset(int, int) getOffset}.
-     * @param x {@link #x}
-     * @param y {@link #y}
+     * Gets the first (vertical) coordinate written as text.
+     * @return e.g. "A" for 'A1' and "AB" for 'AB7' coordinates.
      */
-    private Coordinates(int x, int y) {
-        if (x < 0 || y < 0 || y > 25) {
-            throw new IllegalArgumentException("Coordinates out of bounds");
-        }
-        this.x = x;
-        this.y = y;
+    public String getLetterLabel() {
+        return letterLabel(y);
+    }
+
+    /**
+     * Gets the vertical index.
+     * @return e.g. 0 for 'A1' coordinates.
+     */
+    public int getLetterIndex() {
+        return y;
+    }
+
+    /**
+     * Gets the horizontal index.
+     * @return e.g. 0 for 'A1' coordinates.
+     */
+    public int getNumberIndex() {
+        return x;
+    }
+
+    /**
+     * Gets the coordinates in the packed encoding.
+     * @return Packed coordinates, see {@link #pack(int, int) pack}.
+     */
+    public int toPacked() {
+        return pack(y, x);
     }
 
     /**
@@ -79,35 +281,34 @@ public class Coordinates {
      * Letters increase downwards, numbers increase rightwards.
      * @param letterOffset Vertical difference, increases down.
      * @param numberOffset Horizontal difference, increases right.
-     * @return New {@link Coordinates} object offset by the specified amount.
+     * @return {@link Coordinates} offset by the specified amount, as in {@link #of(int, int) of}.
      * @throws IllegalArgumentException The offset coordinates are smaller than 'A1' on one of the axes.
      */
     public Coordinates getOffset(int letterOffset, int numberOffset) throws IllegalArgumentException {
         if (letterOffset == 0 && numberOffset == 0) return this;
 
-        int offsetX = x + numberOffset;
-        int offsetY = y + letterOffset;
-
-        return new Coordinates(offsetX, offsetY);
+        return of(y + letterOffset, x + numberOffset);
     }
 
     @Override
     public String toString() {
         int number = getNumberCoordinate();
-        char letter = getLetterCoordinate();
-        return letter + String.valueOf(number);
+        String letter = getLetterLabel();
+        return letter + number;
     }
 
+    /**
+     * Canonical instances are compared by identity. Instances created with the public constructor
+     * fall back to comparing the indices.
+     */
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        Coordinates that = (Coordinates) o;
-        return x == that.x && y == that.y;
+        return o instanceof Coordinates that && x == that.x && y == that.y;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(x, y);
+        return y << 16 ^ x;
     }
 }
@@ -0,0 +1,240 @@
+package konopi.battleship.logic;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.random.RandomGenerator;
+
+/**
+ * The FleetPlacer places ships on a grid at random. For every ship it enumerates all the valid
+ * (position, orientation) slots against an occupancy bitmap and picks one of them uniformly, so the placement
+ * takes a single pass over the grid no matter how densely the ships are packed.
+ */
+public class FleetPlacer {
+    /**
+     * Narrows down the slots a ship may be placed in, see {@link #place(String, int, SlotFilter) place}.
+     */
+    @FunctionalInterface
+    public interface SlotFilter {
+        /**
+         * @param sternLetterIndex Vertical index of the stern.
+         * @param sternNumberIndex Horizontal index of the stern.
+         * @param size Ship length.
+         * @param orientation Direction of the ship.
+         * @return {@code true} if the ship may be placed in the slot.
+         */
+        boolean accepts(int sternLetterIndex, int sternNumberIndex, int size, Ship.Orientation orientation);
+    }
+
+    /**
+     * Accepts every free slot.
+     */
+    private static final SlotFilter ANY_SLOT = (sternLetterIndex, sternNumberIndex, size, orientation) -> true;
+
+    /**
+     * Placements which had to scan the grid again, as the filter accepted none of the free slots. Counted
+     * for all the placers of the process, see {@link #getRetryAmount()}.
+     */
+    private static final LongAdder RETRIES = new LongAdder();
+    /**
+     * Placements which found no free slot at all.
+     */
+    private static final LongAdder FAILURES = new LongAdder();
+
+    /**
+     * Size of the grid on the number coordinates.
+     */
+    private final int sizeX;
+    /**
+     * Size of the grid on the letter coordinates.
+     */
+    private final int sizeY;
+    /**
+     * {@code true} if ships may touch each other.
+     */
+    private final boolean adjacentShips;
+    /**
+     * Squares taken by the ships placed so far, indexed by {@code y * sizeX + x}. If ships may not touch
+     * the squares around them are taken as well.
+     */
+    private final long[] occupied;
+    /**
+     * Free squares in a line above each square of the current row, used for the vertical slots.
+     */
+    private final int[] columnRuns;
+
+    private final RandomGenerator random;
+
+    /**
+     * Scans of the grid looking for the slots of a ship, see {@link #getAttemptAmount()}.
+     */
+    private int attempts;
+
+    /**
+     * Constructor allowing the ships to touch.
+     * @param sizeX {@link #sizeX}.
+     * @param sizeY {@link #sizeY}.
+     * @param random Source of randomness.
+     */
+    public FleetPlacer(int sizeX, int sizeY, RandomGenerator random) {
+        this(sizeX, sizeY, true, random);
+    }
+
+    /**
+     * Main constructor.
+     * @param sizeX {@link #sizeX}.
+     * @param sizeY {@link #sizeY}.
+     * @param adjacentShips {@link #adjacentShips}.
+     * @param random Source of randomness.
+     */
+    public FleetPlacer(int sizeX, int sizeY, boolean adjacentShips, RandomGenerator random) {
+        long squares = (long) sizeX * sizeY;
+        if (sizeX < 1 || sizeY < 1 || squares > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Unsupported grid size: " + sizeX + "x" + sizeY);
+        }
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.adjacentShips = adjacentShips;
+        this.random = random;
+        occupied = new long[(int) ((squares + 63) >>> 6)];
+        columnRuns = new int[sizeX];
+    }
+
+    /**
+     * Creates a ship of the specified size in a random valid slot and marks its squares as taken.
+     * @param name Ship identifier, e.g. "Cruiser" or "Destroyer".
+     * @param size Ship length.
+     * @return The placed ship.
+     * @throws IllegalStateException There is no free slot for the ship.
+     */
+    public Ship place(String name, int size) {
+        return place(name, size, ANY_SLOT);
+    }
+
+    /**
+     * Gets the amount of placements in the process which fell back to any slot, as the filter accepted
+     * none of the free ones. A placement without a filter never retries, all the slots are found in one scan.
+     * @return Amount of retries.
+     */
+    public static long getRetryAmount() {
+        return RETRIES.sum();
+    }
+
+    /**
+     * Gets the amount of placements in the process which failed, as there was no room left for the ship.
+     * @return Amount of failures.
+     */
+    public static long getFailureAmount() {
+        return FAILURES.sum();
+    }
+
+    /**
+     * Gets the amount of attempts to place a ship made by this placer, a scan of the grid for the free slots.
+     * It's one per ship unless a filter accepted none of the free slots and the placement was retried
+     * with any slot.
+     * @return Amount of attempts, including the failed ones.
+     */
+    public int getAttemptAmount() {
+        return attempts;
+    }
+
+    /**
+     * Creates a ship of the specified size in a random slot accepted by the filter and marks its squares
+     * as taken. If the filter accepts none of the free slots, any of them is taken.
+     * @param name Ship identifier, e.g. "Cruiser" or "Destroyer".
+     * @param size Ship length.
+     * @param filter Slots to choose from.
+     * @return The placed ship.
+     * @throws IllegalStateException There is no free slot for the ship.
+     */
+    public Ship place(String name, int size, SlotFilter filter) {
+        ++attempts;
+        long slotAmount = scanSlots(size, filter, -1);
+        if (slotAmount == 0 && filter != ANY_SLOT) {
+            RETRIES.increment();
+            ++attempts;
+            filter = ANY_SLOT;
+            slotAmount = scanSlots(size, filter, -1);
+        }
+        if (slotAmount == 0) {
+            FAILURES.increment();
+            throw new IllegalStateException("No room left for " + name + " of size " + size
+                    + " on a " + sizeX + "x" + sizeY + " grid");
+        }
+
+        long slot = scanSlots(size, filter, random.nextLong(slotAmount));
+        int stern = (int) (slot >>> 1);
+        Ship.Orientation orientation = Ship.Orientation.values()[(int) slot & 1];
+
+        int sternX = stern % sizeX;
+        int sternY = stern / sizeX;
+        int endX = orientation == Ship.Orientation.HORIZONTAL ? sternX + size - 1 : sternX;
+        int endY = orientation == Ship.Orientation.VERTICAL ? sternY + size - 1 : sternY;
+        /* the ship squares and, if the ships may not touch, the squares around them */
+        int margin = adjacentShips ? 0 : 1;
+        for (int y = Math.max(0, sternY - margin); y <= Math.min(sizeY - 1, endY + margin); ++y) {
+            for (int x = Math.max(0, sternX - margin); x <= Math.min(sizeX - 1, endX + margin); ++x) {
+                int index = y * sizeX + x;
+                occupied[index >>> 6] |= 1L << index;
+            }
+        }
+        return new Ship(Coordinates.of(sternY, sternX), size, orientation, name);
+    }
+
+    /**
+     * Places the ship and adds it to the grid.
+     * @param grid Target grid. It should not contain ships placed by other means.
+     * @param name Ship identifier.
+     * @param size Ship length.
+     * @return The placed ship.
+     * @throws IllegalStateException There is no free slot for the ship.
+     */
+    public Ship place(Grid grid, String name, int size) {
+        Ship ship = place(name, size);
+        if (!grid.addShip(ship)) {
+            throw new IllegalStateException("Grid rejected " + name + ", it contains ships the placer doesn't know");
+        }
+        return ship;
+    }
+
+    /**
+     * Enumerates every slot in which the ship fits, scanning the grid once row by row.
+     * A horizontal slot ends at a square with at least {@code size} free squares in a row to its left,
+     * a vertical one at a square with as many free squares above it.
+     * @param size Ship length.
+     * @param filter Slots to enumerate among the free ones.
+     * @param pick Position of the slot to return in the enumeration order, or {@code -1} to count the slots.
+     * @return The picked slot as the stern square index times 2 plus the orientation ordinal,
+     * or the amount of slots if {@code pick} is {@code -1}.
+     */
+    private long scanSlots(int size, SlotFilter filter, long pick) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Size should be >= 1: " + size);
+        }
+        Arrays.fill(columnRuns, 0);
+
+        long slotAmount = 0;
+        for (int y = 0; y < sizeY; ++y) {
+            int rowRun = 0;
+            for (int x = 0; x < sizeX; ++x) {
+                int index = y * sizeX + x;
+                if ((occupied[index >>> 6] & 1L << index) != 0) {
+                    rowRun = 0;
+                    columnRuns[x] = 0;
+                    continue;
+                }
+                if (++rowRun >= size
+                        && (filter == ANY_SLOT || filter.accepts(y, x - size + 1, size, Ship.Orientation.HORIZONTAL))
+                        && slotAmount++ == pick) {
+                    return (long) (index - size + 1) << 1 | Ship.Orientation.HORIZONTAL.ordinal();
+                }
+                /* a single square ship would be counted twice */
+                if (++columnRuns[x] >= size && size > 1
+                        && (filter == ANY_SLOT || filter.accepts(y - size + 1, x, size, Ship.Orientation.VERTICAL))
+                        && slotAmount++ == pick) {
+                    return (long) (index - (size - 1) * sizeX) << 1 | Ship.Orientation.VERTICAL.ordinal();
+                }
+            }
+        }
+        return slotAmount;
+    }
+}
@@ -1,13 +1,20 @@
 package konopi.battleship.logic;
 
-import java.util.HashMap;
-import java.util.Random;
+import konopi.battleship.jfr.FleetPlacementEvent;
+import konopi.battleship.jfr.GameCreatedEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.random.RandomGenerator;
 import java.util.stream.IntStream;
 
 /**
  * The Game class is used to handle all the game logic. Each {@link #tick() tick} call is a next game step.
  */
 public class Game {
+    private static final Ship.HitDesignation[] HIT_DESIGNATIONS = Ship.HitDesignation.values();
+
     /**
      * Game state.
      */
@@ -16,60 +23,206 @@ public class Game {
     /**
      * Size of the grid on the number axis.
      */
-    public final int GRID_X = 10;
+    public final int GRID_X;
     /**
      * Size of the grid on the letter axis.
      */
-    public final int GRID_Y = 10;
+    public final int GRID_Y;
 
     /**
-     * Association of the ship name to its size.
-     */
-    private final HashMap<String, Integer> shipNameSizeMap = new HashMap<>();
-    /**
-     * Association of the ship name to amount of ships on the grid.
+     * Grid size, fleet and placement rules.
      */
-    private final HashMap<String, Integer> shipNameAmountMap = new HashMap<>();
+    private final GameRules rules;
 
     /**
      * Enemy ocean grid.
      */
-    private final OceanGrid oceanGrid = new OceanGrid(GRID_X, GRID_Y);
+    private final Grid oceanGrid;
 
     /**
      * Coordinates which will be fired at in the next {@link #tick() tick}.
      */
-    private String targetCoordinates = "A1";
+    private Coordinates targetCoordinates = Coordinates.of(0, 0);
     /**
      * Result of the shot in the last {@link #tick() tick}.
      */
-    private OceanGrid.ShotResult shotResult;
+    private Grid.ShotResult shotResult;
 
-    private final Random random = new Random();
+    /**
+     * Source of randomness for the ship placement, {@code null} if the ships were given.
+     * Saved in a {@link GameSnapshot} if it's a {@link SplitMix64}.
+     */
+    private final RandomGenerator random;
+
+    /**
+     * Ships on the {@link #oceanGrid} in the order of placement.
+     */
+    private final List<Ship> ships = new ArrayList<>();
+
+    /**
+     * Notified of every shot, may be {@code null}.
+     */
+    private GameListener listener;
 
     /**
      * Main constructor. It's not actually worth writing documentation for it,
-     * but it wanted to be like the other cool constructors. Calls {@link #initialise() initialise}.
+     * but it wanted to be like the other cool constructors. Plays by the {@link GameRules#standard() standard}
+     * rules. Calls {@link #initialise() initialise}.
      */
     public Game() {
+        this(OceanGrid::new);
+    }
+
+    /**
+     * Constructor choosing the grid backend, e.g. {@code new Game(BitboardOceanGrid::new)}.
+     * Calls {@link #initialise() initialise}.
+     * @param gridFactory Creates the enemy ocean grid of the game size.
+     */
+    public Game(Grid.Factory gridFactory) {
+        this(gridFactory, new SplitMix64());
+    }
+
+    /**
+     * Constructor choosing the grid backend and the source of randomness. Games played on many threads
+     * at once should each get their own generator, e.g. seeded with {@link Seeds#derive(long, long)}.
+     * Calls {@link #initialise() initialise}.
+     * @param gridFactory Creates the enemy ocean grid of the game size.
+     * @param random {@link #random}.
+     */
+    public Game(Grid.Factory gridFactory, RandomGenerator random) {
+        this(GameRules.standard(), gridFactory, random);
+    }
+
+    /**
+     * Constructor playing by the specified rules. Calls {@link #initialise() initialise}.
+     * @param rules {@link #rules}.
+     */
+    public Game(GameRules rules) {
+        this(rules, OceanGrid::new, new SplitMix64());
+    }
+
+    /**
+     * Constructor setting everything up. Calls {@link #initialise() initialise}.
+     * @param rules {@link #rules}.
+     * @param gridFactory Creates the enemy ocean grid of the size given by the rules.
+     * @param random {@link #random}.
+     */
+    public Game(GameRules rules, Grid.Factory gridFactory, RandomGenerator random) {
+        GameCreatedEvent event = new GameCreatedEvent();
+        event.begin();
+        this.rules = rules;
+        this.random = random;
+        GRID_X = rules.sizeX();
+        GRID_Y = rules.sizeY();
+        oceanGrid = gridFactory.create(GRID_X, GRID_Y);
         initialise();
+        commit(event, false);
     }
 
     /**
-     * Sets the field according to {@link #shipNameSizeMap} and {@link #shipNameAmountMap} maps, which are also
-     * here for now, since the amount and type of ships is constant.
+     * Constructor placing the fleet from the seed, the same seed gives the same fleet. Calls
+     * {@link #initialise() initialise}.
+     * @param rules {@link #rules}.
+     * @param gridFactory Creates the enemy ocean grid of the size given by the rules.
+     * @param seed Seed of a {@link SplitMix64}, see {@link Seeds}.
      */
-    private void initialise() {
-        /* setting the size for the ships */
-        shipNameSizeMap.put("Battleship", 5);
-        shipNameSizeMap.put("Destroyer", 4);
+    public Game(GameRules rules, Grid.Factory gridFactory, long seed) {
+        this(rules, gridFactory, new SplitMix64(seed));
+    }
+
+    /**
+     * Constructor restoring a game with the specified ships instead of placing them at random,
+     * e.g. when replaying a recorded game.
+     * @param rules {@link #rules}.
+     * @param gridFactory Creates the enemy ocean grid of the size given by the rules.
+     * @param ships Ships to add to the grid, not yet hit.
+     * @throws IllegalArgumentException One of the ships doesn't fit on the grid.
+     */
+    public Game(GameRules rules, Grid.Factory gridFactory, List<Ship> ships) {
+        this(rules, gridFactory, ships, null);
+    }
+
+    /**
+     * Constructor restoring a game with the specified ships and the generator saved along with them.
+     * @param rules {@link #rules}.
+     * @param gridFactory Creates the enemy ocean grid of the size given by the rules.
+     * @param ships Ships to add to the grid, not yet hit.
+     * @param random {@link #random}, may be {@code null}.
+     * @throws IllegalArgumentException One of the ships doesn't fit on the grid.
+     */
+    Game(GameRules rules, Grid.Factory gridFactory, List<Ship> ships, RandomGenerator random) {
+        GameCreatedEvent event = new GameCreatedEvent();
+        event.begin();
+        this.rules = rules;
+        this.random = random;
+        GRID_X = rules.sizeX();
+        GRID_Y = rules.sizeY();
+        oceanGrid = gridFactory.create(GRID_X, GRID_Y);
+        for (Ship ship : ships) {
+            if (!oceanGrid.addShip(ship)) {
+                throw new IllegalArgumentException("Ship doesn't fit on the grid: " + ship.getName());
+            }
+            this.ships.add(ship);
+        }
+        commit(event, true);
+    }
+
+    /**
+     * Constructor resuming a game on a grid which already holds its ships and shots, e.g. an
+     * {@link OffHeapOceanGrid} {@link OffHeapOceanGrid#map(java.nio.file.Path, int, int) mapped} from a file.
+     * The game is over from the start if no ship is afloat.
+     * @param rules {@link #rules}.
+     * @param oceanGrid {@link #oceanGrid}, of the size given by the rules.
+     * @param ships Ships of the grid in the order of placement, e.g. {@link OffHeapOceanGrid#getShips()}.
+     * @throws IllegalArgumentException The grid is not of the size given by the rules.
+     */
+    public Game(GameRules rules, Grid oceanGrid, List<Ship> ships) {
+        if (oceanGrid.getSizeX() != rules.sizeX() || oceanGrid.getSizeY() != rules.sizeY()) {
+            throw new IllegalArgumentException("Grid should be " + rules.sizeX() + "x" + rules.sizeY() + ": "
+                    + oceanGrid.getSizeX() + "x" + oceanGrid.getSizeY());
+        }
+        GameCreatedEvent event = new GameCreatedEvent();
+        event.begin();
+        this.rules = rules;
+        this.random = null;
+        GRID_X = rules.sizeX();
+        GRID_Y = rules.sizeY();
+        this.oceanGrid = oceanGrid;
+        this.ships.addAll(ships);
+        running = oceanGrid.getActiveShipAmount() > 0;
+        commit(event, true);
+    }
 
-        /* setting the ship amount of each type */
-        shipNameAmountMap.put("Battleship", 1);
-        shipNameAmountMap.put("Destroyer", 2);
+    /**
+     * Commits the event of the game creation if it's recorded.
+     * @param event The event begun in the constructor.
+     * @param restored {@code true} if the ships were given instead of placed at random.
+     */
+    private void commit(GameCreatedEvent event, boolean restored) {
+        if (!event.shouldCommit()) return;
+        event.grid = oceanGrid.getClass().getName();
+        event.sizeX = GRID_X;
+        event.sizeY = GRID_Y;
+        event.shipAmount = ships.size();
+        event.restored = restored;
+        event.commit();
+    }
 
-        /* placing the ships */
-        shipNameAmountMap.forEach(this::placeShips);
+    /**
+     * Places the fleet given by the {@link #rules} on the grid.
+     * @throws IllegalStateException The fleet doesn't fit on the grid.
+     */
+    private void initialise() {
+        FleetPlacementEvent event = new FleetPlacementEvent();
+        event.begin();
+        FleetPlacer placer = new FleetPlacer(GRID_X, GRID_Y, rules.adjacentShips(), random);
+        rules.fleet().forEach(shipType -> placeShips(placer, shipType));
+        if (event.shouldCommit()) {
+            event.shipAmount = ships.size();
+            event.attempts = placer.getAttemptAmount();
+            event.adjacentShips = rules.adjacentShips();
+            event.commit();
+        }
     }
 
     /**
@@ -86,59 +239,159 @@ public class Game {
     public void tick() {
         if (!running) return;
 
-        shotResult = oceanGrid.shoot(new Coordinates(targetCoordinates));
+        shotResult = oceanGrid.shoot(targetCoordinates);
+
+        if (oceanGrid.getActiveShipAmount() == 0) {
+            running = false;
+        }
+        if (listener != null) {
+            listener.shotFired(this, targetCoordinates, shotResult);
+        }
+    }
+
+    /**
+     * Fires a salvo of up to {@link GameRules#salvoSize() salvoSize} shots in a single turn. The results are
+     * written as in the batch {@link Grid#shoot(int[], int, int, int[]) shoot} of the grid, so nothing is
+     * allocated unless a listener has to be notified. The {@link #targetCoordinates} and the {@link #shotResult}
+     * of single {@link #tick() ticks} are not changed.
+     * @param packedTargets Targets as {@link Coordinates#pack(int, int) packed coordinates}.
+     * @param count Amount of targets.
+     * @param results Receives the result of each shot fired.
+     * @return Amount of shots fired, less than {@code count} if the last ship was sunk before the end of the salvo.
+     * 0 if the game is over.
+     * @throws IllegalArgumentException The salvo is empty or larger than the rules allow.
+     */
+    public int fireSalvo(int[] packedTargets, int count, int[] results) {
+        if (count < 1 || count > rules.salvoSize()) {
+            throw new IllegalArgumentException("Salvo size should be between 1 and " + rules.salvoSize() + ": " + count);
+        }
+        return fire(packedTargets, 0, count, results);
+    }
+
+    /**
+     * Fires the shots of consecutive single shot turns at once, e.g. to replay recorded moves. The results are
+     * written as in {@link #fireSalvo(int[], int, int[]) fireSalvo}, which limits the amount of shots
+     * to a single turn.
+     * @param packedTargets Targets as {@link Coordinates#pack(int, int) packed coordinates}.
+     * @param offset Position of the first target, also of its result.
+     * @param count Amount of targets.
+     * @param results Receives the result of each shot fired at the position of its target.
+     * @return Amount of shots fired, less than {@code count} if the last ship was sunk before the last target.
+     * 0 if the game is over.
+     * @throws IndexOutOfBoundsException The targets don't fit in either array.
+     */
+    public int fireTurns(int[] packedTargets, int offset, int count, int[] results) {
+        return fire(packedTargets, offset, count, results);
+    }
+
+    private int fire(int[] packedTargets, int offset, int count, int[] results) {
+        if (!running) return 0;
+
+        int fired;
+        if (listener == null) {
+            fired = oceanGrid.shoot(packedTargets, offset, count, results);
+        } else {
+            /* one shot at a time, as the listener gets the result objects */
+            fired = 0;
+            while (fired < count && running) {
+                int position = offset + fired;
+                fired += oceanGrid.shoot(packedTargets, position, 1, results);
+                if (oceanGrid.getActiveShipAmount() == 0) {
+                    running = false;
+                }
+                Coordinates target = Coordinates.ofPacked(packedTargets[position]);
+                listener.shotFired(this, target, toShotResult(results[position]));
+            }
+        }
 
         if (oceanGrid.getActiveShipAmount() == 0) {
             running = false;
         }
+        return fired;
     }
 
-    public OceanGrid getOceanGrid() {
+    /**
+     * Converts the result of a batch {@link Grid#shoot(int[], int, int, int[]) shoot} to a {@link Grid.ShotResult}.
+     * @param result The result.
+     * @return The shot result, {@code null} for a target out of bounds.
+     */
+    public Grid.ShotResult toShotResult(int result) {
+        int code = Grid.resultCode(result);
+        if (code == Grid.OUT_OF_BOUNDS) return null;
+        int shipId = Grid.shipId(result);
+        return new Grid.ShotResult(shipId == 0 ? null : ships.get(shipId - 1).getName(),
+                HIT_DESIGNATIONS[code]);
+    }
+
+    public Grid getOceanGrid() {
         return oceanGrid;
     }
 
+    /**
+     * Sets the coordinates to fire at in the next {@link #tick() tick}.
+     * @param targetCoordinates Game coordinates written as text, e.g. 'A5' or 'A-5'.
+     * @throws IllegalArgumentException The text is not valid game coordinates.
+     */
     public void setTargetCoordinates(String targetCoordinates) {
+        this.targetCoordinates = Coordinates.valueOf(targetCoordinates);
+    }
+
+    public void setTargetCoordinates(Coordinates targetCoordinates) {
         this.targetCoordinates = targetCoordinates;
     }
 
-    public OceanGrid.ShotResult getShotResult() {
+    public Coordinates getTargetCoordinates() {
+        return targetCoordinates;
+    }
+
+    public Grid.ShotResult getShotResult() {
         return shotResult;
     }
 
+    public GameRules getRules() {
+        return rules;
+    }
+
     /**
-     * Calls {@link #placeShip(String) placeShip} {@code amount} times with {@code shipName} as the argument.
-     * @param shipName The name of the ships to place.
-     * @param amount The amount of the ships to place.
+     * Gets the ships of the game.
+     * @return Unmodifiable list of the ships in the order of placement.
      */
-    private void placeShips(String shipName, int amount) {
-        IntStream.range(0, amount).forEach(i -> placeShip(shipName));
+    public List<Ship> getShips() {
+        return Collections.unmodifiableList(ships);
+    }
+
+    RandomGenerator getRandom() {
+        return random;
     }
 
     /**
-     * Adds the ship to the grid in a random spot.
-     * @param shipName The name of the ship to place.
+     * Restores the state of the last {@link #tick() tick} saved in a {@link GameSnapshot}.
+     * @param running {@link #running}.
+     * @param targetCoordinates {@link #targetCoordinates}.
+     * @param shotResult {@link #shotResult}.
      */
-    private void placeShip(String shipName) {
-        boolean placed = false;
-        /* simplest solution for now, can potentially become a problem if free space is extremely limited */
-        while (!placed) {
-            placed = oceanGrid.addShip(new Ship(getRandomCoordinates(GRID_Y, GRID_X),
-                    shipNameSizeMap.get(shipName),
-                    Ship.Orientation.values()[random.nextInt(2)], // random orientation
-                    shipName));
-        }
+    void restoreTurn(boolean running, Coordinates targetCoordinates, Grid.ShotResult shotResult) {
+        this.running = running;
+        this.targetCoordinates = targetCoordinates;
+        this.shotResult = shotResult;
     }
 
     /**
-     * Gets random coordinates in the specified range.
-     * @param letterRange Range for the Y axis.
-     * @param numberRange Range for the X axis.
-     * @return Randomised coordinates.
+     * Sets the listener notified of every shot, replacing the previous one.
+     * @param listener The listener, or {@code null} to remove it.
      */
-    private Coordinates getRandomCoordinates(int letterRange, int numberRange) {
-        char randomLetter = (char)( 'A' + random.nextInt(letterRange) );
-        int randomNumber = random.nextInt(1, numberRange);
+    public void setListener(GameListener listener) {
+        this.listener = listener;
+    }
 
-        return new Coordinates(randomLetter + String.valueOf(randomNumber));
+    /**
+     * Adds the ships of the specified type to the grid in random spots.
+     * @param placer Placer tracking the ships placed so far.
+     * @param shipType The type of the ships to place.
+     * @throws IllegalStateException There is no room left for one of the ships.
+     */
+    private void placeShips(FleetPlacer placer, GameRules.ShipType shipType) {
+        IntStream.range(0, shipType.amount())
+                .forEach(i -> ships.add(placer.place(oceanGrid, shipType.name(), shipType.size())));
     }
 }
@@ -0,0 +1,28 @@
+package konopi.battleship.logic;
+
+/**
+ * The GameListener is notified of the shots fired in a {@link Game}, e.g. to record or display them.
+ * It's called on the thread running {@link Game#tick() tick}, so it should return quickly.
+ */
+@FunctionalInterface
+public interface GameListener {
+    /**
+     * Called at the end of every {@link Game#tick() tick} which fired a shot.
+     * @param game The game in which the shot was fired.
+     * @param target Coordinates fired at.
+     * @param shotResult Result of the shot, {@code null} if the coordinates are out of bounds.
+     */
+    void shotFired(Game game, Coordinates target, Grid.ShotResult shotResult);
+
+    /**
+     * Combines the listeners, e.g. to record a game and display it at the same time.
+     * @param after Listener notified after this one.
+     * @return Listener notifying both in turn.
+     */
+    default GameListener andThen(GameListener after) {
+        return (game, target, shotResult) -> {
+            shotFired(game, target, shotResult);
+            after.shotFired(game, target, shotResult);
+        };
+    }
+}
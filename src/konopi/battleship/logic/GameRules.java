@@ -0,0 +1,196 @@
+package konopi.battleship.logic;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * The GameRules record configures a {@link Game}: the grid size, the fleet, whether ships may touch and
+ * how many shots are fired per turn.
+ * The rules can be built in code or loaded from a properties file, e.g.
+ * <pre>
+ * grid.x=1000
+ * grid.y=1000
+ * fleet=Carrier:5x10, Battleship:4x20, Destroyer:3x40
+ * ships.adjacent=false
+ * salvo=3
+ * </pre>
+ * Missing properties are taken from the {@link #standard() standard} rules.
+ * @param sizeX Size of the grid on the number axis, at most {@link Coordinates#MAX_PACKED_INDEX} + 1 so every
+ * square has {@link Coordinates#pack(int, int) packed} coordinates.
+ * @param sizeY Size of the grid on the letter axis, rows past 'Z' are labelled 'AA', 'AB', etc.
+ * @param fleet Ship types in the order of placement.
+ * @param adjacentShips {@code true} if ships may touch each other, also diagonally.
+ * @param salvoSize Amount of shots fired per turn, see {@link Game#fireSalvo(int[], int, int[]) fireSalvo}.
+ */
+public record GameRules(int sizeX, int sizeY, List<ShipType> fleet, boolean adjacentShips, int salvoSize) {
+    /**
+     * Type of the ships in a fleet.
+     * @param name Ship identifier, e.g. "Cruiser" or "Destroyer".
+     * @param size Ship length.
+     * @param amount Amount of the ships of this type.
+     */
+    public record ShipType(String name, int size, int amount) {
+        public ShipType {
+            if (name == null || name.isBlank()) {
+                throw new IllegalArgumentException("Ship name must not be blank");
+            }
+            if (size < 1) {
+                throw new IllegalArgumentException("Size should be >= 1: " + size);
+            }
+            if (amount < 0) {
+                throw new IllegalArgumentException("Amount should be >= 0: " + amount);
+            }
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException The grid size is not supported or the fleet is invalid.
+     */
+    public GameRules {
+        if (sizeX < 1 || sizeY < 1 || sizeX > Coordinates.MAX_PACKED_INDEX + 1
+                || sizeY > Coordinates.MAX_LETTER_INDEX + 1 || (long) sizeX * sizeY > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Unsupported grid size: " + sizeX + "x" + sizeY);
+        }
+        fleet = List.copyOf(fleet);
+        HashSet<String> names = new HashSet<>();
+        for (ShipType shipType : fleet) {
+            if (!names.add(shipType.name())) {
+                throw new IllegalArgumentException("Ship type defined twice: " + shipType.name());
+            }
+        }
+        if (fleet.stream().mapToInt(ShipType::amount).sum() == 0) {
+            throw new IllegalArgumentException("Fleet must contain at least one ship");
+        }
+        if (salvoSize < 1) {
+            throw new IllegalArgumentException("Salvo size should be >= 1: " + salvoSize);
+        }
+    }
+
+    /**
+     * Constructor of the rules firing a single shot per turn.
+     * @throws IllegalArgumentException The grid size is not supported or the fleet is invalid.
+     */
+    public GameRules(int sizeX, int sizeY, List<ShipType> fleet, boolean adjacentShips) {
+        this(sizeX, sizeY, fleet, adjacentShips, 1);
+    }
+
+    /**
+     * Gets the rules of the original game: a 10x10 grid with a Battleship and two Destroyers.
+     * @return Standard rules.
+     */
+    public static GameRules standard() {
+        return new GameRules(10, 10, List.of(
+                new ShipType("Battleship", 5, 1),
+                new ShipType("Destroyer", 4, 2)), true);
+    }
+
+    /**
+     * Reads the rules from properties, see the class description for the format.
+     * @param properties Source of the rules.
+     * @return Rules with the missing properties taken from the {@link #standard() standard} rules.
+     * @throws IllegalArgumentException A property has an invalid value.
+     */
+    public static GameRules fromProperties(Properties properties) {
+        GameRules defaults = standard();
+        int sizeX = parseInt(properties, "grid.x", defaults.sizeX());
+        int sizeY = parseInt(properties, "grid.y", defaults.sizeY());
+        boolean adjacentShips = Boolean.parseBoolean(
+                properties.getProperty("ships.adjacent", String.valueOf(defaults.adjacentShips())));
+        int salvoSize = parseInt(properties, "salvo", defaults.salvoSize());
+
+        String fleetProperty = properties.getProperty("fleet");
+        List<ShipType> fleet = fleetProperty == null ? defaults.fleet() : parseFleet(fleetProperty);
+
+        return new GameRules(sizeX, sizeY, fleet, adjacentShips, salvoSize);
+    }
+
+    /**
+     * Loads the rules from a properties file.
+     * @param path Path of the file.
+     * @return Rules as in {@link #fromProperties(Properties) fromProperties}.
+     * @throws IOException The file can't be read.
+     * @throws IllegalArgumentException A property has an invalid value.
+     */
+    public static GameRules load(Path path) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path)) {
+            properties.load(reader);
+        }
+        return fromProperties(properties);
+    }
+
+    private static int parseInt(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null) return defaultValue;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Property " + key + " must be an integer: " + value);
+        }
+    }
+
+    /**
+     * Parses a fleet written as comma separated {@code name:size} or {@code name:sizeXamount} entries.
+     * @param fleet e.g. "Carrier:5, Destroyer:3x2".
+     * @return Ship types in the written order.
+     */
+    private static List<ShipType> parseFleet(String fleet) {
+        List<ShipType> shipTypes = new ArrayList<>();
+        for (String entry : fleet.split(",")) {
+            String[] nameShips = entry.trim().split(":");
+            if (nameShips.length != 2) {
+                throw new IllegalArgumentException("Fleet entry must be written as name:size or name:sizeXamount: "
+                        + entry.trim());
+            }
+            String[] sizeAmount = nameShips[1].trim().toLowerCase(Locale.ROOT).split("x");
+            try {
+                int size = Integer.parseInt(sizeAmount[0].trim());
+                int amount = sizeAmount.length > 1 ? Integer.parseInt(sizeAmount[1].trim()) : 1;
+                shipTypes.add(new ShipType(nameShips[0].trim(), size, amount));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Fleet entry must be written as name:size or name:sizeXamount: "
+                        + entry.trim());
+            }
+        }
+        return shipTypes;
+    }
+
+    /**
+     * Gets the total amount of ships in the fleet.
+     * @return Sum of the amounts of all ship types.
+     */
+    public int shipAmount() {
+        return fleet.stream().mapToInt(ShipType::amount).sum();
+    }
+
+    /**
+     * Gets the position of the ship type of the specified name in the {@link #fleet}.
+     * @param name Name of the ship type.
+     * @return Index of the ship type, or {@code -1} if it's not part of the fleet.
+     */
+    public int shipTypeIndex(String name) {
+        for (int i = 0; i < fleet.size(); ++i) {
+            if (fleet.get(i).name().equals(name)) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the ship type of the specified name.
+     * @param name Ship identifier.
+     * @return The ship type, {@code null} if the fleet has no such type.
+     */
+    public ShipType shipType(String name) {
+        for (ShipType shipType : fleet) {
+            if (shipType.name().equals(name)) return shipType;
+        }
+        return null;
+    }
+}
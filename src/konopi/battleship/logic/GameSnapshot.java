@@ -0,0 +1,325 @@
+package konopi.battleship.logic;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * The GameSnapshot saves the whole state of a {@link Game} into a {@link ByteBuffer} and restores it, e.g. to move
+ * a session to another process or to fork a position for a search. The snapshot holds the ships, the hit history,
+ * the state of a {@link SplitMix64} generator, the running flag and the last shot. The ship squares still afloat
+ * are exactly the ones not fired at, so they are restored from the hit history.
+ * <p>
+ * The snapshot is written from the position of the buffer in its byte order:
+ * <pre>
+ *  0  int   {@link #MAGIC}
+ *  4  byte  {@link #VERSION}
+ *  5  byte  flags, {@link #RUNNING} and {@link #RANDOM}
+ *  6  byte  result of the last shot, 0 for none, otherwise the {@link Ship.HitDesignation} ordinal + 1
+ *  7  byte  encoding of the hit history, {@link #DENSE} or {@link #SPARSE}
+ *  8  int   size of the grid on the number axis
+ * 12  int   size of the grid on the letter axis
+ * 16  long  state of the generator, 0 without the {@link #RANDOM} flag
+ * 24  int   letter index of the last target
+ * 28  int   number index of the last target
+ * 32  int   ship type of the last shot result, -1 without a ship name
+ * 36  int   amount of ships
+ * 40        ships, {@link #SHIP_SIZE} bytes each: int letter index and int number index of the stern,
+ *           short ship type and byte orientation
+ *           hit history
+ * </pre>
+ * Ship types are positions in the {@link GameRules#fleet() fleet}. The hit history stores a code per square,
+ * 0 if the square was not fired at, otherwise the {@link Ship.HitDesignation} ordinal + 1. The {@link #DENSE}
+ * encoding packs the codes of all squares in 2 bits each, in the order of the square index
+ * {@code letterIndex * sizeX + numberIndex}. The {@link #SPARSE} encoding is an int amount of squares fired at
+ * followed by a varint of {@code gap << 2 | code} for each of them in the same order, the gap being the amount
+ * of squares skipped since the previous one. It's used when the grid is large and mostly untouched.
+ */
+public final class GameSnapshot {
+    /**
+     * First bytes of every snapshot, 'BSS1'.
+     */
+    public static final int MAGIC = 0x42535331;
+    public static final byte VERSION = 1;
+
+    /**
+     * Flag of a game in progress.
+     */
+    public static final byte RUNNING = 1;
+    /**
+     * Flag of a snapshot holding the state of the generator.
+     */
+    public static final byte RANDOM = 2;
+
+    public static final byte DENSE = 0;
+    public static final byte SPARSE = 1;
+
+    public static final int HEADER_SIZE = 40;
+    public static final int SHIP_SIZE = 11;
+
+    /**
+     * Hit histories up to this size are always {@link #DENSE}, searching for a smaller encoding costs more
+     * than it saves.
+     */
+    private static final int SMALL_PLANE = 64;
+
+    private static final Ship.HitDesignation[] DESIGNATIONS = Ship.HitDesignation.values();
+    private static final Ship.Orientation[] ORIENTATIONS = Ship.Orientation.values();
+
+    private GameSnapshot() {
+    }
+
+    /**
+     * Gets the size of the largest snapshot of the game, enough for the buffer passed to
+     * {@link #write(Game, ByteBuffer) write}.
+     * @param game The game.
+     * @return Size in bytes.
+     * @throws IllegalArgumentException The snapshot may not fit in a {@link ByteBuffer}.
+     */
+    public static int maxSize(Game game) {
+        long size = HEADER_SIZE + (long) SHIP_SIZE * game.getShips().size() + denseSize(game.GRID_X, game.GRID_Y);
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Snapshot of the game may not fit in a buffer: " + size);
+        }
+        return (int) size;
+    }
+
+    private static long denseSize(int sizeX, int sizeY) {
+        return ((long) sizeX * sizeY + 3) >>> 2;
+    }
+
+    /**
+     * Writes the snapshot of the game at the position of the buffer and advances it past the snapshot.
+     * @param game The game.
+     * @param buffer Receives the snapshot, see {@link #maxSize(Game) maxSize}.
+     * @throws IllegalArgumentException One of the ships is not part of the fleet given by the rules of the game.
+     * @throws java.nio.BufferOverflowException There is not enough room left in the buffer.
+     */
+    public static void write(Game game, ByteBuffer buffer) {
+        GameRules rules = game.getRules();
+        Grid grid = game.getOceanGrid();
+        int sizeX = game.GRID_X;
+
+        /* the sparse encoding is only worth it with about 2 bytes per shot or less */
+        long denseSize = denseSize(sizeX, game.GRID_Y);
+        long[] sparseShots = null;
+        if (denseSize > SMALL_PLANE && grid.getShotAmount() * 2L < denseSize) {
+            sparseShots = sortedShots(grid, sizeX);
+            if (sparseSize(sparseShots) >= denseSize) sparseShots = null;
+        }
+
+        RandomGenerator random = game.getRandom();
+        Grid.ShotResult shotResult = game.getShotResult();
+        Coordinates target = game.getTargetCoordinates();
+
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+        buffer.put((byte) ((game.isRunning() ? RUNNING : 0) | (random instanceof SplitMix64 ? RANDOM : 0)));
+        buffer.put((byte) (shotResult == null ? 0 : shotResult.hitDesignation().ordinal() + 1));
+        buffer.put(sparseShots == null ? DENSE : SPARSE);
+        buffer.putInt(sizeX);
+        buffer.putInt(game.GRID_Y);
+        buffer.putLong(random instanceof SplitMix64 splitMix ? splitMix.getState() : 0);
+        buffer.putInt(target.getLetterIndex());
+        buffer.putInt(target.getNumberIndex());
+        buffer.putInt(shotResult == null || shotResult.shipName() == null
+                ? -1 : shipTypeIndex(rules, shotResult.shipName()));
+
+        List<Ship> ships = game.getShips();
+        buffer.putInt(ships.size());
+        for (Ship ship : ships) {
+            buffer.putInt(ship.getSternSquare().getLetterIndex());
+            buffer.putInt(ship.getSternSquare().getNumberIndex());
+            buffer.putShort((short) shipTypeIndex(rules, ship.getName()));
+            buffer.put((byte) ship.getOrientation().ordinal());
+        }
+
+        if (sparseShots == null) {
+            writeDense(grid, sizeX, denseSize, buffer);
+        } else {
+            writeSparse(sparseShots, buffer);
+        }
+    }
+
+    private static int shipTypeIndex(GameRules rules, String name) {
+        int shipType = rules.shipTypeIndex(name);
+        if (shipType < 0 || shipType > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Ship is not part of the fleet: " + name);
+        }
+        return shipType;
+    }
+
+    private static void writeDense(Grid grid, int sizeX, long denseSize, ByteBuffer buffer) {
+        int start = buffer.position();
+        /* clears the plane, failing early if the buffer is too small */
+        for (long i = 0; i < denseSize; ++i) {
+            buffer.put((byte) 0);
+        }
+        grid.forEachShot((letterIndex, numberIndex, hitDesignation) -> {
+            long index = (long) letterIndex * sizeX + numberIndex;
+            int offset = start + (int) (index >>> 2);
+            int code = hitDesignation.ordinal() + 1;
+            buffer.put(offset, (byte) (buffer.get(offset) | code << ((index & 3) << 1)));
+        });
+    }
+
+    /**
+     * Gets the hit history as {@code index << 2 | code} of every square fired at, in the order of the index.
+     */
+    private static long[] sortedShots(Grid grid, int sizeX) {
+        long[] shots = new long[grid.getShotAmount()];
+        int[] amount = {0};
+        grid.forEachShot((letterIndex, numberIndex, hitDesignation) ->
+                shots[amount[0]++] = ((long) letterIndex * sizeX + numberIndex) << 2 | hitDesignation.ordinal() + 1);
+        Arrays.sort(shots);
+        return shots;
+    }
+
+    private static long sparseSize(long[] shots) {
+        long size = Integer.BYTES;
+        long previous = -1;
+        for (long shot : shots) {
+            long index = shot >>> 2;
+            size += varLongSize((index - previous - 1) << 2 | shot & 3);
+            previous = index;
+        }
+        return size;
+    }
+
+    private static void writeSparse(long[] shots, ByteBuffer buffer) {
+        buffer.putInt(shots.length);
+        long previous = -1;
+        for (long shot : shots) {
+            long index = shot >>> 2;
+            putVarLong(buffer, (index - previous - 1) << 2 | shot & 3);
+            previous = index;
+        }
+    }
+
+    private static int varLongSize(long value) {
+        return Math.max(1, (Long.SIZE - Long.numberOfLeadingZeros(value) + 6) / 7);
+    }
+
+    private static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IllegalArgumentException("Malformed varint in the snapshot");
+    }
+
+    /**
+     * Restores the game from the snapshot at the position of the buffer and advances it past the snapshot.
+     * The restored game carries on with a {@link SplitMix64} of the saved state, or with no generator
+     * if the saved game used another one.
+     * @param buffer The snapshot written by {@link #write(Game, ByteBuffer) write}.
+     * @param rules Rules of the saved game.
+     * @param gridFactory Creates the enemy ocean grid, the backend may differ from the saved game.
+     * @return The restored game, without a listener.
+     * @throws IllegalArgumentException The snapshot is malformed, of another version or of other rules.
+     * @throws java.nio.BufferUnderflowException The snapshot is cut short.
+     */
+    public static Game read(ByteBuffer buffer, GameRules rules, Grid.Factory gridFactory) {
+        if (buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a game snapshot");
+        }
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported snapshot version: " + version);
+        }
+        byte flags = buffer.get();
+        int resultCode = buffer.get();
+        byte encoding = buffer.get();
+        int sizeX = buffer.getInt();
+        int sizeY = buffer.getInt();
+        if (sizeX != rules.sizeX() || sizeY != rules.sizeY()) {
+            throw new IllegalArgumentException("Snapshot of a " + sizeX + "x" + sizeY + " grid doesn't match the rules");
+        }
+        long state = buffer.getLong();
+        int targetLetterIndex = buffer.getInt();
+        int targetNumberIndex = buffer.getInt();
+        int resultShipType = buffer.getInt();
+
+        int shipAmount = buffer.getInt();
+        if (shipAmount < 0 || shipAmount > buffer.remaining() / SHIP_SIZE) {
+            throw new IllegalArgumentException("Malformed ship amount in the snapshot: " + shipAmount);
+        }
+        List<Ship> ships = new ArrayList<>(shipAmount);
+        for (int i = 0; i < shipAmount; ++i) {
+            Coordinates stern = Coordinates.of(buffer.getInt(), buffer.getInt());
+            GameRules.ShipType shipType = shipType(rules, buffer.getShort());
+            int orientation = buffer.get();
+            if (orientation < 0 || orientation >= ORIENTATIONS.length) {
+                throw new IllegalArgumentException("Malformed ship orientation in the snapshot: " + orientation);
+            }
+            ships.add(new Ship(stern, shipType.size(), ORIENTATIONS[orientation], shipType.name()));
+        }
+
+        Game game = new Game(rules, gridFactory, ships, (flags & RANDOM) != 0 ? new SplitMix64(state) : null);
+        switch (encoding) {
+            case DENSE -> readDense(game.getOceanGrid(), sizeX, sizeY, buffer);
+            case SPARSE -> readSparse(game.getOceanGrid(), sizeX, sizeY, buffer);
+            default -> throw new IllegalArgumentException("Unknown hit history encoding: " + encoding);
+        }
+
+        if (resultCode < 0 || resultCode > DESIGNATIONS.length) {
+            throw new IllegalArgumentException("Malformed shot result in the snapshot: " + resultCode);
+        }
+        Grid.ShotResult shotResult = resultCode == 0 ? null : new Grid.ShotResult(
+                resultShipType < 0 ? null : shipType(rules, resultShipType).name(), DESIGNATIONS[resultCode - 1]);
+        game.restoreTurn((flags & RUNNING) != 0, Coordinates.of(targetLetterIndex, targetNumberIndex), shotResult);
+        return game;
+    }
+
+    private static GameRules.ShipType shipType(GameRules rules, int index) {
+        if (index < 0 || index >= rules.fleet().size()) {
+            throw new IllegalArgumentException("Unknown ship type in the snapshot: " + index);
+        }
+        return rules.fleet().get(index);
+    }
+
+    private static void readDense(Grid grid, int sizeX, int sizeY, ByteBuffer buffer) {
+        long squares = (long) sizeX * sizeY;
+        long denseSize = denseSize(sizeX, sizeY);
+        for (long i = 0; i < denseSize; ++i) {
+            int codes = buffer.get() & 0xFF;
+            for (long index = i << 2; codes != 0; ++index, codes >>>= 2) {
+                int code = codes & 3;
+                if (code != 0) restoreShot(grid, sizeX, squares, index, code);
+            }
+        }
+    }
+
+    private static void readSparse(Grid grid, int sizeX, int sizeY, ByteBuffer buffer) {
+        long squares = (long) sizeX * sizeY;
+        int amount = buffer.getInt();
+        if (amount < 0 || amount > squares) {
+            throw new IllegalArgumentException("Malformed shot amount in the snapshot: " + amount);
+        }
+        long index = -1;
+        for (int i = 0; i < amount; ++i) {
+            long value = getVarLong(buffer);
+            index += (value >>> 2) + 1;
+            restoreShot(grid, sizeX, squares, index, (int) (value & 3));
+        }
+    }
+
+    private static void restoreShot(Grid grid, int sizeX, long squares, long index, int code) {
+        if (index < 0 || index >= squares || code == 0) {
+            throw new IllegalArgumentException("Malformed hit history in the snapshot");
+        }
+        grid.restoreShot(Coordinates.of((int) (index / sizeX), (int) (index % sizeX)), DESIGNATIONS[code - 1]);
+    }
+}
@@ -0,0 +1,146 @@
+package konopi.battleship.logic;
+
+import java.util.Map;
+
+/**
+ * The Grid interface is the public API of an ocean grid. It is implemented by the grid backends, e.g.
+ * the map based {@link OceanGrid} and the {@link BitboardOceanGrid}, so they can be swapped without any
+ * changes in the {@link Game} or the UI.
+ */
+public interface Grid {
+    /**
+     * Result code of a batch {@link #shoot(int[], int, int, int[]) shoot} at a target outside the grid,
+     * the other codes are the {@link Ship.HitDesignation} ordinals.
+     */
+    int OUT_OF_BOUNDS = 3;
+
+    /**
+     * Record returned as result of {@link #shoot(Coordinates) shoot}.
+     */
+    record ShotResult(String shipName, Ship.HitDesignation hitDesignation) {}
+
+    /**
+     * Creates a grid of the specified size. Usually a constructor reference, e.g. {@code OceanGrid::new}.
+     */
+    @FunctionalInterface
+    interface Factory {
+        Grid create(int sizeX, int sizeY);
+    }
+
+    /**
+     * Receives the squares fired at, see {@link #forEachShot(ShotVisitor) forEachShot}.
+     */
+    @FunctionalInterface
+    interface ShotVisitor {
+        void visit(int letterIndex, int numberIndex, Ship.HitDesignation hitDesignation);
+    }
+
+    /**
+     * If possible adds the specified ship to the grid and returns {@code true}.
+     * If the ship failed to be added returns {@code false}.
+     * @param ship The ship which is to be added to the grid.
+     * @return {@code true} if the ship was added successfully. {@code false} if the ship coordinates
+     * are out of bounds or already occupied by another ship.
+     */
+    boolean addShip(Ship ship);
+
+    /**
+     * Executes an action of firing on the specified square.
+     * Checks for a ship in the given coordinates and updates the grid state accordingly. Returns the results.
+     * @param coordinates Target square.
+     * @return {@link ShotResult} consisting of {@link Ship.HitDesignation} and name of the ship if hit.
+     * Returns {@code null} if specified coordinates are out of bounds.
+     */
+    ShotResult shoot(Coordinates coordinates);
+
+    /**
+     * Fires at the targets one after another like {@link #shoot(Coordinates) shoot}, writing the results into
+     * the array instead of creating a {@link ShotResult} for each. A result holds the {@link Ship.HitDesignation}
+     * ordinal or {@link #OUT_OF_BOUNDS} in the low byte, see {@link #resultCode(int) resultCode}, and the id
+     * of the hit ship above it, see {@link #shipId(int) shipId}. Stops after the shot sinking the last ship.
+     * @param packedTargets Targets as {@link Coordinates#pack(int, int) packed coordinates}.
+     * @param offset Position of the first target, also of its result.
+     * @param count Amount of targets.
+     * @param results Receives the result of each shot fired at the position of its target.
+     * @return Amount of shots fired.
+     * @throws IndexOutOfBoundsException The targets don't fit in either array.
+     */
+    int shoot(int[] packedTargets, int offset, int count, int[] results);
+
+    /**
+     * Gets the result code of a batch {@link #shoot(int[], int, int, int[]) shoot}.
+     * @param result The result.
+     * @return The {@link Ship.HitDesignation} ordinal or {@link #OUT_OF_BOUNDS}.
+     */
+    static int resultCode(int result) {
+        return result & 0xFF;
+    }
+
+    /**
+     * Gets the ship hit in a batch {@link #shoot(int[], int, int, int[]) shoot}.
+     * @param result The result.
+     * @return Position of the ship in the order of {@link #addShip(Ship) addition} increased by 1,
+     * or 0 if no ship was hit.
+     */
+    static int shipId(int result) {
+        return result >>> 8;
+    }
+
+    int getActiveShipAmount();
+
+    /**
+     * Gets the history of all taken shots with valid coordinates.
+     * @return A map of coordinates given in a {@link #shoot(Coordinates) shoot} method to the hit result.
+     */
+    Map<Coordinates, Ship.HitDesignation> getHitMap();
+
+    /**
+     * Visits every square in the {@link #getHitMap() hit history} without assembling the map.
+     * The order of the squares is not specified.
+     * @param visitor Receives the indices and the result of each square fired at.
+     */
+    default void forEachShot(ShotVisitor visitor) {
+        getHitMap().forEach((coordinates, hitDesignation) ->
+                visitor.visit(coordinates.getLetterIndex(), coordinates.getNumberIndex(), hitDesignation));
+    }
+
+    /**
+     * Gets the amount of squares in the {@link #getHitMap() hit history}.
+     * @return Amount of squares fired at.
+     */
+    default int getShotAmount() {
+        return getHitMap().size();
+    }
+
+    /**
+     * Gets the Zobrist hash of the state of the grid as seen by the shooter: the {@link #getHitMap() hit history},
+     * the squares of the sunk ships and the sizes of the ships afloat. It's updated incrementally by
+     * {@link #addShip(Ship) addShip}, the shots and {@link #restoreShot(Coordinates, Ship.HitDesignation)
+     * restoreShot}, so reading it is free. Grids of the same size in the same state have the same hash,
+     * whatever the backend, the order of the shots or the hidden positions of the ships afloat.
+     * @return The hash, e.g. the key of a {@code konopi.battleship.ai.TranspositionTable}.
+     */
+    long getStateHash();
+
+    /**
+     * Records the result of a shot on the square without firing it, used to restore a saved grid.
+     * A ship occupying the square loses it, as every shot at a ship square was a hit at some point,
+     * and stops counting as active once it has no squares left.
+     * @param coordinates Square which was fired at.
+     * @param hitDesignation Recorded result of the shot.
+     * @throws IllegalArgumentException The coordinates are out of bounds.
+     */
+    void restoreShot(Coordinates coordinates, Ship.HitDesignation hitDesignation);
+
+    /**
+     * Gets the size of the grid on the number coordinates.
+     * @return Amount of columns.
+     */
+    int getSizeX();
+
+    /**
+     * Gets the size of the grid on the letter coordinates.
+     * @return Amount of rows.
+     */
+    int getSizeY();
+}
@@ -1,17 +1,16 @@
 package konopi.battleship.logic;
 
+import konopi.battleship.jfr.ShotEvent;
+
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Objects;
 
 /**
  * The OceanGrid class is created specifying its length (y) and width (x). It provides the means
  * to add a ship to the grid, fire a shot on the specified coordinates and get a map of hits.
  */
-public class OceanGrid {
-    /**
-     * Record returned as result of {@link #shoot(Coordinates) shoot}.
-     */
-    public record ShotResult(String shipName, Ship.HitDesignation hitDesignation) {}
-
+public class OceanGrid implements Grid {
     /**
      * Amount of active ships on the grid. Increases in {@link #addShip(Ship) addShip}.
      * Decreases in {@link #shoot(Coordinates) shoot}.
@@ -19,13 +18,26 @@ public class OceanGrid {
     private int activeShipAmount = 0;
 
     /**
-     * Coordinates are mapped to a ship which occupies them. Populated by calling {@link #addShip(Ship) addShip}.
+     * Coordinates are mapped to the id of a ship which occupies them, the position in {@link #ships} increased
+     * by 1. Populated by calling {@link #addShip(Ship) addShip}.
+     */
+    private final HashMap<Coordinates, Integer> shipMap = new HashMap<>();
+    /**
+     * Ships added to the grid in order of addition.
      */
-    private final HashMap<Coordinates, Ship> shipMap = new HashMap<>();
+    private final ArrayList<Ship> ships = new ArrayList<>();
     /**
      * Coordinates are mapped to the {@link Ship.HitDesignation} determined in {@link #shoot(Coordinates) shoot}.
      */
     private final HashMap<Coordinates, Ship.HitDesignation> hitMap = new HashMap<>();
+    /**
+     * Zobrist hash of the {@link #hitMap} and the squares of the sunk ships, see {@link #getStateHash()}.
+     */
+    private long shotHash = 0;
+    /**
+     * Sum of the Zobrist keys of the ships afloat.
+     */
+    private long fleetHash = 0;
 
     /**
      * Size of the grid on the number coordinates.
@@ -52,7 +64,7 @@ public class OceanGrid {
      * @return {@code true} if the square is not part of the grid.
      */
     private boolean isOutOfBounds(Coordinates coordinates) {
-        return coordinates.getLetterCoordinate() >= sizeY + 'A' || coordinates.getNumberCoordinate() >= sizeX + 1;
+        return coordinates.getLetterIndex() >= sizeY || coordinates.getNumberIndex() >= sizeX;
     }
 
     /**
@@ -71,13 +83,17 @@ public class OceanGrid {
      * @return {@code true} if the ship was added successfully. {@code false} if the ship coordinates
      * are out of bounds or already occupied by another ship.
      */
+    @Override
     public boolean addShip(Ship ship) {
         /* Checks if the ship fits in the grid. */
         for (Coordinates coordinates : ship.getActiveSquares()) {
             if (isOutOfBounds(coordinates) || isOccupied(coordinates)) return false;
         }
-        ship.getActiveSquares().forEach(coordinates -> shipMap.put(coordinates, ship));
+        ships.add(ship);
+        Integer id = ships.size();
+        ship.getActiveSquares().forEach(coordinates -> shipMap.put(coordinates, id));
         ++activeShipAmount;
+        fleetHash += Zobrist.ship(ship.getSize());
         return true;
     }
 
@@ -88,26 +104,112 @@ public class OceanGrid {
      * @return {@link ShotResult} consisting of {@link Ship.HitDesignation} and name of the ship if hit.
      * Returns {@code null} if specified coordinates are out of bounds.
      */
+    @Override
     public ShotResult shoot(Coordinates coordinates) {
+        if (ShotEvent.isRecorded()) return RecordedShots.shoot(coordinates, this::fire);
+        return fire(coordinates);
+    }
+
+    /**
+     * Fires the shot without recording it, see {@link #shoot(Coordinates) shoot}.
+     */
+    private ShotResult fire(Coordinates coordinates) {
         if (isOutOfBounds(coordinates)) return null;
 
-        Ship targetShip = shipMap.get(coordinates);
+        Integer id = shipMap.get(coordinates);
 
-        if (targetShip == null) {
+        if (id == null) {
             /* It's a miss. */
-            hitMap.put(coordinates, Ship.HitDesignation.MISS);
+            record(coordinates, Ship.HitDesignation.MISS);
             return new ShotResult(null, Ship.HitDesignation.MISS);
         }
 
         /* It's a hit. */
+        Ship targetShip = ships.get(id - 1);
         Ship.HitDesignation hit = targetShip.hit(coordinates);
-        hitMap.put(coordinates, hit);
+        record(coordinates, hit);
         if (hit == Ship.HitDesignation.SINK) {
-            --activeShipAmount;
+            sink(targetShip);
         }
         return new ShotResult(targetShip.getName(), hit);
     }
 
+    @Override
+    public int shoot(int[] packedTargets, int offset, int count, int[] results) {
+        Objects.checkFromIndexSize(offset, count, packedTargets.length);
+        Objects.checkFromIndexSize(offset, count, results.length);
+        if (ShotEvent.isRecorded()) {
+            return RecordedShots.shoot(this, ships, this::fire, packedTargets, offset, count, results);
+        }
+        return fire(packedTargets, offset, count, results);
+    }
+
+    /**
+     * Fires the batch without recording it, the bounds are checked by
+     * {@link #shoot(int[], int, int, int[]) shoot}.
+     */
+    private int fire(int[] packedTargets, int offset, int count, int[] results) {
+        for (int i = offset; i < offset + count; ++i) {
+            Coordinates coordinates = Coordinates.ofPacked(packedTargets[i]);
+            if (isOutOfBounds(coordinates)) {
+                results[i] = OUT_OF_BOUNDS;
+                continue;
+            }
+
+            Integer id = shipMap.get(coordinates);
+            if (id == null) {
+                record(coordinates, Ship.HitDesignation.MISS);
+                results[i] = Ship.HitDesignation.MISS.ordinal();
+                continue;
+            }
+
+            Ship targetShip = ships.get(id - 1);
+            Ship.HitDesignation hit = targetShip.hit(coordinates);
+            record(coordinates, hit);
+            results[i] = id << 8 | hit.ordinal();
+            if (hit == Ship.HitDesignation.SINK) {
+                sink(targetShip);
+                if (activeShipAmount == 0) return i - offset + 1;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void restoreShot(Coordinates coordinates, Ship.HitDesignation hitDesignation) {
+        if (isOutOfBounds(coordinates)) {
+            throw new IllegalArgumentException("Coordinates out of bounds: " + coordinates);
+        }
+        record(coordinates, hitDesignation);
+        Integer id = shipMap.get(coordinates);
+        if (id != null && ships.get(id - 1).hit(coordinates) == Ship.HitDesignation.SINK) {
+            sink(ships.get(id - 1));
+        }
+    }
+
+    /**
+     * Puts the result into the {@link #hitMap}, replacing the earlier result of the square in the hash.
+     */
+    private void record(Coordinates coordinates, Ship.HitDesignation hitDesignation) {
+        Ship.HitDesignation before = hitMap.put(coordinates, hitDesignation);
+        int index = coordinates.getLetterIndex() * sizeX + coordinates.getNumberIndex();
+        shotHash ^= Zobrist.square(index, before == null ? -1 : before.ordinal())
+                ^ Zobrist.square(index, hitDesignation.ordinal());
+    }
+
+    /**
+     * Moves the ship from the ships afloat to the sunk ones.
+     */
+    private void sink(Ship ship) {
+        --activeShipAmount;
+        fleetHash -= Zobrist.ship(ship.getSize());
+        for (int square = 0; square < ship.getSize(); ++square) {
+            Coordinates coordinates = ship.getSquare(square);
+            shotHash ^= Zobrist.sunkSquare(coordinates.getLetterIndex() * sizeX + coordinates.getNumberIndex());
+        }
+    }
+
+    @Override
     public int getActiveShipAmount() {
         return activeShipAmount;
     }
@@ -116,7 +218,23 @@ public class OceanGrid {
      * Gets the history of all taken shots with valid coordinates.
      * @return A map of coordinates given in a {@link #shoot(Coordinates) shoot} method to the hit result.
      */
+    @Override
     public HashMap<Coordinates, Ship.HitDesignation> getHitMap() {
         return hitMap;
     }
+
+    @Override
+    public long getStateHash() {
+        return shotHash ^ fleetHash;
+    }
+
+    @Override
+    public int getSizeX() {
+        return sizeX;
+    }
+
+    @Override
+    public int getSizeY() {
+        return sizeY;
+    }
 }
@@ -0,0 +1,599 @@
+package konopi.battleship.logic;
+
+import konopi.battleship.jfr.ShotEvent;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The OffHeapOceanGrid is a {@link Grid} backend for very large boards, keeping the state of the squares
+ * outside of the Java heap in direct or memory-mapped {@link ByteBuffer}s. Every square takes 2 bits of
+ * the shot plane, the {@link Ship.HitDesignation} ordinal of its last shot increased by 1 or 0 if it wasn't
+ * fired at, and 2 bytes of the ship plane, the id of the ship occupying it. A board of a billion squares
+ * takes 2.25 GB outside of the heap and the only objects on the heap are the ships. The planes are split
+ * into chunks, as a single buffer can't exceed 2 GB.
+ * <p>
+ * A grid created by the constructor lives in direct buffers, which are limited by
+ * {@code -XX:MaxDirectMemorySize}, by default the maximum heap size. A grid {@link #map(Path, int, int) mapped}
+ * to a file is only limited by the disk, the operating system pages it in and out as needed. The file keeps
+ * the ships and the shots, so a giant board can be played on in the next run. Neither of the buffers can be
+ * released explicitly: the direct memory is freed once the grid is garbage collected, the file is unmapped
+ * once its buffers are.
+ */
+public class OffHeapOceanGrid implements Grid {
+    /**
+     * Ship ids are stored in 2 bytes per square, 0 being reserved for empty squares.
+     */
+    public static final int MAX_SHIPS = 0xFFFF;
+    /**
+     * Longest ship name a mapped grid can store, in UTF-8 bytes.
+     */
+    public static final int MAX_NAME_LENGTH = 48;
+
+    static final int MAGIC = 0x42534731; // "BSG1"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    /**
+     * A ship record holds the stern indices, the size, the orientation and the name of a ship.
+     */
+    static final int SHIP_RECORD_SIZE = 64;
+    /**
+     * The header is followed by room for the records of {@link #MAX_SHIPS} ships, then the planes.
+     */
+    static final int META_SIZE = HEADER_SIZE + MAX_SHIPS * SHIP_RECORD_SIZE;
+    static final int DEFAULT_CHUNK_SIZE = 1 << 30;
+
+    /* header fields */
+    private static final int SIZE_X_OFFSET = 8;
+    private static final int SIZE_Y_OFFSET = 12;
+    private static final int SHIP_AMOUNT_OFFSET = 16;
+
+    /**
+     * Misses carry no ship name, so a single result object is shared by all of them.
+     */
+    private static final ShotResult MISS_RESULT = new ShotResult(null, Ship.HitDesignation.MISS);
+    private static final Ship.HitDesignation[] HIT_DESIGNATIONS = Ship.HitDesignation.values();
+
+    /**
+     * Amount of active ships on the grid. Increases in {@link #addShip(Ship) addShip}.
+     * Decreases in {@link #shoot(Coordinates) shoot}.
+     */
+    private int activeShipAmount = 0;
+    /**
+     * Amount of squares fired at.
+     */
+    private int shotAmount = 0;
+    /**
+     * Zobrist hash of the hit history and the squares of the sunk ships, see {@link #getStateHash()}.
+     */
+    private long shotHash = 0;
+    /**
+     * Sum of the Zobrist keys of the ships afloat.
+     */
+    private long fleetHash = 0;
+
+    /**
+     * 2 bits per square, 4 squares per byte from the lowest bits, padded to whole {@code long}s.
+     */
+    private final Plane shots;
+    /**
+     * Id of the ship occupying each square, 2 bytes per square. The id is the position in {@link #ships}
+     * increased by 1.
+     */
+    private final Plane shipIds;
+    /**
+     * Header and ship records of a mapped grid, {@code null} for a grid in direct buffers.
+     */
+    private final MappedByteBuffer meta;
+    /**
+     * Ships added to the grid in order of addition.
+     */
+    private final ArrayList<Ship> ships = new ArrayList<>();
+
+    /**
+     * Size of the grid on the number coordinates.
+     */
+    private final int sizeX;
+    /**
+     * Size of the grid on the letter coordinates.
+     */
+    private final int sizeY;
+
+    /**
+     * Main constructor, allocating the grid in direct buffers.
+     * @param sizeX {@link #sizeX}.
+     * @param sizeY {@link #sizeY}.
+     * @throws IllegalArgumentException The grid has more squares than an {@code int} can index.
+     * @throws OutOfMemoryError The direct memory limit doesn't leave room for the grid.
+     */
+    public OffHeapOceanGrid(int sizeX, int sizeY) {
+        this(sizeX, sizeY, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param sizeX {@link #sizeX}.
+     * @param sizeY {@link #sizeY}.
+     * @param chunkSize Size of the buffers the planes are split into, a power of two of at least 8 bytes.
+     * @throws IllegalArgumentException The grid has more squares than an {@code int} can index.
+     */
+    OffHeapOceanGrid(int sizeX, int sizeY, int chunkSize) {
+        this(sizeX, sizeY, Plane.allocate(shotPlaneSize(checkSize(sizeX, sizeY)), chunkSize),
+                Plane.allocate(2L * sizeX * sizeY, chunkSize), null);
+    }
+
+    private OffHeapOceanGrid(int sizeX, int sizeY, Plane shots, Plane shipIds, MappedByteBuffer meta) {
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.shots = shots;
+        this.shipIds = shipIds;
+        this.meta = meta;
+    }
+
+    /**
+     * Maps the grid to the file, creating the file if it doesn't exist or is empty. An existing grid is
+     * restored with its ships and shots, see {@link #getShips()}.
+     * @param path The grid file.
+     * @param sizeX {@link #sizeX}.
+     * @param sizeY {@link #sizeY}.
+     * @return The grid.
+     * @throws IOException The file can't be opened or mapped.
+     * @throws IllegalArgumentException The grid has more squares than an {@code int} can index, or the file
+     * is not a grid of the same size.
+     */
+    public static OffHeapOceanGrid map(Path path, int sizeX, int sizeY) throws IOException {
+        return map(path, sizeX, sizeY, DEFAULT_CHUNK_SIZE);
+    }
+
+    static OffHeapOceanGrid map(Path path, int sizeX, int sizeY, int chunkSize) throws IOException {
+        long squares = checkSize(sizeX, sizeY);
+        long shotPlaneSize = shotPlaneSize(squares);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            boolean created = channel.size() == 0;
+            if (!created && channel.size() < META_SIZE + shotPlaneSize + 2 * squares) {
+                throw new IllegalArgumentException("Not a grid file of the size " + sizeX + "x" + sizeY + ": "
+                        + path);
+            }
+            MappedByteBuffer meta = channel.map(FileChannel.MapMode.READ_WRITE, 0, META_SIZE);
+            meta.order(ByteOrder.LITTLE_ENDIAN);
+            if (created) {
+                meta.putInt(0, MAGIC);
+                meta.putInt(4, VERSION);
+                meta.putInt(SIZE_X_OFFSET, sizeX);
+                meta.putInt(SIZE_Y_OFFSET, sizeY);
+                meta.putInt(SHIP_AMOUNT_OFFSET, 0);
+            } else if (meta.getInt(0) != MAGIC || meta.getInt(4) != VERSION) {
+                throw new IllegalArgumentException("Not a grid file: " + path);
+            } else if (meta.getInt(SIZE_X_OFFSET) != sizeX || meta.getInt(SIZE_Y_OFFSET) != sizeY) {
+                throw new IllegalArgumentException("Grid file of a different size: " + meta.getInt(SIZE_X_OFFSET)
+                        + "x" + meta.getInt(SIZE_Y_OFFSET));
+            }
+
+            OffHeapOceanGrid grid = new OffHeapOceanGrid(sizeX, sizeY,
+                    Plane.map(channel, META_SIZE, shotPlaneSize, chunkSize),
+                    Plane.map(channel, META_SIZE + shotPlaneSize, 2 * squares, chunkSize), meta);
+            if (!created) grid.restore();
+            return grid;
+        }
+    }
+
+    private static long checkSize(int sizeX, int sizeY) {
+        long squares = (long) sizeX * sizeY;
+        if (sizeX < 0 || sizeY < 0 || squares > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Unsupported grid size: " + sizeX + "x" + sizeY);
+        }
+        return squares;
+    }
+
+    /**
+     * Gets the size of the shot plane, whole {@code long}s so it can be scanned a {@code long} at a time.
+     */
+    private static long shotPlaneSize(long squares) {
+        return (squares + 31) / 32 * 8;
+    }
+
+    /**
+     * Reads the ships from their records and replays the shots of the planes on them.
+     */
+    private void restore() {
+        int shipAmount = meta.getInt(SHIP_AMOUNT_OFFSET);
+        for (int id = 1; id <= shipAmount; ++id) {
+            int record = HEADER_SIZE + (id - 1) * SHIP_RECORD_SIZE;
+            byte[] name = new byte[meta.get(record + 13)];
+            meta.get(record + 16, name);
+            Ship ship = new Ship(Coordinates.of(meta.getInt(record), meta.getInt(record + 4)),
+                    meta.getInt(record + 8), Ship.Orientation.values()[meta.get(record + 12)],
+                    new String(name, StandardCharsets.UTF_8));
+            ships.add(ship);
+            ++activeShipAmount;
+            fleetHash += Zobrist.ship(ship.getSize());
+        }
+
+        scanShots((index, code) -> {
+            ++shotAmount;
+            shotHash ^= Zobrist.square(index, code);
+            int id = shipIdOf(index);
+            /* a ship square fired at was hit at some point, even if the last shot at it was a miss */
+            if (id != 0) {
+                Ship ship = ships.get(id - 1);
+                if (ship.hit(index / sizeX, index % sizeX) == Ship.HitDesignation.SINK) {
+                    sink(ship);
+                }
+            }
+        });
+    }
+
+    /**
+     * Receives the squares fired at from {@link #scanShots(SquareVisitor) scanShots}.
+     */
+    @FunctionalInterface
+    private interface SquareVisitor {
+        void visit(int index, int code);
+    }
+
+    /**
+     * Visits the squares fired at in the order of the indices, skipping 32 squares not fired at at once.
+     * @param visitor Receives the index and the {@link Ship.HitDesignation} ordinal of each square.
+     */
+    private void scanShots(SquareVisitor visitor) {
+        long size = shots.size();
+        for (long offset = 0; offset < size; offset += 8) {
+            long bits = shots.getLong(offset);
+            while (bits != 0) {
+                int shift = Long.numberOfTrailingZeros(bits) & ~1;
+                visitor.visit((int) (offset * 4 + (shift >>> 1)), (int) (bits >>> shift & 3) - 1);
+                bits &= ~(3L << shift);
+            }
+        }
+    }
+
+    /**
+     * Gets the square index of the specified coordinates.
+     * @param coordinates Target square.
+     * @return Index of the square, or {@code -1} if the square is not part of the grid.
+     */
+    private int indexOf(Coordinates coordinates) {
+        int x = coordinates.getNumberIndex();
+        int y = coordinates.getLetterIndex();
+        if (x >= sizeX || y >= sizeY) return -1;
+        return y * sizeX + x;
+    }
+
+    private int shipIdOf(int index) {
+        return shipIds.getShort(2L * index) & 0xFFFF;
+    }
+
+    /**
+     * Gets the result of the square in the hit history.
+     * @return The {@link Ship.HitDesignation} ordinal, {@code -1} if the square wasn't fired at.
+     */
+    private int codeOf(int index) {
+        return (shots.get(index >>> 2) >>> ((index & 3) << 1) & 3) - 1;
+    }
+
+    private void setCode(int index, int code) {
+        long offset = index >>> 2;
+        int shift = (index & 3) << 1;
+        shots.put(offset, (byte) (shots.get(offset) & ~(3 << shift) | (code + 1) << shift));
+    }
+
+    /**
+     * {@inheritDoc}
+     * @throws IllegalStateException The grid already holds {@link #MAX_SHIPS} ships.
+     * @throws IllegalArgumentException The grid is mapped and the ship name is longer than
+     * {@link #MAX_NAME_LENGTH} bytes.
+     */
+    @Override
+    public boolean addShip(Ship ship) {
+        /* Checks if the ship fits in the grid, the squares are a line of indices from the stern. */
+        int stern = indexOf(ship.getSternSquare());
+        int step = ship.getOrientation() == Ship.Orientation.HORIZONTAL ? 1 : sizeX;
+        if (stern < 0 || indexOf(ship.getSquare(ship.getSize() - 1)) < 0) return false;
+        for (int i = 0, index = stern; i < ship.getSize(); ++i, index += step) {
+            if (shipIdOf(index) != 0) return false;
+        }
+        if (ships.size() == MAX_SHIPS) {
+            throw new IllegalStateException("Grid cannot hold more than " + MAX_SHIPS + " ships");
+        }
+        byte[] name = ship.getName().getBytes(StandardCharsets.UTF_8);
+        if (meta != null && name.length > MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("Ship name longer than " + MAX_NAME_LENGTH + " bytes: "
+                    + ship.getName());
+        }
+
+        ships.add(ship);
+        short id = (short) ships.size();
+        for (int i = 0, index = stern; i < ship.getSize(); ++i, index += step) {
+            shipIds.putShort(2L * index, id);
+        }
+        ++activeShipAmount;
+        fleetHash += Zobrist.ship(ship.getSize());
+
+        if (meta != null) {
+            int record = HEADER_SIZE + (ships.size() - 1) * SHIP_RECORD_SIZE;
+            meta.putInt(record, ship.getSternSquare().getLetterIndex());
+            meta.putInt(record + 4, ship.getSternSquare().getNumberIndex());
+            meta.putInt(record + 8, ship.getSize());
+            meta.put(record + 12, (byte) ship.getOrientation().ordinal());
+            meta.put(record + 13, (byte) name.length);
+            meta.put(record + 16, name);
+            /* the ship counts once its record is complete */
+            meta.putInt(SHIP_AMOUNT_OFFSET, ships.size());
+        }
+        return true;
+    }
+
+    @Override
+    public ShotResult shoot(Coordinates coordinates) {
+        if (ShotEvent.isRecorded()) return RecordedShots.shoot(coordinates, this::fire);
+        return fire(coordinates);
+    }
+
+    /**
+     * Fires the shot without recording it, see {@link #shoot(Coordinates) shoot}.
+     */
+    private ShotResult fire(Coordinates coordinates) {
+        int index = indexOf(coordinates);
+        if (index < 0) return null;
+
+        int id = shipIdOf(index);
+        if (id == 0) {
+            /* It's a miss. */
+            record(index, Ship.HitDesignation.MISS);
+            return MISS_RESULT;
+        }
+
+        Ship targetShip = ships.get(id - 1);
+        return new ShotResult(targetShip.getName(),
+                hit(targetShip, coordinates.getLetterIndex(), coordinates.getNumberIndex(), index));
+    }
+
+    @Override
+    public int shoot(int[] packedTargets, int offset, int count, int[] results) {
+        Objects.checkFromIndexSize(offset, count, packedTargets.length);
+        Objects.checkFromIndexSize(offset, count, results.length);
+        if (ShotEvent.isRecorded()) {
+            return RecordedShots.shoot(this, ships, this::fire, packedTargets, offset, count, results);
+        }
+        return fire(packedTargets, offset, count, results);
+    }
+
+    /**
+     * Fires the batch without recording it, the bounds are checked by
+     * {@link #shoot(int[], int, int, int[]) shoot}.
+     */
+    private int fire(int[] packedTargets, int offset, int count, int[] results) {
+        for (int i = offset; i < offset + count; ++i) {
+            int packed = packedTargets[i];
+            int x = Coordinates.numberIndexOf(packed);
+            int y = Coordinates.letterIndexOf(packed);
+            if (x >= sizeX || y >= sizeY) {
+                results[i] = OUT_OF_BOUNDS;
+                continue;
+            }
+
+            int index = y * sizeX + x;
+            int id = shipIdOf(index);
+            if (id == 0) {
+                record(index, Ship.HitDesignation.MISS);
+                results[i] = Ship.HitDesignation.MISS.ordinal();
+                continue;
+            }
+
+            Ship.HitDesignation result = hit(ships.get(id - 1), y, x, index);
+            results[i] = id << 8 | result.ordinal();
+            if (result == Ship.HitDesignation.SINK && activeShipAmount == 0) return i - offset + 1;
+        }
+        return count;
+    }
+
+    /**
+     * Registers the hit on the ship occupying the square and records the result.
+     * @param targetShip Ship occupying the square.
+     * @param letterIndex Vertical index of the target square.
+     * @param numberIndex Horizontal index of the target square.
+     * @param index Index of the square.
+     * @return Result of the shot, a {@link Ship.HitDesignation#MISS MISS} for a repeated shot at a hit square
+     * like in the {@link OceanGrid}.
+     */
+    private Ship.HitDesignation hit(Ship targetShip, int letterIndex, int numberIndex, int index) {
+        Ship.HitDesignation result = targetShip.hit(letterIndex, numberIndex);
+        record(index, result);
+        if (result == Ship.HitDesignation.SINK) {
+            sink(targetShip);
+        }
+        return result;
+    }
+
+    /**
+     * Writes the result of the square to the shot plane, replacing the earlier one in the hash.
+     */
+    private void record(int index, Ship.HitDesignation hitDesignation) {
+        int before = codeOf(index);
+        int after = hitDesignation.ordinal();
+        if (before == after) return;
+        if (before < 0) ++shotAmount;
+        setCode(index, after);
+        shotHash ^= Zobrist.square(index, before) ^ Zobrist.square(index, after);
+    }
+
+    /**
+     * Moves the ship from the ships afloat to the sunk ones.
+     */
+    private void sink(Ship ship) {
+        --activeShipAmount;
+        fleetHash -= Zobrist.ship(ship.getSize());
+        int step = ship.getOrientation() == Ship.Orientation.HORIZONTAL ? 1 : sizeX;
+        for (int i = 0, index = indexOf(ship.getSternSquare()); i < ship.getSize(); ++i, index += step) {
+            shotHash ^= Zobrist.sunkSquare(index);
+        }
+    }
+
+    @Override
+    public void restoreShot(Coordinates coordinates, Ship.HitDesignation hitDesignation) {
+        int index = indexOf(coordinates);
+        if (index < 0) {
+            throw new IllegalArgumentException("Coordinates out of bounds: " + coordinates);
+        }
+
+        record(index, hitDesignation);
+        int id = shipIdOf(index);
+        if (id != 0) {
+            Ship ship = ships.get(id - 1);
+            if (ship.hit(coordinates) == Ship.HitDesignation.SINK) {
+                sink(ship);
+            }
+        }
+    }
+
+    /**
+     * Writes the changes of a mapped grid to the disk. Nothing to do for a grid in direct buffers.
+     */
+    public void force() {
+        if (meta == null) return;
+        meta.force();
+        shots.force();
+        shipIds.force();
+    }
+
+    /**
+     * Gets the ships in the order of addition, including the ones restored from the file of a mapped grid.
+     * @return Unmodifiable list of the ships.
+     */
+    public List<Ship> getShips() {
+        return Collections.unmodifiableList(ships);
+    }
+
+    @Override
+    public int getActiveShipAmount() {
+        return activeShipAmount;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The map is assembled from the shot plane on every call, changes to it do not affect the grid.
+     */
+    @Override
+    public HashMap<Coordinates, Ship.HitDesignation> getHitMap() {
+        HashMap<Coordinates, Ship.HitDesignation> hitMap = new HashMap<>();
+        forEachShot((letterIndex, numberIndex, hitDesignation) ->
+                hitMap.put(Coordinates.of(letterIndex, numberIndex), hitDesignation));
+        return hitMap;
+    }
+
+    @Override
+    public void forEachShot(ShotVisitor visitor) {
+        scanShots((index, code) -> visitor.visit(index / sizeX, index % sizeX, HIT_DESIGNATIONS[code]));
+    }
+
+    @Override
+    public int getShotAmount() {
+        return shotAmount;
+    }
+
+    @Override
+    public long getStateHash() {
+        return shotHash ^ fleetHash;
+    }
+
+    @Override
+    public int getSizeX() {
+        return sizeX;
+    }
+
+    @Override
+    public int getSizeY() {
+        return sizeY;
+    }
+
+    /**
+     * A little-endian byte array of any length split into buffers of the chunk size.
+     */
+    private static final class Plane {
+        private final ByteBuffer[] chunks;
+        private final long size;
+        private final int shift;
+        private final int mask;
+
+        private Plane(ByteBuffer[] chunks, long size, int chunkSize) {
+            this.chunks = chunks;
+            this.size = size;
+            shift = Integer.numberOfTrailingZeros(chunkSize);
+            mask = chunkSize - 1;
+        }
+
+        private static void checkChunkSize(int chunkSize) {
+            if (chunkSize < 8 || Integer.bitCount(chunkSize) != 1) {
+                throw new IllegalArgumentException("Chunk size should be a power of two >= 8: " + chunkSize);
+            }
+        }
+
+        static Plane allocate(long size, int chunkSize) {
+            checkChunkSize(chunkSize);
+            ByteBuffer[] chunks = new ByteBuffer[(int) ((size + chunkSize - 1) / chunkSize)];
+            for (int i = 0; i < chunks.length; ++i) {
+                chunks[i] = ByteBuffer.allocateDirect((int) Math.min(chunkSize, size - (long) i * chunkSize))
+                        .order(ByteOrder.LITTLE_ENDIAN);
+            }
+            return new Plane(chunks, size, chunkSize);
+        }
+
+        static Plane map(FileChannel channel, long position, long size, int chunkSize) throws IOException {
+            checkChunkSize(chunkSize);
+            ByteBuffer[] chunks = new ByteBuffer[(int) ((size + chunkSize - 1) / chunkSize)];
+            for (int i = 0; i < chunks.length; ++i) {
+                long start = (long) i * chunkSize;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, position + start,
+                        Math.min(chunkSize, size - start)).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            return new Plane(chunks, size, chunkSize);
+        }
+
+        long size() {
+            return size;
+        }
+
+        byte get(long offset) {
+            return chunks[(int) (offset >>> shift)].get((int) offset & mask);
+        }
+
+        void put(long offset, byte value) {
+            chunks[(int) (offset >>> shift)].put((int) offset & mask, value);
+        }
+
+        /**
+         * The offset is even, so the value never spans two chunks.
+         */
+        short getShort(long offset) {
+            return chunks[(int) (offset >>> shift)].getShort((int) offset & mask);
+        }
+
+        void putShort(long offset, short value) {
+            chunks[(int) (offset >>> shift)].putShort((int) offset & mask, value);
+        }
+
+        /**
+         * The offset is a multiple of 8, so the value never spans two chunks.
+         */
+        long getLong(long offset) {
+            return chunks[(int) (offset >>> shift)].getLong((int) offset & mask);
+        }
+
+        void force() {
+            for (ByteBuffer chunk : chunks) {
+                ((MappedByteBuffer) chunk).force();
+            }
+        }
+    }
+}
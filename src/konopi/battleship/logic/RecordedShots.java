@@ -0,0 +1,62 @@
+package konopi.battleship.logic;
+
+import konopi.battleship.jfr.ShotEvent;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Fires shots at a grid recording each of them in a {@link ShotEvent}. The grids take this path only while
+ * the event is recorded, see {@link ShotEvent#isRecorded()}, and fire through their own fast path otherwise.
+ */
+final class RecordedShots {
+    /**
+     * The fast path of a grid firing a batch without recording it, see
+     * {@link Grid#shoot(int[], int, int, int[]) shoot}.
+     */
+    @FunctionalInterface
+    interface BatchFire {
+        int fire(int[] packedTargets, int offset, int count, int[] results);
+    }
+
+    private RecordedShots() {
+    }
+
+    /**
+     * Fires a single shot.
+     * @param coordinates Target square.
+     * @param fire The fast path of the grid.
+     * @return Result of the fast path.
+     */
+    static Grid.ShotResult shoot(Coordinates coordinates, Function<Coordinates, Grid.ShotResult> fire) {
+        ShotEvent event = new ShotEvent();
+        event.begin();
+        Grid.ShotResult shotResult = fire.apply(coordinates);
+        event.commitShot(coordinates, shotResult == null ? Grid.OUT_OF_BOUNDS : shotResult.hitDesignation().ordinal(),
+                shotResult == null ? null : shotResult.shipName());
+        return shotResult;
+    }
+
+    /**
+     * Fires a batch one shot at a time, stopping once the last ship sinks like the fast path.
+     * @param grid The grid fired at.
+     * @param ships Ships of the grid in the order of their ids.
+     * @param fire The fast path of the grid.
+     * @return Amount of shots fired.
+     */
+    static int shoot(Grid grid, List<Ship> ships, BatchFire fire, int[] packedTargets, int offset, int count,
+                     int[] results) {
+        for (int i = offset; i < offset + count; ++i) {
+            ShotEvent event = new ShotEvent();
+            event.begin();
+            fire.fire(packedTargets, i, 1, results);
+            int shipId = Grid.shipId(results[i]);
+            event.commitShot(Coordinates.ofPacked(packedTargets[i]), Grid.resultCode(results[i]),
+                    shipId == 0 ? null : ships.get(shipId - 1).getName());
+            if (Grid.resultCode(results[i]) == Ship.HitDesignation.SINK.ordinal() && grid.getActiveShipAmount() == 0) {
+                return i - offset + 1;
+            }
+        }
+        return count;
+    }
+}
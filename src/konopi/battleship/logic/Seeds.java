@@ -0,0 +1,71 @@
+package konopi.battleship.logic;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
+
+/**
+ * The Seeds derive the sources of randomness of a run from a single seed, so that the same seed gives
+ * bit-identical fleets and games no matter how the work is spread over the threads.
+ * <p>
+ * A run made of many games seeds every game with {@link #derive(long, long) derive(seed, gameIndex)}, which
+ * also lets a single game be replayed on its own. Independent streams for a fixed amount of workers are
+ * split from a {@value #ALGORITHM} generator. Games themselves are played with a {@link SplitMix64}, as its
+ * state can be saved in a {@link GameSnapshot}.
+ */
+public final class Seeds {
+    /**
+     * Algorithm of the {@link #splittable(long) splittable} generators, see {@link RandomGeneratorFactory}.
+     */
+    public static final String ALGORITHM = "L64X128MixRandom";
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final RandomGeneratorFactory<RandomGenerator.SplittableGenerator> FACTORY =
+            RandomGeneratorFactory.of(ALGORITHM);
+
+    private Seeds() {
+    }
+
+    /**
+     * Picks a seed at random, to be logged so that the run can be repeated.
+     * @return The seed.
+     */
+    public static long random() {
+        return ThreadLocalRandom.current().nextLong();
+    }
+
+    /**
+     * Derives the seed of an item of a run, e.g. of the n-th game. Neighbouring indices and seeds give
+     * unrelated results.
+     * @param seed Seed of the run.
+     * @param index Index of the item.
+     * @return Seed of the item.
+     */
+    public static long derive(long seed, long index) {
+        return SplitMix64.mix(SplitMix64.mix(seed) + GOLDEN_GAMMA * (index + 1));
+    }
+
+    /**
+     * Creates a splittable generator, the same seed gives the same sequence.
+     * @param seed The seed.
+     * @return New generator, not thread-safe.
+     */
+    public static RandomGenerator.SplittableGenerator splittable(long seed) {
+        return FACTORY.create(seed);
+    }
+
+    /**
+     * Creates independent generators for the specified amount of workers, e.g. one per thread.
+     * @param seed The seed, the same seed gives the same generators.
+     * @param workers Amount of generators.
+     * @return New generators, each to be used by a single worker.
+     * @throws IllegalArgumentException The amount is negative.
+     */
+    public static List<RandomGenerator.SplittableGenerator> streams(long seed, int workers) {
+        if (workers < 0) {
+            throw new IllegalArgumentException("Amount of workers should be >= 0: " + workers);
+        }
+        return splittable(seed).splits(workers).toList();
+    }
+}
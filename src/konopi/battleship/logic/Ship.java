@@ -1,12 +1,17 @@
 package konopi.battleship.logic;
 
-import java.util.HashSet;
-import java.util.function.IntFunction;
-import java.util.stream.IntStream;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
  * The Ship class provides means to create and manage a single ship entity.
  * It keeps track of the afloat squares occupied by it and its name.
+ * <p>
+ * The squares afloat are kept as a bitmask indexed by the distance from the stern, so a hit is a range check
+ * and a bit clear, and the ship is sunk once the mask is zero. Ships longer than 64 squares keep the rest
+ * of the mask in an array.
  */
 public class Ship {
     public enum HitDesignation {
@@ -20,13 +25,29 @@ public class Ship {
     }
 
     /**
-     * Set containing all ship squares that are afloat.
+     * Squares afloat, bit {@code i} for the square {@code i} squares from the stern. Only the first 64 squares.
      */
-    private final HashSet<Coordinates> activeSquares = new HashSet<>();
+    private long activeMask;
+    /**
+     * Squares afloat past the first 64, {@code null} for shorter ships.
+     */
+    private final long[] wideMask;
+    /**
+     * Amount of set bits in the {@link #wideMask}.
+     */
+    private int wideActiveAmount;
     /**
      * Ship designation, e.g. "Carrier", "Battleship", "Destroyer", etc.
      */
     private final String name;
+    /**
+     * Placement of the ship, kept to describe it after some squares are hit.
+     */
+    private final Coordinates sternSquare;
+    private final int sternLetterIndex;
+    private final int sternNumberIndex;
+    private final int size;
+    private final Orientation orientation;
 
     /**
      * Main constructor. The ship is generated starting from the {@code sternSquare}, positioned by
@@ -35,24 +56,35 @@ public class Ship {
      * @param size Ship length. Amount of ship squares.
      * @param orientation The designation for the direction of the ship.
      * @param name Ship identifier, e.g. "Cruiser" or "Destroyer".
-     * @throws IllegalArgumentException Specified size is less than 1.
+     * @throws IllegalArgumentException Specified size is less than 1 or the bow is out of bounds.
      */
     public Ship(Coordinates sternSquare, int size, Orientation orientation, String name) {
         if (size < 1) {
             throw new IllegalArgumentException("Size should be >= 1: " + size);
         }
+        /* the bow has to be valid coordinates as well */
+        switch (orientation) {
+            case HORIZONTAL -> sternSquare.getOffset(0, size - 1);
+            case VERTICAL -> sternSquare.getOffset(size - 1, 0);
+        }
 
-        /* Function which gets coordinates in the direction the ship is facing. */
-        IntFunction<Coordinates> getOrientedOffset = switch (orientation) {
-            case HORIZONTAL -> (i) -> sternSquare.getOffset(0, i);
-            case VERTICAL -> (i) -> sternSquare.getOffset(i, 0);
-        };
-
-        IntStream.range(0, size)
-                .mapToObj(getOrientedOffset)
-                .forEach(activeSquares::add);
+        activeMask = size >= 64 ? -1L : (1L << size) - 1;
+        if (size > 64) {
+            wideMask = new long[(size - 1) >>> 6];
+            for (int i = 0; i < size - 64; ++i) {
+                wideMask[i >>> 6] |= 1L << i;
+            }
+            wideActiveAmount = size - 64;
+        } else {
+            wideMask = null;
+        }
 
         this.name = name;
+        this.sternSquare = sternSquare;
+        this.sternLetterIndex = sternSquare.getLetterIndex();
+        this.sternNumberIndex = sternSquare.getNumberIndex();
+        this.size = size;
+        this.orientation = orientation;
     }
 
     /**
@@ -61,10 +93,52 @@ public class Ship {
      * @return A {@link HitDesignation} value according to the outcome.
      */
     public HitDesignation hit(Coordinates coordinates) {
-        boolean hit = activeSquares.remove(coordinates);
-        if (hit) {
-            return isSunk() ? HitDesignation.SINK : HitDesignation.HIT;
-        } else return HitDesignation.MISS;
+        return hit(coordinates.getLetterIndex(), coordinates.getNumberIndex());
+    }
+
+    /**
+     * Registers the hit on the target square without creating the coordinates. Returns the outcome.
+     * @param letterIndex Vertical index of the target square.
+     * @param numberIndex Horizontal index of the target square.
+     * @return A {@link HitDesignation} value according to the outcome.
+     */
+    public HitDesignation hit(int letterIndex, int numberIndex) {
+        int square = squareOf(letterIndex, numberIndex);
+        if (square < 0) return HitDesignation.MISS;
+
+        if (square < 64) {
+            long bit = 1L << square;
+            if ((activeMask & bit) == 0) return HitDesignation.MISS;
+            activeMask &= ~bit;
+        } else {
+            square -= 64;
+            long bit = 1L << square;
+            if ((wideMask[square >>> 6] & bit) == 0) return HitDesignation.MISS;
+            wideMask[square >>> 6] &= ~bit;
+            --wideActiveAmount;
+        }
+        return isSunk() ? HitDesignation.SINK : HitDesignation.HIT;
+    }
+
+    /**
+     * Gets the distance of the square from the stern.
+     * @return Distance, {@code -1} if the square is not part of the ship.
+     */
+    private int squareOf(int letterIndex, int numberIndex) {
+        int square;
+        if (orientation == Orientation.HORIZONTAL) {
+            if (letterIndex != sternLetterIndex) return -1;
+            square = numberIndex - sternNumberIndex;
+        } else {
+            if (numberIndex != sternNumberIndex) return -1;
+            square = letterIndex - sternLetterIndex;
+        }
+        return square >= 0 && square < size ? square : -1;
+    }
+
+    private boolean isActive(int square) {
+        return square < 64 ? (activeMask & 1L << square) != 0
+                : (wideMask[(square - 64) >>> 6] & 1L << (square - 64)) != 0;
     }
 
     /**
@@ -72,15 +146,67 @@ public class Ship {
      * @return {@code true} if the ship has no squares afloat.
      */
     public boolean isSunk() {
-        return activeSquares.isEmpty();
+        return activeMask == 0 && wideActiveAmount == 0;
+    }
+
+    /**
+     * Gets the ship squares which are afloat. The set is a read-only view computed from the bitmask on access,
+     * so it reflects later hits.
+     * @return Unmodifiable set of the active ship coordinates.
+     */
+    public Set<Coordinates> getActiveSquares() {
+        return new AbstractSet<>() {
+            @Override
+            public boolean contains(Object o) {
+                if (!(o instanceof Coordinates coordinates)) return false;
+                int square = squareOf(coordinates.getLetterIndex(), coordinates.getNumberIndex());
+                return square >= 0 && isActive(square);
+            }
+
+            @Override
+            public int size() {
+                return Long.bitCount(activeMask) + wideActiveAmount;
+            }
+
+            @Override
+            public Iterator<Coordinates> iterator() {
+                return new Iterator<>() {
+                    private int next = advance(0);
+
+                    private int advance(int from) {
+                        while (from < size && !isActive(from)) ++from;
+                        return from;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < size;
+                    }
+
+                    @Override
+                    public Coordinates next() {
+                        if (next >= size) throw new NoSuchElementException();
+                        int square = next;
+                        next = advance(square + 1);
+                        return getSquare(square);
+                    }
+                };
+            }
+        };
     }
 
     /**
-     * Gets a set of ship squares which are afloat.
-     * @return {@code HashSet} containing active ship coordinates.
+     * Gets a square of the ship, whether it's afloat or not.
+     * @param square Distance from the stern, from 0 to the size - 1.
+     * @return Coordinates of the square.
+     * @throws IndexOutOfBoundsException The distance is out of the ship.
      */
-    public HashSet<Coordinates> getActiveSquares() {
-        return activeSquares;
+    public Coordinates getSquare(int square) {
+        if (square < 0 || square >= size) {
+            throw new IndexOutOfBoundsException("Square out of the ship: " + square);
+        }
+        return orientation == Orientation.HORIZONTAL ? Coordinates.of(sternLetterIndex, sternNumberIndex + square)
+                : Coordinates.of(sternLetterIndex + square, sternNumberIndex);
     }
 
     /**
@@ -90,4 +216,24 @@ public class Ship {
     public String getName() {
         return name;
     }
+
+    /**
+     * Gets the stern of the ship as given in the constructor.
+     * @return Starting coordinates of the ship squares.
+     */
+    public Coordinates getSternSquare() {
+        return sternSquare;
+    }
+
+    /**
+     * Gets the ship length, including the squares which were hit.
+     * @return Amount of ship squares.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    public Orientation getOrientation() {
+        return orientation;
+    }
 }
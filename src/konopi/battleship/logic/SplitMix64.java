@@ -0,0 +1,57 @@
+package konopi.battleship.logic;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * The SplitMix64 is a small {@link RandomGenerator} whose whole state is a single {@code long}, so it can be
+ * saved with the game and restored later, see {@link GameSnapshot}. The generators of the JDK keep their
+ * state private. Not thread-safe.
+ */
+public final class SplitMix64 implements RandomGenerator {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    /**
+     * The state, advanced by {@link #GOLDEN_GAMMA} on every {@link #nextLong() nextLong}.
+     */
+    private long state;
+
+    /**
+     * Constructor seeding the generator at random.
+     */
+    public SplitMix64() {
+        this(ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Main constructor. The same seed gives the same sequence.
+     * @param state Seed, or a state returned by {@link #getState() getState}.
+     */
+    public SplitMix64(long state) {
+        this.state = state;
+    }
+
+    @Override
+    public long nextLong() {
+        return mix(state += GOLDEN_GAMMA);
+    }
+
+    /**
+     * Scrambles the bits of the value, a bijection turning close values into unrelated ones.
+     * @param z The value.
+     * @return The scrambled value.
+     */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Gets the state of the generator. A generator constructed with it continues the same sequence.
+     * @return The state.
+     */
+    public long getState() {
+        return state;
+    }
+}
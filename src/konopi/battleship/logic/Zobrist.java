@@ -0,0 +1,45 @@
+package konopi.battleship.logic;
+
+/**
+ * Keys of the Zobrist hash of the grid state, see {@link Grid#getStateHash()}.
+ * <p>
+ * The keys are derived from the square index with {@link SplitMix64#mix(long) mix} instead of being drawn
+ * into a table, so every grid size gets them without allocating anything and all the grid backends agree
+ * on them.
+ */
+final class Zobrist {
+    private static final long SQUARE_SEED = 0x5A0B7157_5C0A7E5L;
+    private static final long SHIP_SEED = 0x5B1B5EED_F1EE7L;
+
+    private Zobrist() {}
+
+    /**
+     * Gets the key of a square of the hit history.
+     * @param index Index of the square, {@code y * sizeX + x}.
+     * @param code The {@link Ship.HitDesignation} ordinal, or {@code -1} for a square not fired at.
+     * @return The key, 0 for a square not fired at.
+     */
+    static long square(int index, int code) {
+        return code < 0 ? 0 : SplitMix64.mix(SQUARE_SEED + ((long) index << 2 | code));
+    }
+
+    /**
+     * Gets the key of a square taken by a sunk ship. The squares of the ships afloat are not known
+     * to the shooter, so they are not part of the hash.
+     * @param index Index of the square, {@code y * sizeX + x}.
+     * @return The key.
+     */
+    static long sunkSquare(int index) {
+        return SplitMix64.mix(SQUARE_SEED + ((long) index << 2 | 3));
+    }
+
+    /**
+     * Gets the key of a ship afloat. The keys of the ships are added up rather than xored, so ships
+     * of the same size don't cancel each other out.
+     * @param size Size of the ship.
+     * @return The key.
+     */
+    static long ship(int size) {
+        return SplitMix64.mix(SHIP_SEED + size);
+    }
+}
@@ -0,0 +1,222 @@
+package konopi.battleship.match;
+
+import konopi.battleship.logic.Coordinates;
+import konopi.battleship.logic.Game;
+import konopi.battleship.logic.GameRules;
+import konopi.battleship.logic.Grid;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.random.RandomGenerator;
+
+/**
+ * The Match is a game between two {@link Player players}, each with their own fleet on their own grid.
+ * The players take turns firing at the fleet of the other one, up to {@link GameRules#salvoSize() salvoSize}
+ * shots per turn, and the first one to sink the whole enemy fleet wins.
+ * <p>
+ * The turns are scheduled without blocking: the match asks the player for the next salvo and continues on
+ * the executor once the returned future completes, so a match waiting for a human holds no thread and
+ * a single pool can host any amount of matches. The steps of the match run under its monitor, one at a time.
+ * <p>
+ * A player not completing a turn within the turn timeout, returning an invalid salvo or throwing from one of
+ * its methods forfeits the match.
+ */
+public class Match {
+    private final GameRules rules;
+    private final Player[] players;
+    /**
+     * Game of each player, holding their fleet and fired at by the other player.
+     */
+    private final Game[] games;
+    /**
+     * Runs the steps of the match.
+     */
+    private final Executor executor;
+    /**
+     * Time a player has to complete a turn, 0 if unlimited.
+     */
+    private final long turnTimeoutNanos;
+
+    private final CompletableFuture<MatchResult> result = new CompletableFuture<>();
+
+    /* guarded by this */
+    private boolean started;
+    /**
+     * Index of the player on turn.
+     */
+    private int current;
+    private int turns;
+    private final int[] shots = new int[2];
+
+    /**
+     * Places the fleets of both players, the match starts with {@link #start() start}.
+     * @param rules Rules of the match.
+     * @param gridFactory Grid backend of the games.
+     * @param first Player moving first.
+     * @param second The other player.
+     * @param random Source of randomness of the fleet placement, only used by the constructor.
+     * @param executor Runs the steps of the match, e.g. a shared pool.
+     * @param turnTimeout Time a player has to complete a turn, {@code null} if unlimited.
+     * @throws IllegalArgumentException A fleet doesn't fit on the grid or the timeout isn't positive.
+     */
+    public Match(GameRules rules, Grid.Factory gridFactory, Player first, Player second, RandomGenerator random,
+                 Executor executor, Duration turnTimeout) {
+        if (turnTimeout != null && (turnTimeout.isNegative() || turnTimeout.isZero())) {
+            throw new IllegalArgumentException("Turn timeout should be positive: " + turnTimeout);
+        }
+        this.rules = rules;
+        this.players = new Player[]{first, second};
+        this.games = new Game[]{
+                new Game(rules, gridFactory, first.placeFleet(rules, random)),
+                new Game(rules, gridFactory, second.placeFleet(rules, random))
+        };
+        this.executor = executor;
+        this.turnTimeoutNanos = turnTimeout == null ? 0 : turnTimeout.toNanos();
+    }
+
+    /**
+     * Initialises the players and asks the first one for a salvo.
+     * @return Future of the outcome, the same as {@link #getResult()}.
+     * @throws IllegalStateException The match was already started.
+     */
+    public synchronized CompletableFuture<MatchResult> start() {
+        if (started) {
+            throw new IllegalStateException("Match was already started");
+        }
+        started = true;
+        executor.execute(this::initialisePlayers);
+        return result;
+    }
+
+    private synchronized void initialisePlayers() {
+        for (int player = 0; player < 2; ++player) {
+            try {
+                players[player].initialise(games[1 - player]);
+            } catch (RuntimeException e) {
+                finish(1 - player, true);
+                return;
+            }
+        }
+        nextTurn();
+    }
+
+    /**
+     * Asks the player on turn for a salvo, {@link #fire(int, List, Throwable) fire} continues once it's given.
+     */
+    private void nextTurn() {
+        int player = current;
+        CompletableFuture<List<Coordinates>> salvo;
+        try {
+            salvo = players[player].nextSalvo(rules.salvoSize());
+        } catch (RuntimeException e) {
+            finish(1 - player, true);
+            return;
+        }
+        if (turnTimeoutNanos > 0) {
+            /* fails the future of the player as well, so e.g. a remote client learns it's too late */
+            salvo.orTimeout(turnTimeoutNanos, TimeUnit.NANOSECONDS);
+        }
+        salvo.whenCompleteAsync((targets, failure) -> fire(player, targets, failure), executor);
+    }
+
+    /**
+     * Fires the salvo of the player at the fleet of the other one and passes the turn.
+     */
+    private synchronized void fire(int player, List<Coordinates> targets, Throwable failure) {
+        if (result.isDone()) return;
+        if (failure != null || targets == null || targets.isEmpty() || targets.size() > rules.salvoSize()) {
+            finish(1 - player, true);
+            return;
+        }
+
+        Game game = games[1 - player];
+        List<Grid.ShotResult> results = new ArrayList<>(targets.size());
+        for (Coordinates target : targets) {
+            if (!game.isRunning()) break;
+            game.setTargetCoordinates(target);
+            game.tick();
+            results.add(game.getShotResult());
+        }
+        shots[player] += results.size();
+        ++turns;
+
+        try {
+            players[player].registerResults(targets, results);
+        } catch (RuntimeException e) {
+            finish(1 - player, true);
+            return;
+        }
+        try {
+            players[1 - player].opponentFired(targets.subList(0, results.size()), results);
+        } catch (RuntimeException e) {
+            finish(player, true);
+            return;
+        }
+
+        if (!game.isRunning()) {
+            finish(player, false);
+            return;
+        }
+        current = 1 - player;
+        nextTurn();
+    }
+
+    /**
+     * Makes the player lose the match, e.g. when a remote client disconnects. Does nothing if the match
+     * is already over.
+     * @param player Index of the player, 0 for the one moving first.
+     * @throws IndexOutOfBoundsException The index is neither 0 nor 1.
+     */
+    public synchronized void forfeit(int player) {
+        if (player != 0 && player != 1) {
+            throw new IndexOutOfBoundsException("Player index should be 0 or 1: " + player);
+        }
+        if (!result.isDone()) {
+            finish(1 - player, true);
+        }
+    }
+
+    /**
+     * Ends the match without a winner, its result completes with an {@link IllegalStateException}.
+     * Does nothing if the match is already over.
+     */
+    synchronized void cancel() {
+        result.completeExceptionally(new IllegalStateException("Match was cancelled"));
+    }
+
+    private void finish(int winner, boolean forfeit) {
+        MatchResult matchResult = new MatchResult(winner, turns, shots[0], shots[1], forfeit);
+        for (int player = 0; player < 2; ++player) {
+            try {
+                players[player].matchOver(player == winner);
+            } catch (RuntimeException e) {
+                /* the outcome stands */
+            }
+        }
+        result.complete(matchResult);
+    }
+
+    /**
+     * Gets the outcome of the match.
+     * @return Future completed once the match is over.
+     */
+    public CompletableFuture<MatchResult> getResult() {
+        return result;
+    }
+
+    /**
+     * Gets the game holding the fleet of the player. It's changed by the match, so it may be only read
+     * by the players or, before the start, given a listener such as a
+     * {@link konopi.battleship.spectator.SpectatorView SpectatorView}.
+     * @param player Index of the player, 0 for the one moving first.
+     * @return The game.
+     * @throws IndexOutOfBoundsException The index is neither 0 nor 1.
+     */
+    public Game getGame(int player) {
+        return games[player];
+    }
+}
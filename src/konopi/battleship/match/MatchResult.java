@@ -0,0 +1,13 @@
+package konopi.battleship.match;
+
+/**
+ * Outcome of a {@link Match}.
+ * @param winner Index of the winner, 0 for the player moving first, 1 for the other one.
+ * @param turns Amount of turns played by both players.
+ * @param firstShots Amount of shots fired by the first player.
+ * @param secondShots Amount of shots fired by the second player.
+ * @param forfeit {@code true} if the loser didn't complete a turn in time or failed, instead of losing
+ * the whole fleet.
+ */
+public record MatchResult(int winner, int turns, int firstShots, int secondShots, boolean forfeit) {
+}
@@ -0,0 +1,102 @@
+package konopi.battleship.match;
+
+import konopi.battleship.logic.BitboardOceanGrid;
+import konopi.battleship.logic.GameRules;
+import konopi.battleship.logic.Grid;
+import konopi.battleship.logic.SplitMix64;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The MatchScheduler hosts any amount of {@link Match matches} on a shared worker pool. The matches only
+ * occupy a worker while a shot is being fired, the time spent waiting for the players costs nothing but
+ * the memory of the match.
+ */
+public class MatchScheduler implements AutoCloseable {
+    public static final Duration DEFAULT_TURN_TIMEOUT = Duration.ofMinutes(2);
+
+    private final GameRules rules;
+    private final Grid.Factory gridFactory;
+    /**
+     * Time a player has to complete a turn, {@code null} if unlimited.
+     */
+    private final Duration turnTimeout;
+
+    /**
+     * Runs the steps of the matches. The FIFO mode suits the short independent tasks.
+     */
+    private final ForkJoinPool workers;
+    /**
+     * Matches created and not yet over.
+     */
+    private final Set<Match> matches = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean closed = false;
+
+    /**
+     * Main constructor. Plays by the standard rules on the {@link BitboardOceanGrid} using all available
+     * processors, with the {@link #DEFAULT_TURN_TIMEOUT}.
+     */
+    public MatchScheduler() {
+        this(GameRules.standard(), BitboardOceanGrid::new, Runtime.getRuntime().availableProcessors(),
+                DEFAULT_TURN_TIMEOUT);
+    }
+
+    /**
+     * @param rules Rules of the hosted matches.
+     * @param gridFactory Grid backend of the hosted matches.
+     * @param workers Amount of worker threads.
+     * @param turnTimeout {@link #turnTimeout}.
+     */
+    public MatchScheduler(GameRules rules, Grid.Factory gridFactory, int workers, Duration turnTimeout) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Amount of workers should be >= 1: " + workers);
+        }
+        this.rules = rules;
+        this.gridFactory = gridFactory;
+        this.turnTimeout = turnTimeout;
+        this.workers = new ForkJoinPool(workers, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+    }
+
+    /**
+     * Creates a match, which is played once {@link Match#start() started}. Listeners may be set on the games
+     * of the match in between.
+     * @param first Player moving first.
+     * @param second The other player.
+     * @param seed Seed of the fleet placement.
+     * @return The match.
+     * @throws IllegalStateException The scheduler is closed.
+     */
+    public Match create(Player first, Player second, long seed) {
+        if (closed) {
+            throw new IllegalStateException("Scheduler is closed");
+        }
+        Match match = new Match(rules, gridFactory, first, second, new SplitMix64(seed), workers, turnTimeout);
+        matches.add(match);
+        match.getResult().whenComplete((result, failure) -> matches.remove(match));
+        return match;
+    }
+
+    /**
+     * Gets the amount of matches created and not yet over.
+     * @return Amount of matches.
+     */
+    public int getMatchAmount() {
+        return matches.size();
+    }
+
+    /**
+     * Cancels the matches not yet over and stops the worker threads.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Match match : matches) {
+            match.cancel();
+        }
+        workers.shutdown();
+    }
+}
@@ -0,0 +1,69 @@
+package konopi.battleship.match;
+
+import konopi.battleship.ai.PlacementStrategy;
+import konopi.battleship.logic.Coordinates;
+import konopi.battleship.logic.Game;
+import konopi.battleship.logic.GameRules;
+import konopi.battleship.logic.Grid;
+import konopi.battleship.logic.Ship;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.random.RandomGenerator;
+
+/**
+ * The Player is one side of a {@link Match}: an AI {@link ShooterPlayer}, a human behind a {@link UIPlayer}
+ * or a {@link RemotePlayer} driven by a client.
+ * <p>
+ * The match calls the methods one at a time, but not always on the same thread, so a player needs no locking
+ * for the state touched only by them. A player taking its time, e.g. a human, returns an incomplete future
+ * from {@link #nextSalvo(int) nextSalvo} instead of blocking the calling thread.
+ */
+public interface Player {
+    /**
+     * Places the fleet of the player, called before {@link #initialise(Game) initialise}.
+     * @param rules Rules of the match.
+     * @param random Source of randomness of the match.
+     * @return New ships in the order of the fleet.
+     */
+    default List<Ship> placeFleet(GameRules rules, RandomGenerator random) {
+        return PlacementStrategy.random().place(rules, random);
+    }
+
+    /**
+     * This method is called before the first turn.
+     * @param opponentGame The game holding the fleet of the opponent, fired at by this player. The ships of
+     * the game are not meant to be looked at.
+     */
+    void initialise(Game opponentGame);
+
+    /**
+     * Chooses the targets of the next turn.
+     * @param shots Maximum amount of shots in the turn, see {@link GameRules#salvoSize()}.
+     * @return Future of 1 to {@code shots} targets, a player failing to complete it loses the match.
+     */
+    CompletableFuture<List<Coordinates>> nextSalvo(int shots);
+
+    /**
+     * This method is called after every turn of the player with its outcome.
+     * @param targets Targets returned by the preceding {@link #nextSalvo(int) nextSalvo}.
+     * @param results Result of each shot fired, {@code null} for a target out of bounds. Shorter than the
+     * targets if the last ship was sunk before the end of the salvo.
+     */
+    void registerResults(List<Coordinates> targets, List<Grid.ShotResult> results);
+
+    /**
+     * This method is called after every turn of the opponent.
+     * @param targets Squares of the fleet of this player fired at.
+     * @param results Result of each shot fired, as in {@link #registerResults(List, List) registerResults}.
+     */
+    default void opponentFired(List<Coordinates> targets, List<Grid.ShotResult> results) {
+    }
+
+    /**
+     * This method is called once the match is over, including a forfeit.
+     * @param won {@code true} if this player won.
+     */
+    default void matchOver(boolean won) {
+    }
+}
@@ -0,0 +1,98 @@
+package konopi.battleship.match;
+
+import konopi.battleship.logic.Coordinates;
+import konopi.battleship.logic.Game;
+import konopi.battleship.logic.Grid;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The RemotePlayer is played from outside of the {@link Match}, e.g. by a network client or a human behind
+ * an event-driven interface. The client waits for its {@link #turn() turn} and {@link #submit(List) submits}
+ * the targets, both without blocking. The methods may be called from any thread.
+ */
+public class RemotePlayer implements Player {
+    /**
+     * Completed with the size of the salvo once the match asks for it, replaced after every turn.
+     */
+    private CompletableFuture<Integer> turn = new CompletableFuture<>();
+    /**
+     * Future of the targets the match waits for, {@code null} between the turns.
+     */
+    private CompletableFuture<List<Coordinates>> salvo;
+    /**
+     * Future of the results of the submitted targets, {@code null} until the targets are submitted.
+     */
+    private CompletableFuture<List<Grid.ShotResult>> results;
+    private final CompletableFuture<Boolean> outcome = new CompletableFuture<>();
+
+    @Override
+    public void initialise(Game opponentGame) {
+        /* the client learns the grid size from the rules */
+    }
+
+    @Override
+    public synchronized CompletableFuture<List<Coordinates>> nextSalvo(int shots) {
+        salvo = new CompletableFuture<>();
+        results = null;
+        turn.complete(shots);
+        return salvo;
+    }
+
+    @Override
+    public synchronized void registerResults(List<Coordinates> targets, List<Grid.ShotResult> results) {
+        salvo = null;
+        turn = new CompletableFuture<>();
+        if (this.results != null) {
+            this.results.complete(results);
+        }
+    }
+
+    @Override
+    public synchronized void matchOver(boolean won) {
+        IllegalStateException over = new IllegalStateException("Match is over");
+        turn.completeExceptionally(over);
+        if (results != null) {
+            results.completeExceptionally(over);
+        }
+        outcome.complete(won);
+    }
+
+    /**
+     * Gets the next turn of the player.
+     * @return Future of the maximum amount of shots, completed once the match waits for the targets.
+     * Completed with an {@link IllegalStateException} if the match is over first.
+     */
+    public synchronized CompletableFuture<Integer> turn() {
+        return turn;
+    }
+
+    /**
+     * Submits the targets of the turn.
+     * @param targets 1 to {@link #turn() turn} targets, more or less forfeit the match.
+     * @return Future of the results as in {@link Player#registerResults(List, List) registerResults}, completed
+     * with an exception if the turn timed out or the match ended.
+     * @throws IllegalStateException It's not the turn of the player or the targets were already submitted.
+     */
+    public synchronized CompletableFuture<List<Grid.ShotResult>> submit(List<Coordinates> targets) {
+        if (salvo == null || results != null) {
+            throw new IllegalStateException("Not the turn of the player");
+        }
+        results = new CompletableFuture<>();
+        CompletableFuture<List<Grid.ShotResult>> submitted = results;
+        if (!salvo.complete(List.copyOf(targets))) {
+            /* the turn timed out */
+            submitted.completeExceptionally(new IllegalStateException("Turn timed out"));
+        }
+        return submitted;
+    }
+
+    /**
+     * Gets the outcome of the match for the player.
+     * @return Future completed with {@code true} if the player won.
+     */
+    public CompletableFuture<Boolean> outcome() {
+        return outcome;
+    }
+}
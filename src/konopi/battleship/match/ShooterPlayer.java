@@ -0,0 +1,73 @@
+package konopi.battleship.match;
+
+import konopi.battleship.ai.PlacementStrategy;
+import konopi.battleship.ai.Shooter;
+import konopi.battleship.logic.Coordinates;
+import konopi.battleship.logic.Game;
+import konopi.battleship.logic.GameRules;
+import konopi.battleship.logic.Grid;
+import konopi.battleship.logic.Ship;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.random.RandomGenerator;
+
+/**
+ * The ShooterPlayer plays a {@link Match} with an AI {@link Shooter}, answering every turn at once.
+ * <p>
+ * A salvo takes targets from the shooter until it repeats one, as the shooter learns the results only after
+ * the whole salvo. Shooters keeping their pick until a result is registered, like the
+ * {@link konopi.battleship.ai.DensityShooter DensityShooter}, therefore fire a single shot per turn.
+ */
+public class ShooterPlayer implements Player {
+    private final Shooter shooter;
+    private final PlacementStrategy placement;
+
+    /**
+     * Constructor placing the fleet at random.
+     * @param shooter The AI, not shared with other players.
+     */
+    public ShooterPlayer(Shooter shooter) {
+        this(shooter, PlacementStrategy.random());
+    }
+
+    /**
+     * Main constructor.
+     * @param shooter The AI, not shared with other players.
+     * @param placement Places the fleet of the player.
+     */
+    public ShooterPlayer(Shooter shooter, PlacementStrategy placement) {
+        this.shooter = shooter;
+        this.placement = placement;
+    }
+
+    @Override
+    public List<Ship> placeFleet(GameRules rules, RandomGenerator random) {
+        return placement.place(rules, random);
+    }
+
+    @Override
+    public void initialise(Game opponentGame) {
+        shooter.initialise(opponentGame);
+    }
+
+    @Override
+    public CompletableFuture<List<Coordinates>> nextSalvo(int shots) {
+        List<Coordinates> targets = new ArrayList<>(shots);
+        targets.add(shooter.nextTarget());
+        while (targets.size() < shots) {
+            Coordinates target = shooter.nextTarget();
+            if (targets.contains(target)) break;
+            targets.add(target);
+        }
+        return CompletableFuture.completedFuture(targets);
+    }
+
+    @Override
+    public void registerResults(List<Coordinates> targets, List<Grid.ShotResult> results) {
+        for (int i = 0; i < results.size(); ++i) {
+            shooter.registerResult(targets.get(i), results.get(i));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package konopi.battleship.match;
+
+import konopi.battleship.logic.Coordinates;
+import konopi.battleship.logic.Game;
+import konopi.battleship.logic.Grid;
+import konopi.battleship.ui.UI;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * The UIPlayer lets a human play a {@link Match} through a {@link UI}, e.g. the console.
+ * <p>
+ * The {@link UI#handleInput() input} of the UI blocks until the human answers, so all the calls of the UI run
+ * on an executor of its own instead of the threads of the match. The UI reads a single target at a time,
+ * so the player fires a single shot per turn.
+ */
+public class UIPlayer implements Player {
+    private final UI ui;
+    /**
+     * Runs the calls of the UI, one at a time and in order, e.g. a single thread executor.
+     */
+    private final Executor uiExecutor;
+
+    private Game opponentGame;
+
+    /**
+     * Main constructor.
+     * @param ui The user interface.
+     * @param uiExecutor {@link #uiExecutor}.
+     */
+    public UIPlayer(UI ui, Executor uiExecutor) {
+        this.ui = ui;
+        this.uiExecutor = uiExecutor;
+    }
+
+    @Override
+    public void initialise(Game opponentGame) {
+        this.opponentGame = opponentGame;
+        uiExecutor.execute(() -> ui.initialise(opponentGame));
+    }
+
+    /**
+     * Reads the target from the UI, which sets it as the {@link Game#getTargetCoordinates() target} of the game.
+     * The game isn't changed by the match meanwhile, as it's the turn of this player.
+     */
+    @Override
+    public CompletableFuture<List<Coordinates>> nextSalvo(int shots) {
+        return CompletableFuture.supplyAsync(() -> {
+            ui.handleInput();
+            return List.of(opponentGame.getTargetCoordinates());
+        }, uiExecutor);
+    }
+
+    @Override
+    public void registerResults(List<Coordinates> targets, List<Grid.ShotResult> results) {
+        uiExecutor.execute(ui::update);
+    }
+}
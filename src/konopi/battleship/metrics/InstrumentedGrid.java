@@ -0,0 +1,86 @@
+package konopi.battleship.metrics;
+
+import konopi.battleship.logic.Coordinates;
+import konopi.battleship.logic.Grid;
+import konopi.battleship.logic.Ship;
+
+import java.util.Map;
+
+/**
+ * Grid recording the duration of every shot in the {@link Metrics.Phase#SHOOT SHOOT} phase, delegating
+ * everything to the wrapped grid.
+ */
+final class InstrumentedGrid implements Grid {
+    private final Grid grid;
+    private final LatencyHistogram shootLatency;
+
+    InstrumentedGrid(Grid grid, LatencyHistogram shootLatency) {
+        this.grid = grid;
+        this.shootLatency = shootLatency;
+    }
+
+    @Override
+    public boolean addShip(Ship ship) {
+        return grid.addShip(ship);
+    }
+
+    @Override
+    public ShotResult shoot(Coordinates coordinates) {
+        long start = System.nanoTime();
+        ShotResult shotResult = grid.shoot(coordinates);
+        shootLatency.record(System.nanoTime() - start);
+        return shotResult;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The duration of the whole batch is recorded once.
+     */
+    @Override
+    public int shoot(int[] packedTargets, int offset, int count, int[] results) {
+        long start = System.nanoTime();
+        int fired = grid.shoot(packedTargets, offset, count, results);
+        shootLatency.record(System.nanoTime() - start);
+        return fired;
+    }
+
+    @Override
+    public int getActiveShipAmount() {
+        return grid.getActiveShipAmount();
+    }
+
+    @Override
+    public Map<Coordinates, Ship.HitDesignation> getHitMap() {
+        return grid.getHitMap();
+    }
+
+    @Override
+    public void forEachShot(ShotVisitor visitor) {
+        grid.forEachShot(visitor);
+    }
+
+    @Override
+    public int getShotAmount() {
+        return grid.getShotAmount();
+    }
+
+    @Override
+    public long getStateHash() {
+        return grid.getStateHash();
+    }
+
+    @Override
+    public void restoreShot(Coordinates coordinates, Ship.HitDesignation hitDesignation) {
+        grid.restoreShot(coordinates, hitDesignation);
+    }
+
+    @Override
+    public int getSizeX() {
+        return grid.getSizeX();
+    }
+
+    @Override
+    public int getSizeY() {
+        return grid.getSizeY();
+    }
+}
@@ -0,0 +1,187 @@
+package konopi.battleship.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The LatencyHistogram counts durations in log-linear buckets like the HdrHistogram: every power of 2 is split
+ * into {@link #SUB_BUCKETS} / 2 buckets, so any value is reported within about 6% using a fixed amount of memory.
+ * <p>
+ * Recording is a few arithmetic operations and an uncontended atomic increment: every thread records into
+ * one of several stripes picked by its id, and the stripes are only summed up by the readers. Values are
+ * typically nanoseconds, but any non-negative {@code long} can be recorded.
+ */
+public class LatencyHistogram {
+    /**
+     * Bits of the value kept by a bucket.
+     */
+    private static final int SUB_BUCKET_BITS = 5;
+    /**
+     * Values below this are counted exactly.
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+    /**
+     * Buckets covering all the non-negative {@code long} values.
+     */
+    static final int BUCKETS = (65 - SUB_BUCKET_BITS) * HALF_SUB_BUCKETS;
+    /**
+     * Slots after the buckets of every stripe, holding the sum and the maximum of the values.
+     */
+    private static final int SUM = BUCKETS;
+    private static final int MAX = BUCKETS + 1;
+
+    private final AtomicLongArray[] stripes;
+    /**
+     * Amount of stripes - 1, a power of 2 - 1.
+     */
+    private final int stripeMask;
+
+    /**
+     * Main constructor. Uses a stripe per available processor, up to 16.
+     */
+    public LatencyHistogram() {
+        this(Math.min(16, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * @param stripes Amount of stripes, rounded up to a power of 2.
+     * @throws IllegalArgumentException The amount is less than 1 or more than 16.
+     */
+    public LatencyHistogram(int stripes) {
+        if (stripes < 1 || stripes > 16) {
+            throw new IllegalArgumentException("Amount of stripes should be between 1 and 16: " + stripes);
+        }
+        int amount = stripes == 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.stripes = new AtomicLongArray[amount];
+        for (int i = 0; i < amount; ++i) {
+            this.stripes[i] = new AtomicLongArray(BUCKETS + 2);
+        }
+        this.stripeMask = amount - 1;
+    }
+
+    /**
+     * Gets the bucket counting the value.
+     * @param value Non-negative value.
+     * @return Index of the bucket.
+     */
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * HALF_SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    /**
+     * Gets the lowest value counted by the bucket.
+     * @param bucket Index of the bucket.
+     * @return The value.
+     */
+    static long lowestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int shift = bucket / HALF_SUB_BUCKETS - 1;
+        return (long) (bucket % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS) << shift;
+    }
+
+    /**
+     * Gets the highest value counted by the bucket.
+     * @param bucket Index of the bucket.
+     * @return The value.
+     */
+    static long highestValueOf(int bucket) {
+        return bucket == BUCKETS - 1 ? Long.MAX_VALUE : lowestValueOf(bucket + 1) - 1;
+    }
+
+    /**
+     * Counts the value, negative values are counted as 0.
+     * @param value The value, e.g. a duration in nanoseconds.
+     */
+    public void record(long value) {
+        if (value < 0) value = 0;
+        /* Fibonacci hashing spreads consecutive thread ids over the stripes */
+        AtomicLongArray stripe = stripes[(int) (Thread.currentThread().getId() * 0x9E3779B97F4A7C15L >>> 40)
+                & stripeMask];
+        stripe.getAndIncrement(bucketOf(value));
+        stripe.getAndAdd(SUM, value);
+        long max = stripe.get(MAX);
+        while (value > max && !stripe.weakCompareAndSetPlain(MAX, max, value)) {
+            max = stripe.get(MAX);
+        }
+    }
+
+    /**
+     * Sums up the stripes. Values recorded meanwhile may be partially included.
+     * @return Counts of the buckets.
+     */
+    private long[] counts() {
+        long[] counts = new long[BUCKETS];
+        for (AtomicLongArray stripe : stripes) {
+            for (int bucket = 0; bucket < BUCKETS; ++bucket) {
+                counts[bucket] += stripe.get(bucket);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Gets the amount of the recorded values.
+     * @return Amount of values.
+     */
+    public long getCount() {
+        long count = 0;
+        for (long bucketCount : counts()) {
+            count += bucketCount;
+        }
+        return count;
+    }
+
+    /**
+     * Gets the largest recorded value.
+     * @return The value, 0 if nothing was recorded.
+     */
+    public long getMax() {
+        long max = 0;
+        for (AtomicLongArray stripe : stripes) {
+            max = Math.max(max, stripe.get(MAX));
+        }
+        return max;
+    }
+
+    /**
+     * Gets the mean of the recorded values.
+     * @return Exact mean, 0 if nothing was recorded.
+     */
+    public double getMean() {
+        long count = getCount();
+        long sum = 0;
+        for (AtomicLongArray stripe : stripes) {
+            sum += stripe.get(SUM);
+        }
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Gets the value below which the specified share of the recorded values lies.
+     * @param percentile Share of the values, from 0 to 100.
+     * @return Highest value of the bucket reaching the share, but at most the {@link #getMax() maximum}.
+     * 0 if nothing was recorded.
+     * @throws IllegalArgumentException The percentile is out of range.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("Percentile should be between 0 and 100: " + percentile);
+        }
+        long[] counts = counts();
+        long count = 0;
+        for (long bucketCount : counts) {
+            count += bucketCount;
+        }
+        if (count == 0) return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; ++bucket) {
+            seen += counts[bucket];
+            if (seen >= rank) return Math.min(highestValueOf(bucket), getMax());
+        }
+        return getMax();
+    }
+}
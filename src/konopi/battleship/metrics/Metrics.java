@@ -0,0 +1,282 @@
+package konopi.battleship.metrics;
+
+import konopi.battleship.logic.FleetPlacer;
+import konopi.battleship.logic.Grid;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The Metrics collect the runtime statistics of the games played in the process: active games, ticks,
+ * latencies of the phases of a tick, fleet placement retries and the memory allocated per game.
+ * <p>
+ * Recording never blocks: the counters are {@link LongAdder striped} and the latencies go into lock-free
+ * {@link LatencyHistogram histograms}, so the metrics can stay on in production. They are read through
+ * {@link #register() JMX} or as text from the {@link MetricsServer}.
+ */
+public class Metrics implements MetricsMXBean {
+    /**
+     * Name of the MBean, see {@link #register()}.
+     */
+    public static final String OBJECT_NAME = "konopi.battleship:type=Metrics";
+
+    /**
+     * Phases of a game tick whose durations are recorded.
+     */
+    public enum Phase {
+        /**
+         * Waiting for the UI to provide the target. With a {@link konopi.battleship.ui.PipelinedUI} it's recorded
+         * only for the first turn of every batch the game loop takes from the input queue.
+         */
+        INPUT_WAIT,
+        /**
+         * The whole {@link konopi.battleship.logic.Game#tick() tick}.
+         */
+        TICK,
+        /**
+         * The shot at the grid within the tick, recorded by {@link #instrument(Grid.Factory) instrumented} grids.
+         */
+        SHOOT,
+        /**
+         * Redrawing the UI, or handing the result over to the render thread of a
+         * {@link konopi.battleship.ui.PipelinedUI}.
+         */
+        UI_UPDATE
+    }
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    /**
+     * Shortest window of the {@link #getTicksPerSecond() tick rate}.
+     */
+    private static final long RATE_WINDOW_NANOS = 1_000_000_000L;
+
+    private final LongAdder startedGames = new LongAdder();
+    private final LongAdder finishedGames = new LongAdder();
+    private final LongAdder ticks = new LongAdder();
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Phase.values().length];
+    /**
+     * Bytes allocated by the threads playing the finished games, if the JVM can measure it.
+     */
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAdder measuredGames = new LongAdder();
+
+    /**
+     * Time and amount of ticks at the start of the current rate window.
+     */
+    private final AtomicReference<long[]> rateWindow;
+    private volatile double ticksPerSecond;
+
+    public Metrics() {
+        for (int i = 0; i < latencies.length; ++i) {
+            latencies[i] = new LatencyHistogram();
+        }
+        rateWindow = new AtomicReference<>(new long[]{System.nanoTime(), 0});
+    }
+
+    /**
+     * Registers the metrics as an MBean named {@link #OBJECT_NAME} on the platform MBean server.
+     * @throws IllegalStateException Metrics are already registered under the name.
+     */
+    public void register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            throw new IllegalStateException("Metrics are already registered", e);
+        } catch (JMException e) {
+            throw new IllegalStateException("Metrics can't be registered", e);
+        }
+    }
+
+    /**
+     * Wraps the grid factory so that the grids record their shots in the {@link Phase#SHOOT SHOOT} phase.
+     * @param gridFactory The factory.
+     * @return Factory of the instrumented grids.
+     */
+    public Grid.Factory instrument(Grid.Factory gridFactory) {
+        LatencyHistogram shootLatency = getLatency(Phase.SHOOT);
+        return (sizeX, sizeY) -> new InstrumentedGrid(gridFactory.create(sizeX, sizeY), shootLatency);
+    }
+
+    /**
+     * Records the start of a game.
+     */
+    public void gameStarted() {
+        startedGames.increment();
+    }
+
+    /**
+     * Records the end of a game.
+     * @param allocatedBytes Bytes allocated by the thread playing the game, see
+     * {@link #currentThreadAllocatedBytes()}, or a negative value if unknown.
+     */
+    public void gameFinished(long allocatedBytes) {
+        finishedGames.increment();
+        if (allocatedBytes >= 0) {
+            this.allocatedBytes.add(allocatedBytes);
+            measuredGames.increment();
+        }
+    }
+
+    /**
+     * Records a tick and the durations of its phases.
+     * @param inputWaitNanos Duration of the {@link Phase#INPUT_WAIT INPUT_WAIT} phase.
+     * @param tickNanos Duration of the {@link Phase#TICK TICK} phase.
+     * @param updateNanos Duration of the {@link Phase#UI_UPDATE UI_UPDATE} phase.
+     */
+    public void tick(long inputWaitNanos, long tickNanos, long updateNanos) {
+        ticks.increment();
+        latencies[Phase.INPUT_WAIT.ordinal()].record(inputWaitNanos);
+        latencies[Phase.TICK.ordinal()].record(tickNanos);
+        latencies[Phase.UI_UPDATE.ordinal()].record(updateNanos);
+    }
+
+    /**
+     * Gets the bytes allocated by the current thread so far, to be subtracted at the end of a game.
+     * @return Bytes, {@code -1} if the JVM doesn't measure the allocations.
+     */
+    public static long currentThreadAllocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean allocations
+                && allocations.isThreadAllocatedMemoryEnabled()) {
+            return allocations.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    public LatencyHistogram getLatency(Phase phase) {
+        return latencies[phase.ordinal()];
+    }
+
+    @Override
+    public long getActiveGames() {
+        /* the finished games are read first, so a game finishing meanwhile is never counted negative */
+        long finished = finishedGames.sum();
+        return startedGames.sum() - finished;
+    }
+
+    @Override
+    public long getFinishedGames() {
+        return finishedGames.sum();
+    }
+
+    @Override
+    public long getTicks() {
+        return ticks.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     * Measured over the last window of at least a second, a new window starts once a reader sees it's full.
+     */
+    @Override
+    public double getTicksPerSecond() {
+        long now = System.nanoTime();
+        long[] window = rateWindow.get();
+        long elapsed = now - window[0];
+        if (elapsed >= RATE_WINDOW_NANOS) {
+            long currentTicks = ticks.sum();
+            if (rateWindow.compareAndSet(window, new long[]{now, currentTicks})) {
+                ticksPerSecond = (currentTicks - window[1]) * 1e9 / elapsed;
+            }
+        }
+        return ticksPerSecond;
+    }
+
+    @Override
+    public long getPlacementRetries() {
+        return FleetPlacer.getRetryAmount();
+    }
+
+    @Override
+    public long getPlacementFailures() {
+        return FleetPlacer.getFailureAmount();
+    }
+
+    @Override
+    public double getAllocatedBytesPerGame() {
+        long games = measuredGames.sum();
+        return games == 0 ? 0 : (double) allocatedBytes.sum() / games;
+    }
+
+    @Override
+    public Map<String, Double> getLatencyMicros() {
+        Map<String, Double> micros = new LinkedHashMap<>();
+        for (Phase phase : Phase.values()) {
+            LatencyHistogram latency = getLatency(phase);
+            String name = phase.name().toLowerCase(Locale.ROOT);
+            for (double percentile : PERCENTILES) {
+                micros.put(name + ".p" + format(percentile), latency.getValueAtPercentile(percentile) / 1e3);
+            }
+            micros.put(name + ".max", latency.getMax() / 1e3);
+        }
+        return micros;
+    }
+
+    /**
+     * Writes the metrics in the Prometheus text format.
+     * @return Text with a line per value.
+     */
+    public String scrape() {
+        StringBuilder text = new StringBuilder();
+        gauge(text, "battleship_active_games", "Games started and not yet finished.", getActiveGames());
+        counter(text, "battleship_finished_games_total", "Games finished.", getFinishedGames());
+        counter(text, "battleship_ticks_total", "Game ticks.", getTicks());
+        gauge(text, "battleship_ticks_per_second", "Game ticks per second over the last window.",
+                getTicksPerSecond());
+        counter(text, "battleship_placement_retries_total",
+                "Ship placements which fell back to any slot.", getPlacementRetries());
+        counter(text, "battleship_placement_failures_total",
+                "Ship placements without room left.", getPlacementFailures());
+        gauge(text, "battleship_allocated_bytes_per_game", "Bytes allocated by the game thread per game.",
+                getAllocatedBytesPerGame());
+
+        text.append("# HELP battleship_phase_seconds Latency of the phases of a tick.\n");
+        text.append("# TYPE battleship_phase_seconds summary\n");
+        for (Phase phase : Phase.values()) {
+            LatencyHistogram latency = getLatency(phase);
+            String label = "phase=\"" + phase.name().toLowerCase(Locale.ROOT) + "\"";
+            for (double percentile : PERCENTILES) {
+                text.append("battleship_phase_seconds{").append(label).append(",quantile=\"")
+                        .append(format(percentile / 100)).append("\"} ")
+                        .append(format(latency.getValueAtPercentile(percentile) / 1e9)).append('\n');
+            }
+            long count = latency.getCount();
+            text.append("battleship_phase_seconds_sum{").append(label).append("} ")
+                    .append(format(latency.getMean() * count / 1e9)).append('\n');
+            text.append("battleship_phase_seconds_count{").append(label).append("} ").append(count).append('\n');
+        }
+        return text.toString();
+    }
+
+    private static void gauge(StringBuilder text, String name, String help, double value) {
+        metric(text, name, help, "gauge", format(value));
+    }
+
+    private static void counter(StringBuilder text, String name, String help, long value) {
+        metric(text, name, help, "counter", Long.toString(value));
+    }
+
+    private static void metric(StringBuilder text, String name, String help, String type, String value) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        text.append(name).append(' ').append(value).append('\n');
+    }
+
+    /**
+     * Formats the number without a trailing ".0" and independent of the locale.
+     */
+    private static String format(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15 ? Long.toString((long) value)
+                : String.format(Locale.ROOT, "%.9g", value).replaceFirst("\\.?0+($|e)", "$1");
+    }
+}
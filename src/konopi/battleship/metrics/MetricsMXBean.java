@@ -0,0 +1,28 @@
+package konopi.battleship.metrics;
+
+import java.util.Map;
+
+/**
+ * Management interface of the {@link Metrics}, registered with {@link Metrics#register()}.
+ */
+public interface MetricsMXBean {
+    long getActiveGames();
+
+    long getFinishedGames();
+
+    long getTicks();
+
+    double getTicksPerSecond();
+
+    long getPlacementRetries();
+
+    long getPlacementFailures();
+
+    double getAllocatedBytesPerGame();
+
+    /**
+     * Gets the latency percentiles of all the phases.
+     * @return Microseconds by names such as {@code tick.p99}.
+     */
+    Map<String, Double> getLatencyMicros();
+}
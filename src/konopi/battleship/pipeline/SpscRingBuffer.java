@@ -0,0 +1,224 @@
+package konopi.battleship.pipeline;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * The SpscRingBuffer is a bounded lock-free queue between a single producer thread and a single consumer thread.
+ * <p>
+ * Each side owns one index and only reads the index of the other side when its cached copy says the buffer
+ * is full or empty, so the two threads share a cache line only when they catch up with each other.
+ * The consumer can {@link #drain(Consumer, int) drain} many elements for a single update of its index.
+ * A side finding nothing to do spins briefly, then parks until the other side signals it. The waiting side
+ * publishes itself before checking the indices again and the other side checks for a waiter after publishing
+ * its index, both with volatile accesses, so no wake-up is lost.
+ * <p>
+ * Either side may {@link #close() close} the buffer: the producer once it has nothing more to offer,
+ * the consumer once it stops taking.
+ * @param <E> Type of the elements.
+ */
+public final class SpscRingBuffer<E> {
+    /**
+     * Checks of the other side before parking.
+     */
+    private static final int SPINS = 128;
+
+    private final Object[] elements;
+    private final int mask;
+
+    /**
+     * Position of the next element to take, written by the consumer only.
+     */
+    private final AtomicLong head = new AtomicLong();
+    /**
+     * Position of the next element to offer, written by the producer only.
+     */
+    private final AtomicLong tail = new AtomicLong();
+    /**
+     * Last {@link #head} seen by the producer.
+     */
+    private long cachedHead;
+    /**
+     * Last {@link #tail} seen by the consumer.
+     */
+    private long cachedTail;
+
+    private volatile Thread waitingProducer;
+    private volatile Thread waitingConsumer;
+    private volatile boolean closed = false;
+
+    /**
+     * Main constructor.
+     * @param capacity Maximum amount of elements, rounded up to a power of two.
+     * @throws IllegalArgumentException The capacity is less than 1 or over 2^30.
+     */
+    public SpscRingBuffer(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity should be between 1 and 2^30: " + capacity);
+        }
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        elements = new Object[size];
+        mask = size - 1;
+    }
+
+    public int getCapacity() {
+        return elements.length;
+    }
+
+    /**
+     * Adds the element if there is room. Called by the producer.
+     * @param element The element.
+     * @return {@code true} if the element was added, {@code false} if the buffer is full or closed.
+     */
+    public boolean offer(E element) {
+        Objects.requireNonNull(element);
+        if (closed) return false;
+        long position = tail.getPlain();
+        if (position - cachedHead == elements.length) {
+            cachedHead = head.get();
+            if (position - cachedHead == elements.length) return false;
+        }
+        elements[(int) position & mask] = element;
+        tail.set(position + 1);
+        signal(waitingConsumer);
+        return true;
+    }
+
+    /**
+     * Adds the element, waiting for room if the buffer is full. Called by the producer.
+     * @param element The element.
+     * @return {@code true} if the element was added, {@code false} if the buffer is closed.
+     * @throws InterruptedException The producer was interrupted while waiting.
+     */
+    public boolean put(E element) throws InterruptedException {
+        while (!offer(element)) {
+            if (closed) return false;
+            for (int i = 0; i < SPINS && isFull() && !closed; ++i) {
+                Thread.onSpinWait();
+            }
+            waitingProducer = Thread.currentThread();
+            try {
+                while (isFull() && !closed) {
+                    LockSupport.park(this);
+                    if (Thread.interrupted()) throw new InterruptedException();
+                }
+            } finally {
+                waitingProducer = null;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Takes the oldest element if there is one. Called by the consumer.
+     * @return The element, {@code null} if the buffer is empty.
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long position = head.getPlain();
+        if (position == cachedTail) {
+            cachedTail = tail.get();
+            if (position == cachedTail) return null;
+        }
+        int index = (int) position & mask;
+        E element = (E) elements[index];
+        elements[index] = null;
+        head.set(position + 1);
+        signal(waitingProducer);
+        return element;
+    }
+
+    /**
+     * Passes the available elements to the consumer in order, publishing the progress once at the end.
+     * Called by the consumer.
+     * @param consumer Receives the elements.
+     * @param limit Maximum amount of elements to take.
+     * @return Amount of elements taken.
+     */
+    @SuppressWarnings("unchecked")
+    public int drain(Consumer<? super E> consumer, int limit) {
+        long position = head.getPlain();
+        if (cachedTail - position < limit) {
+            cachedTail = tail.get();
+        }
+        int amount = (int) Math.min(limit, cachedTail - position);
+        if (amount <= 0) return 0;
+        int taken = 0;
+        try {
+            while (taken < amount) {
+                int index = (int) (position + taken) & mask;
+                E element = (E) elements[index];
+                elements[index] = null;
+                ++taken;
+                consumer.accept(element);
+            }
+        } finally {
+            /* an element failing in the consumer is taken, the ones after it are left in the buffer */
+            head.set(position + taken);
+            signal(waitingProducer);
+        }
+        return taken;
+    }
+
+    /**
+     * Waits until there is an element to take. Called by the consumer.
+     * @return {@code true} if there is an element, {@code false} if the buffer is empty and closed.
+     * @throws InterruptedException The consumer was interrupted while waiting.
+     */
+    public boolean await() throws InterruptedException {
+        for (int i = 0; i < SPINS; ++i) {
+            if (!isEmpty()) return true;
+            if (closed) return !isEmpty();
+            Thread.onSpinWait();
+        }
+        waitingConsumer = Thread.currentThread();
+        try {
+            while (isEmpty() && !closed) {
+                LockSupport.park(this);
+                if (Thread.interrupted()) throw new InterruptedException();
+            }
+        } finally {
+            waitingConsumer = null;
+        }
+        /* the elements offered before closing are still taken */
+        return !isEmpty();
+    }
+
+    /**
+     * Takes the oldest element, waiting for one if the buffer is empty. Called by the consumer.
+     * @return The element, {@code null} if the buffer is empty and closed.
+     * @throws InterruptedException The consumer was interrupted while waiting.
+     */
+    public E take() throws InterruptedException {
+        return await() ? poll() : null;
+    }
+
+    /**
+     * Stops accepting elements and wakes up both sides. The elements already offered can still be taken.
+     */
+    public void close() {
+        closed = true;
+        signal(waitingConsumer);
+        signal(waitingProducer);
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+
+    private boolean isFull() {
+        return tail.get() - head.get() == elements.length;
+    }
+
+    private static void signal(Thread waiter) {
+        if (waiter != null) {
+            LockSupport.unpark(waiter);
+        }
+    }
+}
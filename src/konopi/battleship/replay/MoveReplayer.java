@@ -0,0 +1,308 @@
+package konopi.battleship.replay;
+
+import konopi.battleship.logic.Coordinates;
+import konopi.battleship.logic.Game;
+import konopi.battleship.logic.Grid;
+import konopi.battleship.logic.Ship;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The MoveReplayer plays a file of moves, one game coordinates per line as typed into the
+ * {@link konopi.battleship.ui.ConsoleUI}, without rendering anything. It's meant for replaying recorded games
+ * in bulk, e.g. for regression tests.
+ * <p>
+ * Files are memory-mapped and parsed straight from the mapped bytes in a single pass, streams are read
+ * through a single reused buffer. The parser is a state machine fed one byte at a time, so a line may span
+ * the mapped regions or the reads of a stream and no string is created for it. The parsed moves are collected
+ * as {@link Coordinates#pack(int, int) packed coordinates} and fired in batches with
+ * {@link Game#fireTurns(int[], int, int, int[]) fireTurns}.
+ * <p>
+ * Leading and trailing whitespace is ignored and blank lines are skipped, same as the console does. Any other
+ * line which is not valid game coordinates is counted as invalid. A number past the
+ * {@link Coordinates#MAX_PACKED_INDEX packed} range is out of bounds of any grid, such a move is counted as out
+ * of bounds without firing it. The moves left after the last ship was sunk are not fired.
+ * <p>
+ * Optionally the result of every non-blank line is written as a single character: {@value #MISS} for a miss,
+ * {@value #HIT} for a hit, {@value #SINK} for a sink, {@value #OUT_OF_BOUNDS} for a move out of bounds
+ * and {@value #INVALID} for an invalid line. The output ends with a line break at the end of the replay.
+ * <p>
+ * A replayer plays a single game, which may be continued by further replays. It's not thread-safe.
+ */
+public class MoveReplayer {
+    public static final char MISS = 'M';
+    public static final char HIT = 'H';
+    public static final char SINK = 'S';
+    public static final char OUT_OF_BOUNDS = 'O';
+    public static final char INVALID = '!';
+    /**
+     * Characters of the results indexed by the result codes.
+     */
+    private static final byte[] RESULT_CHARS = new byte[4];
+
+    static {
+        RESULT_CHARS[Ship.HitDesignation.MISS.ordinal()] = MISS;
+        RESULT_CHARS[Ship.HitDesignation.HIT.ordinal()] = HIT;
+        RESULT_CHARS[Ship.HitDesignation.SINK.ordinal()] = SINK;
+        RESULT_CHARS[Grid.OUT_OF_BOUNDS] = OUT_OF_BOUNDS;
+    }
+
+    /**
+     * Moves fired at once.
+     */
+    static final int BATCH_SIZE = 1024;
+    /**
+     * Files are mapped in regions of this size.
+     */
+    static final int DEFAULT_REGION_SIZE = 1 << 26;
+    /**
+     * Size of the buffer streams are read through.
+     */
+    static final int STREAM_BUFFER_SIZE = 1 << 16;
+
+    /* parser states */
+    private static final int LINE_START = 0;
+    private static final int LETTERS = 1;
+    private static final int SIGN = 2;
+    private static final int DIGITS = 3;
+    private static final int TRAILING = 4;
+    private static final int WRONG = 5;
+
+    private final Game game;
+    /**
+     * Receives the result of every line, may be {@code null}.
+     */
+    private final OutputStream results;
+    private final int regionSize;
+
+    /* parser state, kept between the buffers */
+    private int state = LINE_START;
+    /**
+     * Letters of the current line as a bijective base 26 number, 'A' is 1, saturated past the maximum.
+     */
+    private int letters;
+    private int number;
+
+    /* moves waiting to be fired */
+    private final int[] targets = new int[BATCH_SIZE];
+    private final int[] shotResults = new int[BATCH_SIZE];
+    private int pending = 0;
+
+    /* result characters waiting to be written */
+    private final byte[] resultChars = new byte[BATCH_SIZE];
+    private int resultLength = 0;
+
+    /* totals */
+    private long moves = 0;
+    private long invalidLines = 0;
+    private final long[] shots = new long[RESULT_CHARS.length];
+    private long elapsedNanos = 0;
+
+    /**
+     * Main constructor.
+     * @param game The game to play.
+     * @param results Receives the result of every line, {@code null} to only collect the totals.
+     */
+    public MoveReplayer(Game game, OutputStream results) {
+        this(game, results, DEFAULT_REGION_SIZE);
+    }
+
+    /**
+     * @param game The game to play.
+     * @param results Receives the result of every line, {@code null} to only collect the totals.
+     * @param regionSize Size of the mapped regions of the files.
+     * @throws IllegalArgumentException The region size is not positive.
+     */
+    MoveReplayer(Game game, OutputStream results, int regionSize) {
+        if (regionSize < 1) {
+            throw new IllegalArgumentException("Region size should be >= 1: " + regionSize);
+        }
+        this.game = game;
+        this.results = results;
+        this.regionSize = regionSize;
+    }
+
+    /**
+     * Replays the moves of the file, mapping it into memory.
+     * @param path The move file.
+     * @return Totals of all the replays of the game so far.
+     * @throws IOException The file can't be read or the results can't be written.
+     */
+    public ReplayReport replay(Path path) throws IOException {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += regionSize) {
+                parse(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(regionSize, size - position)));
+            }
+        }
+        return finish(start);
+    }
+
+    /**
+     * Replays the moves read from the stream until its end. The stream is not closed.
+     * @param in The moves.
+     * @return Totals of all the replays of the game so far.
+     * @throws IOException The stream can't be read or the results can't be written.
+     */
+    public ReplayReport replay(InputStream in) throws IOException {
+        long start = System.nanoTime();
+        byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+        ByteBuffer bytes = ByteBuffer.wrap(buffer);
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            parse(bytes.clear().limit(read));
+        }
+        return finish(start);
+    }
+
+    /**
+     * Ends the last line, fires the pending moves and writes out the results.
+     */
+    private ReplayReport finish(long start) throws IOException {
+        if (state != LINE_START) {
+            endLine(state, letters, number);
+            state = LINE_START;
+        }
+        fire();
+        if (results != null) {
+            appendResult('\n');
+            writeResults();
+            results.flush();
+        }
+        elapsedNanos += System.nanoTime() - start;
+        return new ReplayReport(moves, invalidLines, shots[Ship.HitDesignation.MISS.ordinal()],
+                shots[Ship.HitDesignation.HIT.ordinal()], shots[Ship.HitDesignation.SINK.ordinal()],
+                shots[Grid.OUT_OF_BOUNDS], !game.isRunning(), elapsedNanos);
+    }
+
+    /**
+     * Feeds the bytes between the position and the limit of the buffer to the parser.
+     */
+    private void parse(ByteBuffer bytes) throws IOException {
+        /* the state lives in locals while scanning */
+        int state = this.state;
+        int letters = this.letters;
+        int number = this.number;
+        for (int i = bytes.position(), end = bytes.limit(); i < end; ++i) {
+            int b = bytes.get(i) & 0xFF;
+            if (b == '\n') {
+                endLine(state, letters, number);
+                state = LINE_START;
+                continue;
+            }
+            /* lower case ASCII letters to upper case, other bytes stay outside of 'A' to 'Z' */
+            int letter = (b & ~0x20) - 'A';
+            int digit = b - '0';
+            switch (state) {
+                case LINE_START -> {
+                    if (letter >= 0 && letter < Coordinates.LETTERS) {
+                        letters = letter + 1;
+                        number = 0;
+                        state = LETTERS;
+                    } else if (b > ' ') {
+                        state = WRONG;
+                    }
+                }
+                case LETTERS -> {
+                    if (letter >= 0 && letter < Coordinates.LETTERS) {
+                        letters = Math.min(letters * Coordinates.LETTERS + letter + 1,
+                                Coordinates.MAX_LETTER_INDEX + 2);
+                    } else if (digit >= 0 && digit <= 9) {
+                        number = digit;
+                        state = DIGITS;
+                    } else {
+                        /* the sign is ignored, same as taking the absolute value */
+                        state = b == '-' || b == '+' ? SIGN : WRONG;
+                    }
+                }
+                case SIGN -> {
+                    if (digit >= 0 && digit <= 9) {
+                        number = digit;
+                        state = DIGITS;
+                    } else {
+                        state = WRONG;
+                    }
+                }
+                case DIGITS -> {
+                    if (digit >= 0 && digit <= 9) {
+                        if (number > (Integer.MAX_VALUE - digit) / 10) {
+                            state = WRONG;
+                        } else {
+                            number = number * 10 + digit;
+                        }
+                    } else {
+                        state = b <= ' ' ? TRAILING : WRONG;
+                    }
+                }
+                case TRAILING -> {
+                    if (b > ' ') state = WRONG;
+                }
+                default -> {
+                    /* skips the rest of a wrong line */
+                }
+            }
+        }
+        this.state = state;
+        this.letters = letters;
+        this.number = number;
+    }
+
+    /**
+     * Queues the move of a complete line or counts the line as invalid.
+     */
+    private void endLine(int state, int letters, int number) throws IOException {
+        if (state == LINE_START) return;
+        if ((state == DIGITS || state == TRAILING) && number > 0 && letters <= Coordinates.MAX_LETTER_INDEX + 1) {
+            ++moves;
+            if (number - 1 > Coordinates.MAX_PACKED_INDEX) {
+                /* can't be packed, but is out of bounds of any grid anyway, see GameRules */
+                fire();
+                if (game.isRunning()) {
+                    ++shots[Grid.OUT_OF_BOUNDS];
+                    if (results != null) appendResult(OUT_OF_BOUNDS);
+                }
+                return;
+            }
+            targets[pending++] = Coordinates.pack(letters - 1, number - 1);
+            if (pending == BATCH_SIZE) fire();
+        } else {
+            ++invalidLines;
+            if (results != null) {
+                /* keeps the results in the order of the lines */
+                fire();
+                appendResult(INVALID);
+            }
+        }
+    }
+
+    /**
+     * Fires the pending moves and tallies the results.
+     */
+    private void fire() throws IOException {
+        if (pending == 0) return;
+        int fired = game.fireTurns(targets, 0, pending, shotResults);
+        for (int i = 0; i < fired; ++i) {
+            int code = Grid.resultCode(shotResults[i]);
+            ++shots[code];
+            if (results != null) appendResult(RESULT_CHARS[code]);
+        }
+        pending = 0;
+    }
+
+    private void appendResult(int c) throws IOException {
+        if (resultLength == resultChars.length) writeResults();
+        resultChars[resultLength++] = (byte) c;
+    }
+
+    private void writeResults() throws IOException {
+        results.write(resultChars, 0, resultLength);
+        resultLength = 0;
+    }
+}
@@ -0,0 +1,44 @@
+package konopi.battleship.replay;
+
+/**
+ * Outcome of {@link MoveReplayer replaying} a move file.
+ * @param moves Lines holding valid game coordinates.
+ * @param invalidLines Lines which are not blank and not valid game coordinates.
+ * @param misses Shots which missed.
+ * @param hits Shots which hit a ship without sinking it.
+ * @param sinks Shots which sank a ship.
+ * @param outOfBounds Moves outside the grid.
+ * @param fleetSunk {@code true} if the last ship was sunk, the moves after it are not fired.
+ * @param elapsedNanos Wall time of the replay.
+ */
+public record ReplayReport(long moves, long invalidLines, long misses, long hits, long sinks, long outOfBounds,
+                           boolean fleetSunk, long elapsedNanos) {
+    /**
+     * Gets the amount of moves fired, including the ones out of bounds.
+     */
+    public long shots() {
+        return misses + hits + sinks + outOfBounds;
+    }
+
+    /**
+     * Gets the amount of moves left after the last ship was sunk.
+     */
+    public long ignoredMoves() {
+        return moves - shots();
+    }
+
+    public double movesPerSecond() {
+        return elapsedNanos == 0 ? 0 : moves * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("""
+                        Moves:      %d (%d invalid lines, %d after the end)
+                        Moves/sec:  %.1f
+                        Shots:      %d (%d misses, %d hits, %d sinks, %d out of bounds)
+                        Fleet:      %s""",
+                moves, invalidLines, ignoredMoves(), movesPerSecond(), shots(), misses, hits, sinks, outOfBounds,
+                fleetSunk ? "sunk" : "afloat");
+    }
+}
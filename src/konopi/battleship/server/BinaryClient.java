@@ -0,0 +1,128 @@
+package konopi.battleship.server;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import static konopi.battleship.server.BinaryProtocol.*;
+
+/**
+ * The BinaryClient is a blocking client of the {@link NioGameServer}. Every call sends a single request frame
+ * and waits for its response, reusing the same pair of buffers. Not thread-safe.
+ */
+public class BinaryClient implements AutoCloseable {
+    private final SocketChannel channel;
+    private final ByteBuffer request = ByteBuffer.allocateDirect(FRAME_SIZE);
+    private final ByteBuffer response = ByteBuffer.allocateDirect(FRAME_SIZE);
+
+    /**
+     * @param address Address of the server.
+     * @throws IOException The server can't be reached.
+     */
+    public BinaryClient(InetSocketAddress address) throws IOException {
+        channel = SocketChannel.open(address);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+    }
+
+    /**
+     * Creates a session, the same seed gives the same ship placement.
+     * @param seed Seed of the ship placement.
+     * @return Id of the session.
+     * @throws IOException The connection failed.
+     */
+    public long create(long seed) throws IOException {
+        exchange(CREATE, seed, 0);
+        return response.getLong(SESSION_ID);
+    }
+
+    /**
+     * Fires up to {@link BinaryProtocol#MAX_SHOTS} shots in a single frame.
+     * @param sessionId Id of the session.
+     * @param packedTargets Targets as {@link konopi.battleship.logic.Coordinates#pack(int, int) packed coordinates}.
+     * @param count Amount of targets to fire at.
+     * @param results Receives the encoded result of each shot, see {@link BinaryProtocol}.
+     * @return Response status.
+     * @throws IOException The connection failed.
+     */
+    public byte shoot(long sessionId, int[] packedTargets, int count, int[] results) throws IOException {
+        if (count < 1 || count > MAX_SHOTS) {
+            throw new IllegalArgumentException("Shot count should be between 1 and " + MAX_SHOTS + ": " + count);
+        }
+        for (int i = 0; i < count; ++i) {
+            request.putInt(SLOTS + 4 * i, packedTargets[i]);
+        }
+        exchange(SHOOT, sessionId, count);
+        readSlots(results);
+        return getStatus();
+    }
+
+    /**
+     * Gets the state of the session.
+     * @param sessionId Id of the session.
+     * @param results Receives the amount of ships afloat and the amount of shots fired.
+     * @return Response status.
+     * @throws IOException The connection failed.
+     */
+    public byte state(long sessionId, int[] results) throws IOException {
+        exchange(STATE, sessionId, 0);
+        readSlots(results);
+        return getStatus();
+    }
+
+    /**
+     * Closes the session.
+     * @param sessionId Id of the session.
+     * @return Response status.
+     * @throws IOException The connection failed.
+     */
+    public byte close(long sessionId) throws IOException {
+        exchange(CLOSE, sessionId, 0);
+        return getStatus();
+    }
+
+    /**
+     * Gets the status of the last response.
+     * @return One of the {@link BinaryProtocol} statuses.
+     */
+    public byte getStatus() {
+        return response.get(STATUS);
+    }
+
+    /**
+     * Checks if the game was in progress after the last request.
+     * @return {@code true} if the game is in progress.
+     */
+    public boolean isRunning() {
+        return response.get(RUNNING) != 0;
+    }
+
+    private void readSlots(int[] results) {
+        int slotCount = response.get(SLOT_COUNT);
+        for (int i = 0; i < slotCount && i < results.length; ++i) {
+            results[i] = response.getInt(SLOTS + 4 * i);
+        }
+    }
+
+    private void exchange(byte opcode, long sessionId, int shotCount) throws IOException {
+        request.put(OPCODE, opcode);
+        request.put(SHOT_COUNT, (byte) shotCount);
+        request.putLong(SESSION_ID, sessionId);
+        request.clear();
+        while (request.hasRemaining()) {
+            channel.write(request);
+        }
+
+        response.clear();
+        while (response.hasRemaining()) {
+            if (channel.read(response) < 0) throw new EOFException("Server closed the connection");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
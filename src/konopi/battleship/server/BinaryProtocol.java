@@ -0,0 +1,92 @@
+package konopi.battleship.server;
+
+import konopi.battleship.logic.Ship;
+
+/**
+ * The BinaryProtocol defines the fixed-size frames of the {@link NioGameServer}. Every request frame is
+ * answered with a response frame of the same size, in the request order. All numbers are big-endian.
+ * <pre>
+ * request   0 opcode   1 shot count   2-3 reserved           4-11 session id (seed for CREATE)   12-31 slots
+ * response  0 opcode   1 status       2 slot count   3 running   4-11 session id                 12-31 slots
+ * </pre>
+ * A SHOOT request carries up to {@link #MAX_SHOTS} targets in the slots as {@link
+ * konopi.battleship.logic.Coordinates#pack(int, int) packed coordinates}, fired in order. The response carries
+ * a result for each of them: the {@link Ship.HitDesignation} ordinal or one of {@link #OUT_OF_BOUNDS} and
+ * {@link #NOT_FIRED} in the low byte and the index of the hit ship type in the fleet above it,
+ * {@link #UNKNOWN_SHIP_TYPE} for a ship of a type missing from the fleet.
+ * A STATE response carries the amount of ships afloat and the amount of shots fired in the first two slots.
+ */
+public final class BinaryProtocol {
+    public static final int FRAME_SIZE = 32;
+    public static final int MAX_SHOTS = 5;
+
+    /* offsets */
+    public static final int OPCODE = 0;
+    public static final int SHOT_COUNT = 1;
+    public static final int STATUS = 1;
+    public static final int SLOT_COUNT = 2;
+    public static final int RUNNING = 3;
+    public static final int SESSION_ID = 4;
+    public static final int SLOTS = 12;
+
+    /* opcodes */
+    public static final byte CREATE = 1;
+    public static final byte SHOOT = 2;
+    public static final byte STATE = 3;
+    public static final byte CLOSE = 4;
+
+    /* statuses */
+    public static final byte OK = 0;
+    public static final byte UNKNOWN_SESSION = 1;
+    public static final byte GAME_OVER = 2;
+    public static final byte BAD_REQUEST = 3;
+
+    /* shot result codes besides the hit designation ordinals */
+    /**
+     * The target is outside the grid, see {@link konopi.battleship.logic.Grid#shoot}.
+     */
+    public static final int OUT_OF_BOUNDS = 3;
+    /**
+     * The game ended with an earlier shot of the same frame.
+     */
+    public static final int NOT_FIRED = 4;
+
+    /**
+     * Ship type index of a ship not matching any type of the fleet, the largest one a slot can hold.
+     */
+    public static final int UNKNOWN_SHIP_TYPE = 0xFFFFFF;
+
+    private static final Ship.HitDesignation[] HIT_DESIGNATIONS = Ship.HitDesignation.values();
+
+    private BinaryProtocol() {
+    }
+
+    /**
+     * Encodes a shot result for a response slot.
+     * @param code Hit designation ordinal, {@link #OUT_OF_BOUNDS} or {@link #NOT_FIRED}.
+     * @param shipTypeIndex Index of the hit ship type in the fleet, 0 if no ship was hit,
+     * {@link #UNKNOWN_SHIP_TYPE} if its type is not part of the fleet.
+     * @return Slot value.
+     */
+    public static int encodeResult(int code, int shipTypeIndex) {
+        return shipTypeIndex << 8 | code;
+    }
+
+    public static int resultCode(int slot) {
+        return slot & 0xFF;
+    }
+
+    public static int shipTypeIndex(int slot) {
+        return slot >>> 8;
+    }
+
+    /**
+     * Decodes the hit designation of a response slot.
+     * @param slot Slot value.
+     * @return The hit designation, {@code null} for {@link #OUT_OF_BOUNDS} and {@link #NOT_FIRED}.
+     */
+    public static Ship.HitDesignation hitDesignation(int slot) {
+        int code = resultCode(slot);
+        return code < HIT_DESIGNATIONS.length ? HIT_DESIGNATIONS[code] : null;
+    }
+}
@@ -0,0 +1,309 @@
+package konopi.battleship.server;
+
+import konopi.battleship.journal.GameJournal;
+import konopi.battleship.logic.BitboardOceanGrid;
+import konopi.battleship.logic.Coordinates;
+import konopi.battleship.logic.Game;
+import konopi.battleship.logic.GameListener;
+import konopi.battleship.logic.GameRules;
+import konopi.battleship.logic.Grid;
+import konopi.battleship.logic.Seeds;
+import konopi.battleship.spectator.SpectatorView;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The GameServer hosts many independent {@link Game} sessions addressed by a session id.
+ * <p>
+ * Every session has a {@link SerialExecutor} running its operations one at a time in submission order
+ * on a shared worker pool, so a game is never touched by two threads at once and the server holds
+ * no global locks. Sessions are kept in a concurrent map and the ones idle for longer than the timeout
+ * are evicted in the background.
+ * <p>
+ * All operations are asynchronous. A failed operation completes the future exceptionally with
+ * an {@link IllegalArgumentException} for an unknown session or an {@link IllegalStateException}
+ * for a finished game or a closed server.
+ * <p>
+ * With a {@link GameJournal} the games outlive the server: the fleet and the shots of every session are
+ * recorded, and the sessions neither closed nor evicted are recovered by the next server opening
+ * the same journal. Shots reach the disk within the commit interval of the journal.
+ */
+public class GameServer implements AutoCloseable {
+    public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(5);
+
+    private final GameRules rules;
+    private final Grid.Factory gridFactory;
+    /**
+     * Sessions without an operation for this long are evicted.
+     */
+    private final long idleTimeoutNanos;
+
+    private final ConcurrentHashMap<Long, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextSessionId = new AtomicLong(1);
+
+    /**
+     * Runs the session operations. The FIFO mode suits the short independent tasks.
+     */
+    private final ForkJoinPool workers;
+    /**
+     * Runs the idle session eviction.
+     */
+    private final ScheduledExecutorService evictor;
+    /**
+     * Records the sessions, {@code null} if they are not recorded.
+     */
+    private final GameJournal journal;
+
+    private volatile boolean closed = false;
+
+    /**
+     * Main constructor. Plays by the standard rules on the {@link BitboardOceanGrid} using all available
+     * processors and evicts sessions after the {@link #DEFAULT_IDLE_TIMEOUT}.
+     */
+    public GameServer() {
+        this(GameRules.standard(), BitboardOceanGrid::new, Runtime.getRuntime().availableProcessors(),
+                DEFAULT_IDLE_TIMEOUT);
+    }
+
+    /**
+     * @param rules Rules of the hosted games.
+     * @param gridFactory Grid backend of the hosted games.
+     * @param workers Amount of worker threads.
+     * @param idleTimeout Sessions without an operation for this long are evicted.
+     */
+    public GameServer(GameRules rules, Grid.Factory gridFactory, int workers, Duration idleTimeout) {
+        this(rules, gridFactory, checkArguments(workers, idleTimeout), idleTimeout, Collections.emptyMap(), null);
+    }
+
+    /**
+     * Records the sessions in a journal and recovers the ones left open by an earlier server. Recovered
+     * sessions keep their ids and have the seed 0, new sessions get ids after them.
+     * @param rules Rules of the hosted games, the same as of the recorded ones.
+     * @param gridFactory Grid backend of the hosted games.
+     * @param workers Amount of worker threads.
+     * @param idleTimeout Sessions without an operation for this long are evicted.
+     * @param journal Journal file, created if it doesn't exist.
+     * @throws IOException The journal can't be read or opened.
+     * @throws IllegalArgumentException The journal is not a journal of the rules, or doesn't match
+     * the replayed games, see {@link GameJournal#recover(Path, GameRules, Grid.Factory) recover}.
+     */
+    public GameServer(GameRules rules, Grid.Factory gridFactory, int workers, Duration idleTimeout, Path journal)
+            throws IOException {
+        /* the arguments are checked before the journal is opened */
+        this(rules, gridFactory, checkArguments(workers, idleTimeout), idleTimeout,
+                GameJournal.recover(journal, rules, gridFactory), new GameJournal(journal, rules));
+    }
+
+    private GameServer(GameRules rules, Grid.Factory gridFactory, int workers, Duration idleTimeout,
+                       Map<Long, GameJournal.RecoveredGame> recovered, GameJournal journal) {
+        this.rules = rules;
+        this.gridFactory = gridFactory;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.workers = new ForkJoinPool(workers, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        this.journal = journal;
+        recovered.forEach((id, game) -> {
+            GameListener recorder = journal.listener(id);
+            game.game().setListener(recorder);
+            sessions.put(id, new Session(id, 0, game.game(), game.shots(), recorder, new SerialExecutor(this.workers)));
+            nextSessionId.accumulateAndGet(id + 1, Math::max);
+        });
+
+        ScheduledThreadPoolExecutor evictor = new ScheduledThreadPoolExecutor(1, task -> {
+            Thread thread = new Thread(task, "game-server-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.setRemoveOnCancelPolicy(true);
+        long period = Math.max(1, idleTimeoutNanos / 2);
+        evictor.scheduleAtFixedRate(() -> evictIdleSessions(System.nanoTime()), period, period, TimeUnit.NANOSECONDS);
+        this.evictor = evictor;
+    }
+
+    /**
+     * Checks the arguments shared by the public constructors.
+     * @return The amount of workers.
+     */
+    private static int checkArguments(int workers, Duration idleTimeout) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Amount of workers should be >= 1: " + workers);
+        }
+        if (idleTimeout.isNegative() || idleTimeout.isZero()) {
+            throw new IllegalArgumentException("Idle timeout should be positive: " + idleTimeout);
+        }
+        return workers;
+    }
+
+    /**
+     * Creates a session with a randomly placed fleet. The seed is kept in the {@link SessionState}, so the
+     * session can be recreated with {@link #create(long)}.
+     * @return Future of the session id.
+     */
+    public CompletableFuture<Long> create() {
+        return create(Seeds.random());
+    }
+
+    /**
+     * Creates a session, the same seed gives the same ship placement.
+     * @param seed Seed of the ship placement.
+     * @return Future of the session id.
+     */
+    public CompletableFuture<Long> create(long seed) {
+        if (closed) return serverClosed();
+
+        return CompletableFuture.supplyAsync(() -> {
+            Game game = new Game(rules, gridFactory, seed);
+            long id = nextSessionId.getAndIncrement();
+            GameListener recorder = null;
+            if (journal != null) {
+                journal.attach(id, game);
+                recorder = journal.listener(id);
+            }
+            sessions.put(id, new Session(id, seed, game, 0, recorder, new SerialExecutor(workers)));
+            return id;
+        }, workers);
+    }
+
+    /**
+     * Fires a shot in the session. Shots in a session are fired in the call order.
+     * @param sessionId Id of the session.
+     * @param target Coordinates to fire at.
+     * @return Future of the shot result, completed with {@code null} if the coordinates are out of bounds.
+     */
+    public CompletableFuture<Grid.ShotResult> shoot(long sessionId, Coordinates target) {
+        if (closed) return serverClosed();
+        Session session = sessions.get(sessionId);
+        if (session == null) return unknownSession(sessionId);
+
+        session.touch();
+        return CompletableFuture.supplyAsync(() -> session.shoot(target), session.getExecutor());
+    }
+
+    /**
+     * Takes a snapshot of the session after the operations called before.
+     * @param sessionId Id of the session.
+     * @return Future of the session state.
+     */
+    public CompletableFuture<SessionState> state(long sessionId) {
+        if (closed) return serverClosed();
+        Session session = sessions.get(sessionId);
+        if (session == null) return unknownSession(sessionId);
+
+        session.touch();
+        return CompletableFuture.supplyAsync(session::state, session.getExecutor());
+    }
+
+    /**
+     * Gets a view of the session for spectators. Any amount of threads may read the view without holding up
+     * the game, it stays valid after the session is closed. Spectating doesn't keep the session from eviction.
+     * @param sessionId Id of the session.
+     * @return Future of the view, the same for every call.
+     */
+    public CompletableFuture<SpectatorView> spectate(long sessionId) {
+        if (closed) return serverClosed();
+        Session session = sessions.get(sessionId);
+        if (session == null) return unknownSession(sessionId);
+
+        return CompletableFuture.supplyAsync(session::spectate, session.getExecutor());
+    }
+
+    /**
+     * Closes the session. Operations called before are completed first, later ones fail.
+     * @param sessionId Id of the session.
+     * @return Future completed once the session is closed.
+     */
+    public CompletableFuture<Void> close(long sessionId) {
+        if (closed) return serverClosed();
+        Session session = sessions.remove(sessionId);
+        if (session == null) return unknownSession(sessionId);
+
+        return release(session);
+    }
+
+    /**
+     * Records the end of a removed session after its pending operations.
+     */
+    private CompletableFuture<Void> release(Session session) {
+        return CompletableFuture.runAsync(() -> {
+            if (journal != null) journal.close(session.getId());
+        }, session.getExecutor());
+    }
+
+    private static <T> CompletableFuture<T> unknownSession(long sessionId) {
+        return CompletableFuture.failedFuture(new IllegalArgumentException("Unknown session: " + sessionId));
+    }
+
+    private static <T> CompletableFuture<T> serverClosed() {
+        return CompletableFuture.failedFuture(new IllegalStateException("Server is closed"));
+    }
+
+    /**
+     * Removes the sessions idle for longer than the timeout.
+     * @param nowNanos Current time, see {@link System#nanoTime()}.
+     * @return Amount of the evicted sessions.
+     */
+    int evictIdleSessions(long nowNanos) {
+        int evicted = 0;
+        for (Session session : sessions.values()) {
+            if (nowNanos - session.getLastAccessNanos() > idleTimeoutNanos
+                    && sessions.remove(session.getId(), session)) {
+                release(session);
+                ++evicted;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Gets the amount of open sessions.
+     * @return Amount of sessions neither closed nor evicted.
+     */
+    public int getSessionAmount() {
+        return sessions.size();
+    }
+
+    /**
+     * Closes all the sessions and stops the worker threads. Operations called before are completed first,
+     * later ones fail.
+     * The sessions stay open in the journal, which is closed once the operations are done.
+     * @throws UncheckedIOException The journal can't be committed.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        /* a drain of a long queue schedules itself again, so the queues are run to the end before the shutdown */
+        List<CompletableFuture<Void>> drained = new ArrayList<>();
+        for (Session session : sessions.values()) {
+            drained.add(CompletableFuture.runAsync(() -> {}, session.getExecutor()));
+        }
+        sessions.clear();
+        CompletableFuture.allOf(drained.toArray(new CompletableFuture<?>[0])).join();
+        workers.shutdown();
+        if (journal == null) return;
+
+        try {
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
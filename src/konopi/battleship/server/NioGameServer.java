@@ -0,0 +1,323 @@
+package konopi.battleship.server;
+
+import konopi.battleship.logic.BitboardOceanGrid;
+import konopi.battleship.logic.Coordinates;
+import konopi.battleship.logic.Game;
+import konopi.battleship.logic.GameRules;
+import konopi.battleship.logic.Grid;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+
+import static konopi.battleship.server.BinaryProtocol.*;
+
+/**
+ * The NioGameServer serves games over the {@link BinaryProtocol} from a single non-blocking event loop.
+ * The loop thread owns all the sessions, so the games are ticked right where the frames are decoded,
+ * with no locking and no thread hand-offs.
+ * <p>
+ * Every connection has a pair of direct buffers reused for its whole life. Complete request frames are
+ * answered straight into the output buffer. When a client doesn't read its responses the output buffer
+ * fills up and the server stops reading that connection's requests until it drains.
+ * <p>
+ * Sessions are not tied to the connection that created them. Sessions idle for longer than the timeout
+ * are evicted by the loop.
+ */
+public class NioGameServer implements AutoCloseable {
+    /**
+     * Amount of frames buffered in each direction for a connection.
+     */
+    private static final int BUFFERED_FRAMES = 256;
+    /**
+     * The session operations run right on the loop thread.
+     */
+    private static final Executor LOOP = Runnable::run;
+
+    private final GameRules rules;
+    private final Grid.Factory gridFactory;
+    private final long idleTimeoutNanos;
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private final Thread loop;
+
+    /**
+     * Sessions by the session id, only accessed by the loop thread.
+     */
+    private final HashMap<Long, Session> sessions = new HashMap<>();
+    private long nextSessionId = 1;
+    /**
+     * Time of the next idle session eviction, see {@link System#nanoTime()}.
+     */
+    private long nextEvictionNanos;
+
+    private volatile boolean closed = false;
+
+    /**
+     * Serves the standard rules on the {@link BitboardOceanGrid} and evicts sessions after the
+     * {@link GameServer#DEFAULT_IDLE_TIMEOUT}.
+     * @param port Port to listen on, 0 picks a free one.
+     * @throws IOException The socket can't be bound.
+     */
+    public NioGameServer(int port) throws IOException {
+        this(GameRules.standard(), BitboardOceanGrid::new, GameServer.DEFAULT_IDLE_TIMEOUT,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    /**
+     * Binds the server and starts the event loop.
+     * @param rules Rules of the hosted games.
+     * @param gridFactory Grid backend of the hosted games.
+     * @param idleTimeout Sessions without a request for this long are evicted.
+     * @param address Address to listen on.
+     * @throws IOException The socket can't be bound.
+     */
+    public NioGameServer(GameRules rules, Grid.Factory gridFactory, Duration idleTimeout, InetSocketAddress address)
+            throws IOException {
+        if (idleTimeout.isNegative() || idleTimeout.isZero()) {
+            throw new IllegalArgumentException("Idle timeout should be positive: " + idleTimeout);
+        }
+        this.rules = rules;
+        this.gridFactory = gridFactory;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.nextEvictionNanos = System.nanoTime() + idleTimeoutNanos;
+
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+        loop = new Thread(this::run, "nio-game-server");
+        loop.setDaemon(true);
+        loop.start();
+    }
+
+    /**
+     * Gets the port the server listens on.
+     * @return Local port.
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Buffers of a single connection.
+     */
+    private static final class Connection {
+        final ByteBuffer in = ByteBuffer.allocateDirect(FRAME_SIZE * BUFFERED_FRAMES);
+        /**
+         * Responses not yet written, in the write mode.
+         */
+        final ByteBuffer out = ByteBuffer.allocateDirect(FRAME_SIZE * BUFFERED_FRAMES);
+    }
+
+    private void run() {
+        try {
+            while (!closed) {
+                long timeoutMillis = Math.max(1, (nextEvictionNanos - System.nanoTime()) / 1_000_000);
+                selector.select(timeoutMillis);
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (!key.isValid()) continue;
+                        if (key.isAcceptable()) accept();
+                        else serve(key);
+                    } catch (IOException e) {
+                        /* the client went away */
+                        close(key);
+                    }
+                }
+
+                long now = System.nanoTime();
+                if (now - nextEvictionNanos >= 0) {
+                    sessions.values().removeIf(session -> now - session.getLastAccessNanos() > idleTimeoutNanos);
+                    nextEvictionNanos = now + Math.max(1, idleTimeoutNanos / 2);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                close(key);
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                /* closing anyway */
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) return;
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        channel.register(selector, SelectionKey.OP_READ, new Connection());
+    }
+
+    /**
+     * Reads the available requests, answers the complete frames and writes the responses.
+     */
+    private void serve(SelectionKey key) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        Connection connection = (Connection) key.attachment();
+
+        if (key.isReadable() && channel.read(connection.in) < 0) {
+            close(key);
+            return;
+        }
+
+        /* answering as long as there is room for the responses */
+        ByteBuffer in = connection.in;
+        ByteBuffer out = connection.out;
+        in.flip();
+        while (in.remaining() >= FRAME_SIZE && out.remaining() >= FRAME_SIZE) {
+            handleFrame(in, out);
+        }
+        in.compact();
+
+        out.flip();
+        channel.write(out);
+        out.compact();
+
+        /* waiting for the client to read the responses before reading more requests */
+        boolean pending = out.position() > 0;
+        boolean full = !in.hasRemaining();
+        key.interestOps((pending ? SelectionKey.OP_WRITE : 0) | (full ? 0 : SelectionKey.OP_READ));
+    }
+
+    private void close(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            /* closing anyway */
+        }
+    }
+
+    /**
+     * Answers a single request frame.
+     * @param in Buffer positioned at the request, advanced past it.
+     * @param out Buffer receiving the response.
+     */
+    private void handleFrame(ByteBuffer in, ByteBuffer out) {
+        int start = in.position();
+        byte opcode = in.get(start + OPCODE);
+        int shotCount = in.get(start + SHOT_COUNT);
+        long sessionId = in.getLong(start + SESSION_ID);
+
+        int responseStart = out.position();
+        out.put(responseStart + OPCODE, opcode);
+        out.putLong(responseStart + SESSION_ID, sessionId);
+        byte status = OK;
+        int slotCount = 0;
+        boolean running = false;
+
+        Session session = opcode == CREATE ? null : sessions.get(sessionId);
+        if (opcode == CREATE) {
+            session = create(sessionId);
+            out.putLong(responseStart + SESSION_ID, session.getId());
+            running = true;
+        } else if (opcode < CREATE || opcode > CLOSE) {
+            status = BAD_REQUEST;
+        } else if (session == null) {
+            status = UNKNOWN_SESSION;
+        } else {
+            session.touch();
+            switch (opcode) {
+                case SHOOT -> {
+                    if (shotCount < 1 || shotCount > MAX_SHOTS) {
+                        status = BAD_REQUEST;
+                    } else if (!session.isRunning()) {
+                        status = GAME_OVER;
+                    } else {
+                        for (int i = 0; i < shotCount; ++i) {
+                            int packed = in.getInt(start + SLOTS + 4 * i);
+                            out.putInt(responseStart + SLOTS + 4 * i, shoot(session, packed));
+                        }
+                        slotCount = shotCount;
+                    }
+                }
+                case STATE -> {
+                    out.putInt(responseStart + SLOTS, session.getActiveShipAmount());
+                    out.putInt(responseStart + SLOTS + 4, session.getShots());
+                    slotCount = 2;
+                }
+                case CLOSE -> sessions.remove(sessionId);
+            }
+            running = opcode != CLOSE && session.isRunning();
+        }
+
+        out.put(responseStart + STATUS, status);
+        out.put(responseStart + SLOT_COUNT, (byte) slotCount);
+        out.put(responseStart + RUNNING, (byte) (running ? 1 : 0));
+        /* unused slots are zeroed, the buffer is reused */
+        for (int i = slotCount; i < MAX_SHOTS; ++i) {
+            out.putInt(responseStart + SLOTS + 4 * i, 0);
+        }
+        out.position(responseStart + FRAME_SIZE);
+        in.position(start + FRAME_SIZE);
+    }
+
+    private Session create(long seed) {
+        long id = nextSessionId++;
+        Session session = new Session(id, seed, new Game(rules, gridFactory, seed), LOOP);
+        sessions.put(id, session);
+        return session;
+    }
+
+    /**
+     * Fires a single shot of a frame.
+     * @return Encoded result, see {@link BinaryProtocol#encodeResult(int, int) encodeResult}.
+     */
+    private int shoot(Session session, int packed) {
+        if (!session.isRunning()) return encodeResult(NOT_FIRED, 0);
+
+        Grid.ShotResult shotResult = session.shoot(Coordinates.ofPacked(packed));
+        if (shotResult == null) return encodeResult(OUT_OF_BOUNDS, 0);
+        return encodeResult(shotResult.hitDesignation().ordinal(), shipTypeIndex(shotResult.shipName()));
+    }
+
+    /**
+     * Gets the ship type index of a result slot.
+     * @param shipName Name of the hit ship, {@code null} for a miss.
+     * @return Index of the ship type in the fleet, 0 for a miss, {@link BinaryProtocol#UNKNOWN_SHIP_TYPE} if the
+     * ship is not part of the fleet.
+     */
+    private int shipTypeIndex(String shipName) {
+        if (shipName == null) return 0;
+        int shipType = rules.shipTypeIndex(shipName);
+        return shipType < 0 ? UNKNOWN_SHIP_TYPE : shipType;
+    }
+
+    /**
+     * Stops the event loop and closes all the connections, waiting for the loop to finish.
+     * The sessions are discarded.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        selector.wakeup();
+        try {
+            loop.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package konopi.battleship.server;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The SerialExecutor runs its tasks one at a time in submission order on a shared pool, so the state
+ * touched only by the tasks needs no locking. At most one drain of the queue is scheduled at any time.
+ * Once the pool rejects a drain, e.g. after it was shut down, the tasks left are run on the thread
+ * scheduling it, so no task is dropped.
+ */
+final class SerialExecutor implements Executor {
+    /**
+     * Tasks run by a single drain before yielding the pool thread to other executors.
+     */
+    private static final int TASKS_PER_DRAIN = 64;
+
+    private final Executor pool;
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    /**
+     * {@code true} while a drain is scheduled or running.
+     */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /**
+     * @param pool The pool running the tasks.
+     */
+    SerialExecutor(Executor pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        tasks.add(task);
+        schedule();
+    }
+
+    private void schedule() {
+        if (!tasks.isEmpty() && scheduled.compareAndSet(false, true)) {
+            try {
+                pool.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                drain();
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            Runnable task;
+            for (int i = 0; i < TASKS_PER_DRAIN && (task = tasks.poll()) != null; ++i) {
+                task.run();
+            }
+        } finally {
+            scheduled.set(false);
+            /* tasks added during the drain or left over after the limit */
+            schedule();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package konopi.battleship.server;
+
+import konopi.battleship.logic.Coordinates;
+import konopi.battleship.logic.Game;
+import konopi.battleship.logic.GameListener;
+import konopi.battleship.logic.Grid;
+import konopi.battleship.spectator.SpectatorView;
+
+import java.util.concurrent.Executor;
+
+/**
+ * A single game hosted by the {@link GameServer} or the {@link NioGameServer}. The game is only touched
+ * by tasks of the session {@link #executor}, which run one at a time.
+ */
+final class Session {
+    private final long id;
+    /**
+     * Seed of the fleet placement, 0 for a game recovered from a journal.
+     */
+    private final long seed;
+    private final Game game;
+    private final Executor executor;
+    /**
+     * Listener of the game recording its shots, {@code null} if they are not recorded.
+     */
+    private final GameListener recorder;
+
+    /**
+     * Time of the last operation, see {@link System#nanoTime()}.
+     */
+    private volatile long lastAccessNanos;
+    /**
+     * Amount of shots fired, only accessed by the {@link #executor} tasks.
+     */
+    private int shots;
+    /**
+     * Publishes the game to spectators, created on the first request. Only accessed by the {@link #executor} tasks.
+     */
+    private SpectatorView spectatorView;
+
+    Session(long id, long seed, Game game, Executor executor) {
+        this(id, seed, game, 0, null, executor);
+    }
+
+    /**
+     * @param shots Amount of shots fired before, for a recovered game.
+     * @param recorder Listener already set on the game recording its shots, kept when spectating.
+     * May be {@code null}.
+     */
+    Session(long id, long seed, Game game, int shots, GameListener recorder, Executor executor) {
+        this.id = id;
+        this.seed = seed;
+        this.game = game;
+        this.shots = shots;
+        this.recorder = recorder;
+        this.executor = executor;
+        touch();
+    }
+
+    long getId() {
+        return id;
+    }
+
+    Executor getExecutor() {
+        return executor;
+    }
+
+    long getLastAccessNanos() {
+        return lastAccessNanos;
+    }
+
+    void touch() {
+        lastAccessNanos = System.nanoTime();
+    }
+
+    /**
+     * Fires a shot. Must run on the {@link #executor}.
+     * @param target Coordinates to fire at.
+     * @return Result of the shot, {@code null} if the coordinates are out of bounds.
+     * @throws IllegalStateException The game is over.
+     */
+    Grid.ShotResult shoot(Coordinates target) {
+        if (!game.isRunning()) {
+            throw new IllegalStateException("Game is over: " + id);
+        }
+        game.setTargetCoordinates(target);
+        game.tick();
+        ++shots;
+        return game.getShotResult();
+    }
+
+    /**
+     * Gets the view of the game for spectators, attaching it on the first call. Must run on the {@link #executor}.
+     * @return The view, safe to read from any thread.
+     */
+    SpectatorView spectate() {
+        if (spectatorView == null) {
+            spectatorView = new SpectatorView(game);
+            game.setListener(recorder == null ? spectatorView : recorder.andThen(spectatorView));
+        }
+        return spectatorView;
+    }
+
+    boolean isRunning() {
+        return game.isRunning();
+    }
+
+    int getActiveShipAmount() {
+        return game.getOceanGrid().getActiveShipAmount();
+    }
+
+    int getShots() {
+        return shots;
+    }
+
+    /**
+     * Takes a snapshot of the game. Must run on the {@link #executor}.
+     * @return The current state.
+     */
+    SessionState state() {
+        return new SessionState(id, seed, game.isRunning(), game.getOceanGrid().getActiveShipAmount(), shots,
+                game.getOceanGrid().getHitMap());
+    }
+}
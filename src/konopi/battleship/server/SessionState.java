@@ -0,0 +1,23 @@
+package konopi.battleship.server;
+
+import konopi.battleship.logic.Coordinates;
+import konopi.battleship.logic.Ship;
+
+import java.util.Map;
+
+/**
+ * Snapshot of a game hosted by the {@link GameServer}.
+ * @param sessionId Id of the session.
+ * @param seed Seed of the fleet placement, a session created with it gets the same fleet. 0 for a session
+ * recovered from a journal.
+ * @param running {@code true} if the game is in progress.
+ * @param activeShipAmount Amount of ships afloat.
+ * @param shots Amount of shots fired, including the ones out of bounds.
+ * @param hitMap Results of the shots by the coordinates, see {@link konopi.battleship.logic.Grid#getHitMap()}.
+ */
+public record SessionState(long sessionId, long seed, boolean running, int activeShipAmount, int shots,
+                           Map<Coordinates, Ship.HitDesignation> hitMap) {
+    public SessionState {
+        hitMap = Map.copyOf(hitMap);
+    }
+}
@@ -0,0 +1,177 @@
+package konopi.battleship.server;
+
+import konopi.battleship.logic.Coordinates;
+import konopi.battleship.logic.Grid;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The TextServer serves a {@link GameServer} over a loopback TCP socket with a line based text protocol.
+ * A connection may drive any amount of sessions, the responses come in the request order:
+ * <pre>
+ * CREATE [seed]         OK &lt;session id&gt;
+ * SHOOT &lt;id&gt; &lt;coords&gt;   OK MISS | OK HIT &lt;ship&gt; | OK SINK &lt;ship&gt; | OK OUT
+ * STATE &lt;id&gt;            OK RUNNING|OVER &lt;active ships&gt; &lt;shots&gt;
+ * CLOSE &lt;id&gt;            OK
+ * </pre>
+ * Failed requests are answered with {@code ERR <message>}. Responses to pipelined requests are flushed together.
+ */
+public class TextServer implements AutoCloseable {
+    private final GameServer server;
+    private final ServerSocket serverSocket;
+    /**
+     * Runs the accept loop and a thread for every connection.
+     */
+    private final ExecutorService connections = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "text-server-connection");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /**
+     * Open connections, closed with the server.
+     */
+    private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Binds the server to the loopback address and starts accepting connections.
+     * @param server The served games.
+     * @param port Port to listen on, 0 picks a free one.
+     * @throws IOException The socket can't be bound.
+     */
+    public TextServer(GameServer server, int port) throws IOException {
+        this.server = server;
+        this.serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+        connections.execute(this::accept);
+    }
+
+    /**
+     * Gets the port the server listens on.
+     * @return Local port.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void accept() {
+        try {
+            while (!serverSocket.isClosed()) {
+                Socket socket = serverSocket.accept();
+                sockets.add(socket);
+                connections.execute(() -> serve(socket));
+            }
+        } catch (SocketException e) {
+            /* the server socket was closed */
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             BufferedReader reader = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             BufferedWriter writer = new BufferedWriter(
+                     new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII))) {
+            socket.setTcpNoDelay(true);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                writer.write(handle(line));
+                writer.newLine();
+                /* pipelined requests are answered in a single write */
+                if (!reader.ready()) writer.flush();
+            }
+        } catch (IOException e) {
+            /* the client went away or the server was closed */
+        } finally {
+            sockets.remove(socket);
+        }
+    }
+
+    /**
+     * Executes a single request.
+     * @param request Request line.
+     * @return Response line.
+     */
+    String handle(String request) {
+        String[] words = request.trim().split("\\s+");
+        try {
+            return switch (words[0].toUpperCase(Locale.ROOT)) {
+                case "CREATE" -> "OK " + (words.length > 1
+                        ? server.create(parseLong(words[1], "Seed")) : server.create()).join();
+                case "SHOOT" -> {
+                    expectWords(words, 3);
+                    yield "OK " + formatShotResult(
+                            server.shoot(parseLong(words[1], "Session id"), Coordinates.valueOf(words[2])).join());
+                }
+                case "STATE" -> {
+                    expectWords(words, 2);
+                    SessionState state = server.state(parseLong(words[1], "Session id")).join();
+                    yield "OK " + (state.running() ? "RUNNING " : "OVER ")
+                            + state.activeShipAmount() + " " + state.shots();
+                }
+                case "CLOSE" -> {
+                    expectWords(words, 2);
+                    server.close(parseLong(words[1], "Session id")).join();
+                    yield "OK";
+                }
+                default -> "ERR Unknown command: " + words[0];
+            };
+        } catch (CompletionException e) {
+            return "ERR " + e.getCause().getMessage();
+        } catch (IllegalArgumentException e) {
+            return "ERR " + e.getMessage();
+        }
+    }
+
+    private static void expectWords(String[] words, int amount) {
+        if (words.length != amount) {
+            throw new IllegalArgumentException(words[0].toUpperCase(Locale.ROOT) + " takes "
+                    + (amount - 1) + " argument(s)");
+        }
+    }
+
+    private static long parseLong(String word, String name) {
+        try {
+            return Long.parseLong(word);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be an integer: " + word);
+        }
+    }
+
+    private static String formatShotResult(Grid.ShotResult shotResult) {
+        if (shotResult == null) return "OUT";
+        return switch (shotResult.hitDesignation()) {
+            case MISS -> "MISS";
+            case HIT -> "HIT " + shotResult.shipName();
+            case SINK -> "SINK " + shotResult.shipName();
+        };
+    }
+
+    /**
+     * Stops accepting connections and closes the open ones. The {@link GameServer} is left running.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+        connections.shutdownNow();
+    }
+}
@@ -0,0 +1,60 @@
+package konopi.battleship.simulation;
+
+/**
+ * Aggregate statistics of a {@link SimulationRunner#run(int, long) simulation run}.
+ * @param games Amount of games played.
+ * @param unfinishedGames Games abandoned after reaching the shot limit, not included in {@code shotsToWin}.
+ * @param shots Amount of shots fired in all games.
+ * @param hits Shots which resulted in a hit or a sink.
+ * @param elapsedNanos Wall time of the run.
+ * @param shotsToWin Distribution of shots needed to win, the value at index {@code n} is the amount of games
+ *                   won with {@code n} shots.
+ */
+public record SimulationReport(int games, int unfinishedGames, long shots, long hits, long elapsedNanos,
+                               long[] shotsToWin) {
+    public double gamesPerSecond() {
+        return elapsedNanos == 0 ? 0 : games * 1e9 / elapsedNanos;
+    }
+
+    public double hitRate() {
+        return shots == 0 ? 0 : (double) hits / shots;
+    }
+
+    public double meanShotsToWin() {
+        long won = 0;
+        long total = 0;
+        for (int n = 0; n < shotsToWin.length; ++n) {
+            won += shotsToWin[n];
+            total += n * shotsToWin[n];
+        }
+        return won == 0 ? 0 : (double) total / won;
+    }
+
+    /**
+     * Gets the amount of shots within which the specified share of the won games ended.
+     * @param percentile Share of the games, from 0 to 100.
+     * @return Shots needed to win, {@code 0} if no games were won.
+     */
+    public int percentileShotsToWin(double percentile) {
+        long won = games - unfinishedGames;
+        long threshold = (long) Math.ceil(won * percentile / 100);
+        long seen = 0;
+        for (int n = 0; n < shotsToWin.length; ++n) {
+            seen += shotsToWin[n];
+            if (seen > 0 && seen >= threshold) return n;
+        }
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("""
+                        Games:         %d (%d unfinished)
+                        Games/sec:     %.1f
+                        Shots to win:  mean %.2f, p50 %d, p90 %d, p99 %d, max %d
+                        Hit rate:      %.4f""",
+                games, unfinishedGames, gamesPerSecond(), meanShotsToWin(),
+                percentileShotsToWin(50), percentileShotsToWin(90), percentileShotsToWin(99),
+                percentileShotsToWin(100), hitRate());
+    }
+}
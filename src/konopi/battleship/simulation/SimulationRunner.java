@@ -0,0 +1,202 @@
+package konopi.battleship.simulation;
+
+import konopi.battleship.ai.Shooter;
+import konopi.battleship.logic.BitboardOceanGrid;
+import konopi.battleship.logic.Coordinates;
+import konopi.battleship.logic.Game;
+import konopi.battleship.logic.GameRules;
+import konopi.battleship.logic.Grid;
+import konopi.battleship.logic.Seeds;
+import konopi.battleship.logic.Ship;
+import konopi.battleship.logic.SplitMix64;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+import java.util.random.RandomGenerator;
+
+/**
+ * The SimulationRunner plays complete games without a UI, using a {@link Shooter} to choose the targets.
+ * Games are spread over a fork-join pool. Every game gets its own {@link SplitMix64} seeded with
+ * {@link Seeds#derive(long, long) derive(seed, gameIndex)}, used for the fleet placement and then by the shooter,
+ * so the workers share no state, the results depend only on the seed and any single game can be replayed.
+ */
+public class SimulationRunner {
+    /**
+     * Amount of games played sequentially by a single task, below it the work isn't split further.
+     */
+    private static final int GAMES_PER_TASK = 256;
+    /**
+     * A game is abandoned after firing this many times the amount of squares, e.g. if the shooter keeps
+     * firing at the same squares.
+     */
+    private static final int SHOT_LIMIT_FACTOR = 4;
+
+    /**
+     * Creates a new shooter for every game. The generator passed is owned by the game.
+     */
+    private final Function<RandomGenerator, Shooter> shooterFactory;
+    private final GameRules rules;
+    private final Grid.Factory gridFactory;
+    private final int parallelism;
+
+    /**
+     * Main constructor. Plays by the standard rules on the {@link BitboardOceanGrid} using all available processors.
+     * @param shooterFactory {@link #shooterFactory}.
+     */
+    public SimulationRunner(Function<RandomGenerator, Shooter> shooterFactory) {
+        this(GameRules.standard(), shooterFactory, BitboardOceanGrid::new, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param rules Rules of the games.
+     * @param shooterFactory {@link #shooterFactory}.
+     * @param gridFactory Grid backend of the games.
+     * @param parallelism Amount of worker threads.
+     */
+    public SimulationRunner(GameRules rules, Function<RandomGenerator, Shooter> shooterFactory,
+                            Grid.Factory gridFactory, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism should be >= 1: " + parallelism);
+        }
+        this.rules = rules;
+        this.shooterFactory = shooterFactory;
+        this.gridFactory = gridFactory;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Plays the specified amount of games and collects the statistics.
+     * @param games Amount of games to play.
+     * @param seed Seed of the random generators, the same seed gives the same games.
+     * @return Aggregate statistics of all games.
+     */
+    public SimulationReport run(int games, long seed) {
+        if (games < 0) {
+            throw new IllegalArgumentException("Amount of games should be >= 0: " + games);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            long start = System.nanoTime();
+            Statistics statistics = pool.invoke(new SimulationTask(seed, 0, games));
+            return statistics.toReport(System.nanoTime() - start);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Plays the games sequentially on the calling thread.
+     * @param seed Seed of the run.
+     * @param from Index of the first game, inclusive.
+     * @param to Index of the last game, exclusive.
+     * @return Statistics of the played games.
+     */
+    private Statistics play(long seed, int from, int to) {
+        Statistics statistics = new Statistics();
+        for (int i = from; i < to; ++i) {
+            SplitMix64 random = new SplitMix64(Seeds.derive(seed, i));
+            Game game = new Game(rules, gridFactory, random);
+            Shooter shooter = shooterFactory.apply(random);
+            shooter.initialise(game);
+
+            Grid grid = game.getOceanGrid();
+            /* computed in long as the squares may take most of the int range, the shots are counted in int */
+            int shotLimit = (int) Math.min(Integer.MAX_VALUE,
+                    (long) SHOT_LIMIT_FACTOR * grid.getSizeX() * grid.getSizeY());
+            int shots = 0;
+            while (game.isRunning() && shots < shotLimit) {
+                Coordinates target = shooter.nextTarget();
+                game.setTargetCoordinates(target);
+                game.tick();
+                ++shots;
+
+                Grid.ShotResult shotResult = game.getShotResult();
+                if (shotResult != null && shotResult.hitDesignation() != Ship.HitDesignation.MISS) {
+                    ++statistics.hits;
+                }
+                shooter.registerResult(target, shotResult);
+            }
+            statistics.registerGame(shots, !game.isRunning());
+        }
+        return statistics;
+    }
+
+    /**
+     * Splits the games in halves until there are at most {@link #GAMES_PER_TASK} left.
+     */
+    private class SimulationTask extends RecursiveTask<Statistics> {
+        private static final long serialVersionUID = 1L;
+
+        private final long seed;
+        /**
+         * Indices of the games, from inclusive, to exclusive.
+         */
+        private final int from;
+        private final int to;
+
+        SimulationTask(long seed, int from, int to) {
+            this.seed = seed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Statistics compute() {
+            if (to - from <= GAMES_PER_TASK) {
+                return play(seed, from, to);
+            }
+
+            int middle = (from + to) >>> 1;
+            SimulationTask left = new SimulationTask(seed, from, middle);
+            SimulationTask right = new SimulationTask(seed, middle, to);
+            left.fork();
+            Statistics statistics = right.compute();
+            statistics.merge(left.join());
+            return statistics;
+        }
+    }
+
+    /**
+     * Mutable statistics of the games played by a single task.
+     */
+    private static class Statistics {
+        private int games;
+        private int unfinishedGames;
+        private long shots;
+        private long hits;
+        private long[] shotsToWin = new long[0];
+
+        void registerGame(int gameShots, boolean won) {
+            ++games;
+            shots += gameShots;
+            if (!won) {
+                ++unfinishedGames;
+                return;
+            }
+            if (gameShots >= shotsToWin.length) {
+                shotsToWin = Arrays.copyOf(shotsToWin, gameShots + 1);
+            }
+            ++shotsToWin[gameShots];
+        }
+
+        void merge(Statistics other) {
+            games += other.games;
+            unfinishedGames += other.unfinishedGames;
+            shots += other.shots;
+            hits += other.hits;
+            if (other.shotsToWin.length > shotsToWin.length) {
+                shotsToWin = Arrays.copyOf(shotsToWin, other.shotsToWin.length);
+            }
+            for (int n = 0; n < other.shotsToWin.length; ++n) {
+                shotsToWin[n] += other.shotsToWin[n];
+            }
+        }
+
+        SimulationReport toReport(long elapsedNanos) {
+            return new SimulationReport(games, unfinishedGames, shots, hits, elapsedNanos, shotsToWin);
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package konopi.battleship.spectator;
+
+import konopi.battleship.logic.Coordinates;
+import konopi.battleship.logic.Game;
+import konopi.battleship.logic.GameListener;
+import konopi.battleship.logic.Grid;
+import konopi.battleship.logic.Ship;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * The SpectatorView publishes the board of a {@link Game} to any amount of reader threads. It's attached as
+ * the {@link GameListener} of the game, e.g. {@code game.setListener(view)}, and updated by the game thread
+ * after every shot.
+ * <p>
+ * The board is kept as 2 bits per square. The game thread changes it under the write lock of a {@link StampedLock},
+ * which is uncontended as the readers never take it in the common case: they copy the board in an optimistic
+ * read and retry if a shot was fired meanwhile. Every shot is also recorded in a ring of the latest
+ * {@link #HISTORY} changes, so a reader refreshing its {@link Board} only copies the squares changed since
+ * its last read instead of the whole board.
+ */
+public class SpectatorView implements GameListener {
+    /**
+     * Amount of the latest changes kept for incremental reads, a power of 2.
+     */
+    public static final int HISTORY = 1024;
+
+    /**
+     * Optimistic reads tried before a reader takes the read lock, blocking the game thread for one copy.
+     * Only a game firing faster than the board can be copied gets that far.
+     */
+    private static final int OPTIMISTIC_ATTEMPTS = 64;
+
+    private static final Ship.HitDesignation[] HIT_DESIGNATIONS = Ship.HitDesignation.values();
+
+    /**
+     * A copy of the board owned by a single reader, refreshed with {@link #read(Board) read}.
+     */
+    public static final class Board {
+        private final int sizeX;
+        private final int sizeY;
+        /**
+         * Code of each square in 2 bits, 0 if not fired at, otherwise the {@link Ship.HitDesignation} ordinal + 1.
+         */
+        private final long[] plane;
+        /**
+         * Version of the view the board was copied from, -1 if it has to be copied in full.
+         */
+        private long version = -1;
+        private int activeShipAmount;
+        private boolean running;
+        private Coordinates lastTarget;
+
+        private Board(int sizeX, int sizeY) {
+            this.sizeX = sizeX;
+            this.sizeY = sizeY;
+            plane = new long[planeLength(sizeX, sizeY)];
+        }
+
+        /**
+         * Gets the result of the shots at the square.
+         * @param letterIndex Vertical index starting from 0 for 'A'.
+         * @param numberIndex Horizontal index starting from 0 for 1.
+         * @return Result as in {@link Grid#getHitMap()}, {@code null} if the square was not fired at.
+         * @throws IndexOutOfBoundsException The square is not part of the grid.
+         */
+        public Ship.HitDesignation getHitDesignation(int letterIndex, int numberIndex) {
+            if (letterIndex < 0 || letterIndex >= sizeY || numberIndex < 0 || numberIndex >= sizeX) {
+                throw new IndexOutOfBoundsException("Square out of bounds: " + letterIndex + ", " + numberIndex);
+            }
+            int code = code(plane, letterIndex * sizeX + numberIndex);
+            return code == 0 ? null : HIT_DESIGNATIONS[code - 1];
+        }
+
+        /**
+         * Visits every square fired at, in the order of the rows.
+         * @param visitor Receives the indices and the result of each square.
+         */
+        public void forEachShot(Grid.ShotVisitor visitor) {
+            for (int word = 0; word < plane.length; ++word) {
+                long bits = plane[word];
+                while (bits != 0) {
+                    int shift = Long.numberOfTrailingZeros(bits) & ~1;
+                    int index = (word << 5) + (shift >>> 1);
+                    bits &= ~(3L << shift);
+                    visitor.visit(index / sizeX, index % sizeX,
+                            HIT_DESIGNATIONS[(int) (plane[word] >>> shift & 3) - 1]);
+                }
+            }
+        }
+
+        /**
+         * Gets the version of the board, increased by every shot within the grid.
+         * @return Version, the same version means the same board.
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        public int getActiveShipAmount() {
+            return activeShipAmount;
+        }
+
+        public boolean isRunning() {
+            return running;
+        }
+
+        /**
+         * Gets the target of the latest shot within the grid.
+         * @return Coordinates, {@code null} before the first shot.
+         */
+        public Coordinates getLastTarget() {
+            return lastTarget;
+        }
+
+        public int getSizeX() {
+            return sizeX;
+        }
+
+        public int getSizeY() {
+            return sizeY;
+        }
+    }
+
+    private final StampedLock lock = new StampedLock();
+
+    private final int sizeX;
+    private final int sizeY;
+    /**
+     * The board, see {@link Board#plane}.
+     */
+    private final long[] plane;
+    /**
+     * Change of each version as {@code index << 2 | code}, the change to version {@code v} at
+     * {@code (v - 1) % HISTORY}.
+     */
+    private final long[] history = new long[HISTORY];
+
+    /* guarded by the lock */
+    private long version;
+    private int activeShipAmount;
+    private boolean running;
+    private Coordinates lastTarget;
+
+    /**
+     * Main constructor. Copies the board fired at so far, so it must be called on the game thread.
+     * The view should be handed over to the readers through a thread-safe channel, e.g. a concurrent map.
+     * @param game The game to publish. The view has to be set as its listener.
+     */
+    public SpectatorView(Game game) {
+        Grid grid = game.getOceanGrid();
+        sizeX = grid.getSizeX();
+        sizeY = grid.getSizeY();
+        plane = new long[planeLength(sizeX, sizeY)];
+        grid.forEachShot((letterIndex, numberIndex, hitDesignation) ->
+                setCode(plane, letterIndex * sizeX + numberIndex, hitDesignation.ordinal() + 1));
+        version = grid.getShotAmount();
+        activeShipAmount = grid.getActiveShipAmount();
+        running = game.isRunning();
+    }
+
+    private static int planeLength(int sizeX, int sizeY) {
+        return (int) (((long) sizeX * sizeY + 31) >>> 5);
+    }
+
+    private static int code(long[] plane, int index) {
+        return (int) (plane[index >>> 5] >>> ((index & 31) << 1)) & 3;
+    }
+
+    private static void setCode(long[] plane, int index, int code) {
+        int shift = (index & 31) << 1;
+        plane[index >>> 5] = plane[index >>> 5] & ~(3L << shift) | (long) code << shift;
+    }
+
+    /**
+     * Publishes the shot, called by the game thread.
+     */
+    @Override
+    public void shotFired(Game game, Coordinates target, Grid.ShotResult shotResult) {
+        /* shots out of bounds don't change the board */
+        if (shotResult == null) return;
+
+        int index = target.getLetterIndex() * sizeX + target.getNumberIndex();
+        int code = shotResult.hitDesignation().ordinal() + 1;
+        long stamp = lock.writeLock();
+        try {
+            setCode(plane, index, code);
+            history[(int) version & (HISTORY - 1)] = (long) index << 2 | code;
+            ++version;
+            activeShipAmount = game.getOceanGrid().getActiveShipAmount();
+            running = game.isRunning();
+            lastTarget = target;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Gets the current version without copying the board, so a reader can skip a {@link #read(Board) read}
+     * if it has already seen it.
+     * @return Version, see {@link Board#getVersion()}.
+     */
+    public long getVersion() {
+        long stamp = lock.tryOptimisticRead();
+        long current = version;
+        if (lock.validate(stamp)) return current;
+
+        stamp = lock.readLock();
+        try {
+            return version;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Copies the current board into the specified board, only the squares changed since its last read if
+     * possible. Never blocks the game thread unless it keeps firing during the copy.
+     * @param board Board of this view returned by an earlier read, or {@code null}.
+     * @return The refreshed board, a new one if {@code null} was given.
+     * @throws IllegalArgumentException The board was read from a view of another grid size.
+     */
+    public Board read(Board board) {
+        if (board == null) {
+            board = new Board(sizeX, sizeY);
+        } else if (board.sizeX != sizeX || board.sizeY != sizeY) {
+            throw new IllegalArgumentException("Board of another grid size: " + board.sizeX + "x" + board.sizeY);
+        }
+
+        for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; ++attempt) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                /* torn values are discarded by the validation, only the array indices must stay in range */
+                boolean consistent = copy(board);
+                if (lock.validate(stamp) && consistent) return board;
+                board.version = -1;
+            }
+            Thread.onSpinWait();
+        }
+
+        long stamp = lock.readLock();
+        try {
+            copy(board);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return board;
+    }
+
+    /**
+     * Copies the board, the changes since the version of the board if they are still in the history.
+     * @return {@code false} if an inconsistent state was seen.
+     */
+    private boolean copy(Board board) {
+        long current = version;
+        long behind = current - board.version;
+        if (board.version >= 0 && behind >= 0 && behind <= HISTORY) {
+            int squares = sizeX * sizeY;
+            for (long v = board.version; v < current; ++v) {
+                long change = history[(int) v & (HISTORY - 1)];
+                long index = change >>> 2;
+                if (index >= squares) return false;
+                setCode(board.plane, (int) index, (int) change & 3);
+            }
+        } else {
+            System.arraycopy(plane, 0, board.plane, 0, plane.length);
+        }
+        board.version = current;
+        board.activeShipAmount = activeShipAmount;
+        board.running = running;
+        board.lastTarget = lastTarget;
+        return true;
+    }
+}
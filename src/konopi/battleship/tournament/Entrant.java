@@ -0,0 +1,21 @@
+package konopi.battleship.tournament;
+
+import konopi.battleship.ai.PlacementStrategy;
+import konopi.battleship.ai.Shooter;
+
+import java.util.function.Function;
+import java.util.random.RandomGenerator;
+
+/**
+ * A player registered in a {@link Tournament}: the way it hides its fleet and the way it fires.
+ * @param name Unique name in the tournament.
+ * @param shooterFactory Creates a new shooter for every game. The generator passed is owned by the calling worker.
+ * @param placement Places the fleet the opponent fires at.
+ */
+public record Entrant(String name, Function<RandomGenerator, Shooter> shooterFactory, PlacementStrategy placement) {
+    public Entrant {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Entrant name must not be blank");
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package konopi.battleship.tournament;
+
+/**
+ * Results of the games between two {@link Entrant entrants}.
+ * @param first Name of the entrant moving first in the even games.
+ * @param second Name of the other entrant.
+ * @param games Amount of games played.
+ * @param firstWins Games won by the first entrant, the rest was won by the second one.
+ * @param firstMeanShots Mean amount of shots the first entrant needed to sink the fleet.
+ * @param secondMeanShots The same for the second entrant.
+ * @param lowerBound Lower bound of the confidence interval of the first entrant's win rate.
+ * @param upperBound Upper bound of the interval.
+ */
+public record MatchupResult(String first, String second, int games, int firstWins,
+                            double firstMeanShots, double secondMeanShots, double lowerBound, double upperBound) {
+    public double firstWinRate() {
+        return games == 0 ? 0 : (double) firstWins / games;
+    }
+
+    /**
+     * Checks if one of the entrants is the better one with the confidence of the interval.
+     * @return {@code true} if the interval lies entirely on one side of a 50% win rate.
+     */
+    public boolean isDecisive() {
+        return lowerBound > 0.5 || upperBound < 0.5;
+    }
+
+    /**
+     * Gets the entrant which won most of the games.
+     * @return Name of the entrant, {@code null} if both won the same amount of games.
+     */
+    public String winner() {
+        return 2 * firstWins > games ? first : 2 * firstWins < games ? second : null;
+    }
+
+    /**
+     * Computes the Wilson score interval of a win rate.
+     * @param wins Amount of games won.
+     * @param games Amount of games played.
+     * @param z Width of the interval in standard deviations, e.g. 1.96 for 95% confidence.
+     * @return The lower and the upper bound.
+     */
+    static double[] wilsonInterval(int wins, int games, double z) {
+        if (games == 0) return new double[]{0, 1};
+        double p = (double) wins / games;
+        double z2n = z * z / games;
+        double center = (p + z2n / 2) / (1 + z2n);
+        double halfWidth = z / (1 + z2n) * Math.sqrt(p * (1 - p) / games + z2n / (4 * games));
+        return new double[]{Math.max(0, center - halfWidth), Math.min(1, center + halfWidth)};
+    }
+}
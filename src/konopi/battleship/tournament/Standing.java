@@ -0,0 +1,15 @@
+package konopi.battleship.tournament;
+
+/**
+ * Score of an {@link Entrant} in a {@link Tournament}.
+ * @param name Name of the entrant.
+ * @param points 1 for every matchup won and for a bye, 0.5 for an even one.
+ * @param matchups Amount of matchups played.
+ * @param games Amount of games played in them.
+ * @param wins Amount of games won.
+ */
+public record Standing(String name, double points, int matchups, int games, int wins) {
+    public double winRate() {
+        return games == 0 ? 0 : (double) wins / games;
+    }
+}
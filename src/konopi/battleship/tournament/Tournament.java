@@ -0,0 +1,344 @@
+package konopi.battleship.tournament;
+
+import konopi.battleship.ai.Shooter;
+import konopi.battleship.logic.BitboardOceanGrid;
+import konopi.battleship.logic.Coordinates;
+import konopi.battleship.logic.Game;
+import konopi.battleship.logic.GameRules;
+import konopi.battleship.logic.Grid;
+import konopi.battleship.logic.Seeds;
+import konopi.battleship.logic.Ship;
+import konopi.battleship.logic.SplitMix64;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The Tournament plays the registered {@link Entrant entrants} against each other in round-robin or Swiss
+ * pairings.
+ * <p>
+ * In a game both entrants hide their fleet and fire at the fleet of the other one in turns, the first one
+ * to sink the whole fleet wins. As the shooters don't see each other, each side is played out on its own and
+ * the entrant needing fewer shots wins, the one moving first on a tie. The first move alternates between
+ * the games of a matchup.
+ * <p>
+ * The games of a matchup are spread over a fork-join pool in batches of doubling size. After each batch
+ * the Wilson score interval of the win rate is checked and the matchup stops early once it lies on one side
+ * of 50%. Every game is seeded by the tournament seed and its number only, so the results don't depend on
+ * the amount of threads and every matchup is played on the same sequence of seeds.
+ */
+public class Tournament {
+    public static final int DEFAULT_MAX_GAMES = 10_000;
+    /**
+     * Games played before a matchup may be stopped early, also the size of the first batch.
+     */
+    public static final int MIN_GAMES = 200;
+    /**
+     * Width of the confidence interval in standard deviations. The results are looked at after every batch,
+     * so the interval is wider than the usual 95% one to keep matchups from stopping on noise.
+     */
+    public static final double Z = 3.0;
+
+    /**
+     * Amount of games played sequentially by a single task, below it the work isn't split further.
+     */
+    private static final int GAMES_PER_TASK = 32;
+    /**
+     * A side is abandoned after firing this many times the amount of squares, e.g. if the shooter keeps
+     * firing at the same squares.
+     */
+    private static final int SHOT_LIMIT_FACTOR = 4;
+
+    private final GameRules rules;
+    private final Grid.Factory gridFactory;
+    private final List<Entrant> entrants;
+    /**
+     * Games played in a matchup which doesn't become decisive.
+     */
+    private final int maxGames;
+    private final int parallelism;
+
+    /**
+     * Main constructor. Plays by the standard rules on the {@link BitboardOceanGrid} using all available
+     * processors, up to {@link #DEFAULT_MAX_GAMES} games per matchup.
+     * @param entrants Entrants of the tournament.
+     */
+    public Tournament(List<Entrant> entrants) {
+        this(GameRules.standard(), BitboardOceanGrid::new, entrants, DEFAULT_MAX_GAMES,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param rules Rules of the games.
+     * @param gridFactory Grid backend of the games.
+     * @param entrants Entrants of the tournament.
+     * @param maxGames {@link #maxGames}.
+     * @param parallelism Amount of worker threads.
+     * @throws IllegalArgumentException There are less than two entrants, two of the same name or a setting
+     * is out of range.
+     */
+    public Tournament(GameRules rules, Grid.Factory gridFactory, List<Entrant> entrants, int maxGames,
+                      int parallelism) {
+        if (entrants.size() < 2) {
+            throw new IllegalArgumentException("Tournament needs at least two entrants: " + entrants.size());
+        }
+        HashSet<String> names = new HashSet<>();
+        for (Entrant entrant : entrants) {
+            if (!names.add(entrant.name())) {
+                throw new IllegalArgumentException("Entrant registered twice: " + entrant.name());
+            }
+        }
+        if (maxGames < 1) {
+            throw new IllegalArgumentException("Amount of games should be >= 1: " + maxGames);
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism should be >= 1: " + parallelism);
+        }
+        this.rules = rules;
+        this.gridFactory = gridFactory;
+        this.entrants = List.copyOf(entrants);
+        this.maxGames = maxGames;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Plays every entrant against every other one.
+     * @param seed Seed of the games, the same seed gives the same results.
+     * @return Results of the tournament.
+     */
+    public TournamentReport roundRobin(long seed) {
+        long start = System.nanoTime();
+        Scores scores = new Scores();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            for (int first = 0; first < entrants.size(); ++first) {
+                for (int second = first + 1; second < entrants.size(); ++second) {
+                    scores.register(first, second, play(pool, entrants.get(first), entrants.get(second), seed));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return scores.toReport(System.nanoTime() - start);
+    }
+
+    /**
+     * Plays the specified amount of Swiss rounds: in every round the entrants are sorted by their points and
+     * paired with the next one they haven't met yet. With an odd amount of entrants the lowest ranked one who
+     * hasn't had a bye yet sits the round out and gets a point, as for a won matchup.
+     * Takes far fewer matchups than a round robin to rank many entrants.
+     * @param rounds Amount of rounds.
+     * @param seed Seed of the games, the same seed gives the same results.
+     * @return Results of the tournament.
+     * @throws IllegalArgumentException The amount of rounds is less than 1.
+     */
+    public TournamentReport swiss(int rounds, long seed) {
+        if (rounds < 1) {
+            throw new IllegalArgumentException("Amount of rounds should be >= 1: " + rounds);
+        }
+
+        long start = System.nanoTime();
+        Scores scores = new Scores();
+        boolean[][] met = new boolean[entrants.size()][entrants.size()];
+        boolean[] hadBye = new boolean[entrants.size()];
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            for (int round = 0; round < rounds; ++round) {
+                List<Integer> unpaired = scores.ranking();
+                if (unpaired.size() % 2 == 1) {
+                    int bye = unpaired.size() - 1;
+                    while (bye > 0 && hadBye[unpaired.get(bye)]) --bye;
+                    /* everybody had a bye already, a second one for the last */
+                    int entrant = unpaired.remove(hadBye[unpaired.get(bye)] ? unpaired.size() - 1 : bye);
+                    hadBye[entrant] = true;
+                    scores.points[entrant] += 1;
+                }
+                while (unpaired.size() > 1) {
+                    int first = unpaired.remove(0);
+                    int pick = 0;
+                    while (pick < unpaired.size() && met[first][unpaired.get(pick)]) ++pick;
+                    /* everybody left was met already, a rematch with the closest one */
+                    int second = unpaired.remove(pick < unpaired.size() ? pick : 0);
+
+                    met[first][second] = met[second][first] = true;
+                    scores.register(first, second, play(pool, entrants.get(first), entrants.get(second), seed));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return scores.toReport(System.nanoTime() - start);
+    }
+
+    /**
+     * Plays the games of a matchup until it's decisive or {@link #maxGames} are played.
+     */
+    private MatchupResult play(ForkJoinPool pool, Entrant first, Entrant second, long seed) {
+        Tally tally = new Tally();
+        while (tally.games < maxGames) {
+            int batch = Math.min(Math.max(MIN_GAMES, tally.games), maxGames - tally.games);
+            tally.merge(pool.invoke(new MatchupTask(first, second, seed, tally.games, tally.games + batch)));
+
+            double[] interval = MatchupResult.wilsonInterval(tally.firstWins, tally.games, Z);
+            if (interval[0] > 0.5 || interval[1] < 0.5) break;
+        }
+
+        double[] interval = MatchupResult.wilsonInterval(tally.firstWins, tally.games, Z);
+        return new MatchupResult(first.name(), second.name(), tally.games, tally.firstWins,
+                (double) tally.firstShots / tally.games, (double) tally.secondShots / tally.games,
+                interval[0], interval[1]);
+    }
+
+    /**
+     * Plays a single game of a matchup.
+     * @param gameNumber Number of the game in the matchup, the first entrant moves first in the even ones.
+     */
+    private void play(Entrant first, Entrant second, long seed, int gameNumber, Tally tally) {
+        SplitMix64 random = new SplitMix64(Seeds.derive(seed, gameNumber));
+        List<Ship> firstFleet = first.placement().place(rules, random);
+        List<Ship> secondFleet = second.placement().place(rules, random);
+
+        int firstShots = shotsToSink(secondFleet, first.shooterFactory().apply(random));
+        int secondShots = shotsToSink(firstFleet, second.shooterFactory().apply(random));
+        boolean firstWins = firstShots < secondShots || firstShots == secondShots && (gameNumber & 1) == 0;
+
+        ++tally.games;
+        if (firstWins) ++tally.firstWins;
+        tally.firstShots += firstShots;
+        tally.secondShots += secondShots;
+    }
+
+    /**
+     * Fires at the fleet until it's sunk.
+     * @return Amount of shots fired, the shot limit if the fleet wasn't sunk.
+     */
+    private int shotsToSink(List<Ship> fleet, Shooter shooter) {
+        Game game = new Game(rules, gridFactory, fleet);
+        shooter.initialise(game);
+
+        /* computed in long as the squares may take most of the int range, the shots are counted in int */
+        int shotLimit = (int) Math.min(Integer.MAX_VALUE, (long) SHOT_LIMIT_FACTOR * game.GRID_X * game.GRID_Y);
+        int shots = 0;
+        while (game.isRunning() && shots < shotLimit) {
+            Coordinates target = shooter.nextTarget();
+            game.setTargetCoordinates(target);
+            game.tick();
+            ++shots;
+            shooter.registerResult(target, game.getShotResult());
+        }
+        return shots;
+    }
+
+    /**
+     * Splits the games in halves until there are at most {@link #GAMES_PER_TASK} left.
+     */
+    private class MatchupTask extends RecursiveTask<Tally> {
+        private static final long serialVersionUID = 1L;
+
+        private final Entrant first;
+        private final Entrant second;
+        private final long seed;
+        /**
+         * Numbers of the games, from inclusive, to exclusive.
+         */
+        private final int from;
+        private final int to;
+
+        MatchupTask(Entrant first, Entrant second, long seed, int from, int to) {
+            this.first = first;
+            this.second = second;
+            this.seed = seed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Tally compute() {
+            if (to - from <= GAMES_PER_TASK) {
+                Tally tally = new Tally();
+                for (int gameNumber = from; gameNumber < to; ++gameNumber) {
+                    play(first, second, seed, gameNumber, tally);
+                }
+                return tally;
+            }
+
+            int middle = (from + to) >>> 1;
+            MatchupTask left = new MatchupTask(first, second, seed, from, middle);
+            left.fork();
+            Tally tally = new MatchupTask(first, second, seed, middle, to).compute();
+            tally.merge(left.join());
+            return tally;
+        }
+    }
+
+    /**
+     * Mutable results of the games played by a single task.
+     */
+    private static class Tally {
+        private int games;
+        private int firstWins;
+        private long firstShots;
+        private long secondShots;
+
+        void merge(Tally other) {
+            games += other.games;
+            firstWins += other.firstWins;
+            firstShots += other.firstShots;
+            secondShots += other.secondShots;
+        }
+    }
+
+    /**
+     * Scores of the entrants, indexed as {@link #entrants}.
+     */
+    private class Scores {
+        private final double[] points = new double[entrants.size()];
+        private final int[] matchups = new int[entrants.size()];
+        private final int[] games = new int[entrants.size()];
+        private final int[] wins = new int[entrants.size()];
+        private final List<MatchupResult> results = new ArrayList<>();
+
+        void register(int first, int second, MatchupResult result) {
+            results.add(result);
+            String winner = result.winner();
+            if (winner == null) {
+                points[first] += 0.5;
+                points[second] += 0.5;
+            } else {
+                points[winner.equals(result.first()) ? first : second] += 1;
+            }
+            for (int entrant : new int[]{first, second}) {
+                ++matchups[entrant];
+                games[entrant] += result.games();
+            }
+            wins[first] += result.firstWins();
+            wins[second] += result.games() - result.firstWins();
+        }
+
+        /**
+         * Gets the entrants from the best, by points, then by the win rate, then in the order of registration.
+         * @return Indices of the entrants.
+         */
+        List<Integer> ranking() {
+            List<Integer> ranking = new ArrayList<>();
+            for (int i = 0; i < entrants.size(); ++i) {
+                ranking.add(i);
+            }
+            ranking.sort(Comparator.<Integer>comparingDouble(i -> -points[i])
+                    .thenComparingDouble(i -> games[i] == 0 ? 0 : -(double) wins[i] / games[i]));
+            return ranking;
+        }
+
+        TournamentReport toReport(long elapsedNanos) {
+            List<Standing> standings = new ArrayList<>();
+            for (int i : ranking()) {
+                standings.add(new Standing(entrants.get(i).name(), points[i], matchups[i], games[i], wins[i]));
+            }
+            return new TournamentReport(results, standings, elapsedNanos);
+        }
+    }
+}
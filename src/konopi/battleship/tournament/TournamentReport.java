@@ -0,0 +1,40 @@
+package konopi.battleship.tournament;
+
+import java.util.List;
+
+/**
+ * Results of a {@link Tournament}.
+ * @param matchups Results of the matchups in the order of play.
+ * @param standings Scores of the entrants from the best.
+ * @param elapsedNanos Wall time of the tournament.
+ */
+public record TournamentReport(List<MatchupResult> matchups, List<Standing> standings, long elapsedNanos) {
+    public TournamentReport {
+        matchups = List.copyOf(matchups);
+        standings = List.copyOf(standings);
+    }
+
+    public int games() {
+        return matchups.stream().mapToInt(MatchupResult::games).sum();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%-24s %6s %8s %7s %9s%n", "Entrant", "Points", "Matchups", "Games", "Win rate"));
+        for (Standing standing : standings) {
+            report.append(String.format("%-24s %6.1f %8d %7d %8.1f%%%n", standing.name(), standing.points(),
+                    standing.matchups(), standing.games(), 100 * standing.winRate()));
+        }
+        report.append(String.format("%n%-24s %-24s %6s %9s %15s %13s%n",
+                "First", "Second", "Games", "1st wins", "Interval", "Mean shots"));
+        for (MatchupResult matchup : matchups) {
+            report.append(String.format("%-24s %-24s %6d %8.1f%% %6.1f-%5.1f%%%s %6.1f %6.1f%n",
+                    matchup.first(), matchup.second(), matchup.games(), 100 * matchup.firstWinRate(),
+                    100 * matchup.lowerBound(), 100 * matchup.upperBound(), matchup.isDecisive() ? "*" : " ",
+                    matchup.firstMeanShots(), matchup.secondMeanShots()));
+        }
+        report.append(String.format("%nGames: %d in %.1f s, * marks decisive matchups", games(), elapsedNanos / 1e9));
+        return report.toString();
+    }
+}
@@ -2,15 +2,43 @@ package konopi.battleship.ui;
 
 import konopi.battleship.logic.*;
 
-import java.util.HashMap;
+import java.io.BufferedWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Scanner;
-import java.util.stream.IntStream;
 
 /**
  * The ConsoleUI is a UI prototype developed in order to perform system testing.
+ * <p>
+ * The target grid is kept in a persistent text buffer and only the square of the last shot is patched
+ * after every tick. In the ANSI mode only that square is written to the terminal, moving the cursor with
+ * escape sequences, otherwise the whole buffer is printed again.
+ * <p>
+ * Run by the {@link konopi.battleship.App} the input is read ahead on a thread of its own, so moves piped
+ * from a file are played at full speed and the grid is only printed once per batch of results.
+ * The output of both threads is written while holding the lock of {@link #out}.
  */
-public class ConsoleUI implements UI {
-    private final Scanner scanner = new Scanner(System.in);
+public class ConsoleUI implements PipelinedUI {
+    /**
+     * Maximum length of the grid text. The whole grid is printed after every batch without ANSI,
+     * so larger grids are rejected rather than kept in the heap.
+     */
+    public static final int MAX_GRID_LENGTH = 1 << 24;
+
+    private final Scanner scanner;
+    /**
+     * All the output goes through this writer and is flushed once per update.
+     */
+    private final PrintWriter out;
+    /**
+     * {@code true} if the terminal understands ANSI escape sequences. The grid should fit in the terminal window,
+     * the squares are addressed by their position on the screen.
+     */
+    private final boolean ansi;
 
     /**
      * Reference to the game instance.
@@ -20,31 +48,107 @@ public class ConsoleUI implements UI {
     private final String WELCOME_MSG = "Welcome to Battleship (but less)!";
     private final String PROMPT_MSG = "Type in target coordinates:";
     private final String GAME_END_MSG = "It's over.";
+    private final String WRONG_INPUT_MSG = "Wrong input! Examples of proper coordinates: 'A4', 'B-2', 'g8', 'c-3', 'AB12'.";
+    private final String ANSI_CLEAR_SCREEN = "\033[2J\033[H";
 
     /**
-     * Length of a single square in text.
+     * Length of a single square symbol in text.
      */
-    private final int SYMBOL_LENGTH = 3;
+    private static final int SYMBOL_LENGTH = 3;
     private final String UNKNOWN = "[?]";
     private final String HIT = "[H]";
     private final String MISS = "[M]";
     private final String SINK = "[S]";
 
     /**
-     * The {@code StringBuilder} in which the UI assembles a printable target grid.
+     * Length of a single square in text. Symbols are padded on the left if the number labels are longer.
+     */
+    private int squareLength;
+    /**
+     * Length of the letter labels column including the space after the labels.
+     */
+    private int labelLength;
+
+    /**
+     * Printable target grid. Built once in {@link #initialise(Game) initialise}, then patched in place.
+     */
+    private char[] targetGrid;
+    /**
+     * Length of the number coordinates label line including the newline.
+     */
+    private int headerLength;
+    /**
+     * Length of a grid line including the letter label and the newline.
+     */
+    private int lineSize;
+
+    /**
+     * Constructor for the standard console without ANSI escape sequences.
      */
-    private StringBuilder targetGrid;
+    public ConsoleUI() {
+        this(false);
+    }
+
+    /**
+     * Constructor for the standard console.
+     * @param ansi {@link #ansi}.
+     */
+    public ConsoleUI(boolean ansi) {
+        this(System.in, System.out, ansi);
+    }
+
+    /**
+     * Main constructor.
+     * @param in Source of the player input.
+     * @param out Destination of the output, it's buffered by the UI.
+     * @param ansi {@link #ansi}.
+     */
+    public ConsoleUI(InputStream in, OutputStream out, boolean ansi) {
+        this.scanner = new Scanner(in);
+        this.out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(out)));
+        this.ansi = ansi;
+    }
+
+    /**
+     * Checks if a grid fits in the {@link #MAX_GRID_LENGTH}.
+     * @param sizeX Size of the grid on the number axis.
+     * @param sizeY Size of the grid on the letter axis.
+     * @return {@code true} if the console can render the grid.
+     */
+    public static boolean canRender(int sizeX, int sizeY) {
+        long squareLength = Math.max(SYMBOL_LENGTH, String.valueOf(sizeX).length() + 1);
+        long lineSize = Coordinates.letterLabel(sizeY - 1).length() + 1 + squareLength * sizeX + 1;
+        /* the number label line is shorter than a grid line */
+        return lineSize * (sizeY + 1L) <= MAX_GRID_LENGTH;
+    }
 
     /**
      * Sets the game reference and draws the entry screen.
      * @param game {@link #game}.
+     * @throws IllegalArgumentException The grid is too large to render, see {@link #canRender(int, int)}.
      */
     @Override
     public void initialise(Game game) {
+        if (!canRender(game.GRID_X, game.GRID_Y)) {
+            throw new IllegalArgumentException("Grid is too large for the console: " + game.GRID_X + "x"
+                    + game.GRID_Y);
+        }
         this.game = game;
-        System.out.println(WELCOME_MSG);
-        drawTargetGrid();
-        System.out.println(PROMPT_MSG);
+        /* the labels of the last number and the last letter are the longest */
+        squareLength = Math.max(SYMBOL_LENGTH, String.valueOf(game.GRID_X).length() + 1);
+        labelLength = Coordinates.letterLabel(game.GRID_Y - 1).length() + 1;
+        initialiseTargetGrid();
+        /* the game may be in progress already */
+        game.getOceanGrid().forEachShot(this::registerHit);
+
+        if (ansi) {
+            out.print(ANSI_CLEAR_SCREEN);
+        }
+        out.println(WELCOME_MSG);
+        out.print(targetGrid);
+        out.println();
+        out.println(PROMPT_MSG);
+        out.flush();
     }
 
     /**
@@ -52,82 +156,130 @@ public class ConsoleUI implements UI {
      */
     @Override
     public void update() {
-        drawTargetGrid();
-        OceanGrid.ShotResult result = game.getShotResult();
-
-        if (result != null) switch (result.hitDesignation()) {
-            case MISS -> System.out.println("Miss.\n");
-            case HIT -> System.out.println("Hit! " + result.shipName() + ".\n");
-            case SINK -> System.out.println("Sink! " + result.shipName() + ".\n");
-        } else System.out.println("Out of bounds.\n");
-
-        if (game.isRunning()) {
-            System.out.println(PROMPT_MSG);
-        } else {
-            System.out.println(GAME_END_MSG);
-        }
+        render(List.of(new TurnResult(game.getTargetCoordinates(), game.getShotResult(), game.isRunning())));
     }
 
     /**
-     * Prints out the target grid showing taken shots and results.
+     * Patches the squares of all the turns, then prints the grid once followed by the message of every turn.
+     * @param results Results in the order of the turns, at least one.
      */
-    private void drawTargetGrid() {
-        HashMap<Coordinates, Ship.HitDesignation> hitMap = game.getOceanGrid().getHitMap();
-        targetGrid = new StringBuilder((game.GRID_X * SYMBOL_LENGTH + 3) * (game.GRID_Y + 1));
-        initialiseTargetGrid();
+    @Override
+    public void render(List<TurnResult> results) {
+        synchronized (out) {
+            for (TurnResult result : results) {
+                if (result.shotResult() != null) {
+                    int index = registerHit(result.target(), result.shotResult().hitDesignation());
+                    if (ansi) {
+                        drawSquare(index);
+                    }
+                }
+            }
+            if (!ansi) {
+                out.print(targetGrid);
+                out.println();
+            }
+
+            for (TurnResult turn : results) {
+                Grid.ShotResult result = turn.shotResult();
+                if (result != null) switch (result.hitDesignation()) {
+                    case MISS -> out.println("Miss.\n");
+                    case HIT -> out.println("Hit! " + result.shipName() + ".\n");
+                    case SINK -> out.println("Sink! " + result.shipName() + ".\n");
+                } else out.println("Out of bounds.\n");
+            }
 
-        hitMap.forEach(this::registerHit);
-        System.out.println(targetGrid.toString());
+            if (results.get(results.size() - 1).running()) {
+                out.println(PROMPT_MSG);
+            } else {
+                out.println(GAME_END_MSG);
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Rewrites a single square on the terminal and clears the messages below the grid,
+     * leaving the cursor under the grid.
+     * @param index Index of the square symbol in the {@link #targetGrid}.
+     */
+    private void drawSquare(int index) {
+        /* the rows and columns are counted from 1, the welcome message and the number labels come first */
+        int row = 3 + (index - headerLength) / lineSize;
+        int column = 1 + (index - headerLength) % lineSize;
+        out.print("\033[" + row + ";" + column + "H");
+        out.write(targetGrid, index, SYMBOL_LENGTH);
+        /* below the grid and the empty line after it */
+        out.print("\033[" + (game.GRID_Y + 4) + ";1H\033[J");
     }
 
     /**
      * Updates the {@link #targetGrid} setting the specified hit designation at the given coordinates.
      * @param coordinates Coordinates to update.
      * @param hitDesignation New hit designation.
+     * @return Index of the square symbol in the {@link #targetGrid}.
      */
-    private void registerHit(Coordinates coordinates, Ship.HitDesignation hitDesignation) {
-        char letterCoordinate = coordinates.getLetterCoordinate();
-        int numberCoordinate = coordinates.getNumberCoordinate();
+    private int registerHit(Coordinates coordinates, Ship.HitDesignation hitDesignation) {
+        return registerHit(coordinates.getLetterIndex(), coordinates.getNumberIndex(), hitDesignation);
+    }
 
-        int lineSize = 2 + SYMBOL_LENGTH * game.GRID_X + 1; // 3 -> letter label, space, newline
-        int index = 1 + 3 * game.GRID_X + 1 // skipping number coordinates label, 2 -> letter label space, newline
-                + lineSize * (letterCoordinate - 'A') // finding the right line
-                + 2 + (numberCoordinate - 1) * SYMBOL_LENGTH; // finding the right place in line
+    /**
+     * Updates the {@link #targetGrid} setting the specified hit designation at the given square.
+     * @return Index of the square symbol in the {@link #targetGrid}.
+     */
+    private int registerHit(int letterIndex, int numberIndex, Ship.HitDesignation hitDesignation) {
+        int index = headerLength // skipping number coordinates label line
+                + lineSize * letterIndex // finding the right line
+                + labelLength + numberIndex * squareLength // finding the right square in line
+                + squareLength - SYMBOL_LENGTH; // skipping the padding
 
-        switch (hitDesignation) {
-            case HIT -> targetGrid.replace(index, index + SYMBOL_LENGTH, HIT);
-            case MISS -> targetGrid.replace(index, index + SYMBOL_LENGTH, MISS);
-            case SINK -> targetGrid.replace(index, index + SYMBOL_LENGTH, SINK);
-        }
+        String symbol = switch (hitDesignation) {
+            case HIT -> HIT;
+            case MISS -> MISS;
+            case SINK -> SINK;
+        };
+        symbol.getChars(0, SYMBOL_LENGTH, targetGrid, index);
+        return index;
     }
 
     /**
-     * Appends a target grid filled with unknown squares.
+     * Builds a target grid filled with unknown squares.
      */
     private void initialiseTargetGrid() {
-        /* number coordinate labels */
-        targetGrid.append(" "); // 1 char
-        IntStream.range(0, Math.min(9, game.GRID_X))
-                .forEach(i -> targetGrid.append("  ").append(i + 1)); // single digit
-        IntStream.range(9, game.GRID_X)
-                .forEach(i -> targetGrid.append(" ").append(i + 1)); // double digit
-        targetGrid.append('\n'); // 1 char
-
-        /* filling the grid with empty squares */
-        IntStream.range(0, game.GRID_Y).forEach(this::appendLine); // lineSize
+        headerLength = labelLength - 1 + squareLength * game.GRID_X + 1;
+        lineSize = labelLength + squareLength * game.GRID_X + 1; // letter label, squares, newline
+        targetGrid = new char[headerLength + lineSize * game.GRID_Y];
+        Arrays.fill(targetGrid, ' ');
+
+        /* number coordinate labels, the last digit above the middle of the square symbol */
+        int index = labelLength - 1;
+        for (int i = 0; i < game.GRID_X; ++i) {
+            String number = String.valueOf(i + 1);
+            index += squareLength;
+            number.getChars(0, number.length(), targetGrid, index - number.length());
+        }
+        targetGrid[index] = '\n';
+
+        /* filling the grid with unknown squares */
+        for (int lineNumber = 0; lineNumber < game.GRID_Y; ++lineNumber) {
+            fillLine(lineNumber);
+        }
     }
 
     /**
-     * Appends a line of unknown squares.
-     * @param lineNumber Appends at the beginning of the line as the letter coordinate.
+     * Fills a line with unknown squares.
+     * @param lineNumber Written at the beginning of the line as the letter coordinate.
      */
-    /* line length should be summed up in #registerHit as lineSize */
-    private void appendLine(int lineNumber) {
-        /* letter coordinate label */
-        targetGrid.append((char)(lineNumber + 'A')).append(" "); // 2 chars
-        /* the unknown squares */
-        IntStream.range(0, game.GRID_X).forEach(i -> targetGrid.append(UNKNOWN)); // SYMBOL_LENGTH * game.GRID_X
-        targetGrid.append('\n'); // 1 char
+    private void fillLine(int lineNumber) {
+        int start = headerLength + lineSize * lineNumber;
+        /* letter coordinate label, the rest of the label column is already blank */
+        String label = Coordinates.letterLabel(lineNumber);
+        label.getChars(0, label.length(), targetGrid, start);
+        /* the unknown squares, each padded on the left */
+        for (int i = 0; i < game.GRID_X; ++i) {
+            int square = start + labelLength + (i + 1) * squareLength - SYMBOL_LENGTH;
+            UNKNOWN.getChars(0, SYMBOL_LENGTH, targetGrid, square);
+        }
+        targetGrid[start + lineSize - 1] = '\n';
     }
 
     /**
@@ -136,30 +288,41 @@ public class ConsoleUI implements UI {
      */
     @Override
     public void handleInput() {
-        String input;
-        while (!validateInput(input = scanner.nextLine())) {
-            System.out.println("Wrong input! Examples of proper coordinates: 'A4', 'B-2', 'g8', 'c-3'.");
+        Coordinates target;
+        while ((target = parseInput(scanner.nextLine())) == null) {
+            out.println(WRONG_INPUT_MSG);
+            out.flush();
         }
-        game.setTargetCoordinates(input);
+        game.setTargetCoordinates(target);
     }
 
     /**
-     * Checks if the input can be interpreted as game coordinates.
-     * @param input String to validate.
-     * @return {@code true} if the input is valid.
+     * Reads lines until one of them is valid game coordinates.
+     * @return The coordinates, {@code null} at the end of the input.
      */
-    private boolean validateInput(String input) {
-        char letter = Character.toUpperCase(input.charAt(0));
-        if (letter < 'A' || letter > 'Z') {
-            return false;
+    @Override
+    public Coordinates readTarget() {
+        while (scanner.hasNextLine()) {
+            Coordinates target = parseInput(scanner.nextLine());
+            if (target != null) return target;
+            synchronized (out) {
+                out.println(WRONG_INPUT_MSG);
+                out.flush();
+            }
         }
+        return null;
+    }
 
+    /**
+     * Interprets the input as game coordinates.
+     * @param input String to parse.
+     * @return The coordinates, or {@code null} if the input is not valid game coordinates.
+     */
+    private Coordinates parseInput(String input) {
         try {
-            Integer.parseInt(input.substring(1));
-        } catch (NumberFormatException e) {
-            return false;
+            return Coordinates.valueOf(input.trim());
+        } catch (IllegalArgumentException e) {
+            return null;
         }
-
-        return true;
     }
 }
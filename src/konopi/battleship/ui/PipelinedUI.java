@@ -0,0 +1,28 @@
+package konopi.battleship.ui;
+
+import konopi.battleship.logic.Coordinates;
+
+import java.util.List;
+
+/**
+ * A UI whose input and rendering the {@link konopi.battleship.App} runs on threads of their own, so neither
+ * of them holds up the game loop. The input thread reads the targets ahead, the game loop fires them
+ * as soon as they come and the render thread draws the results in batches, as many as piled up since
+ * the last draw.
+ * <p>
+ * {@link #initialise(konopi.battleship.logic.Game) initialise} is called before the threads start.
+ * The game should not be read by the other methods, the results come with the {@link TurnResult}s.
+ */
+public interface PipelinedUI extends UI {
+    /**
+     * Reads the next valid target, telling the player about the invalid ones. Called on the input thread.
+     * @return The target, {@code null} once there is no more input.
+     */
+    Coordinates readTarget();
+
+    /**
+     * Draws the results of the turns. Called on the render thread.
+     * @param results Results in the order of the turns, at least one.
+     */
+    void render(List<TurnResult> results);
+}
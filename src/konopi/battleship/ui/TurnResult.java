@@ -0,0 +1,12 @@
+package konopi.battleship.ui;
+
+import konopi.battleship.logic.Coordinates;
+import konopi.battleship.logic.Grid;
+
+/**
+ * Outcome of a single turn, sent by the game loop to the renderer of a {@link PipelinedUI}.
+ * @param target Coordinates fired at.
+ * @param shotResult Result of the shot, {@code null} if the target was out of bounds.
+ * @param running {@code true} if the game goes on after the turn.
+ */
+public record TurnResult(Coordinates target, Grid.ShotResult shotResult, boolean running) {}
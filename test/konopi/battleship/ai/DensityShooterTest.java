@@ -0,0 +1,104 @@
+package konopi.battleship.ai;
+
+import konopi.battleship.logic.BitboardOceanGrid;
+import konopi.battleship.logic.Coordinates;
+import konopi.battleship.logic.Game;
+import konopi.battleship.logic.GameRules;
+import konopi.battleship.simulation.SimulationReport;
+import konopi.battleship.simulation.SimulationRunner;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DensityShooterTest {
+
+    /**
+     * Recomputes the density of every square from scratch, to compare with the incremental updates.
+     */
+    private static long[] expectedDensity(DensityShooter shooter, GameRules rules) {
+        int sizeX = rules.sizeX();
+        int sizeY = rules.sizeY();
+        long[] density = new long[sizeX * sizeY];
+        for (int size : rules.fleet().stream().mapToInt(GameRules.ShipType::size).distinct().toArray()) {
+            int amount = shooter.remainingOfSize(size);
+            for (int y = 0; y < sizeY; ++y) {
+                for (int x = 0; x < sizeX; ++x) {
+                    for (int vertical = 0; vertical < 2; ++vertical) {
+                        int step = vertical == 1 ? sizeX : 1;
+                        if ((vertical == 1 ? y : x) + size > (vertical == 1 ? sizeY : sizeX)) continue;
+                        boolean valid = true;
+                        for (int i = 0; i < size; ++i) {
+                            valid &= !shooter.isBlocked(y * sizeX + x + i * step);
+                        }
+                        if (!valid) continue;
+                        for (int i = 0; i < size; ++i) {
+                            density[y * sizeX + x + i * step] += amount;
+                        }
+                    }
+                }
+            }
+        }
+        return density;
+    }
+
+    @Test
+    void shouldKeepDensityConsistentWithHistory() {
+        GameRules rules = new GameRules(12, 9, List.of(
+                new GameRules.ShipType("Carrier", 5, 1),
+                new GameRules.ShipType("Cruiser", 3, 2),
+                new GameRules.ShipType("Boat", 1, 2)), false);
+        Game game = new Game(rules, BitboardOceanGrid::new, new SplittableRandom(3));
+        DensityShooter shooter = new DensityShooter(new SplittableRandom(4));
+        shooter.initialise(game);
+
+        while (game.isRunning()) {
+            game.setTargetCoordinates(shooter.nextTarget());
+            game.tick();
+            shooter.registerResult(game.getTargetCoordinates(), game.getShotResult());
+
+            long[] expected = expectedDensity(shooter, rules);
+            long max = -1;
+            for (int square = 0; square < expected.length; ++square) {
+                assertEquals(expected[square], shooter.densityOf(square), "square " + square);
+                Coordinates coordinates = Coordinates.of(square / rules.sizeX(), square % rules.sizeX());
+                if (!shooter.isBlocked(square) && !game.getOceanGrid().getHitMap().containsKey(coordinates)) {
+                    max = Math.max(max, expected[square]);
+                }
+            }
+            assertEquals(max, shooter.maxDensity());
+        }
+        assertEquals(0, shooter.remainingOfSize(5));
+        assertEquals(0, shooter.remainingOfSize(3));
+        assertEquals(0, shooter.remainingOfSize(1));
+    }
+
+    @Test
+    void shouldNotRepeatTargets() {
+        Game game = new Game(BitboardOceanGrid::new, new SplittableRandom(11));
+        DensityShooter shooter = new DensityShooter(new SplittableRandom(12));
+        shooter.initialise(game);
+
+        HashSet<Coordinates> targets = new HashSet<>();
+        while (game.isRunning()) {
+            Coordinates target = shooter.nextTarget();
+            assertTrue(targets.add(target), "repeated " + target);
+            game.setTargetCoordinates(target);
+            game.tick();
+            shooter.registerResult(target, game.getShotResult());
+        }
+    }
+
+    @Test
+    void shouldBeatRandomShooter() {
+        SimulationReport density = new SimulationRunner(DensityShooter::new).run(200, 5);
+        SimulationReport random = new SimulationRunner(RandomShooter::new).run(200, 5);
+
+        assertEquals(0, density.unfinishedGames());
+        assertTrue(density.meanShotsToWin() < random.meanShotsToWin() * 0.7,
+                density.meanShotsToWin() + " vs " + random.meanShotsToWin());
+    }
+}
@@ -0,0 +1,163 @@
+package konopi.battleship.ai;
+
+import konopi.battleship.logic.BitboardOceanGrid;
+import konopi.battleship.logic.Coordinates;
+import konopi.battleship.logic.Game;
+import konopi.battleship.logic.GameRules;
+import konopi.battleship.logic.Ship;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PosteriorSolverTest {
+    /**
+     * Counts the ordered layouts of the ships covering every square by trying every slot for every ship.
+     * @return Counts of the squares followed by the amount of layouts.
+     */
+    private static long[] bruteForce(int size, boolean adjacentShips, Ship.HitDesignation[] states, int[] ships) {
+        long[] counts = new long[size * size + 1];
+        bruteForce(size, adjacentShips, states, ships, 0, new int[size * size], counts);
+        return counts;
+    }
+
+    private static void bruteForce(int size, boolean adjacentShips, Ship.HitDesignation[] states, int[] ships,
+                                   int ship, int[] taken, long[] counts) {
+        if (ship == ships.length) {
+            for (int square = 0; square < taken.length; ++square) {
+                if (states[square] == Ship.HitDesignation.HIT && taken[square] == 0) return;
+            }
+            for (int square = 0; square < taken.length; ++square) {
+                if (taken[square] != 0) ++counts[square];
+            }
+            ++counts[taken.length];
+            return;
+        }
+        for (int y = 0; y < size; ++y) {
+            for (int x = 0; x < size; ++x) {
+                for (int dx = 0; dx <= 1; ++dx) {
+                    if (ships[ship] == 1 && dx == 0) continue;
+                    int endX = x + dx * (ships[ship] - 1);
+                    int endY = y + (1 - dx) * (ships[ship] - 1);
+                    if (endX >= size || endY >= size) continue;
+                    if (!fits(size, adjacentShips, states, taken, x, y, endX, endY)) continue;
+
+                    for (int sy = y; sy <= endY; ++sy) {
+                        for (int sx = x; sx <= endX; ++sx) taken[sy * size + sx] = ship + 1;
+                    }
+                    bruteForce(size, adjacentShips, states, ships, ship + 1, taken, counts);
+                    for (int sy = y; sy <= endY; ++sy) {
+                        for (int sx = x; sx <= endX; ++sx) taken[sy * size + sx] = 0;
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean fits(int size, boolean adjacentShips, Ship.HitDesignation[] states, int[] taken,
+                                int x, int y, int endX, int endY) {
+        for (int sy = y; sy <= endY; ++sy) {
+            for (int sx = x; sx <= endX; ++sx) {
+                Ship.HitDesignation state = states[sy * size + sx];
+                if (taken[sy * size + sx] != 0 || state == Ship.HitDesignation.MISS
+                        || state == Ship.HitDesignation.SINK) return false;
+            }
+        }
+        if (adjacentShips) return true;
+        for (int sy = Math.max(0, y - 1); sy <= Math.min(size - 1, endY + 1); ++sy) {
+            for (int sx = Math.max(0, x - 1); sx <= Math.min(size - 1, endX + 1); ++sx) {
+                if (taken[sy * size + sx] != 0 || states[sy * size + sx] == Ship.HitDesignation.SINK) return false;
+            }
+        }
+        return true;
+    }
+
+    @Test
+    void shouldMatchBruteForceEnumeration() {
+        int[] ships = {2, 3, 2};
+        for (boolean adjacentShips : new boolean[]{true, false}) {
+            Ship.HitDesignation[] states = new Ship.HitDesignation[36];
+            PosteriorSolver.Position position = new PosteriorSolver.Position(6, 6, adjacentShips, ships);
+            int[][] marks = {{0, 0, 0}, {2, 2, 1}, {4, 1, 0}, {3, 4, 1}, {5, 5, 2}, {5, 4, 2}};
+            for (int[] mark : marks) {
+                Ship.HitDesignation state = Ship.HitDesignation.values()[mark[2]];
+                states[mark[0] * 6 + mark[1]] = state;
+                position.mark(mark[0], mark[1], state);
+            }
+            long[] expected = bruteForce(6, adjacentShips, states, ships);
+
+            for (int parallelism : new int[]{1, 3}) {
+                try (PosteriorSolver solver = new PosteriorSolver(parallelism, 1)) {
+                    Posterior posterior = solver.enumerate(position);
+                    assertTrue(posterior.isExact());
+                    /* the two ships of size 2 are counted in either order by the brute force */
+                    assertEquals(expected[36] / 2.0, posterior.getLayouts(), "adjacent " + adjacentShips);
+                    for (int square = 0; square < 36; ++square) {
+                        assertEquals((double) expected[square] / expected[36],
+                                posterior.getProbability(square / 6, square % 6), 1e-12);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void shouldSampleCloseToTheExactResult() {
+        PosteriorSolver.Position position = new PosteriorSolver.Position(10, 10, true, 5, 4, 4)
+                .mark(4, 4, Ship.HitDesignation.HIT)
+                .mark(4, 5, Ship.HitDesignation.MISS)
+                .mark(0, 0, Ship.HitDesignation.MISS);
+        try (PosteriorSolver solver = new PosteriorSolver(2, 42);
+             PosteriorSolver single = new PosteriorSolver(1, 42)) {
+            Posterior exact = solver.enumerate(position);
+            Posterior sampled = solver.sample(position, 100_000);
+
+            assertFalse(sampled.isExact());
+            assertEquals(100_000, sampled.getSamples());
+            assertEquals(exact.getLayouts(), sampled.getLayouts(), exact.getLayouts() * 0.05);
+            for (int square = 0; square < 100; ++square) {
+                assertEquals(exact.getProbability(square / 10, square % 10),
+                        sampled.getProbability(square / 10, square % 10), 0.02);
+            }
+            assertEquals(1.0, sampled.getProbability(4, 4));
+            assertEquals(0.0, sampled.getProbability(4, 5));
+
+            /* the samples don't depend on the amount of workers */
+            assertArrayEquals(sampled.getProbabilities(), single.sample(position, 100_000).getProbabilities(), 1e-9);
+        }
+    }
+
+    @Test
+    void shouldSampleWhenTheBudgetIsTooShortToEnumerate() {
+        PosteriorSolver.Position position = new PosteriorSolver.Position(26, 26, false, 5, 4, 4, 3, 3, 3, 2, 2, 2);
+        try (PosteriorSolver solver = new PosteriorSolver(2, 7)) {
+            Posterior posterior = solver.solve(position, Duration.ofMillis(50));
+
+            assertFalse(posterior.isExact());
+            assertTrue(posterior.getSamples() > 0);
+            assertTrue(posterior.getElapsedNanos() < Duration.ofSeconds(5).toNanos());
+            assertNotNull(posterior.getBestTarget());
+        }
+    }
+
+    @Test
+    void shouldSinkTheFleetWithoutRepeatingShots() {
+        try (PosteriorSolver solver = new PosteriorSolver(1, 3)) {
+            Game game = new Game(GameRules.standard(), BitboardOceanGrid::new, 11L);
+            Shooter shooter = new PosteriorShooter(solver, Duration.ofSeconds(10));
+            shooter.initialise(game);
+            HashSet<Coordinates> fired = new HashSet<>();
+
+            while (game.isRunning()) {
+                Coordinates target = shooter.nextTarget();
+                assertTrue(fired.add(target), "repeated " + target);
+                game.setTargetCoordinates(target);
+                game.tick();
+                shooter.registerResult(target, game.getShotResult());
+            }
+            assertTrue(fired.size() < 60, "shots " + fired.size());
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package konopi.battleship.ai;
+
+import konopi.battleship.logic.Coordinates;
+import konopi.battleship.logic.Game;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RandomShooterTest {
+
+    @Test
+    void shouldFireAtEverySquareOnce() {
+        Game game = new Game();
+        RandomShooter shooter = new RandomShooter(new SplittableRandom(7));
+        shooter.initialise(game);
+
+        HashSet<Coordinates> targets = new HashSet<>();
+        for (int i = 0; i < game.GRID_X * game.GRID_Y; ++i) {
+            Coordinates target = shooter.nextTarget();
+            assertTrue(target.getLetterIndex() < game.GRID_Y && target.getNumberIndex() < game.GRID_X);
+            assertTrue(targets.add(target), "repeated " + target);
+        }
+
+        assertThrows(IllegalStateException.class, shooter::nextTarget);
+    }
+}
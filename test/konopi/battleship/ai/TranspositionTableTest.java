@@ -0,0 +1,113 @@
+package konopi.battleship.ai;
+
+import konopi.battleship.logic.BitboardOceanGrid;
+import konopi.battleship.logic.Coordinates;
+import konopi.battleship.logic.Game;
+import konopi.battleship.logic.GameRules;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TranspositionTableTest {
+
+    @Test
+    void shouldFindStoredEntriesAndCountLookups() {
+        TranspositionTable<String> table = new TranspositionTable<>(100);
+        assertEquals(128, table.getCapacity());
+
+        table.put(42, "answer", 1);
+        assertEquals("answer", table.get(42));
+        assertNull(table.get(43));
+        assertEquals(1, table.getHits());
+        assertEquals(1, table.getMisses());
+        assertEquals(0.5, table.getHitRate());
+
+        /* a cheaper evaluation doesn't replace a costlier one */
+        table.put(42, "guess", 0);
+        assertEquals("answer", table.get(42));
+        table.put(42, "better", 2);
+        assertEquals("better", table.get(42));
+        assertEquals(2, table.getStores());
+
+        table.clear();
+        assertNull(table.get(42));
+    }
+
+    @Test
+    void shouldKeepTheCostliestAndTheNewestEntryOfABucket() {
+        /* a single bucket, every key collides */
+        TranspositionTable<String> table = new TranspositionTable<>(2);
+        table.put(1, "costly", 10);
+        table.put(2, "cheap", 1);
+        table.put(3, "newer", 1);
+        assertEquals("costly", table.get(1));
+        assertNull(table.get(2));
+        assertEquals("newer", table.get(3));
+        assertEquals(1, table.getEvictions());
+
+        /* the displaced entry takes the place of the newest one */
+        table.put(4, "costliest", 100);
+        assertEquals("costliest", table.get(4));
+        assertEquals("costly", table.get(1));
+        assertNull(table.get(3));
+        assertEquals(2, table.getEvictions());
+    }
+
+    @Test
+    void shouldStayConsistentWhenSharedByThreads() throws InterruptedException {
+        TranspositionTable<Long> table = new TranspositionTable<>(64);
+        AtomicBoolean consistent = new AtomicBoolean(true);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; ++t) {
+            SplittableRandom random = new SplittableRandom(t);
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 200_000; ++i) {
+                    long key = random.nextLong(1000);
+                    Long value = table.get(key);
+                    if (value != null && value != key * 3) consistent.set(false);
+                    table.put(key, key * 3, random.nextInt(10));
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) thread.join();
+
+        assertTrue(consistent.get());
+        assertEquals(800_000, table.getHits() + table.getMisses());
+        assertTrue(table.getHits() > 0);
+    }
+
+    @Test
+    void shouldSolveEveryPositionOnceForTheShootersSharingTheTable() {
+        GameRules rules = new GameRules(6, 6, List.of(new GameRules.ShipType("Destroyer", 3, 1),
+                new GameRules.ShipType("Patrol", 2, 1)), false, 1);
+        TranspositionTable<Posterior> table = new TranspositionTable<>(1024);
+        List<List<Coordinates>> games = new ArrayList<>();
+        try (PosteriorSolver solver = new PosteriorSolver(1, 5)) {
+            for (int i = 0; i < 2; ++i) {
+                Game game = new Game(rules, BitboardOceanGrid::new, 13L);
+                Shooter shooter = new PosteriorShooter(solver, Duration.ofSeconds(10), table);
+                shooter.initialise(game);
+                List<Coordinates> shots = new ArrayList<>();
+                while (game.isRunning()) {
+                    Coordinates target = shooter.nextTarget();
+                    shots.add(target);
+                    game.setTargetCoordinates(target);
+                    game.tick();
+                    shooter.registerResult(target, game.getShotResult());
+                }
+                games.add(shots);
+            }
+        }
+
+        assertEquals(games.get(0), games.get(1));
+        assertEquals(games.get(0).size(), table.getMisses());
+        assertEquals(games.get(1).size(), table.getHits());
+    }
+}
@@ -0,0 +1,86 @@
+package konopi.battleship.jfr;
+
+import konopi.battleship.logic.BitboardOceanGrid;
+import konopi.battleship.logic.Coordinates;
+import konopi.battleship.logic.Game;
+import konopi.battleship.logic.GameRules;
+import konopi.battleship.logic.OceanGrid;
+import konopi.battleship.logic.Ship;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameEventsTest {
+    @TempDir
+    Path directory;
+
+    /**
+     * Records the events of the action into a file and reads them back.
+     */
+    private List<RecordedEvent> record(Runnable action) throws IOException {
+        Path file = directory.resolve("game.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(GameCreatedEvent.class);
+            recording.enable(FleetPlacementEvent.class);
+            recording.enable(ShotEvent.class);
+            recording.start();
+            action.run();
+            recording.stop();
+            recording.dump(file);
+        }
+        return RecordingFile.readAllEvents(file);
+    }
+
+    private static List<RecordedEvent> ofType(List<RecordedEvent> events, String name) {
+        return events.stream().filter(event -> event.getEventType().getName().equals(name)).toList();
+    }
+
+    @Test
+    void shouldRecordTheGameAndEveryShotOfASalvo() throws IOException {
+        GameRules rules = new GameRules(10, 10, GameRules.standard().fleet(), true, 3);
+        List<RecordedEvent> events = record(() -> {
+            Game game = new Game(rules, BitboardOceanGrid::new, 7L);
+            int[] targets = {Coordinates.pack(0, 0), Coordinates.pack(0, 1), Coordinates.pack(0, 12)};
+            game.fireSalvo(targets, 3, new int[3]);
+        });
+
+        List<RecordedEvent> created = ofType(events, "konopi.battleship.GameCreated");
+        assertEquals(1, created.size());
+        assertEquals(3, created.get(0).getInt("shipAmount"));
+        assertEquals(BitboardOceanGrid.class.getName(), created.get(0).getString("grid"));
+        assertFalse(created.get(0).getBoolean("restored"));
+
+        List<RecordedEvent> placements = ofType(events, "konopi.battleship.FleetPlacement");
+        assertEquals(1, placements.size());
+        assertEquals(3, placements.get(0).getInt("attempts"));
+
+        List<RecordedEvent> shots = ofType(events, "konopi.battleship.Shot");
+        assertEquals(List.of("A1", "A2", "A13"), shots.stream().map(shot -> shot.getString("coordinates")).toList());
+        assertEquals("OUT_OF_BOUNDS", shots.get(2).getString("result"));
+    }
+
+    @Test
+    void shouldStopRecordingShotsWhenTheLastShipSinks() throws IOException {
+        List<RecordedEvent> events = record(() -> {
+            OceanGrid grid = new OceanGrid(4, 4);
+            grid.addShip(new Ship(Coordinates.of(0, 1), 1, Ship.Orientation.HORIZONTAL, "Raft"));
+            int[] targets = {Coordinates.pack(0, 0), Coordinates.pack(0, 1), Coordinates.pack(0, 2)};
+            assertEquals(2, grid.shoot(targets, 0, 3, new int[3]));
+        });
+
+        List<RecordedEvent> shots = ofType(events, "konopi.battleship.Shot");
+        assertEquals(2, shots.size());
+        assertEquals("MISS", shots.get(0).getString("result"));
+        assertNull(shots.get(0).getString("ship"));
+        assertEquals("SINK", shots.get(1).getString("result"));
+        assertEquals("Raft", shots.get(1).getString("ship"));
+    }
+}
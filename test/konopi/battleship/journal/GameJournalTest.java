@@ -0,0 +1,215 @@
+package konopi.battleship.journal;
+
+import konopi.battleship.logic.BitboardOceanGrid;
+import konopi.battleship.logic.Coordinates;
+import konopi.battleship.logic.Game;
+import konopi.battleship.logic.GameRules;
+import konopi.battleship.logic.OceanGrid;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static konopi.battleship.logic.GameFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameJournalTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldReplayGamesInProgress() throws Exception {
+        Path path = directory.resolve("games.journal");
+        GameRules rules = GameRules.standard();
+        Map<Long, Game> games = new LinkedHashMap<>();
+
+        /* a small region size, so the records span several regions */
+        try (GameJournal journal = new GameJournal(path, rules, 1024, 1_000_000)) {
+            for (long id = 1; id <= 20; ++id) {
+                Game game = new Game(rules, BitboardOceanGrid::new, new SplittableRandom(id));
+                journal.attach(id, game);
+                games.put(id, game);
+            }
+            for (Map.Entry<Long, Game> entry : games.entrySet()) {
+                play(entry.getValue(), (int) (entry.getKey() * 5), entry.getKey());
+            }
+            games.get(3L).setTargetCoordinates(Coordinates.valueOf("K20"));
+            games.get(3L).tick();
+            journal.close(7);
+            journal.sync();
+        }
+        games.remove(7L);
+
+        Map<Long, Game> replayed = GameJournal.replay(path, rules, OceanGrid::new);
+        assertEquals(List.copyOf(games.keySet()), List.copyOf(replayed.keySet()));
+        games.forEach((id, game) -> assertSameBoard(game, replayed.get(id)));
+    }
+
+    @Test
+    void shouldSkipTornRecordsAndAppendAfterValidOnes() throws Exception {
+        Path path = directory.resolve("games.journal");
+        GameRules rules = GameRules.standard();
+        Game game = new Game(rules, BitboardOceanGrid::new, new SplittableRandom(1));
+        try (GameJournal journal = new GameJournal(path, rules, 1024, 1_000_000)) {
+            journal.attach(1, game);
+            play(game, 10, 1);
+        }
+
+        /* a record with the type written but the rest lost, as after a crash */
+        long end = GameJournal.HEADER_SIZE + (long) GameJournal.RECORD_SIZE * (game.getShips().size() + 10);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{GameJournal.SHOT}), end);
+        }
+
+        Game other = new Game(rules, BitboardOceanGrid::new, new SplittableRandom(2));
+        try (GameJournal journal = new GameJournal(path, rules, 1024, 1_000_000)) {
+            journal.attach(2, other);
+            play(other, 30, 2);
+        }
+
+        Map<Long, Game> replayed = GameJournal.replay(path, rules, BitboardOceanGrid::new);
+        assertSameBoard(game, replayed.get(1L));
+        assertSameBoard(other, replayed.get(2L));
+    }
+
+    @Test
+    void shouldDropGamesDivergingFromTheJournal() throws Exception {
+        Path path = directory.resolve("games.journal");
+        GameRules rules = GameRules.standard();
+        Game first = new Game(rules, BitboardOceanGrid::new, new SplittableRandom(1));
+        Game second = new Game(rules, BitboardOceanGrid::new, new SplittableRandom(2));
+        try (GameJournal journal = new GameJournal(path, rules, 1024, 1_000_000)) {
+            journal.attach(1, first);
+            journal.attach(2, second);
+            play(first, 10, 1);
+            play(second, 10, 2);
+        }
+        assertEquals(10, GameJournal.recover(path, rules, BitboardOceanGrid::new).get(1L).shots());
+
+        /* another result of the first shot, with a valid checksum as if the fleet was placed differently */
+        long position = GameJournal.HEADER_SIZE
+                + (long) GameJournal.RECORD_SIZE * (first.getShips().size() + second.getShips().size());
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer record = ByteBuffer.allocate(GameJournal.RECORD_SIZE);
+            channel.read(record, position);
+            int result = ((record.get(1) & GameJournal.VALUE_MASK) + 1) % 3;
+            int checksum = GameJournal.checksum(record.get(0), result, record.get(2) & 0xFF, record.getLong(4),
+                    record.getInt(12));
+            record.put(1, (byte) (result | checksum >>> 8 << 2));
+            record.put(3, (byte) checksum);
+            channel.write(record.flip(), position);
+        }
+
+        Map<Long, GameJournal.RecoveredGame> recovered = GameJournal.recover(path, rules, BitboardOceanGrid::new);
+        assertEquals(List.of(2L), List.copyOf(recovered.keySet()));
+        assertEquals(10, recovered.get(2L).shots());
+        assertSameBoard(second, recovered.get(2L).game());
+    }
+
+    @Test
+    void shouldStopAtTheFirstLostRecord() throws Exception {
+        Path path = directory.resolve("games.journal");
+        GameRules rules = GameRules.standard();
+        Game first = new Game(rules, BitboardOceanGrid::new, new SplittableRandom(1));
+        Game second = new Game(rules, BitboardOceanGrid::new, new SplittableRandom(2));
+        try (GameJournal journal = new GameJournal(path, rules, 1024, 1_000_000)) {
+            journal.attach(1, first);
+            play(first, 10, 1);
+            journal.attach(2, second);
+            play(second, 10, 2);
+        }
+
+        /* the fifth shot of the first game lost, as the later records reached the disk before a crash */
+        long position = GameJournal.HEADER_SIZE + (long) GameJournal.RECORD_SIZE * (first.getShips().size() + 4);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(GameJournal.RECORD_SIZE), position);
+        }
+        Map<Long, GameJournal.RecoveredGame> recovered = GameJournal.recover(path, rules, BitboardOceanGrid::new);
+        assertEquals(List.of(1L), List.copyOf(recovered.keySet()));
+        assertEquals(4, recovered.get(1L).shots());
+
+        /* new records take the place of the lost one, the records after it are gone */
+        Game third = new Game(rules, BitboardOceanGrid::new, new SplittableRandom(3));
+        try (GameJournal journal = new GameJournal(path, rules, 1024, 1_000_000)) {
+            journal.attach(3, third);
+            play(third, 3, 3);
+        }
+        recovered = GameJournal.recover(path, rules, BitboardOceanGrid::new);
+        assertEquals(List.of(1L, 3L), List.copyOf(recovered.keySet()));
+        assertEquals(4, recovered.get(1L).shots());
+        assertEquals(3, recovered.get(3L).shots());
+        assertSameBoard(third, recovered.get(3L).game());
+    }
+
+    @Test
+    void shouldOnlyCommitWrittenRecords() throws Exception {
+        Path path = directory.resolve("games.journal");
+        AtomicLong forced = new AtomicLong();
+        AtomicInteger unwritten = new AtomicInteger();
+        int writers = 4;
+        int records = 2_000;
+
+        /* regions of 4 records and a short commit interval, so the commits race the writers across regions */
+        try (GameJournal journal = new GameJournal(path, GameRules.standard(), 4 * GameJournal.RECORD_SIZE, 50_000) {
+            @Override
+            void force(MappedByteBuffer region, int offset, int length) {
+                for (int record = offset; record < offset + length; record += GameJournal.RECORD_SIZE) {
+                    if (region.get(record) == 0) unwritten.incrementAndGet();
+                }
+                forced.addAndGet(length);
+                super.force(region, offset, length);
+            }
+        }) {
+            ExecutorService executor = Executors.newFixedThreadPool(writers);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int writer = 0; writer < writers; ++writer) {
+                    long gameId = writer;
+                    futures.add(executor.submit(() -> {
+                        for (int i = 1; i <= records; ++i) {
+                            journal.close(gameId);
+                            if (i % 50 == 0) journal.sync();
+                        }
+                        return null;
+                    }));
+                }
+                /* a commit dying on a record it shouldn't see leaves the syncs waiting */
+                for (Future<?> future : futures) {
+                    future.get(1, TimeUnit.MINUTES);
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        assertEquals(0, unwritten.get());
+        /* every record forced exactly once */
+        assertEquals((long) writers * records * GameJournal.RECORD_SIZE, forced.get());
+    }
+
+    @Test
+    void shouldRejectJournalOfOtherGridSize() throws IOException {
+        Path path = directory.resolve("games.journal");
+        new GameJournal(path, GameRules.standard()).close();
+
+        GameRules rules = new GameRules(12, 12, GameRules.standard().fleet(), true);
+        assertThrows(IllegalArgumentException.class, () -> new GameJournal(path, rules));
+        assertThrows(IllegalArgumentException.class, () -> GameJournal.replay(path, rules, OceanGrid::new));
+    }
+}
@@ -0,0 +1,151 @@
+package konopi.battleship.logic;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BitboardOceanGridTest {
+    private BitboardOceanGrid og;
+
+    @BeforeEach
+    void setUp() {
+        og = new BitboardOceanGrid(10, 10);
+    }
+
+    @Test
+    void testAddShip() {
+        Ship inBounds = new Ship(new Coordinates("B5"), 4,
+                Ship.Orientation.VERTICAL, "Battleship");
+        Ship outOfBounds = new Ship(new Coordinates("G14"), 6,
+                Ship.Orientation.HORIZONTAL, "Carrier");
+        Ship overlap = new Ship(new Coordinates("B4"), 2,
+                Ship.Orientation.HORIZONTAL, "Destroyer");
+
+        BitboardOceanGrid localGrid = new BitboardOceanGrid(24, 24);
+
+        assertTrue(og.addShip(inBounds));
+        assertFalse(og.addShip(outOfBounds));
+        assertFalse(og.addShip(overlap));
+
+        assertTrue(localGrid.addShip(outOfBounds));
+        assertTrue(localGrid.addShip(overlap));
+    }
+
+    @Test
+    void testShoot() {
+        Ship s = new Ship(new Coordinates("A3"), 2, Ship.Orientation.VERTICAL, "Cruiser");
+        og.addShip(s);
+
+        Grid.ShotResult z15 = og.shoot(new Coordinates("Z15")); // out of bounds
+        Grid.ShotResult a4 = og.shoot(new Coordinates("A4")); // miss
+        Grid.ShotResult b3 = og.shoot(new Coordinates("B3")); // hit
+        Grid.ShotResult a3 = og.shoot(new Coordinates("A3")); // sink
+
+        assertNull(z15);
+
+        assertEquals(Ship.HitDesignation.MISS, a4.hitDesignation());
+        assertEquals(Ship.HitDesignation.HIT, b3.hitDesignation());
+        assertEquals(Ship.HitDesignation.SINK, a3.hitDesignation());
+
+        assertNull(a4.shipName());
+        assertEquals("Cruiser", b3.shipName());
+        assertEquals("Cruiser", a3.shipName());
+        assertEquals(0, og.getActiveShipAmount());
+    }
+
+    @Test
+    void testGetHitMap() {
+        Ship s = new Ship(new Coordinates("A3"), 2, Ship.Orientation.VERTICAL, "Cruiser");
+        og.addShip(s);
+
+        og.shoot(new Coordinates("Z15")); // out of bounds
+        og.shoot(new Coordinates("A4")); // miss
+        og.shoot(new Coordinates("B3")); // hit
+        og.shoot(new Coordinates("A3")); // sink
+
+        assertEquals(3, og.getHitMap().size());
+
+        assertEquals(Ship.HitDesignation.MISS, og.getHitMap().get(new Coordinates("A4")));
+        assertEquals(Ship.HitDesignation.HIT, og.getHitMap().get(new Coordinates("B3")));
+        assertEquals(Ship.HitDesignation.SINK, og.getHitMap().get(new Coordinates("A3")));
+    }
+
+    @Test
+    void shouldMatchOceanGrid() {
+        OceanGrid reference = new OceanGrid(10, 10);
+        String[][] ships = {{"B2", "5", "HORIZONTAL"}, {"D4", "4", "VERTICAL"}, {"J7", "3", "HORIZONTAL"}};
+        for (String[] ship : ships) {
+            assertEquals(
+                    reference.addShip(new Ship(new Coordinates(ship[0]), Integer.parseInt(ship[1]),
+                            Ship.Orientation.valueOf(ship[2]), "Ship" + ship[0])),
+                    og.addShip(new Ship(new Coordinates(ship[0]), Integer.parseInt(ship[1]),
+                            Ship.Orientation.valueOf(ship[2]), "Ship" + ship[0])));
+        }
+
+        /* every square twice, so repeated shots are compared as well */
+        for (int pass = 0; pass < 2; ++pass) {
+            for (char letter = 'A'; letter <= 'K'; ++letter) {
+                for (int number = 1; number <= 11; ++number) {
+                    Coordinates target = new Coordinates(letter + String.valueOf(number));
+                    assertEquals(reference.shoot(target), og.shoot(target), target.toString());
+                    assertEquals(reference.getActiveShipAmount(), og.getActiveShipAmount());
+                    assertEquals(reference.getStateHash(), og.getStateHash(), target.toString());
+                }
+            }
+            assertEquals(reference.getHitMap(), og.getHitMap());
+        }
+    }
+
+    @Test
+    void shouldShootInBatchesLikeOneByOne() {
+        String[][] ships = {{"B2", "5", "HORIZONTAL"}, {"D4", "4", "VERTICAL"}, {"J7", "3", "HORIZONTAL"}};
+        for (Grid batch : new Grid[]{new OceanGrid(10, 10), og}) {
+            Grid reference = new OceanGrid(10, 10);
+            for (String[] ship : ships) {
+                for (Grid grid : new Grid[]{reference, batch}) {
+                    grid.addShip(new Ship(new Coordinates(ship[0]), Integer.parseInt(ship[1]),
+                            Ship.Orientation.valueOf(ship[2]), "Ship" + ship[0]));
+                }
+            }
+
+            /* every square twice and some out of bounds, in salvos of 7 */
+            int[] targets = new int[2 * 11 * 11];
+            for (int i = 0; i < targets.length; ++i) {
+                targets[i] = Coordinates.pack(i / 11 % 11, i % 11);
+            }
+            int[] results = new int[targets.length];
+            int fired = 0;
+            for (int offset = 0; offset < targets.length; offset += 7) {
+                int count = Math.min(7, targets.length - offset);
+                int salvo = batch.shoot(targets, offset, count, results);
+                fired += salvo;
+                if (salvo < count) break;
+            }
+
+            for (int i = 0; i < fired; ++i) {
+                Grid.ShotResult expected = reference.shoot(Coordinates.ofPacked(targets[i]));
+                if (expected == null) {
+                    assertEquals(Grid.OUT_OF_BOUNDS, Grid.resultCode(results[i]));
+                    continue;
+                }
+                assertEquals(expected.hitDesignation().ordinal(), Grid.resultCode(results[i]));
+                int shipId = Grid.shipId(results[i]);
+                assertEquals(expected.shipName(), shipId == 0 ? null : "Ship" + ships[shipId - 1][0]);
+            }
+            /* stopped right after the last ship was sunk */
+            assertEquals(0, batch.getActiveShipAmount());
+            assertEquals(0, reference.getActiveShipAmount());
+            assertEquals(reference.getHitMap(), batch.getHitMap());
+            assertEquals(reference.getStateHash(), batch.getStateHash());
+        }
+    }
+
+    @Test
+    void shouldBeUsableByGame() {
+        Game game = new Game(BitboardOceanGrid::new);
+
+        assertInstanceOf(BitboardOceanGrid.class, game.getOceanGrid());
+        assertEquals(3, game.getOceanGrid().getActiveShipAmount());
+    }
+}
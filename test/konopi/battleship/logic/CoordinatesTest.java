@@ -84,6 +84,16 @@ public class CoordinatesTest {
         assertEquals(expected, exception.getMessage());
     }
 
+    @Test
+    void shouldShowTheNumberAfterSeveralLetters() {
+        String expected = "Coordinate number must be an integer: 7x";
+
+        IllegalArgumentException exception = assertThrows(
+                IllegalArgumentException.class, () -> new Coordinates("AB7x")
+        );
+        assertEquals(expected, exception.getMessage());
+    }
+
     @Test
     void shouldNotAcceptNonLettersAsLetter() {
         String expected = "Coordinate letter must be a latin character: $";
@@ -153,4 +163,82 @@ public class CoordinatesTest {
         assertEquals("A5", c1.toString());
         assertEquals("K47", c2.toString());
     }
+
+    @Test
+    void shouldServeCanonicalInstances() {
+        Coordinates c = Coordinates.of(3, 5);
+
+        assertSame(c, Coordinates.of(3, 5));
+        assertSame(c, Coordinates.valueOf("D6"));
+        assertSame(c, Coordinates.valueOf("d-6"));
+        assertSame(c, Coordinates.valueOf("A2").getOffset(3, 4));
+        assertEquals(new Coordinates("D6"), c);
+        assertEquals("D6", c.toString());
+    }
+
+    @Test
+    void shouldCreateCoordinatesBeyondCache() {
+        Coordinates c = Coordinates.of(0, Coordinates.CACHED_NUMBERS);
+
+        assertEquals(new Coordinates("A" + (Coordinates.CACHED_NUMBERS + 1)), c);
+        assertEquals(Coordinates.of(0, Coordinates.CACHED_NUMBERS).hashCode(), c.hashCode());
+    }
+
+    @Test
+    void shouldPackCoordinates() {
+        int packed = Coordinates.parsePacked("K47");
+
+        assertEquals(10, Coordinates.letterIndexOf(packed));
+        assertEquals(46, Coordinates.numberIndexOf(packed));
+        assertEquals(Coordinates.pack(10, 46), packed);
+        assertEquals(packed, new Coordinates("K47").toPacked());
+        assertSame(Coordinates.of(10, 46), Coordinates.ofPacked(packed));
+    }
+
+    @Test
+    void shouldNotPackOutOfBoundsIndices() {
+        assertThrows(IllegalArgumentException.class, () -> Coordinates.pack(-1, 0));
+        assertThrows(IllegalArgumentException.class, () -> Coordinates.pack(0, Coordinates.MAX_PACKED_INDEX + 1));
+    }
+
+    @Test
+    void shouldNotAcceptMissingNumber() {
+        String expected = "Coordinate number must be an integer: -";
+
+        IllegalArgumentException exception = assertThrows(
+                IllegalArgumentException.class, () -> Coordinates.parsePacked("A-")
+        );
+        assertEquals(expected, exception.getMessage());
+    }
+
+    @Test
+    void shouldParseMultipleLetters() {
+        assertEquals(26, new Coordinates("AA1").getLetterIndex());
+        assertEquals(27, Coordinates.valueOf("ab-3").getLetterIndex());
+        assertEquals(701, Coordinates.valueOf("ZZ3").getLetterIndex());
+        assertEquals(702, Coordinates.valueOf("AAA3").getLetterIndex());
+        assertEquals(Coordinates.MAX_LETTER_INDEX, Coordinates.valueOf("CRXP1").getLetterIndex());
+    }
+
+    @Test
+    void shouldNotAcceptLettersPastMaximum() {
+        String expected = "Coordinate letters out of bounds: CRXQ";
+
+        IllegalArgumentException exception = assertThrows(
+                IllegalArgumentException.class, () -> new Coordinates("CRXQ1")
+        );
+        assertEquals(expected, exception.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> new Coordinates("ZZZZZZZZZZZZZZ1"));
+    }
+
+    @Test
+    void testLetterLabel() {
+        assertEquals("A", Coordinates.letterLabel(0));
+        assertEquals("Z", Coordinates.letterLabel(25));
+        assertEquals("AA", Coordinates.letterLabel(26));
+        assertEquals("AZ", Coordinates.letterLabel(51));
+        assertEquals("BA", Coordinates.letterLabel(52));
+        assertEquals("CRXP", Coordinates.letterLabel(Coordinates.MAX_LETTER_INDEX));
+        assertEquals("AB12", Coordinates.of(27, 11).toString());
+    }
 }
@@ -0,0 +1,103 @@
+package konopi.battleship.logic;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FleetPlacerTest {
+
+    @Test
+    void shouldFillTheGridCompletely() {
+        /* 4 ships of size 4 fit on a 4x4 grid in exactly two ways, all horizontal or all vertical */
+        for (int seed = 0; seed < 20; ++seed) {
+            OceanGrid grid = new OceanGrid(4, 4);
+            FleetPlacer placer = new FleetPlacer(4, 4, new SplittableRandom(seed));
+
+            for (int i = 0; i < 4; ++i) {
+                placer.place(grid, "Destroyer", 4);
+            }
+            assertEquals(4, grid.getActiveShipAmount());
+        }
+    }
+
+    @Test
+    void shouldFailWhenThereIsNoRoom() {
+        FleetPlacer placer = new FleetPlacer(10, 10, new SplittableRandom(1));
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> placer.place("Carrier", 11));
+        assertEquals("No room left for Carrier of size 11 on a 10x10 grid", exception.getMessage());
+    }
+
+    @Test
+    void shouldReachEverySquare() {
+        FleetPlacer placer = new FleetPlacer(10, 10, new SplittableRandom(3));
+        HashSet<Coordinates> sterns = new HashSet<>();
+
+        /* single square ships fill the whole grid, including the last column */
+        for (int i = 0; i < 100; ++i) {
+            Ship ship = placer.place("Raft", 1);
+            sterns.addAll(ship.getActiveSquares());
+        }
+
+        assertEquals(100, sterns.size());
+        assertTrue(sterns.contains(Coordinates.valueOf("A10")));
+        assertTrue(sterns.contains(Coordinates.valueOf("J10")));
+    }
+
+    @Test
+    void shouldPickBothOrientations() {
+        HashSet<Ship.Orientation> orientations = new HashSet<>();
+        for (int seed = 0; seed < 50; ++seed) {
+            FleetPlacer placer = new FleetPlacer(2, 2, new SplittableRandom(seed));
+            Ship ship = placer.place("Destroyer", 2);
+            boolean horizontal = ship.getActiveSquares().stream()
+                    .map(Coordinates::getLetterIndex).distinct().count() == 1;
+            orientations.add(horizontal ? Ship.Orientation.HORIZONTAL : Ship.Orientation.VERTICAL);
+        }
+
+        assertEquals(2, orientations.size());
+    }
+
+    @Test
+    void shouldKeepShipsApart() {
+        for (int seed = 0; seed < 20; ++seed) {
+            FleetPlacer placer = new FleetPlacer(10, 10, false, new SplittableRandom(seed));
+            HashSet<Coordinates> taken = new HashSet<>();
+
+            for (int i = 0; i < 6; ++i) {
+                Ship ship = placer.place("Destroyer", 3);
+                for (Coordinates square : ship.getActiveSquares()) {
+                    for (int dy = -1; dy <= 1; ++dy) {
+                        for (int dx = -1; dx <= 1; ++dx) {
+                            int y = square.getLetterIndex() + dy;
+                            int x = square.getNumberIndex() + dx;
+                            if (x >= 0 && y >= 0) {
+                                assertFalse(taken.contains(Coordinates.of(y, x)), "touching at " + square);
+                            }
+                        }
+                    }
+                }
+                taken.addAll(ship.getActiveSquares());
+            }
+        }
+    }
+
+    @Test
+    void shouldOnlyUseAcceptedSlots() {
+        FleetPlacer placer = new FleetPlacer(10, 10, new SplittableRandom(5));
+        FleetPlacer.SlotFilter firstRow = (sternLetterIndex, sternNumberIndex, size, orientation) ->
+                sternLetterIndex == 0 && sternNumberIndex % 5 == 0 && orientation == Ship.Orientation.HORIZONTAL;
+
+        /* the first row has two such slots, the third ship falls back to any slot */
+        for (int i = 0; i < 2; ++i) {
+            Ship ship = placer.place("Carrier", 5, firstRow);
+            assertTrue(ship.getActiveSquares().stream().allMatch(square -> square.getLetterIndex() == 0));
+        }
+        Ship ship = placer.place("Carrier", 5, firstRow);
+        assertTrue(ship.getActiveSquares().stream().noneMatch(square -> square.getLetterIndex() == 0));
+    }
+}
@@ -0,0 +1,57 @@
+package konopi.battleship.logic;
+
+import konopi.battleship.ai.RandomShooter;
+import konopi.battleship.ai.Shooter;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Helpers shared by the tests playing games and comparing their state, e.g. after a snapshot or a replay.
+ */
+public final class GameFixtures {
+    private GameFixtures() {
+    }
+
+    /**
+     * Fires the specified amount of shots chosen by a random shooter.
+     */
+    public static void play(Game game, int shots, long seed) {
+        RandomShooter shooter = new RandomShooter(new SplittableRandom(seed));
+        shooter.initialise(game);
+        play(game, shooter, shots);
+    }
+
+    /**
+     * Fires the specified amount of shots chosen by an initialised shooter, fewer if the game ends.
+     */
+    public static void play(Game game, Shooter shooter, int shots) {
+        for (int i = 0; i < shots && game.isRunning(); ++i) {
+            game.setTargetCoordinates(shooter.nextTarget());
+            game.tick();
+        }
+    }
+
+    /**
+     * Asserts that the games are in the same state: the last shot, the hit history and the ships.
+     */
+    public static void assertSameState(Game expected, Game actual) {
+        assertEquals(expected.getTargetCoordinates(), actual.getTargetCoordinates());
+        assertEquals(expected.getShotResult(), actual.getShotResult());
+        assertSameBoard(expected, actual);
+    }
+
+    /**
+     * Asserts that the games have the same hit history and ships, regardless of the last shot.
+     */
+    public static void assertSameBoard(Game expected, Game actual) {
+        assertEquals(expected.isRunning(), actual.isRunning());
+        assertEquals(expected.getOceanGrid().getActiveShipAmount(), actual.getOceanGrid().getActiveShipAmount());
+        assertEquals(expected.getOceanGrid().getHitMap(), actual.getOceanGrid().getHitMap());
+        assertEquals(expected.getShips().size(), actual.getShips().size());
+        for (int i = 0; i < expected.getShips().size(); ++i) {
+            assertEquals(expected.getShips().get(i).getActiveSquares(), actual.getShips().get(i).getActiveSquares());
+        }
+    }
+}
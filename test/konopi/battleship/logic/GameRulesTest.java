@@ -0,0 +1,98 @@
+package konopi.battleship.logic;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameRulesTest {
+
+    @Test
+    void testStandard() {
+        GameRules rules = GameRules.standard();
+
+        assertEquals(10, rules.sizeX());
+        assertEquals(10, rules.sizeY());
+        assertEquals(3, rules.shipAmount());
+        assertEquals(5, rules.shipType("Battleship").size());
+        assertNull(rules.shipType("Carrier"));
+    }
+
+    @Test
+    void testFromProperties() throws IOException {
+        Properties properties = new Properties();
+        properties.load(new StringReader("""
+                grid.x=1000
+                grid.y=800
+                fleet=Carrier:5x10, Battleship:4X20, Raft:1
+                ships.adjacent=false
+                salvo=3
+                """));
+
+        GameRules rules = GameRules.fromProperties(properties);
+
+        assertEquals(1000, rules.sizeX());
+        assertEquals(800, rules.sizeY());
+        assertFalse(rules.adjacentShips());
+        assertEquals(3, rules.salvoSize());
+        assertEquals(List.of(
+                new GameRules.ShipType("Carrier", 5, 10),
+                new GameRules.ShipType("Battleship", 4, 20),
+                new GameRules.ShipType("Raft", 1, 1)), rules.fleet());
+    }
+
+    @Test
+    void shouldTakeMissingPropertiesFromStandard() {
+        Properties properties = new Properties();
+        properties.setProperty("grid.y", "30");
+
+        GameRules rules = GameRules.fromProperties(properties);
+
+        assertEquals(10, rules.sizeX());
+        assertEquals(30, rules.sizeY());
+        assertEquals(GameRules.standard().fleet(), rules.fleet());
+        assertEquals(1, rules.salvoSize());
+    }
+
+    @Test
+    void shouldNotAcceptInvalidFleet() {
+        Properties properties = new Properties();
+        properties.setProperty("fleet", "Carrier=5");
+
+        IllegalArgumentException exception = assertThrows(
+                IllegalArgumentException.class, () -> GameRules.fromProperties(properties)
+        );
+        assertEquals("Fleet entry must be written as name:size or name:sizeXamount: Carrier=5", exception.getMessage());
+
+        assertThrows(IllegalArgumentException.class, () -> new GameRules(10, 10, List.of(), true));
+        assertThrows(IllegalArgumentException.class, () -> new GameRules(10, 10, List.of(
+                new GameRules.ShipType("Raft", 1, 1), new GameRules.ShipType("Raft", 2, 1)), true));
+    }
+
+    @Test
+    void shouldNotAcceptInvalidGridSize() {
+        List<GameRules.ShipType> fleet = GameRules.standard().fleet();
+
+        assertThrows(IllegalArgumentException.class, () -> new GameRules(0, 10, fleet, true));
+        assertThrows(IllegalArgumentException.class,
+                () -> new GameRules(10, Coordinates.MAX_LETTER_INDEX + 2, fleet, true));
+        assertThrows(IllegalArgumentException.class,
+                () -> new GameRules(Coordinates.MAX_PACKED_INDEX + 2, 10, fleet, true));
+        assertThrows(IllegalArgumentException.class, () -> new GameRules(100_000, 100_000, fleet, true));
+    }
+
+    @Test
+    void shouldSizeTheGame() {
+        GameRules rules = new GameRules(1000, 1000, List.of(new GameRules.ShipType("Carrier", 5, 100)), false);
+        Game game = new Game(rules);
+
+        assertEquals(1000, game.GRID_X);
+        assertEquals(1000, game.GRID_Y);
+        assertEquals(100, game.getOceanGrid().getActiveShipAmount());
+        assertSame(rules, game.getRules());
+    }
+}
@@ -0,0 +1,107 @@
+package konopi.battleship.logic;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static konopi.battleship.logic.GameFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameSnapshotTest {
+    private static Game copy(Game game, Grid.Factory gridFactory) {
+        ByteBuffer buffer = ByteBuffer.allocate(GameSnapshot.maxSize(game));
+        GameSnapshot.write(game, buffer);
+        buffer.flip();
+        Game copy = GameSnapshot.read(buffer, game.getRules(), gridFactory);
+        assertFalse(buffer.hasRemaining());
+        return copy;
+    }
+
+    @Test
+    void shouldRestoreGamesOnEitherBackend() {
+        for (Grid.Factory saved : List.<Grid.Factory>of(OceanGrid::new, BitboardOceanGrid::new)) {
+            for (int shots = 0; shots <= 100; shots += 10) {
+                Game game = new Game(GameRules.standard(), saved, new SplitMix64(shots));
+                play(game, shots, shots);
+                /* a repeated shot at a hit square is recorded as a miss */
+                if (game.isRunning()) {
+                    Coordinates hit = game.getOceanGrid().getHitMap().entrySet().stream()
+                            .filter(entry -> entry.getValue() == Ship.HitDesignation.HIT)
+                            .map(Map.Entry::getKey).findFirst().orElse(Coordinates.of(0, 0));
+                    game.setTargetCoordinates(hit);
+                    game.tick();
+                }
+
+                for (Grid.Factory restored : List.<Grid.Factory>of(OceanGrid::new, BitboardOceanGrid::new)) {
+                    Game copy = copy(game, restored);
+                    assertSameState(game, copy);
+
+                    /* both games carry on the same way */
+                    play(game, 200, 99);
+                    play(copy, 200, 99);
+                    assertSameState(game, copy);
+                }
+            }
+        }
+    }
+
+    @Test
+    void shouldRestoreTheGenerator() {
+        SplitMix64 random = new SplitMix64(5);
+        random.nextLong();
+        Game game = new Game(GameRules.standard(), BitboardOceanGrid::new, random);
+        Game copy = copy(game, BitboardOceanGrid::new);
+        assertEquals(random.nextLong(), ((SplitMix64) copy.getRandom()).nextLong());
+
+        /* the state of other generators is not accessible */
+        Game other = new Game(GameRules.standard(), BitboardOceanGrid::new, new SplittableRandom(5));
+        assertNull(copy(other, OceanGrid::new).getRandom());
+    }
+
+    @Test
+    void shouldKeepSnapshotsSmall() {
+        Game game = new Game(GameRules.standard(), BitboardOceanGrid::new, new SplitMix64(1));
+        play(game, 50, 1);
+        ByteBuffer buffer = ByteBuffer.allocate(GameSnapshot.maxSize(game));
+        GameSnapshot.write(game, buffer);
+        assertEquals(GameSnapshot.HEADER_SIZE + 3 * GameSnapshot.SHIP_SIZE + 25, buffer.position());
+    }
+
+    @Test
+    void shouldUseSparseEncodingOnLargeGrids() {
+        GameRules rules = new GameRules(1000, 1000, GameRules.standard().fleet(), true);
+        Game game = new Game(rules, BitboardOceanGrid::new, new SplitMix64(2));
+        play(game, 1000, 2);
+        game.setTargetCoordinates(Coordinates.of(999, 999));
+        game.tick();
+
+        ByteBuffer buffer = ByteBuffer.allocate(GameSnapshot.maxSize(game));
+        GameSnapshot.write(game, buffer);
+        assertEquals(GameSnapshot.SPARSE, buffer.get(7));
+        assertTrue(buffer.position() < 5000, "size " + buffer.position());
+
+        buffer.flip();
+        assertSameState(game, GameSnapshot.read(buffer, rules, OceanGrid::new));
+    }
+
+    @Test
+    void shouldRejectSnapshotsOfOtherRulesOrVersions() {
+        Game game = new Game(GameRules.standard(), BitboardOceanGrid::new, new SplitMix64(3));
+        ByteBuffer buffer = ByteBuffer.allocate(GameSnapshot.maxSize(game));
+        GameSnapshot.write(game, buffer);
+        buffer.flip();
+
+        GameRules rules = new GameRules(12, 12, GameRules.standard().fleet(), true);
+        assertThrows(IllegalArgumentException.class, () -> GameSnapshot.read(buffer.duplicate(), rules, OceanGrid::new));
+
+        buffer.put(4, (byte) (GameSnapshot.VERSION + 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> GameSnapshot.read(buffer.duplicate(), GameRules.standard(), OceanGrid::new));
+        buffer.putInt(0, 0);
+        assertThrows(IllegalArgumentException.class,
+                () -> GameSnapshot.read(buffer.duplicate(), GameRules.standard(), OceanGrid::new));
+    }
+}
@@ -3,6 +3,9 @@ package konopi.battleship.logic;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class GameTest {
@@ -47,4 +50,43 @@ class GameTest {
 
         assertFalse(game.isRunning());
     }
+
+    @Test
+    void shouldFireSalvos() {
+        Game salvoGame = new Game(new GameRules(10, 10, GameRules.standard().fleet(), true, 4),
+                BitboardOceanGrid::new, new SplitMix64(1));
+        int[] targets = new int[4];
+        int[] results = new int[4];
+        assertThrows(IllegalArgumentException.class, () -> salvoGame.fireSalvo(targets, 5, results));
+
+        int shots = 0;
+        for (int square = 0; salvoGame.isRunning(); square += 4) {
+            for (int i = 0; i < 4; ++i) {
+                targets[i] = Coordinates.pack((square + i) / 10, (square + i) % 10);
+            }
+            shots += salvoGame.fireSalvo(targets, 4, results);
+        }
+        assertEquals(Ship.HitDesignation.SINK.ordinal(), Grid.resultCode(results[(shots - 1) % 4]));
+        assertEquals(shots, salvoGame.getOceanGrid().getHitMap().size());
+        assertEquals(0, salvoGame.fireSalvo(targets, 4, results));
+    }
+
+    @Test
+    void shouldFireTurnsFromTheOffsetAndNotifyTheListener() {
+        List<Coordinates> notified = new ArrayList<>();
+        game.setListener((game, target, shotResult) -> notified.add(target));
+        int[] targets = new int[102];
+        int[] results = new int[102];
+        for (int square = 0; square < 100; ++square) {
+            targets[square + 2] = Coordinates.pack(square / 10, square % 10);
+        }
+
+        int shots = game.fireTurns(targets, 2, 100, results);
+
+        assertFalse(game.isRunning());
+        assertEquals(Ship.HitDesignation.SINK.ordinal(), Grid.resultCode(results[shots + 1]));
+        assertEquals(shots, notified.size());
+        assertEquals(Coordinates.of(0, 0), notified.get(0));
+        assertEquals(0, game.fireTurns(targets, 2, 1, results));
+    }
 }
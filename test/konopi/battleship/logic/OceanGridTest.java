@@ -91,4 +91,37 @@ class OceanGridTest {
         assertEquals(Ship.HitDesignation.HIT, og.getHitMap().get(new Coordinates("B3")));
         assertEquals(Ship.HitDesignation.SINK, og.getHitMap().get(new Coordinates("A3")));
     }
+
+    @Test
+    void shouldHashTheStateSeenByTheShooter() {
+        OceanGrid other = new OceanGrid(10, 10);
+        og.addShip(new Ship(new Coordinates("A3"), 2, Ship.Orientation.VERTICAL, "Cruiser"));
+        og.addShip(new Ship(new Coordinates("F5"), 3, Ship.Orientation.HORIZONTAL, "Destroyer"));
+        /* the same fleet elsewhere, added in the other order */
+        other.addShip(new Ship(new Coordinates("H2"), 3, Ship.Orientation.VERTICAL, "Destroyer"));
+        other.addShip(new Ship(new Coordinates("C6"), 2, Ship.Orientation.HORIZONTAL, "Cruiser"));
+        assertEquals(og.getStateHash(), other.getStateHash());
+
+        og.shoot(new Coordinates("J10"));
+        og.shoot(new Coordinates("E1"));
+        other.shoot(new Coordinates("E1"));
+        other.shoot(new Coordinates("J10"));
+        assertEquals(og.getStateHash(), other.getStateHash());
+
+        long beforeHit = og.getStateHash();
+        og.shoot(new Coordinates("A3"));
+        other.shoot(new Coordinates("C6"));
+        assertNotEquals(beforeHit, og.getStateHash());
+        /* a hit on another square */
+        assertNotEquals(og.getStateHash(), other.getStateHash());
+
+        /* the sunk ship is known to the shooter, the squares of the other one are not */
+        og.shoot(new Coordinates("B3"));
+        for (Grid restored : new Grid[]{new OceanGrid(10, 10), new BitboardOceanGrid(10, 10)}) {
+            restored.addShip(new Ship(new Coordinates("A3"), 2, Ship.Orientation.VERTICAL, "Cruiser"));
+            restored.addShip(new Ship(new Coordinates("D7"), 3, Ship.Orientation.HORIZONTAL, "Destroyer"));
+            og.getHitMap().forEach(restored::restoreShot);
+            assertEquals(og.getStateHash(), restored.getStateHash());
+        }
+    }
 }
@@ -0,0 +1,175 @@
+package konopi.battleship.logic;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapOceanGridTest {
+    private static final String[][] SHIPS = {{"B2", "5", "HORIZONTAL"}, {"D4", "4", "VERTICAL"},
+            {"J7", "3", "HORIZONTAL"}};
+
+    @TempDir
+    Path directory;
+
+    private static void addShips(Grid... grids) {
+        for (String[] ship : SHIPS) {
+            for (Grid grid : grids) {
+                assertTrue(grid.addShip(new Ship(new Coordinates(ship[0]), Integer.parseInt(ship[1]),
+                        Ship.Orientation.valueOf(ship[2]), "Ship" + ship[0])));
+            }
+        }
+    }
+
+    @Test
+    void testAddShip() {
+        OffHeapOceanGrid og = new OffHeapOceanGrid(10, 10);
+        Ship inBounds = new Ship(new Coordinates("B5"), 4, Ship.Orientation.VERTICAL, "Battleship");
+        Ship outOfBounds = new Ship(new Coordinates("G14"), 6, Ship.Orientation.HORIZONTAL, "Carrier");
+        Ship overlap = new Ship(new Coordinates("B4"), 2, Ship.Orientation.HORIZONTAL, "Destroyer");
+
+        assertTrue(og.addShip(inBounds));
+        assertFalse(og.addShip(outOfBounds));
+        assertFalse(og.addShip(overlap));
+        assertEquals(1, og.getActiveShipAmount());
+        assertEquals(1, og.getShips().size());
+    }
+
+    @Test
+    void shouldMatchOceanGrid() {
+        OceanGrid reference = new OceanGrid(10, 10);
+        /* chunks of 8 bytes, so the planes span many buffers */
+        OffHeapOceanGrid og = new OffHeapOceanGrid(10, 10, 8);
+        addShips(reference, og);
+
+        /* every square twice, so repeated shots are compared as well */
+        for (int pass = 0; pass < 2; ++pass) {
+            for (char letter = 'A'; letter <= 'K'; ++letter) {
+                for (int number = 1; number <= 11; ++number) {
+                    Coordinates target = new Coordinates(letter + String.valueOf(number));
+                    assertEquals(reference.shoot(target), og.shoot(target), target.toString());
+                    assertEquals(reference.getActiveShipAmount(), og.getActiveShipAmount());
+                    assertEquals(reference.getStateHash(), og.getStateHash(), target.toString());
+                }
+            }
+            assertEquals(reference.getHitMap(), og.getHitMap());
+            assertEquals(reference.getShotAmount(), og.getShotAmount());
+        }
+    }
+
+    @Test
+    void shouldShootInBatchesLikeOneByOne() {
+        OceanGrid reference = new OceanGrid(10, 10);
+        OffHeapOceanGrid og = new OffHeapOceanGrid(10, 10, 8);
+        addShips(reference, og);
+
+        /* every square twice and some out of bounds, in salvos of 7 */
+        int[] targets = new int[2 * 11 * 11];
+        for (int i = 0; i < targets.length; ++i) {
+            targets[i] = Coordinates.pack(i / 11 % 11, i % 11);
+        }
+        int[] results = new int[targets.length];
+        int fired = 0;
+        for (int offset = 0; offset < targets.length; offset += 7) {
+            int count = Math.min(7, targets.length - offset);
+            int salvo = og.shoot(targets, offset, count, results);
+            fired += salvo;
+            if (salvo < count) break;
+        }
+
+        for (int i = 0; i < fired; ++i) {
+            Grid.ShotResult expected = reference.shoot(Coordinates.ofPacked(targets[i]));
+            if (expected == null) {
+                assertEquals(Grid.OUT_OF_BOUNDS, Grid.resultCode(results[i]));
+                continue;
+            }
+            assertEquals(expected.hitDesignation().ordinal(), Grid.resultCode(results[i]));
+            int shipId = Grid.shipId(results[i]);
+            assertEquals(expected.shipName(), shipId == 0 ? null : "Ship" + SHIPS[shipId - 1][0]);
+        }
+        /* stopped right after the last ship was sunk */
+        assertEquals(0, og.getActiveShipAmount());
+        assertEquals(reference.getHitMap(), og.getHitMap());
+        assertEquals(reference.getStateHash(), og.getStateHash());
+    }
+
+    @Test
+    void shouldRestoreAMappedGrid() throws IOException {
+        Path path = directory.resolve("grid.bin");
+        OceanGrid reference = new OceanGrid(10, 10);
+        OffHeapOceanGrid og = OffHeapOceanGrid.map(path, 10, 10, 16);
+        addShips(reference, og);
+        for (String target : new String[]{"A1", "B2", "B3", "B4", "B5", "B6", "E4", "E4", "J9"}) {
+            assertEquals(reference.shoot(new Coordinates(target)), og.shoot(new Coordinates(target)));
+        }
+        og.force();
+
+        OffHeapOceanGrid restored = OffHeapOceanGrid.map(path, 10, 10);
+        assertEquals(3, restored.getShips().size());
+        assertEquals("ShipD4", restored.getShips().get(1).getName());
+        assertEquals(2, restored.getActiveShipAmount());
+        assertEquals(reference.getShotAmount(), restored.getShotAmount());
+        assertEquals(reference.getHitMap(), restored.getHitMap());
+        assertEquals(reference.getStateHash(), restored.getStateHash());
+
+        /* the restored ships remember their hits */
+        for (String target : new String[]{"D4", "F4", "G4"}) {
+            assertEquals(reference.shoot(new Coordinates(target)), restored.shoot(new Coordinates(target)));
+        }
+        assertEquals(1, restored.getActiveShipAmount());
+        assertEquals(reference.getStateHash(), restored.getStateHash());
+    }
+
+    @Test
+    void shouldRejectAnotherFile() throws IOException {
+        Path path = directory.resolve("grid.bin");
+        OffHeapOceanGrid.map(path, 10, 10).force();
+        assertThrows(IllegalArgumentException.class, () -> OffHeapOceanGrid.map(path, 12, 10));
+
+        Path other = directory.resolve("other.bin");
+        Files.write(other, new byte[]{1, 2, 3});
+        assertThrows(IllegalArgumentException.class, () -> OffHeapOceanGrid.map(other, 10, 10));
+
+        OffHeapOceanGrid og = OffHeapOceanGrid.map(directory.resolve("names.bin"), 10, 10);
+        assertThrows(IllegalArgumentException.class, () -> og.addShip(new Ship(new Coordinates("A1"), 2,
+                Ship.Orientation.HORIZONTAL, "S".repeat(OffHeapOceanGrid.MAX_NAME_LENGTH + 1))));
+        assertEquals(0, og.getActiveShipAmount());
+    }
+
+    @Test
+    void shouldBeUsableByGame() {
+        Game game = new Game(OffHeapOceanGrid::new);
+
+        assertInstanceOf(OffHeapOceanGrid.class, game.getOceanGrid());
+        assertEquals(3, game.getOceanGrid().getActiveShipAmount());
+    }
+
+    @Test
+    void shouldResumeAGameOnARestoredGrid() throws IOException {
+        Path path = directory.resolve("grid.bin");
+        GameRules rules = GameRules.standard();
+        OffHeapOceanGrid og = OffHeapOceanGrid.map(path, rules.sizeX(), rules.sizeY());
+        Game game = new Game(rules, (sizeX, sizeY) -> og, 5);
+        GameFixtures.play(game, 30, 5);
+        og.force();
+
+        OffHeapOceanGrid restored = OffHeapOceanGrid.map(path, rules.sizeX(), rules.sizeY());
+        Game resumed = new Game(rules, restored, restored.getShips());
+        assertSame(restored, resumed.getOceanGrid());
+        GameFixtures.assertSameBoard(game, resumed);
+
+        /* both games go on alike */
+        GameFixtures.play(game, 200, 6);
+        GameFixtures.play(resumed, 200, 6);
+        GameFixtures.assertSameBoard(game, resumed);
+        assertFalse(resumed.isRunning());
+        assertFalse(new Game(rules, restored, restored.getShips()).isRunning());
+
+        GameRules larger = new GameRules(12, 12, rules.fleet(), true);
+        assertThrows(IllegalArgumentException.class, () -> new Game(larger, restored, restored.getShips()));
+    }
+}
@@ -0,0 +1,54 @@
+package konopi.battleship.logic;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeedsTest {
+
+    @Test
+    void shouldDeriveUnrelatedSeeds() {
+        HashSet<Long> seeds = new HashSet<>();
+        for (long seed = 0; seed < 100; ++seed) {
+            for (long index = 0; index < 100; ++index) {
+                seeds.add(Seeds.derive(seed, index));
+            }
+        }
+        assertEquals(10_000, seeds.size());
+        assertEquals(Seeds.derive(7, 3), Seeds.derive(7, 3));
+        /* the seed and the index don't simply add up */
+        assertNotEquals(Seeds.derive(1, 0), Seeds.derive(0, 1));
+    }
+
+    @Test
+    void shouldPlaceTheSameFleetsForTheSameSeed() {
+        for (long seed = 0; seed < 20; ++seed) {
+            Game first = new Game(GameRules.standard(), OceanGrid::new, seed);
+            Game second = new Game(GameRules.standard(), BitboardOceanGrid::new, seed);
+            for (int ship = 0; ship < first.getShips().size(); ++ship) {
+                assertEquals(first.getShips().get(ship).getActiveSquares(),
+                        second.getShips().get(ship).getActiveSquares());
+            }
+        }
+    }
+
+    @Test
+    void shouldSplitIndependentStreams() {
+        assertEquals(Seeds.splittable(5).nextLong(), Seeds.splittable(5).nextLong());
+
+        List<RandomGenerator.SplittableGenerator> streams = Seeds.streams(5, 4);
+        List<RandomGenerator.SplittableGenerator> again = Seeds.streams(5, 4);
+        HashSet<Long> firsts = new HashSet<>();
+        for (int worker = 0; worker < 4; ++worker) {
+            long value = streams.get(worker).nextLong();
+            assertEquals(value, again.get(worker).nextLong());
+            firsts.add(value);
+        }
+        assertEquals(4, firsts.size());
+        assertThrows(IllegalArgumentException.class, () -> Seeds.streams(5, -1));
+    }
+}
@@ -4,6 +4,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.HashSet;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -80,8 +81,48 @@ class ShipTest {
 
         IllegalArgumentException exception = assertThrows(
                 IllegalArgumentException.class,
-                () -> new Ship(new Coordinates("Z1"), 3, Ship.Orientation.VERTICAL, "Cruiser")
+                () -> new Ship(Coordinates.of(Coordinates.MAX_LETTER_INDEX - 1, 0), 3,
+                        Ship.Orientation.VERTICAL, "Cruiser")
         );
         assertEquals(expected, exception.getMessage());
     }
+
+    @Test
+    void shouldContinuePastLetterZ() {
+        Ship ship = new Ship(new Coordinates("Z1"), 3, Ship.Orientation.VERTICAL, "Cruiser");
+        HashSet<Coordinates> expected = Stream.of("Z1", "AA1", "AB1")
+                .map(Coordinates::new)
+                .collect(Collectors.toCollection(HashSet::new));
+
+        assertEquals(expected, ship.getActiveSquares());
+    }
+
+    @Test
+    void shouldKeepActiveSquaresViewUpToDate() {
+        Ship ship = new Ship(new Coordinates("B2"), 3, Ship.Orientation.VERTICAL, "Cruiser");
+        Set<Coordinates> activeSquares = ship.getActiveSquares();
+
+        assertEquals(Ship.HitDesignation.HIT, ship.hit(2, 1));
+        assertEquals(2, activeSquares.size());
+        assertFalse(activeSquares.contains(new Coordinates("C2")));
+        assertTrue(activeSquares.contains(new Coordinates("D2")));
+        assertEquals(Coordinates.valueOf("C2"), ship.getSquare(1));
+        assertThrows(UnsupportedOperationException.class, () -> activeSquares.remove(new Coordinates("B2")));
+    }
+
+    @Test
+    void shouldSinkShipsLongerThanTheMask() {
+        Ship ship = new Ship(Coordinates.of(0, 0), 130, Ship.Orientation.HORIZONTAL, "Wall");
+        assertEquals(130, ship.getActiveSquares().size());
+
+        for (int square = 129; square > 0; --square) {
+            assertEquals(Ship.HitDesignation.HIT, ship.hit(0, square));
+            assertEquals(Ship.HitDesignation.MISS, ship.hit(0, square));
+        }
+        assertEquals(Ship.HitDesignation.MISS, ship.hit(0, 130));
+        assertEquals(Set.of(Coordinates.of(0, 0)), ship.getActiveSquares());
+        assertEquals(Ship.HitDesignation.SINK, ship.hit(0, 0));
+        assertTrue(ship.isSunk());
+        assertTrue(ship.getActiveSquares().isEmpty());
+    }
 }
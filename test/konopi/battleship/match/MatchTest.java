@@ -0,0 +1,139 @@
+package konopi.battleship.match;
+
+import konopi.battleship.ai.DensityShooter;
+import konopi.battleship.ai.RandomShooter;
+import konopi.battleship.logic.BitboardOceanGrid;
+import konopi.battleship.logic.Coordinates;
+import konopi.battleship.logic.GameRules;
+import konopi.battleship.logic.Grid;
+import konopi.battleship.logic.Ship;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchTest {
+    private MatchScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new MatchScheduler(GameRules.standard(), BitboardOceanGrid::new, 2, Duration.ofSeconds(10));
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.close();
+    }
+
+    @Test
+    void shouldPlayManyMatchesAtOnce() {
+        List<Match> matches = new ArrayList<>();
+        for (int seed = 0; seed < 50; ++seed) {
+            matches.add(scheduler.create(new ShooterPlayer(new DensityShooter(new SplittableRandom(seed))),
+                    new ShooterPlayer(new RandomShooter(new SplittableRandom(seed))), seed));
+        }
+        matches.forEach(Match::start);
+
+        int densityWins = 0;
+        for (Match match : matches) {
+            MatchResult result = match.getResult().join();
+            assertFalse(result.forfeit());
+            /* the players alternate, so the first one fires as often as the second one or once more */
+            assertEquals(result.turns(), result.firstShots() + result.secondShots());
+            assertEquals(result.winner() == 0 ? 1 : 0, result.firstShots() - result.secondShots());
+            Grid loserGrid = match.getGame(1 - result.winner()).getOceanGrid();
+            assertEquals(0, loserGrid.getActiveShipAmount());
+            assertTrue(match.getGame(result.winner()).getOceanGrid().getActiveShipAmount() > 0);
+            if (result.winner() == 0) ++densityWins;
+        }
+        assertTrue(densityWins > 45);
+        assertEquals(0, scheduler.getMatchAmount());
+    }
+
+    @Test
+    void shouldFireSalvos() {
+        GameRules salvo = new GameRules(10, 10, GameRules.standard().fleet(), true, 3);
+        try (MatchScheduler salvoScheduler = new MatchScheduler(salvo, BitboardOceanGrid::new, 1, null)) {
+            Match match = salvoScheduler.create(new ShooterPlayer(new RandomShooter(new SplittableRandom(1))),
+                    new ShooterPlayer(new RandomShooter(new SplittableRandom(2))), 3);
+            MatchResult result = match.start().join();
+
+            int winnerShots = result.winner() == 0 ? result.firstShots() : result.secondShots();
+            /* the last salvo may stop early */
+            assertTrue(winnerShots > 3 * (result.turns() / 2 - 1));
+            assertEquals(0, match.getGame(1 - result.winner()).getOceanGrid().getActiveShipAmount());
+        }
+    }
+
+    @Test
+    void shouldWaitForRemotePlayersWithoutBlocking() {
+        RemotePlayer remote = new RemotePlayer();
+        Match match = scheduler.create(remote, new ShooterPlayer(new RandomShooter(new SplittableRandom(4))), 5);
+        assertThrows(IllegalStateException.class, () -> remote.submit(List.of(Coordinates.of(0, 0))));
+        match.start();
+
+        /* sweeps the grid, one shot per turn */
+        List<Ship.HitDesignation> designations = new ArrayList<>();
+        for (int square = 0; square < 100; ++square) {
+            int shots;
+            try {
+                shots = remote.turn().join();
+            } catch (CompletionException e) {
+                /* the AI sank the fleet first */
+                break;
+            }
+            assertEquals(1, shots);
+            List<Grid.ShotResult> results = remote.submit(List.of(Coordinates.of(square / 10, square % 10))).join();
+            designations.add(results.get(0).hitDesignation());
+        }
+
+        MatchResult result = match.getResult().join();
+        assertEquals(result.winner() == 0, remote.outcome().join());
+        assertEquals(result.firstShots(), designations.size());
+        if (result.winner() == 0) {
+            assertEquals(3, designations.stream().filter(Ship.HitDesignation.SINK::equals).count());
+        }
+    }
+
+    @Test
+    void shouldForfeitSlowAndFailingPlayers() {
+        try (MatchScheduler strict = new MatchScheduler(GameRules.standard(), BitboardOceanGrid::new, 1,
+                Duration.ofMillis(50))) {
+            RemotePlayer idle = new RemotePlayer();
+            MatchResult result = strict.create(new ShooterPlayer(new RandomShooter(new SplittableRandom(6))), idle, 7)
+                    .start().join();
+            assertEquals(0, result.winner());
+            assertTrue(result.forfeit());
+            assertEquals(1, result.turns());
+            assertFalse(idle.outcome().join());
+        }
+
+        Player failing = new ShooterPlayer(new RandomShooter(new SplittableRandom(8))) {
+            @Override
+            public CompletableFuture<List<Coordinates>> nextSalvo(int shots) {
+                return CompletableFuture.completedFuture(List.of(Coordinates.of(0, 0), Coordinates.of(0, 1)));
+            }
+        };
+        MatchResult result = scheduler.create(failing, new ShooterPlayer(new RandomShooter(new SplittableRandom(9))), 10)
+                .start().join();
+        assertEquals(1, result.winner());
+        assertTrue(result.forfeit());
+        assertEquals(0, result.turns());
+
+        RemotePlayer remote = new RemotePlayer();
+        Match match = scheduler.create(remote, new RemotePlayer(), 11);
+        match.start();
+        remote.turn().join();
+        match.forfeit(0);
+        assertEquals(1, match.getResult().join().winner());
+        assertThrows(IllegalStateException.class, match::start);
+    }
+}
@@ -0,0 +1,65 @@
+package konopi.battleship.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void shouldCoverAllValuesWithContiguousBuckets() {
+        assertEquals(0, LatencyHistogram.lowestValueOf(0));
+        for (int bucket = 1; bucket < LatencyHistogram.BUCKETS; ++bucket) {
+            assertEquals(LatencyHistogram.highestValueOf(bucket - 1) + 1, LatencyHistogram.lowestValueOf(bucket));
+            assertEquals(bucket, LatencyHistogram.bucketOf(LatencyHistogram.lowestValueOf(bucket)));
+            assertEquals(bucket, LatencyHistogram.bucketOf(LatencyHistogram.highestValueOf(bucket)));
+        }
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    void shouldReportPercentilesWithinTheBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram(1);
+        for (long value = 1; value <= 100_000; ++value) {
+            histogram.record(value);
+        }
+
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(100_000, histogram.getMax());
+        assertEquals(50_000.5, histogram.getMean(), 1e-9);
+        for (double percentile : new double[]{1, 50, 90, 99, 99.9}) {
+            double expected = percentile * 1000;
+            assertEquals(expected, histogram.getValueAtPercentile(percentile), expected * 0.07);
+        }
+        assertEquals(100_000, histogram.getValueAtPercentile(100));
+        assertEquals(1, histogram.getValueAtPercentile(0));
+        assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtPercentile(101));
+        assertEquals(0, new LatencyHistogram(3).getValueAtPercentile(50));
+    }
+
+    @Test
+    void shouldCountValuesRecordedConcurrently() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram(4);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; ++t) {
+            long offset = t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 100_000; ++i) {
+                    histogram.record(i % 1000 + offset);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(400_000, histogram.getCount());
+        assertEquals(1002, histogram.getMax());
+        assertEquals(501, histogram.getMean(), 1e-9);
+    }
+}
@@ -0,0 +1,104 @@
+package konopi.battleship.metrics;
+
+import konopi.battleship.App;
+import konopi.battleship.logic.BitboardOceanGrid;
+import konopi.battleship.logic.Coordinates;
+import konopi.battleship.logic.Game;
+import konopi.battleship.logic.GameRules;
+import konopi.battleship.ui.UI;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTest {
+    /**
+     * Fires at every square in turn.
+     */
+    private static class SweepingUI implements UI {
+        private final CountDownLatch over = new CountDownLatch(1);
+        private Game game;
+        private int square;
+
+        @Override
+        public void initialise(Game game) {
+            this.game = game;
+        }
+
+        @Override
+        public void update() {
+            if (!game.isRunning()) over.countDown();
+        }
+
+        @Override
+        public void handleInput() {
+            game.setTargetCoordinates(Coordinates.of(square / game.GRID_X, square % game.GRID_X));
+            ++square;
+        }
+    }
+
+    private static SweepingUI play(Metrics metrics, long seed) throws InterruptedException {
+        SweepingUI ui = new SweepingUI();
+        new App(ui, new Game(GameRules.standard(), metrics.instrument(BitboardOceanGrid::new), seed), metrics);
+        assertTrue(ui.over.await(10, TimeUnit.SECONDS));
+        return ui;
+    }
+
+    @Test
+    void shouldRecordTheGameLoop() throws InterruptedException {
+        Metrics metrics = new Metrics();
+        int shots = play(metrics, 1).square + play(metrics, 2).square;
+
+        /* the finish is recorded after the last update */
+        for (int i = 0; i < 100 && metrics.getFinishedGames() < 2; ++i) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, metrics.getFinishedGames());
+        assertEquals(0, metrics.getActiveGames());
+        assertEquals(shots, metrics.getTicks());
+        for (Metrics.Phase phase : Metrics.Phase.values()) {
+            assertEquals(shots, metrics.getLatency(phase).getCount());
+        }
+        if (Metrics.currentThreadAllocatedBytes() >= 0) {
+            assertTrue(metrics.getAllocatedBytesPerGame() > 0);
+        }
+        assertEquals(5 * 4, metrics.getLatencyMicros().size());
+    }
+
+    @Test
+    void shouldPublishOverJmxAndHttp() throws Exception {
+        Metrics metrics = new Metrics();
+        metrics.gameStarted();
+        metrics.tick(1_000, 2_000, 3_000);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(Metrics.OBJECT_NAME);
+        metrics.register();
+        try {
+            assertEquals(1L, server.getAttribute(name, "ActiveGames"));
+            assertEquals(1L, server.getAttribute(name, "Ticks"));
+            assertThrows(IllegalStateException.class, metrics::register);
+        } finally {
+            server.unregisterMBean(name);
+        }
+
+        try (MetricsServer metricsServer = new MetricsServer(metrics, 0)) {
+            String text;
+            try (InputStream in = new URL("http://localhost:" + metricsServer.getPort() + "/metrics").openStream()) {
+                text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            assertTrue(text.contains("\nbattleship_active_games 1\n"), text);
+            assertTrue(text.contains("\nbattleship_ticks_total 1\n"), text);
+            assertTrue(text.contains("battleship_phase_seconds_count{phase=\"tick\"} 1\n"), text);
+            assertTrue(text.contains("battleship_phase_seconds{phase=\"ui_update\",quantile=\"0.5\"} 3e-06\n"), text);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package konopi.battleship.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpscRingBufferTest {
+
+    @Test
+    void shouldKeepTheOrderAcrossTheWrap() {
+        SpscRingBuffer<Integer> buffer = new SpscRingBuffer<>(3);
+        assertEquals(4, buffer.getCapacity());
+        for (int i = 0; i < 4; ++i) assertTrue(buffer.offer(i));
+        assertFalse(buffer.offer(4));
+
+        assertEquals(0, buffer.poll());
+        assertEquals(1, buffer.poll());
+        assertTrue(buffer.offer(4));
+        assertTrue(buffer.offer(5));
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(3, buffer.drain(drained::add, 3));
+        assertEquals(List.of(2, 3, 4), drained);
+        assertEquals(5, buffer.poll());
+        assertNull(buffer.poll());
+        assertEquals(0, buffer.drain(drained::add, 3));
+    }
+
+    @Test
+    void shouldPassElementsBetweenThreadsInOrder() throws InterruptedException {
+        int amount = 200_000;
+        SpscRingBuffer<Integer> buffer = new SpscRingBuffer<>(16);
+        AtomicBoolean putAll = new AtomicBoolean();
+        Thread producer = new Thread(() -> {
+            try {
+                for (int i = 0; i < amount; ++i) {
+                    if (!buffer.put(i)) return;
+                }
+                putAll.set(true);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                buffer.close();
+            }
+        });
+        producer.start();
+
+        int[] next = {0};
+        while (buffer.await()) {
+            buffer.drain(element -> assertEquals(next[0]++, element), 7);
+        }
+        producer.join();
+
+        assertTrue(putAll.get());
+        assertEquals(amount, next[0]);
+    }
+
+    @Test
+    void shouldLetTheConsumerTakeWhatWasOfferedBeforeClosing() throws InterruptedException {
+        SpscRingBuffer<String> buffer = new SpscRingBuffer<>(4);
+        buffer.offer("A1");
+        buffer.offer("B2");
+        buffer.close();
+
+        assertFalse(buffer.offer("C3"));
+        assertFalse(buffer.put("C3"));
+        assertTrue(buffer.await());
+        assertEquals("A1", buffer.take());
+        assertEquals("B2", buffer.take());
+        assertFalse(buffer.await());
+        assertNull(buffer.take());
+    }
+
+    @Test
+    void shouldWakeUpABlockedProducerWhenClosed() throws InterruptedException {
+        SpscRingBuffer<Integer> buffer = new SpscRingBuffer<>(1);
+        buffer.offer(0);
+        AtomicBoolean added = new AtomicBoolean(true);
+        Thread producer = new Thread(() -> {
+            try {
+                added.set(buffer.put(1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+        Thread.sleep(50);
+        buffer.close();
+        producer.join(5000);
+
+        assertFalse(producer.isAlive());
+        assertFalse(added.get());
+    }
+
+    @Test
+    void shouldRejectInvalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new SpscRingBuffer<>(0));
+    }
+}
@@ -0,0 +1,124 @@
+package konopi.battleship.replay;
+
+import konopi.battleship.logic.BitboardOceanGrid;
+import konopi.battleship.logic.Coordinates;
+import konopi.battleship.logic.Game;
+import konopi.battleship.logic.GameRules;
+import konopi.battleship.logic.Grid;
+import konopi.battleship.logic.Ship;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoveReplayerTest {
+    @TempDir
+    Path directory;
+
+    /**
+     * Plays the lines one by one as the console does and writes the results as the replayer does.
+     */
+    private static String playLines(Game game, List<String> lines) {
+        StringBuilder results = new StringBuilder();
+        for (String line : lines) {
+            if (!game.isRunning() || line.isBlank()) continue;
+            Coordinates target;
+            try {
+                target = Coordinates.valueOf(line.trim());
+            } catch (IllegalArgumentException e) {
+                results.append(MoveReplayer.INVALID);
+                continue;
+            }
+            game.setTargetCoordinates(target);
+            game.tick();
+            Grid.ShotResult result = game.getShotResult();
+            results.append(result == null ? MoveReplayer.OUT_OF_BOUNDS : switch (result.hitDesignation()) {
+                case MISS -> MoveReplayer.MISS;
+                case HIT -> MoveReplayer.HIT;
+                case SINK -> MoveReplayer.SINK;
+            });
+        }
+        return results.append('\n').toString();
+    }
+
+    @Test
+    void shouldParseLinesAsTheConsole() throws IOException {
+        List<String> lines = List.of("A1", " b-2 ", "c+3\r", "\tAB12", "A0", "1A", "A", "A-", "A 1", "A1x", "+A1",
+                "\u0105" + "1", "A99999999999", "A2147483647", "", "   ", "CRXP1", "CRXQ1", "J10", "j11", "Z-0");
+        ByteArrayOutputStream results = new ByteArrayOutputStream();
+        MoveReplayer replayer = new MoveReplayer(new Game(BitboardOceanGrid::new, new SplittableRandom(3)), results);
+
+        ReplayReport report = replayer.replay(new ByteArrayInputStream(
+                String.join("\n", lines).getBytes(StandardCharsets.UTF_8)));
+
+        String expected = playLines(new Game(BitboardOceanGrid::new, new SplittableRandom(3)), lines);
+        assertEquals(expected, results.toString(StandardCharsets.US_ASCII));
+        assertEquals(expected.chars().filter(c -> c == MoveReplayer.INVALID).count(), report.invalidLines());
+        assertEquals(expected.length() - 1 - report.invalidLines(), report.moves());
+        assertEquals(4, report.outOfBounds());
+        assertFalse(report.fleetSunk());
+    }
+
+    @Test
+    void shouldReplayAFileAcrossRegionsAsAStream() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int square = 0; square < 100; ++square) {
+            lines.add(Coordinates.of(square / 10, square % 10).toString());
+        }
+        lines.add("K1");
+        lines.add("not a move");
+        Collections.shuffle(lines, new Random(5));
+        Path path = directory.resolve("moves.txt");
+        Files.write(path, lines);
+        GameRules rules = GameRules.standard();
+
+        /* a region size splitting the lines */
+        ByteArrayOutputStream mappedResults = new ByteArrayOutputStream();
+        ReplayReport mapped = new MoveReplayer(new Game(rules, BitboardOceanGrid::new, 9L), mappedResults, 7)
+                .replay(path);
+        ByteArrayOutputStream streamResults = new ByteArrayOutputStream();
+        ReplayReport streamed = new MoveReplayer(new Game(rules, BitboardOceanGrid::new, 9L), streamResults)
+                .replay(Files.newInputStream(path));
+
+        assertEquals(playLines(new Game(rules, BitboardOceanGrid::new, 9L), lines), mappedResults.toString());
+        assertEquals(mappedResults.toString(), streamResults.toString());
+        assertTrue(mapped.fleetSunk());
+        assertEquals(101, mapped.moves());
+        assertEquals(mapped.moves() - mapped.shots(), mapped.ignoredMoves());
+        assertEquals(rules.fleet().stream().mapToInt(GameRules.ShipType::amount).sum(), mapped.sinks());
+        assertEquals(List.of(mapped.moves(), mapped.invalidLines(), mapped.shots(), mapped.hits()),
+                List.of(streamed.moves(), streamed.invalidLines(), streamed.shots(), streamed.hits()));
+    }
+
+    @Test
+    void shouldReplayTheWidestGrid() throws IOException {
+        GameRules rules = new GameRules(Coordinates.MAX_PACKED_INDEX + 1, 1,
+                List.of(new GameRules.ShipType("Raft", 1, 1)), true, 1);
+        Game game = new Game(rules, BitboardOceanGrid::new,
+                List.of(new Ship(Coordinates.of(0, 0), 1, Ship.Orientation.HORIZONTAL, "Raft")));
+        ByteArrayOutputStream results = new ByteArrayOutputStream();
+        String lastColumn = "A" + (Coordinates.MAX_PACKED_INDEX + 1);
+        String pastTheGrid = "A" + (Coordinates.MAX_PACKED_INDEX + 2);
+
+        ReplayReport report = new MoveReplayer(game, results).replay(new ByteArrayInputStream(
+                (lastColumn + "\n" + pastTheGrid + "\nB1\n").getBytes(StandardCharsets.US_ASCII)));
+
+        assertEquals(3, report.moves());
+        assertEquals(2, report.outOfBounds());
+        assertEquals(0, report.invalidLines());
+        assertEquals(1, report.misses());
+        assertEquals("MOO\n", results.toString(StandardCharsets.US_ASCII));
+    }
+}
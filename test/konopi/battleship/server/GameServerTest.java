@@ -0,0 +1,266 @@
+package konopi.battleship.server;
+
+import konopi.battleship.logic.BitboardOceanGrid;
+import konopi.battleship.logic.Coordinates;
+import konopi.battleship.logic.GameRules;
+import konopi.battleship.logic.Grid;
+import konopi.battleship.logic.Ship;
+import konopi.battleship.spectator.SpectatorView;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameServerTest {
+    private GameServer server;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void setUp() {
+        server = new GameServer(GameRules.standard(), BitboardOceanGrid::new, 4, Duration.ofMinutes(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void shouldPlayGameToTheEnd() {
+        long id = server.create(1).join();
+
+        List<CompletableFuture<Grid.ShotResult>> shots = new ArrayList<>();
+        for (int square = 0; square < 100; ++square) {
+            shots.add(server.shoot(id, Coordinates.of(square / 10, square % 10)));
+        }
+        int sinks = 0;
+        for (CompletableFuture<Grid.ShotResult> shot : shots) {
+            try {
+                if (shot.join().hitDesignation() == Ship.HitDesignation.SINK) ++sinks;
+            } catch (CompletionException e) {
+                /* shots after the last ship sank */
+                assertInstanceOf(IllegalStateException.class, e.getCause());
+            }
+        }
+        assertEquals(3, sinks);
+
+        SessionState state = server.state(id).join();
+        assertFalse(state.running());
+        assertEquals(0, state.activeShipAmount());
+        assertEquals(state.shots(), state.hitMap().size());
+    }
+
+    @Test
+    void shouldKeepSessionsIndependent() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 1000; ++i) {
+            ids.add(server.create(i).join());
+        }
+        List<CompletableFuture<Grid.ShotResult>> shots = new ArrayList<>();
+        for (long id : ids) {
+            shots.add(server.shoot(id, Coordinates.of(0, 0)));
+            shots.add(server.shoot(id, Coordinates.of(20, 0)));
+        }
+        CompletableFuture.allOf(shots.toArray(CompletableFuture[]::new)).join();
+
+        for (long id : ids) {
+            SessionState state = server.state(id).join();
+            assertEquals(2, state.shots());
+            assertEquals(1, state.hitMap().size());
+        }
+        assertEquals(1000, server.getSessionAmount());
+    }
+
+    @Test
+    void shouldRecreateSessionsFromTheSeed() {
+        long id = server.create().join();
+        long copy = server.create(server.state(id).join().seed()).join();
+
+        for (int square = 0; square < 100; ++square) {
+            Coordinates target = Coordinates.of(square / 10, square % 10);
+            server.shoot(id, target);
+            server.shoot(copy, target);
+        }
+        assertEquals(server.state(id).join().hitMap(), server.state(copy).join().hitMap());
+    }
+
+    @Test
+    void shouldFailOnUnknownSession() {
+        long id = server.create().join();
+        server.close(id).join();
+
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> server.shoot(id, Coordinates.of(0, 0)).join());
+        assertInstanceOf(IllegalArgumentException.class, e.getCause());
+        assertThrows(CompletionException.class, () -> server.state(id).join());
+        assertThrows(CompletionException.class, () -> server.close(id).join());
+    }
+
+    @Test
+    void shouldPublishSessionsToSpectators() {
+        long id = server.create(2).join();
+        server.shoot(id, Coordinates.of(0, 0));
+        SpectatorView view = server.spectate(id).join();
+        assertSame(view, server.spectate(id).join());
+        assertEquals(1, view.read(null).getVersion());
+
+        server.shoot(id, Coordinates.of(1, 1));
+        server.shoot(id, Coordinates.of(20, 1));
+        SessionState state = server.state(id).join();
+        SpectatorView.Board board = view.read(null);
+        assertEquals(2, board.getVersion());
+        assertEquals(state.hitMap().get(Coordinates.of(1, 1)), board.getHitDesignation(1, 1));
+        assertEquals(Coordinates.of(1, 1), board.getLastTarget());
+    }
+
+    @Test
+    void shouldEvictIdleSessions() {
+        long idle = server.create().join();
+        long now = System.nanoTime();
+
+        assertEquals(0, server.evictIdleSessions(now));
+        assertEquals(1, server.evictIdleSessions(now + Duration.ofMinutes(2).toNanos()));
+        assertThrows(CompletionException.class, () -> server.state(idle).join());
+    }
+
+    @Test
+    void shouldCompleteQueuedOperationsOnClose() throws Exception {
+        long id = server.create(1).join();
+        List<CompletableFuture<Grid.ShotResult>> shots = new ArrayList<>();
+        for (int i = 0; i < 1000; ++i) {
+            shots.add(server.shoot(id, Coordinates.of(0, 0)));
+        }
+        server.close();
+
+        CompletableFuture.allOf(shots.toArray(new CompletableFuture<?>[0])).get(1, TimeUnit.MINUTES);
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> server.shoot(id, Coordinates.of(1, 1)).join());
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        e = assertThrows(CompletionException.class, () -> server.state(id).join());
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+    }
+
+    @Test
+    void shouldResumeJournaledSessions() throws IOException {
+        Path journal = directory.resolve("sessions.journal");
+        GameRules rules = GameRules.standard();
+        long open;
+        long closed;
+        SessionState before;
+        try (GameServer first = new GameServer(rules, BitboardOceanGrid::new, 2, Duration.ofMinutes(1), journal)) {
+            open = first.create(1).join();
+            closed = first.create(2).join();
+            for (int square = 0; square < 20; ++square) {
+                first.shoot(open, Coordinates.of(square / 10, square % 10));
+                first.shoot(closed, Coordinates.of(square / 10, square % 10));
+            }
+            first.shoot(open, Coordinates.valueOf("K20"));
+            first.close(closed).join();
+            before = first.state(open).join();
+        }
+
+        SessionState resumed;
+        try (GameServer second = new GameServer(rules, BitboardOceanGrid::new, 2, Duration.ofMinutes(1), journal)) {
+            assertEquals(1, second.getSessionAmount());
+            SessionState after = second.state(open).join();
+            assertEquals(0, after.seed());
+            assertEquals(before.running(), after.running());
+            assertEquals(before.activeShipAmount(), after.activeShipAmount());
+            assertEquals(21, after.shots());
+            assertEquals(before.hitMap(), after.hitMap());
+            CompletionException e = assertThrows(CompletionException.class, () -> second.state(closed).join());
+            assertInstanceOf(IllegalArgumentException.class, e.getCause());
+
+            /* the resumed session is still recorded */
+            second.shoot(open, Coordinates.valueOf("J10"));
+            resumed = second.state(open).join();
+            assertNotEquals(open, second.create(3).join());
+        }
+
+        try (GameServer third = new GameServer(rules, BitboardOceanGrid::new, 2, Duration.ofMinutes(1), journal)) {
+            assertEquals(2, third.getSessionAmount());
+            SessionState after = third.state(open).join();
+            assertEquals(22, after.shots());
+            assertEquals(resumed.hitMap(), after.hitMap());
+        }
+    }
+
+    @Test
+    void shouldStartDespiteALostJournalRecord() throws IOException {
+        Path journal = directory.resolve("sessions.journal");
+        GameRules rules = GameRules.standard();
+        long id;
+        try (GameServer first = new GameServer(rules, BitboardOceanGrid::new, 2, Duration.ofMinutes(1), journal)) {
+            id = first.create(1).join();
+            for (int square = 0; square < 10; ++square) {
+                first.shoot(id, Coordinates.of(square / 10, square % 10)).join();
+            }
+        }
+
+        /* records of 16 bytes after a header of the same size, the fleet comes first and the shots last */
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer record = ByteBuffer.allocate(16);
+            long end = 16;
+            while (channel.read(record.clear(), end) == 16 && record.get(0) != 0) {
+                end += 16;
+            }
+            /* the fifth shot lost in a crash */
+            channel.write(ByteBuffer.allocate(16), end - 6 * 16);
+        }
+
+        try (GameServer second = new GameServer(rules, BitboardOceanGrid::new, 2, Duration.ofMinutes(1), journal)) {
+            assertEquals(4, second.state(id).join().shots());
+            assertNotNull(second.shoot(id, Coordinates.of(9, 9)).join());
+        }
+    }
+
+    @Test
+    void shouldServeTextProtocol() throws Exception {
+        try (TextServer textServer = new TextServer(server, 0);
+             Socket socket = new Socket(InetAddress.getLoopbackAddress(), textServer.getPort());
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true)) {
+            out.println("CREATE 5");
+            String created = in.readLine();
+            assertTrue(created.matches("OK \\d+"), created);
+            String id = created.substring(3);
+
+            /* pipelined */
+            out.print("SHOOT " + id + " A1\nSHOOT " + id + " Z1\nSTATE " + id + "\n");
+            out.flush();
+            assertTrue(in.readLine().matches("OK (MISS|HIT \\w+)"));
+            assertEquals("OK OUT", in.readLine());
+            assertEquals("OK RUNNING 3 2", in.readLine());
+
+            out.println("SHOOT " + id + " A0");
+            assertEquals("ERR Coordinate number must be > 0: 0", in.readLine());
+            out.println("CLOSE " + id);
+            assertEquals("OK", in.readLine());
+            out.println("STATE " + id);
+            assertEquals("ERR Unknown session: " + id, in.readLine());
+            out.println("JUMP");
+            assertEquals("ERR Unknown command: JUMP", in.readLine());
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package konopi.battleship.server;
+
+import konopi.battleship.logic.BitboardOceanGrid;
+import konopi.battleship.logic.Coordinates;
+import konopi.battleship.logic.GameRules;
+import konopi.battleship.logic.Ship;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+
+import static konopi.battleship.server.BinaryProtocol.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class NioGameServerTest {
+    private NioGameServer server;
+    private BinaryClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new NioGameServer(GameRules.standard(), BitboardOceanGrid::new, Duration.ofMinutes(1),
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        client = new BinaryClient(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort()));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    void shouldPlayGameToTheEnd() throws IOException {
+        long id = client.create(1);
+        int[] targets = new int[MAX_SHOTS];
+        int[] results = new int[MAX_SHOTS];
+
+        int sinks = 0;
+        int notFired = 0;
+        for (int square = 0; square < 100; square += MAX_SHOTS) {
+            for (int i = 0; i < MAX_SHOTS; ++i) {
+                targets[i] = Coordinates.pack((square + i) / 10, (square + i) % 10);
+            }
+            byte status = client.shoot(id, targets, MAX_SHOTS, results);
+            if (status == GAME_OVER) break;
+            assertEquals(OK, status);
+            for (int result : results) {
+                if (hitDesignation(result) == Ship.HitDesignation.SINK) ++sinks;
+                if (resultCode(result) == NOT_FIRED) ++notFired;
+            }
+        }
+        assertEquals(3, sinks);
+        assertFalse(client.isRunning());
+
+        assertEquals(OK, client.state(id, results));
+        assertEquals(0, results[0]);
+        assertTrue(results[1] + notFired <= 100);
+    }
+
+    @Test
+    void shouldReportShipTypeAndOutOfBounds() throws IOException {
+        long id = client.create(3);
+        int[] results = new int[MAX_SHOTS];
+        int[] targets = new int[MAX_SHOTS];
+
+        boolean hit = false;
+        for (int square = 0; square < 100 && !hit; ++square) {
+            targets[0] = Coordinates.pack(square / 10, square % 10);
+            targets[1] = Coordinates.pack(10, 0);
+            client.shoot(id, targets, 2, results);
+            assertEquals(OUT_OF_BOUNDS, resultCode(results[1]));
+            if (hitDesignation(results[0]) == Ship.HitDesignation.HIT) {
+                String name = GameRules.standard().fleet().get(shipTypeIndex(results[0])).name();
+                assertTrue(name.equals("Battleship") || name.equals("Destroyer"));
+                hit = true;
+            }
+        }
+        assertTrue(hit);
+        assertEquals(OK, client.state(id, results));
+        assertEquals(3, results[0]);
+    }
+
+    @Test
+    void shouldRejectUnknownSessionsAndBadFrames() throws IOException {
+        long id = client.create(1);
+        assertEquals(OK, client.close(id));
+        assertEquals(UNKNOWN_SESSION, client.state(id, new int[2]));
+        assertEquals(UNKNOWN_SESSION, client.close(id));
+
+        long other = client.create(2);
+        try (SocketChannel channel = SocketChannel.open(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort()))) {
+            /* two frames in a single write: a bad opcode and a shot count over the limit */
+            ByteBuffer frames = ByteBuffer.allocate(2 * FRAME_SIZE);
+            frames.put(OPCODE, (byte) 9);
+            frames.put(FRAME_SIZE + OPCODE, SHOOT);
+            frames.put(FRAME_SIZE + SHOT_COUNT, (byte) (MAX_SHOTS + 1));
+            frames.putLong(FRAME_SIZE + SESSION_ID, other);
+            channel.write(frames);
+
+            ByteBuffer responses = ByteBuffer.allocate(2 * FRAME_SIZE);
+            while (responses.hasRemaining()) channel.read(responses);
+            assertEquals(BAD_REQUEST, responses.get(STATUS));
+            assertEquals(BAD_REQUEST, responses.get(FRAME_SIZE + STATUS));
+            assertEquals(other, responses.getLong(FRAME_SIZE + SESSION_ID));
+        }
+    }
+}
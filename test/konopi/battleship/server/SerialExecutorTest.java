@@ -0,0 +1,59 @@
+package konopi.battleship.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SerialExecutorTest {
+    @Test
+    void shouldRunTasksInSubmissionOrder() throws InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        SerialExecutor executor = new SerialExecutor(pool);
+        List<Integer> order = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(1000);
+        for (int i = 0; i < 1000; ++i) {
+            int task = i;
+            executor.execute(() -> {
+                order.add(task);
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(1, TimeUnit.MINUTES));
+        for (int i = 0; i < 1000; ++i) {
+            assertEquals(i, order.get(i));
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    void shouldRunTheQueuedTasksAfterThePoolShutsDown() throws InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(1);
+        SerialExecutor executor = new SerialExecutor(pool);
+        CountDownLatch blocked = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        /* more tasks than a single drain runs, so the drain is scheduled again after the shutdown */
+        CountDownLatch done = new CountDownLatch(200);
+        for (int i = 0; i < 200; ++i) {
+            executor.execute(done::countDown);
+        }
+        pool.shutdown();
+        blocked.countDown();
+
+        assertTrue(done.await(1, TimeUnit.MINUTES));
+        /* the pool rejects the drain, so the task runs on the calling thread */
+        executor.execute(done::countDown);
+        assertTrue(pool.awaitTermination(1, TimeUnit.MINUTES));
+    }
+}
@@ -0,0 +1,53 @@
+package konopi.battleship.simulation;
+
+import konopi.battleship.ai.RandomShooter;
+import konopi.battleship.logic.BitboardOceanGrid;
+import konopi.battleship.logic.GameRules;
+import konopi.battleship.logic.OceanGrid;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulationRunnerTest {
+
+    @Test
+    void shouldPlayAllGames() {
+        SimulationReport report = new SimulationRunner(RandomShooter::new).run(1000, 42);
+
+        assertEquals(1000, report.games());
+        assertEquals(0, report.unfinishedGames());
+        assertEquals(1000, Arrays.stream(report.shotsToWin()).sum());
+        /* the fleet takes 13 squares of 100 */
+        assertEquals(13 * 1000, report.hits());
+        assertTrue(report.percentileShotsToWin(0) >= 13);
+        assertTrue(report.percentileShotsToWin(100) <= 100);
+        assertTrue(report.hitRate() > 0.13 && report.hitRate() < 1);
+    }
+
+    @Test
+    void shouldBeReproducibleWithSeed() {
+        SimulationReport first = new SimulationRunner(GameRules.standard(), RandomShooter::new, OceanGrid::new, 4).run(600, 7);
+        SimulationReport second = new SimulationRunner(GameRules.standard(), RandomShooter::new, OceanGrid::new, 2).run(600, 7);
+
+        assertEquals(first.shots(), second.shots());
+        assertArrayEquals(first.shotsToWin(), second.shotsToWin());
+    }
+
+    @Test
+    void shouldPlayByRules() {
+        GameRules rules = new GameRules(40, 30, List.of(new GameRules.ShipType("Carrier", 6, 3)), false);
+        SimulationReport report = new SimulationRunner(rules, RandomShooter::new, BitboardOceanGrid::new, 2)
+                .run(50, 1);
+
+        assertEquals(18 * 50, report.hits());
+        assertTrue(report.percentileShotsToWin(100) <= 40 * 30);
+    }
+
+    @Test
+    void shouldNotAcceptNegativeGames() {
+        assertThrows(IllegalArgumentException.class, () -> new SimulationRunner(RandomShooter::new).run(-1, 0));
+    }
+}
@@ -0,0 +1,102 @@
+package konopi.battleship.spectator;
+
+import konopi.battleship.ai.RandomShooter;
+import konopi.battleship.logic.BitboardOceanGrid;
+import konopi.battleship.logic.Coordinates;
+import konopi.battleship.logic.Game;
+import konopi.battleship.logic.GameRules;
+import konopi.battleship.logic.OceanGrid;
+import konopi.battleship.logic.Ship;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static konopi.battleship.logic.GameFixtures.play;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpectatorViewTest {
+    private static final GameRules LARGE = new GameRules(100, 100, GameRules.standard().fleet(), true);
+
+    private static Map<Coordinates, Ship.HitDesignation> hitMap(SpectatorView.Board board) {
+        Map<Coordinates, Ship.HitDesignation> hitMap = new HashMap<>();
+        board.forEachShot((letterIndex, numberIndex, hitDesignation) ->
+                hitMap.put(Coordinates.of(letterIndex, numberIndex), hitDesignation));
+        return hitMap;
+    }
+
+    @Test
+    void shouldFollowTheGame() {
+        Game game = new Game(LARGE, OceanGrid::new, new SplittableRandom(1));
+        RandomShooter shooter = new RandomShooter(new SplittableRandom(2));
+        shooter.initialise(game);
+        play(game, shooter, 100);
+
+        SpectatorView view = new SpectatorView(game);
+        game.setListener(view);
+        SpectatorView.Board board = view.read(null);
+        assertEquals(game.getOceanGrid().getHitMap(), hitMap(board));
+        assertEquals(100, board.getVersion());
+
+        /* incremental reads, then one too far behind for the history */
+        for (int shots : new int[]{1, 0, 500, SpectatorView.HISTORY, SpectatorView.HISTORY + 1}) {
+            play(game, shooter, shots);
+            assertSame(board, view.read(board));
+            assertEquals(game.getOceanGrid().getHitMap(), hitMap(board));
+            assertEquals(view.getVersion(), board.getVersion());
+            assertEquals(game.getOceanGrid().getActiveShipAmount(), board.getActiveShipAmount());
+            assertEquals(game.getTargetCoordinates(), board.getLastTarget());
+        }
+
+        play(game, shooter, LARGE.sizeX() * LARGE.sizeY());
+        assertFalse(view.read(board).isRunning());
+        assertEquals(game.getOceanGrid().getHitMap(), hitMap(board));
+
+        SpectatorView.Board small = new SpectatorView(new Game()).read(null);
+        assertThrows(IllegalArgumentException.class, () -> view.read(small));
+    }
+
+    @Test
+    void shouldShowConsistentBoardsToConcurrentReaders() throws InterruptedException {
+        Game game = new Game(LARGE, BitboardOceanGrid::new, new SplittableRandom(3));
+        SpectatorView view = new SpectatorView(game);
+        game.setListener(view);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 3; ++r) {
+            Thread reader = new Thread(() -> {
+                try {
+                    SpectatorView.Board board = null;
+                    do {
+                        board = view.read(board);
+                        /* the random shooter never fires twice at a square */
+                        int[] squares = {0};
+                        board.forEachShot((letterIndex, numberIndex, hitDesignation) -> ++squares[0]);
+                        assertEquals(board.getVersion(), squares[0]);
+                    } while (board.isRunning());
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+
+        RandomShooter shooter = new RandomShooter(new SplittableRandom(4));
+        shooter.initialise(game);
+        while (game.isRunning()) {
+            play(game, shooter, 1);
+            if (game.getOceanGrid().getShotAmount() % 64 == 0) Thread.yield();
+        }
+        for (Thread reader : readers) {
+            reader.join(10_000);
+            assertFalse(reader.isAlive());
+        }
+        assertNull(failure.get());
+    }
+}
@@ -0,0 +1,102 @@
+package konopi.battleship.tournament;
+
+import konopi.battleship.ai.DensityShooter;
+import konopi.battleship.ai.PlacementStrategy;
+import konopi.battleship.ai.RandomShooter;
+import konopi.battleship.logic.BitboardOceanGrid;
+import konopi.battleship.logic.GameRules;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TournamentTest {
+    private static final Entrant RANDOM = new Entrant("random", RandomShooter::new, PlacementStrategy.random());
+    private static final Entrant DENSITY = new Entrant("density", DensityShooter::new, PlacementStrategy.random());
+    private static final Entrant EDGES = new Entrant("edges", RandomShooter::new, PlacementStrategy.edges());
+
+    private static Tournament tournament(int maxGames, int parallelism, Entrant... entrants) {
+        return new Tournament(GameRules.standard(), BitboardOceanGrid::new, List.of(entrants), maxGames,
+                parallelism);
+    }
+
+    @Test
+    void shouldStopOnceTheMatchupIsDecisive() {
+        TournamentReport report = tournament(5_000, 2, RANDOM, DENSITY).roundRobin(1);
+
+        MatchupResult result = report.matchups().get(0);
+        assertTrue(result.isDecisive());
+        assertEquals("density", result.winner());
+        assertEquals(Tournament.MIN_GAMES, result.games());
+        assertTrue(result.secondMeanShots() < result.firstMeanShots());
+
+        assertEquals("density", report.standings().get(0).name());
+        assertEquals(1, report.standings().get(0).points());
+        assertEquals(0, report.standings().get(1).points());
+    }
+
+    @Test
+    void shouldPlayTheSameGamesRegardlessOfThreads() {
+        TournamentReport sequential = tournament(300, 1, RANDOM, EDGES).roundRobin(7);
+        TournamentReport parallel = tournament(300, 3, RANDOM, EDGES).roundRobin(7);
+
+        assertEquals(sequential.matchups(), parallel.matchups());
+        assertEquals(sequential.standings(), parallel.standings());
+        assertNotEquals(sequential.matchups(), tournament(300, 1, RANDOM, EDGES).roundRobin(8).matchups());
+    }
+
+    @Test
+    void shouldPairEntrantsInSwissRounds() {
+        Entrant density2 = new Entrant("density2", DensityShooter::new, PlacementStrategy.edges());
+        TournamentReport report = tournament(200, 2, RANDOM, DENSITY, EDGES).swiss(2, 3);
+
+        /* one matchup per round and a bye, a point each */
+        assertEquals(2, report.matchups().size());
+        assertEquals(4, report.standings().stream().mapToDouble(Standing::points).sum());
+        assertEquals(4, report.standings().stream().mapToInt(Standing::matchups).sum());
+        MatchupResult firstRound = report.matchups().get(0);
+        MatchupResult secondRound = report.matchups().get(1);
+        assertNotEquals(Set.of(firstRound.first(), firstRound.second()),
+                Set.of(secondRound.first(), secondRound.second()));
+
+        report = tournament(200, 2, RANDOM, DENSITY, EDGES, density2).swiss(3, 3);
+        assertEquals(6, report.matchups().size());
+        assertEquals(6, report.standings().stream().mapToDouble(Standing::points).sum());
+        assertTrue(report.standings().stream().allMatch(standing -> standing.matchups() == 3));
+    }
+
+    @Test
+    void shouldGiveByesToDifferentEntrants() {
+        Entrant density2 = new Entrant("density2", DensityShooter::new, PlacementStrategy.edges());
+        Entrant edges2 = new Entrant("edges2", RandomShooter::new, PlacementStrategy.edges());
+        TournamentReport report = tournament(100, 2, RANDOM, DENSITY, EDGES, density2, edges2).swiss(5, 5);
+
+        /* two matchups and a bye per round, every entrant sat out exactly one of the rounds */
+        assertEquals(10, report.matchups().size());
+        assertEquals(15, report.standings().stream().mapToDouble(Standing::points).sum());
+        assertTrue(report.standings().stream().allMatch(standing -> standing.matchups() == 4));
+    }
+
+    @Test
+    void shouldComputeWilsonIntervals() {
+        double[] even = MatchupResult.wilsonInterval(50, 100, 1.96);
+        assertEquals(0.404, even[0], 0.001);
+        assertEquals(0.596, even[1], 0.001);
+
+        double[] none = MatchupResult.wilsonInterval(0, 10, 1.96);
+        assertEquals(0, none[0], 1e-9);
+        assertEquals(0.278, none[1], 0.001);
+    }
+
+    @Test
+    void shouldRejectInvalidFields() {
+        assertThrows(IllegalArgumentException.class, () -> tournament(10, 1, RANDOM));
+        assertThrows(IllegalArgumentException.class, () -> tournament(10, 1, RANDOM, RANDOM));
+        assertThrows(IllegalArgumentException.class, () -> tournament(0, 1, RANDOM, DENSITY));
+        assertThrows(IllegalArgumentException.class, () -> tournament(10, 1, RANDOM, DENSITY).swiss(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new Entrant(" ", RandomShooter::new,
+                PlacementStrategy.random()));
+    }
+}
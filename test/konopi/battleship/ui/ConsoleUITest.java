@@ -0,0 +1,103 @@
+package konopi.battleship.ui;
+
+import konopi.battleship.App;
+import konopi.battleship.logic.BitboardOceanGrid;
+import konopi.battleship.logic.Coordinates;
+import konopi.battleship.logic.Game;
+import konopi.battleship.logic.GameRules;
+import konopi.battleship.logic.OffHeapOceanGrid;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsoleUITest {
+
+    private static String play(boolean ansi, String input, int turns) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ConsoleUI ui = new ConsoleUI(new ByteArrayInputStream(input.getBytes()), out, ansi);
+        Game game = new Game(BitboardOceanGrid::new, new SplittableRandom(1));
+        ui.initialise(game);
+        out.reset();
+        for (int i = 0; i < turns; ++i) {
+            ui.handleInput();
+            game.tick();
+            ui.update();
+        }
+        return out.toString();
+    }
+
+    @Test
+    void shouldPatchShotSquares() {
+        String output = play(false, "A1\nc-3\nJ10\n", 3);
+        String lastGrid = output.substring(output.lastIndexOf("   1  2"));
+
+        String[] lines = lastGrid.split("\n");
+        /* 'A1', 'C3' and 'J10', the squares are 3 chars wide after a 2 char label column */
+        assertNotEquals("[?]", lines[1].substring(2, 5));
+        assertNotEquals("[?]", lines[3].substring(8, 11));
+        assertNotEquals("[?]", lines[10].substring(29, 32));
+        assertEquals(97, lastGrid.split("\\[\\?]", -1).length - 1);
+    }
+
+    @Test
+    void shouldDrawTheShotsOfAGameInProgress() {
+        Game game = new Game(BitboardOceanGrid::new, new SplittableRandom(1));
+        for (String target : new String[]{"A1", "C3", "J10"}) {
+            game.setTargetCoordinates(Coordinates.valueOf(target));
+            game.tick();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ConsoleUI(new ByteArrayInputStream(new byte[0]), out, false).initialise(game);
+
+        assertEquals(97, out.toString().split("\\[\\?]", -1).length - 1);
+    }
+
+    @Test
+    void shouldRejectGridsTooLargeToRender() {
+        assertTrue(ConsoleUI.canRender(10, 10));
+        assertTrue(ConsoleUI.canRender(1000, 1000));
+        assertFalse(ConsoleUI.canRender(100_000, 100_000));
+        assertFalse(ConsoleUI.canRender(Integer.MAX_VALUE, 1));
+
+        Game game = new Game(new GameRules(10_000, 1_000, GameRules.standard().fleet(), true), OffHeapOceanGrid::new,
+                new SplittableRandom(1));
+        ConsoleUI ui = new ConsoleUI(new ByteArrayInputStream(new byte[0]), new ByteArrayOutputStream(), false);
+        assertThrows(IllegalArgumentException.class, () -> ui.initialise(game));
+    }
+
+    @Test
+    void shouldOnlyRedrawShotSquareInAnsiMode() {
+        String output = play(true, "B2\n", 1);
+
+        assertTrue(output.matches("(?s)\033\\[4;6H\\[[MH]]\033\\[14;1H\033\\[J.*"), output);
+        assertFalse(output.contains("[?]"));
+    }
+
+    @Test
+    void shouldPlayPipedMovesToTheEnd() throws InterruptedException {
+        StringBuilder input = new StringBuilder("not a square\n");
+        for (char letter = 'A'; letter <= 'J'; ++letter) {
+            for (int number = 1; number <= 10; ++number) input.append(letter).append(number).append('\n');
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ConsoleUI ui = new ConsoleUI(new ByteArrayInputStream(input.toString().getBytes()), out, false);
+        Game game = new Game(BitboardOceanGrid::new, new SplittableRandom(1));
+        int fleetSquares = game.getRules().fleet().stream().mapToInt(type -> type.size() * type.amount()).sum();
+        new App(ui, game);
+
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!out.toString().contains("It's over.") && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        String output = out.toString();
+        assertTrue(output.contains("It's over."));
+        assertTrue(output.contains("Wrong input!"));
+        /* the moves after the last sink are dropped */
+        assertEquals(fleetSquares, output.split("Hit!|Sink!", -1).length - 1);
+        assertTrue(output.split("Miss\\.", -1).length - 1 < 100 - fleetSquares);
+    }
+}